@@ -0,0 +1,155 @@
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares READ-like replies served from a file, placed on tmpfs if available, by
+ * copying the data into the heap against sending it with {@link FileChannel#transferTo}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class FileReadReply {
+
+    private static final int PROG_NUMBER = 100017;
+    private static final int PROG_VERS = 1;
+    private static final OncRpcProgram prog = new OncRpcProgram(PROG_NUMBER, PROG_VERS);
+
+    private static final int PROC_READ_COPY = 1;
+    private static final int PROC_READ_TRANSFER = 2;
+
+    @Param({"1048576"})
+    private String size;
+
+    private int length;
+    private Path file;
+    private FileChannel channel;
+
+    private OncRpcSvc svc;
+    private OncRpcClient rpcClient;
+    private RpcCall call;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        length = Integer.parseInt(size);
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+
+        Path shm = Paths.get("/dev/shm");
+        file = Files.isDirectory(shm) ? Files.createTempFile(shm, "oncrpc4j", ".bench")
+                : Files.createTempFile("oncrpc4j", ".bench");
+        Files.write(file, data);
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        svc = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withSameThreadIoStrategy()
+                .withRpcService(prog, call -> {
+                    call.retrieveCall(XdrVoid.XDR_VOID);
+                    call.reply(new ReadReply(call.getProcedure() == PROC_READ_TRANSFER));
+                })
+                .build();
+
+        svc.start();
+
+        InetSocketAddress socketAddress = svc.getInetSocketAddress(IpProtocolType.TCP);
+        rpcClient = new OncRpcClient(socketAddress, IpProtocolType.TCP);
+        RpcTransport transport = rpcClient.connect();
+        call = new RpcCall(prog.getNumber(), prog.getVersion(), new RpcAuthTypeNone(), transport);
+    }
+
+    @Benchmark
+    public XdrAble heapCopy() throws IOException, ExecutionException, InterruptedException {
+        return call.call(PROC_READ_COPY, XdrVoid.XDR_VOID, ReadResult.class).get();
+    }
+
+    @Benchmark
+    public XdrAble transferTo() throws IOException, ExecutionException, InterruptedException {
+        return call.call(PROC_READ_TRANSFER, XdrVoid.XDR_VOID, ReadResult.class).get();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        rpcClient.close();
+        svc.stop();
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private class ReadReply implements XdrAble {
+
+        private final boolean zeroCopy;
+
+        ReadReply(boolean zeroCopy) {
+            this.zeroCopy = zeroCopy;
+        }
+
+        @Override
+        public void xdrDecode(XdrDecodingStream xdr) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+            if (zeroCopy) {
+                ((Xdr) xdr).xdrEncodeFileRegion(channel, 0, length);
+            } else {
+                ByteBuffer bb = ByteBuffer.allocate(length);
+                while (bb.hasRemaining()) {
+                    channel.read(bb, bb.position());
+                }
+                bb.flip();
+                xdr.xdrEncodeByteBuffer(bb);
+            }
+        }
+    }
+
+    public static class ReadResult implements XdrAble {
+
+        private ByteBuffer data;
+
+        @Override
+        public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+            data = xdr.xdrDecodeByteBuffer();
+        }
+
+        @Override
+        public void xdrEncode(XdrEncodingStream xdr) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
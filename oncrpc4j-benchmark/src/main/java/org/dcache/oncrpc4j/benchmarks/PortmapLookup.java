@@ -0,0 +1,117 @@
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import org.dcache.oncrpc4j.portmap.OncPortmapClient;
+import org.dcache.oncrpc4j.portmap.OncRpcPortmap;
+import org.dcache.oncrpc4j.portmap.OncRpcbindServer;
+import org.dcache.oncrpc4j.portmap.PortmapV2Client;
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Portmap lookups against an rpcbind service set up as by {@code jarpcbind},
+ * with a configurable number of registered services and concurrent clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class PortmapLookup {
+
+    private static final int FIRST_PROG = 200000;
+
+    @Param({"10", "1000"})
+    private String services;
+
+    private int registered;
+    private OncRpcSvc svc;
+    private InetSocketAddress address;
+
+    @Setup
+    public void setUp() throws IOException, OncRpcException, TimeoutException {
+
+        svc = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2),
+                        new OncRpcbindServer())
+                .build();
+        svc.start();
+
+        address = svc.getInetSocketAddress(IpProtocolType.TCP);
+        registered = Integer.parseInt(services);
+
+        try (OncRpcClient rpcClient = new OncRpcClient(address, IpProtocolType.TCP)) {
+            OncPortmapClient portmap = portmapClient(rpcClient);
+            for (int i = 0; i < registered; i++) {
+                portmap.setPort(FIRST_PROG + i, 1, "tcp", "127.0.0.1." + (i / 256 + 4) + "." + (i % 256), "");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        svc.stop();
+    }
+
+    private static OncPortmapClient portmapClient(OncRpcClient rpcClient) throws IOException {
+        return new PortmapV2Client(new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2,
+                new RpcAuthTypeNone(), rpcClient.connect()));
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private OncRpcClient rpcClient;
+        private OncPortmapClient portmap;
+
+        @Setup(Level.Trial)
+        public void connect(PortmapLookup server) throws IOException {
+            rpcClient = new OncRpcClient(server.address, IpProtocolType.TCP);
+            portmap = portmapClient(rpcClient);
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            rpcClient.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getPort(Client client) throws IOException, OncRpcException, TimeoutException {
+        return client.portmap.getPort(FIRST_PROG + ThreadLocalRandom.current().nextInt(registered), 1, "tcp");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String getPortConcurrent(Client client) throws IOException, OncRpcException, TimeoutException {
+        return client.portmap.getPort(FIRST_PROG + ThreadLocalRandom.current().nextInt(registered), 1, "tcp");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String getPortMissConcurrent(Client client) throws IOException, OncRpcException, TimeoutException {
+        return client.portmap.getPort(FIRST_PROG - 1 - ThreadLocalRandom.current().nextInt(registered), 1, "tcp");
+    }
+}
@@ -2,6 +2,8 @@ package org.dcache.oncrpc4j.benchmarks;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.ThreadLocalRandom;
+import org.dcache.oncrpc4j.xdr.BadXdrOncRpcException;
+import org.dcache.oncrpc4j.xdr.OpaqueSlice;
 import org.dcache.oncrpc4j.xdr.Xdr;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -22,8 +24,18 @@ public class XdrBenchmark {
 
     private Xdr xdr;
 
+    private Xdr encoded;
+
     private ByteBuffer bb;
 
+    private int[] ints;
+
+    private long[] longs;
+
+    private Xdr encodedInts;
+
+    private Xdr encodedLongs;
+
     @Setup
     public void setUp() {
 
@@ -32,6 +44,25 @@ public class XdrBenchmark {
 
         bb = ByteBuffer.wrap(buf);
         xdr = new Xdr(256);
+
+        encoded = new Xdr(256);
+        encoded.beginEncoding();
+        encoded.xdrEncodeDynamicOpaqueArray(buf);
+        encoded.endEncoding();
+
+        // size is used as number of elements for array codecs
+        ints = ThreadLocalRandom.current().ints(Integer.parseInt(size)).toArray();
+        longs = ThreadLocalRandom.current().longs(Integer.parseInt(size)).toArray();
+
+        encodedInts = new Xdr(256);
+        encodedInts.beginEncoding();
+        encodedInts.xdrEncodeIntVector(ints);
+        encodedInts.endEncoding();
+
+        encodedLongs = new Xdr(256);
+        encodedLongs.beginEncoding();
+        encodedLongs.xdrEncodeLongVector(longs);
+        encodedLongs.endEncoding();
     }
 
 
@@ -57,4 +88,82 @@ public class XdrBenchmark {
         blackhole.consume(xdr);
     }
 
+    @Benchmark
+    public void decodeDynamicOpaque(Blackhole blackhole) throws BadXdrOncRpcException {
+
+        encoded.beginDecoding();
+        blackhole.consume(encoded.xdrDecodeDynamicOpaque());
+        encoded.endDecoding();
+    }
+
+    @Benchmark
+    public void decodeDynamicOpaqueSlice(Blackhole blackhole) throws BadXdrOncRpcException {
+
+        encoded.beginDecoding();
+        try (OpaqueSlice slice = encoded.xdrDecodeDynamicOpaqueSlice()) {
+            blackhole.consume(slice.asByteBuffer());
+        }
+        encoded.endDecoding();
+    }
+
+    @Benchmark
+    public void encodeIntVector(Blackhole blackhole) {
+
+        xdr.beginEncoding();
+        xdr.xdrEncodeIntVector(ints);
+        xdr.endEncoding();
+
+        blackhole.consume(xdr);
+    }
+
+    @Benchmark
+    public void encodeIntVectorByElement(Blackhole blackhole) {
+
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(ints.length);
+        for (int i : ints) {
+            xdr.xdrEncodeInt(i);
+        }
+        xdr.endEncoding();
+
+        blackhole.consume(xdr);
+    }
+
+    @Benchmark
+    public void decodeIntVector(Blackhole blackhole) throws BadXdrOncRpcException {
+
+        encodedInts.beginDecoding();
+        blackhole.consume(encodedInts.xdrDecodeIntVector());
+        encodedInts.endDecoding();
+    }
+
+    @Benchmark
+    public void decodeIntVectorByElement(Blackhole blackhole) throws BadXdrOncRpcException {
+
+        encodedInts.beginDecoding();
+        int[] values = new int[encodedInts.xdrDecodeInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = encodedInts.xdrDecodeInt();
+        }
+        blackhole.consume(values);
+        encodedInts.endDecoding();
+    }
+
+    @Benchmark
+    public void encodeLongVector(Blackhole blackhole) {
+
+        xdr.beginEncoding();
+        xdr.xdrEncodeLongVector(longs);
+        xdr.endEncoding();
+
+        blackhole.consume(xdr);
+    }
+
+    @Benchmark
+    public void decodeLongVector(Blackhole blackhole) throws BadXdrOncRpcException {
+
+        encodedLongs.beginDecoding();
+        blackhole.consume(encodedLongs.xdrDecodeLongVector());
+        encodedLongs.endDecoding();
+    }
 }
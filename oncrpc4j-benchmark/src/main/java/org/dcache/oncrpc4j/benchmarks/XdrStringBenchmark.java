@@ -0,0 +1,88 @@
+package org.dcache.oncrpc4j.benchmarks;
+
+import org.dcache.oncrpc4j.xdr.BadXdrOncRpcException;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrStringCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encoding and decoding of directory-listing-like sequences of file names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class XdrStringBenchmark {
+
+    @Param({"ascii", "utf8"})
+    private String names;
+
+    private String[] values;
+
+    private Xdr xdr;
+
+    private Xdr encoded;
+
+    private Xdr encodedCached;
+
+    @Setup
+    public void setUp() {
+
+        values = new String[64];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (names.equals("ascii") ? "file-" : "filé-") + i + ".dat";
+        }
+
+        xdr = new Xdr(256);
+        encoded = encode(values);
+        encodedCached = encode(values);
+        encodedCached.setStringCache(new XdrStringCache(1024));
+    }
+
+    private static Xdr encode(String[] values) {
+        Xdr xdr = new Xdr(256);
+        xdr.beginEncoding();
+        for (String value : values) {
+            xdr.xdrEncodeString(value);
+        }
+        xdr.endEncoding();
+        return xdr;
+    }
+
+    @Benchmark
+    public void encodeStrings(Blackhole blackhole) {
+
+        xdr.beginEncoding();
+        for (String value : values) {
+            xdr.xdrEncodeString(value);
+        }
+        xdr.endEncoding();
+
+        blackhole.consume(xdr);
+    }
+
+    @Benchmark
+    public void decodeStrings(Blackhole blackhole) throws BadXdrOncRpcException {
+
+        encoded.beginDecoding();
+        for (int i = 0; i < values.length; i++) {
+            blackhole.consume(encoded.xdrDecodeString());
+        }
+        encoded.endDecoding();
+    }
+
+    @Benchmark
+    public void decodeStringsCached(Blackhole blackhole) throws BadXdrOncRpcException {
+
+        encodedCached.beginDecoding();
+        for (int i = 0; i < values.length; i++) {
+            blackhole.consume(encodedCached.xdrDecodeString());
+        }
+        encodedCached.endDecoding();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Data types used to benchmark encoding and decoding of jrpcgen
+ * generated classes. Covers enums, fixed and variable size arrays,
+ * optional data, linked lists and discriminated unions.
+ */
+
+const MAXNAMLEN = 255;
+const FHSIZE = 64;
+
+enum ftype {
+    REG = 1,
+    DIR = 2,
+    LNK = 3
+};
+
+enum status {
+    OK = 0,
+    NOENT = 2,
+    IO = 5
+};
+
+struct fhandle {
+    opaque data<FHSIZE>;
+};
+
+struct timestamp {
+    hyper seconds;
+    unsigned int nseconds;
+};
+
+struct fattr {
+    ftype type;
+    unsigned int mode;
+    unsigned int nlink;
+    unsigned hyper size;
+    unsigned hyper fileid;
+    timestamp atime;
+    timestamp mtime;
+    timestamp ctime;
+};
+
+struct entry {
+    unsigned hyper cookie;
+    string name<MAXNAMLEN>;
+    fattr *attributes;
+    entry *nextentry;
+};
+
+struct dirlist {
+    entry *entries;
+    bool eof;
+};
+
+struct readres {
+    bool eof;
+    opaque data<>;
+};
+
+union getattrres switch (status stat) {
+case OK:
+    fattr attributes;
+default:
+    void;
+};
+
+union readdirres switch (status stat) {
+case OK:
+    dirlist reply;
+case NOENT:
+case IO:
+    void;
+};
@@ -21,6 +21,7 @@ package org.dcache.oncrpc4j.grizzly;
 
 
 import java.nio.ByteOrder;
+import org.dcache.oncrpc4j.rpc.CallWindow;
 import org.dcache.oncrpc4j.rpc.ReplyQueue;
 import org.dcache.oncrpc4j.rpc.RpcMessageParserTCP;
 import org.dcache.oncrpc4j.xdr.Xdr;
@@ -32,8 +33,10 @@ import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.CloseListener;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.ICloseType;
 import org.glassfish.grizzly.WriteResult;
 import org.glassfish.grizzly.asyncqueue.WritableMessage;
 import org.glassfish.grizzly.filterchain.FilterChain;
@@ -62,6 +65,11 @@ public class GrizzlyRpcTransport implements RpcTransport {
      */
     private final boolean _isStreaming;
 
+    /**
+     * The window of outstanding calls or {@code null}, if not limited.
+     */
+    private final CallWindow _callWindow;
+
     private final static Logger _log = LoggerFactory.getLogger(GrizzlyRpcTransport.class);
 
     public GrizzlyRpcTransport(Connection<InetSocketAddress> connection, ReplyQueue replyQueue) {
@@ -69,13 +77,24 @@ public class GrizzlyRpcTransport implements RpcTransport {
     }
 
     public GrizzlyRpcTransport(Connection<InetSocketAddress> connection, InetSocketAddress remoteAddress, ReplyQueue replyQueue) {
+        this(connection, remoteAddress, replyQueue, null);
+    }
+
+    public GrizzlyRpcTransport(Connection<InetSocketAddress> connection, InetSocketAddress remoteAddress, ReplyQueue replyQueue,
+            CallWindow callWindow) {
         _connection = connection;
+        _callWindow = callWindow;
         _replyQueue = replyQueue;
         _localAddress = _connection.getLocalAddress();
         _remoteAddress = remoteAddress;
         _isStreaming = connection.getTransport() instanceof TCPNIOTransport;
     }
 
+    @Override
+    public CallWindow getCallWindow() {
+        return _callWindow;
+    }
+
     @Override
     public boolean isOpen() {
         return _connection.isOpen();
@@ -85,7 +104,13 @@ public class GrizzlyRpcTransport implements RpcTransport {
     public <A> void send(final Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
 
         requireNonNull(handler, "CompletionHandler can't be null");
-        WritableMessage buffer = xdr.toWritableMessage(_connection, _isStreaming);
+        WritableMessage buffer;
+        try {
+            buffer = xdr.toWritableMessage(_connection, _isStreaming);
+        } catch (IOException e) {
+            handler.failed(e, attachment);
+            return;
+        }
 
         // pass destination address to handle UDP connections as well
         _connection.write(_remoteAddress, buffer,
@@ -118,6 +143,16 @@ public class GrizzlyRpcTransport implements RpcTransport {
                 });
     }
 
+    /**
+     * Register an action to run when the underlying connection is closed. If connection is
+     * already closed, the action runs immediately.
+     *
+     * @param listener the action to run.
+     */
+    public void addCloseListener(Runnable listener) {
+        _connection.addCloseListener((CloseListener<org.glassfish.grizzly.Closeable, ICloseType>) (c, type) -> listener.run());
+    }
+
     @Override
     public InetSocketAddress getLocalSocketAddress() {
         return _localAddress;
@@ -160,6 +195,11 @@ public class GrizzlyRpcTransport implements RpcTransport {
                 .startTLS(_connection);
     }
 
+    @Override
+    public boolean isStreaming() {
+        return _isStreaming;
+    }
+
     @Override
     public boolean isTLS() {
         return ((FilterChain) _connection.getProcessor()).stream()
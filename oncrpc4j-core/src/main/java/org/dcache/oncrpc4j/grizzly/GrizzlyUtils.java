@@ -24,6 +24,7 @@ import org.dcache.oncrpc4j.rpc.MemoryAllocator;
 import org.dcache.oncrpc4j.rpc.RpcMessageParserTCP;
 import org.dcache.oncrpc4j.rpc.RpcMessageParserUDP;
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrStringCache;
 import org.glassfish.grizzly.IOStrategy;
 import org.glassfish.grizzly.Transport;
 import org.glassfish.grizzly.filterchain.Filter;
@@ -71,12 +72,16 @@ public class GrizzlyUtils {
     private GrizzlyUtils(){}
 
     public static Filter rpcMessageReceiverFor(Transport t) {
+        return rpcMessageReceiverFor(t, null);
+    }
+
+    public static Filter rpcMessageReceiverFor(Transport t, XdrStringCache stringCache) {
         if (t instanceof TCPNIOTransport) {
-            return new RpcMessageParserTCP();
+            return new RpcMessageParserTCP(stringCache);
         }
 
         if (t instanceof UDPNIOTransport) {
-            return new RpcMessageParserUDP();
+            return new RpcMessageParserUDP(stringCache);
         }
 
         throw new RuntimeException("Unsupported transport: " + t.getClass().getName());
@@ -21,6 +21,7 @@ package org.dcache.oncrpc4j.portmap;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
@@ -43,39 +44,103 @@ public class GenericPortmapClient implements OncPortmapClient {
     private final static Logger _log = LoggerFactory.getLogger(GenericPortmapClient.class);
     private final RpcAuth _auth = new RpcAuthTypeNone();
     private final OncPortmapClient _portmapClient;
+    private final PortmapCache _cache;
+    private final InetSocketAddress _portmapAddress;
 
     public GenericPortmapClient(RpcTransport transport) throws RpcProgUnavailable {
+        this(transport, PortmapCache.getDefault());
+    }
 
-       OncPortmapClient portmapClient = new RpcbindV4Client(new RpcCall(PORTMAP_PROGRAMM, PORTMAP_V4, _auth, transport));
-        if( !portmapClient.ping() ) {
-            portmapClient = new PortmapV2Client( new RpcCall(PORTMAP_PROGRAMM, PORTMAP_V2, _auth, transport) );
-            if(!portmapClient.ping()) {
-                // FIXME: return correct exception
-                throw new RpcProgUnavailable("portmap service not available");
-            }
-            _log.debug("Using portmap V2");
+    /**
+     * Create a portmap client, which uses the given cache for lookups and to remember
+     * which protocol version is supported by the portmap service.
+     *
+     * @param transport transport connected to the portmap service.
+     * @param cache the cache to use.
+     * @throws RpcProgUnavailable if portmap service is not available.
+     */
+    public GenericPortmapClient(RpcTransport transport, PortmapCache cache) throws RpcProgUnavailable {
+
+        _cache = cache;
+        _portmapAddress = transport.getRemoteSocketAddress();
+
+        OncPortmapClient portmapClient;
+        switch (cache.getVersion(_portmapAddress)) {
+            case PORTMAP_V4:
+                portmapClient = new RpcbindV4Client(new RpcCall(PORTMAP_PROGRAMM, PORTMAP_V4, _auth, transport));
+                break;
+            case PORTMAP_V2:
+                portmapClient = new PortmapV2Client(new RpcCall(PORTMAP_PROGRAMM, PORTMAP_V2, _auth, transport));
+                break;
+            default:
+                portmapClient = new RpcbindV4Client(new RpcCall(PORTMAP_PROGRAMM, PORTMAP_V4, _auth, transport));
+                int version = PORTMAP_V4;
+                if (!portmapClient.ping()) {
+                    portmapClient = new PortmapV2Client(new RpcCall(PORTMAP_PROGRAMM, PORTMAP_V2, _auth, transport));
+                    if (!portmapClient.ping()) {
+                        // FIXME: return correct exception
+                        throw new RpcProgUnavailable("portmap service not available");
+                    }
+                    _log.debug("Using portmap V2");
+                    version = PORTMAP_V2;
+                }
+                cache.setVersion(_portmapAddress, version);
         }
         _portmapClient = portmapClient;
     }
 
     public List<rpcb> dump() throws OncRpcException, IOException, TimeoutException {
-        return _portmapClient.dump();
+        try {
+            return _portmapClient.dump();
+        } catch (IOException | TimeoutException e) {
+            _cache.invalidate(_portmapAddress);
+            throw e;
+        }
     }
 
     public boolean ping() {
-        return _portmapClient.ping();
+        boolean pong = _portmapClient.ping();
+        if (!pong) {
+            _cache.invalidate(_portmapAddress);
+        }
+        return pong;
     }
 
     public boolean setPort(int program, int version, String netid, String addr, String owner) throws OncRpcException, IOException, TimeoutException {
-        return _portmapClient.setPort(program, version, netid, addr, owner);
+        try {
+            return _portmapClient.setPort(program, version, netid, addr, owner);
+        } catch (IOException | TimeoutException e) {
+            _cache.invalidate(_portmapAddress);
+            throw e;
+        } finally {
+            _cache.invalidate(_portmapAddress, program, version);
+        }
     }
 
     public boolean unsetPort(int program, int version, String owner) throws OncRpcException, IOException, TimeoutException {
-        return _portmapClient.unsetPort(program, version, owner);
+        try {
+            return _portmapClient.unsetPort(program, version, owner);
+        } catch (IOException | TimeoutException e) {
+            _cache.invalidate(_portmapAddress);
+            throw e;
+        } finally {
+            _cache.invalidate(_portmapAddress, program, version);
+        }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The result is cached, see {@link PortmapCache}.
+     */
     public String getPort(int program, int version, String netid) throws OncRpcException, IOException, TimeoutException {
-        return _portmapClient.getPort(program, version, netid);
+        try {
+            return _cache.getPort(_portmapAddress, program, version, netid,
+                    () -> _portmapClient.getPort(program, version, netid));
+        } catch (IOException | TimeoutException e) {
+            _cache.invalidate(_portmapAddress);
+            throw e;
+        }
     }
 
     public static void main(String[] args) throws InterruptedException, IOException, OncRpcException, TimeoutException {
@@ -49,6 +49,7 @@ public class OncRpcEmbeddedPortmap {
 
     private static final RpcAuth _auth = new RpcAuthTypeNone();
     private OncRpcSvc optionalEmbeddedServer = null;
+    private OncRpcbindServer embeddedRpcbind = null;
 
     /**
      * Start a new embedded portmap service when another one is not running.
@@ -96,15 +97,19 @@ public class OncRpcEmbeddedPortmap {
         if (!localPortmapperRunning) {
             try {
                 LOG.info("Starting embedded portmap service");
+                OncRpcbindServer rpcbind = new OncRpcbindServer();
                 OncRpcSvc rpcbindServer = new OncRpcSvcBuilder()
                         .withPort(OncRpcPortmap.PORTMAP_PORT)
                         .withTCP()
                         .withUDP()
                         .withoutAutoPublish()
-                        .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2), new OncRpcbindServer())
+                        .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2), rpcbind)
+                        .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V3), rpcbind)
+                        .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V4), rpcbind)
                         .build();
                 rpcbindServer.start();
                 optionalEmbeddedServer = rpcbindServer;
+                embeddedRpcbind = rpcbind;
             } catch (IOException e) {
                 LOG.error("Failed to start embedded portmap service: {}", e.getMessage());
             }
@@ -125,6 +130,7 @@ public class OncRpcEmbeddedPortmap {
     public void shutdown() throws IOException {
         if (optionalEmbeddedServer != null) {
             optionalEmbeddedServer.stop();
+            embeddedRpcbind.close();
         }
     }
 
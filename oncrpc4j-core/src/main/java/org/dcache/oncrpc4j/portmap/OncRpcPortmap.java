@@ -42,14 +42,22 @@ public class OncRpcPortmap {
     public static final int PMAPPROC_DUMP = 4;
     public static final int PMAPPROC_CALLIT = 5;
 
+    /*
+     * V3
+     */
+    public static final int PORTMAP_V3 = 3;
+
     /*
      * V4
      */
     public static final int PORTMAP_V4 = 4;
+    public static final int RPCBPROC_NULL = 0;
     public static final int RPCBPROC_SET = 1;
     public static final int RPCBPROC_UNSET = 2;
     public static final int RPCBPROC_GETADDR = 3;
     public static final int RPCBPROC_DUMP = 4;
+    public static final int RPCBPROC_CALLIT = 5;
+    public static final int RPCBPROC_BCAST = 5;
     public static final int RPCBPROC_GETTIME = 6;
     public static final int RPCBPROC_UADDR2TADDR = 7;
     public static final int RPCBPROC_TADDR2UADDR = 8;
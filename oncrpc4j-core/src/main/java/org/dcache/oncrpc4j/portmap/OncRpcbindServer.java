@@ -21,26 +21,46 @@ package org.dcache.oncrpc4j.portmap;
 
 import com.sun.security.auth.UnixNumericUserPrincipal;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.rpc.RpcAccepsStatus;
+import org.dcache.oncrpc4j.rpc.RpcAuth;
 import org.dcache.oncrpc4j.rpc.RpcAuthType;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
 import org.dcache.oncrpc4j.rpc.RpcCall;
 import org.dcache.oncrpc4j.rpc.RpcDispatchable;
+import org.dcache.oncrpc4j.rpc.RpcRejectStatus;
+import org.dcache.oncrpc4j.rpc.RpcReply;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.rpc.net.InetSocketAddresses;
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
 import org.dcache.oncrpc4j.rpc.net.netid;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
 import org.dcache.oncrpc4j.xdr.XdrBoolean;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+import org.dcache.oncrpc4j.xdr.XdrInt;
+import org.dcache.oncrpc4j.xdr.XdrString;
 import org.dcache.oncrpc4j.xdr.XdrVoid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.security.auth.kerberos.KerberosPrincipal;
 import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
 import java.security.Principal;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
 
 
-public class OncRpcbindServer implements RpcDispatchable {
+public class OncRpcbindServer implements RpcDispatchable, AutoCloseable {
 	static final ArrayList<String> v2NetIDs = new ArrayList<String>() {{
 		add("tcp");
 		add("udp");
@@ -49,16 +69,69 @@ public class OncRpcbindServer implements RpcDispatchable {
     private final static Logger _log = LoggerFactory.getLogger(OncRpcbindServer.class);
     private final static String SERVICE_OWNER_UNSPECIFIED = "unspecified";
     private final static String SERVICE_OWNER_SUPER = "superuser";
+
+    /**
+     * Time to wait for the reply of a service to a forwarded call.
+     */
+    private final static long FORWARD_TIMEOUT = 5;
+    private final static TimeUnit FORWARD_TIMEOUT_UNIT = TimeUnit.SECONDS;
+
+    private final static RpcAuth NO_AUTH = new RpcAuthTypeNone();
+
+    /**
+     * Registered services.
+     */
+    private final RpcbRegistry _services;
+
+    /**
+     * Forwarder of INDIRECT calls.
+     */
+    private final RpcbForwarder _forwarder = new RpcbForwarder(FORWARD_TIMEOUT, FORWARD_TIMEOUT_UNIT);
+
+    /**
+     * Whatever CALLIT and INDIRECT calls are forwarded to registered services.
+     */
+    private volatile boolean _remoteCalls;
+
     /**
-     * Set of registered services.
+     * Encoded replies to DUMP requests of v2 and v3/v4. Rebuild on first DUMP after registered
+     * services have changed.
      */
-    private final Set<rpcb> _services = new HashSet<>();
+    private volatile EncodedReply _pmapDump;
+    private volatile EncodedReply _rpcbDump;
 
     public OncRpcbindServer() {
-        _services.add(new rpcb(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2, "tcp", "0.0.0.0.0.111", SERVICE_OWNER_SUPER));
-        _services.add(new rpcb(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2, "udp", "0.0.0.0.0.111", SERVICE_OWNER_SUPER));
-        //_services.add(new rpcb(100000, 4, "tcp", "0.0.0.0.0.111", "superuser"));
+        _services = new RpcbRegistry();
+        registerSelf();
     }
+
+    /**
+     * Create rpcbind service which keeps registrations in a journal file. Registrations
+     * found in the journal are restored, thus services don't need to re-register after
+     * restart of rpcbind. As some of restored services may be gone in the meantime,
+     * {@link #removeUnreachable(long, TimeUnit)} should be called after startup.
+     *
+     * @param journal the location of the journal file.
+     * @throws IOException if journal can't be opened.
+     */
+    public OncRpcbindServer(Path journal) throws IOException {
+        RpcbJournal registrations = new RpcbJournal(journal);
+        try {
+            _services = new RpcbRegistry(registrations);
+        } catch (IOException e) {
+            registrations.close();
+            throw e;
+        }
+        registerSelf();
+    }
+
+    private void registerSelf() {
+        for (int version = OncRpcPortmap.PORTMAP_V2; version <= OncRpcPortmap.PORTMAP_V4; version++) {
+            _services.add(new rpcb(OncRpcPortmap.PORTMAP_PROGRAMM, version, "tcp", "0.0.0.0.0.111", SERVICE_OWNER_SUPER));
+            _services.add(new rpcb(OncRpcPortmap.PORTMAP_PROGRAMM, version, "udp", "0.0.0.0.0.111", SERVICE_OWNER_SUPER));
+        }
+    }
+
     public void dispatchOncRpcCall(RpcCall call) throws OncRpcException, IOException {
         int version = call.getProgramVersion();
 
@@ -68,12 +141,75 @@ public class OncRpcbindServer implements RpcDispatchable {
                 break;
             case 3:
             case 4:
-//                break;
+                processRpcbCall(call, version);
+                break;
             default:
                 call.failProgramMismatch(2, 4);
         }
     }
 
+    /**
+     * Enable or disable forwarding of remote calls (PMAPPROC_CALLIT, RPCBPROC_CALLIT and
+     * RPCBPROC_INDIRECT) to registered services. As forwarded calls can be used to reach
+     * services, which are bound to the loopback interface, and to amplify broadcast
+     * traffic, forwarding is disabled by default. When disabled, broadcast calls are
+     * ignored and INDIRECT calls are answered with PROC_UNAVAIL.
+     *
+     * @param enabled {@code true} to forward remote calls.
+     */
+    public void setRemoteCalls(boolean enabled) {
+        _remoteCalls = enabled;
+    }
+
+    /**
+     * Remove registrations of services which don't reply to calls of NULL procedure.
+     * All registered services, except rpcbind itself, are probed in parallel.
+     *
+     * @param timeout time to wait for a reply of each service.
+     * @param unit the time unit of timeout.
+     * @return number of removed registrations.
+     * @throws IOException if services can't be probed.
+     * @throws InterruptedException if interrupted while waiting for probes.
+     */
+    public int removeUnreachable(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        List<rpcb> services = new ArrayList<>();
+        for (rpcb service : _services.list()) {
+            if (service.getProg() != OncRpcPortmap.PORTMAP_PROGRAMM) {
+                services.add(service);
+            }
+        }
+        if (services.isEmpty()) {
+            return 0;
+        }
+
+        int removed = 0;
+        try (RpcbProber prober = new RpcbProber()) {
+            for (rpcb service : prober.unreachable(services, timeout, unit)) {
+                // the service may have re-registered while being probed
+                if (_services.removeIfRegistered(service)) {
+                    _log.info("Removed unreachable service {} v{} {} at {}", service.getProg(), service.getVers(),
+                            service.getNetid(), service.getAddr());
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Shutdown the client side service used to forward INDIRECT calls and close the
+     * registration journal, if any.
+     * @throws IOException if client side service failed to shutdown.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            _forwarder.close();
+        } finally {
+            _services.close();
+        }
+    }
+
     private void processV2Call(RpcCall call) throws OncRpcException, IOException {
         switch(call.getProcedure()) {
             case OncRpcPortmap.PMAPPROC_NULL:
@@ -89,19 +225,9 @@ public class OncRpcbindServer implements RpcDispatchable {
                         netid.toString(newMapping.getPort()),
                         SERVICE_OWNER_UNSPECIFIED
                 );
-				boolean found = false;
-                synchronized(_services) {
-					for ( rpcb c : _services ) {
-						if ( c.getProg() == rpcbMapping.getProg() &&  c.getVers() == rpcbMapping.getVers() && c.getNetid().equals(rpcbMapping.getNetid()) ) {
-							found = true;
-							break;
-						}
-					}
-					if (!found) { // only add if not found already
-						_services.add(rpcbMapping);
-					}
-                }
-                call.reply( (found?XdrBoolean.False:XdrBoolean.True) );
+                // only added if not registered already
+                boolean added = _services.add(rpcbMapping);
+                call.reply( (added?XdrBoolean.True:XdrBoolean.False) );
                 break;
             case OncRpcPortmap.PMAPPROC_UNSET:
                 mapping unsetMapping = new mapping();
@@ -113,47 +239,22 @@ public class OncRpcbindServer implements RpcDispatchable {
                         netid.toString(unsetMapping.getPort()),
                         getOwner(call)
                 );
-				boolean removed = false;
-                synchronized(_services) {
-					Set<rpcb> target = new HashSet<>();
-					// lookup entries
-					for ( rpcb c : _services ) {
-						if ( c.getProg() == rpcbUnsetMapping.getProg() &&  c.getVers() == rpcbUnsetMapping.getVers() && c.getOwner().equals(rpcbUnsetMapping.getOwner()) ) {
-							target.add(c);
-						}
-					}
-					// clear entries
-					for ( rpcb c: target ) {
-						_services.remove(c);
-						removed = true;
-					}
-                }
+                // v2 removes the service on all transports
+                boolean removed = !_services.remove(rpcbUnsetMapping.getProg(),
+                        rpcbUnsetMapping.getVers(),
+                        null,
+                        rpcbUnsetMapping.getOwner()).isEmpty();
                 call.reply( (removed?XdrBoolean.True:XdrBoolean.False) );
                 break;
             case OncRpcPortmap.PMAPPROC_DUMP:
-                pmaplist list = new pmaplist();
-                pmaplist next = list;
-                synchronized(_services) {
-                    for(rpcb m: _services) {
-                        if (!v2NetIDs.contains(m.getNetid())) { // skip netid's which are not v2
-                            continue;
-                        }
-                        next.setEntry(new mapping(m.getProg(), m.getVers(), netid.idOf(m.getNetid()), netid.getPort(m.getAddr())));
-                        pmaplist n = new pmaplist();
-                        next.setNext(n);
-                        next = n;
-                    }
-                }
-                call.reply(list);
+                call.reply(pmapDump());
                 break;
             case OncRpcPortmap.PMAPPROC_GETPORT:
                 mapping query = new mapping();
                 call.retrieveCall(query);
-                rpcb result = search(new rpcb(query.getProg(),
+                rpcb result = _services.get(query.getProg(),
                         query.getVers(),
-                        IpProtocolType.toString(query.getProt()),
-                        netid.toString(query.getPort()),
-                        getOwner(call)));
+                        IpProtocolType.toString(query.getProt()));
                 Port port;
                 if(result == null) {
                     port = new Port(0);
@@ -162,18 +263,316 @@ public class OncRpcbindServer implements RpcDispatchable {
                 }
                 call.reply(port);
                 break;
+            case OncRpcPortmap.PMAPPROC_CALLIT:
+                rpcb_rmtcallargs callitArgs = new rpcb_rmtcallargs();
+                call.retrieveCall(callitArgs);
+                indirect(call, callitArgs, true, (addr, results) -> new call_result(netid.getPort(addr), results));
+                break;
             default:
                 call.failProcedureUnavailable();
         }
     }
 
-    private rpcb search(rpcb query) {
-        synchronized(_services) {
-            for( rpcb e: _services) {
-                if( e.match(query)) return e;
+    private void processRpcbCall(RpcCall call, int version) throws OncRpcException, IOException {
+        if (version == OncRpcPortmap.PORTMAP_V3 && call.getProcedure() > OncRpcPortmap.RPCBPROC_TADDR2UADDR) {
+            call.failProcedureUnavailable();
+            return;
+        }
+
+        switch (call.getProcedure()) {
+            case OncRpcPortmap.RPCBPROC_NULL:
+                call.reply(XdrVoid.XDR_VOID);
+                break;
+            case OncRpcPortmap.RPCBPROC_SET:
+                rpcb newService = new rpcb();
+                call.retrieveCall(newService);
+                boolean added = _services.add(new rpcb(newService.getProg(),
+                        newService.getVers(),
+                        newService.getNetid(),
+                        newService.getAddr(),
+                        getOwner(call)));
+                call.reply(added ? XdrBoolean.True : XdrBoolean.False);
+                break;
+            case OncRpcPortmap.RPCBPROC_UNSET:
+                rpcb oldService = new rpcb();
+                call.retrieveCall(oldService);
+                String owner = getOwner(call);
+                // empty netid removes service on all transports, superuser can remove any service
+                boolean removed = !_services.remove(oldService.getProg(),
+                        oldService.getVers(),
+                        oldService.getNetid().isEmpty() ? null : oldService.getNetid(),
+                        owner.equals(SERVICE_OWNER_SUPER) ? null : owner).isEmpty();
+                call.reply(removed ? XdrBoolean.True : XdrBoolean.False);
+                break;
+            case OncRpcPortmap.RPCBPROC_GETADDR:
+                rpcb query = new rpcb();
+                call.retrieveCall(query);
+                call.reply(new XdrString(getAddr(call, query, true)));
+                break;
+            case OncRpcPortmap.RPCBPROC_GETVERSADDR:
+                rpcb versQuery = new rpcb();
+                call.retrieveCall(versQuery);
+                call.reply(new XdrString(getAddr(call, versQuery, false)));
+                break;
+            case OncRpcPortmap.RPCBPROC_DUMP:
+                call.reply(rpcbDump());
+                break;
+            case OncRpcPortmap.RPCBPROC_GETTIME:
+                call.reply(new XdrInt((int) TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())));
+                break;
+            case OncRpcPortmap.RPCBPROC_GETADDRLIST:
+                rpcb listQuery = new rpcb();
+                call.retrieveCall(listQuery);
+                List<rpcb_entry> entries = new ArrayList<>();
+                for (rpcb service : _services.get(listQuery.getProg(), listQuery.getVers())) {
+                    entries.add(entryOf(service, call.getTransport()));
+                }
+                call.reply(new rpcb_entry_list(entries));
+                break;
+            case OncRpcPortmap.RPCBPROC_CALLIT:
+                // aka RPCBPROC_BCAST in v4
+                rpcb_rmtcallargs callitArgs = new rpcb_rmtcallargs();
+                call.retrieveCall(callitArgs);
+                indirect(call, callitArgs, true, rpcb_rmtcallres::new);
+                break;
+            case OncRpcPortmap.RPCBPROC_INDIRECT:
+                rpcb_rmtcallargs callArgs = new rpcb_rmtcallargs();
+                call.retrieveCall(callArgs);
+                indirect(call, callArgs, false, rpcb_rmtcallres::new);
+                break;
+            default:
+                call.failProcedureUnavailable();
+        }
+    }
+
+    /**
+     * Get the address of a service. If {@code netid} of the query is empty, the netid of the
+     * transport on which the query was received is used.
+     *
+     * @param call the query call.
+     * @param query the requested program, version and netid.
+     * @param anyVersion whatever an address of other version of the program can be returned,
+     *                   if requested version is not registered.
+     * @return universal address of the service or an empty string.
+     */
+    private String getAddr(RpcCall call, rpcb query, boolean anyVersion) {
+        String nid = query.getNetid().isEmpty() ? netidOf(call.getTransport()) : query.getNetid();
+        rpcb service = _services.get(query.getProg(), query.getVers(), nid);
+        if (service == null && anyVersion) {
+            service = _services.find(query.getProg(), nid);
+        }
+        return service == null ? "" : mergeAddress(service.getAddr(), call.getTransport());
+    }
+
+    /**
+     * Forward a call to a service registered on UDP and pass the results to the caller.
+     * <p>
+     * CALLIT requests are typically broadcast, thus errors are not reported to avoid
+     * flooding the caller with replies of hosts which don't run the service.
+     * <p>
+     * Calls are forwarded only if enabled by {@link #setRemoteCalls(boolean)}. Calls
+     * to rpcbind itself are never forwarded, and forwarded calls always use AUTH_NONE,
+     * as the credentials of a remote caller can't be vouched for.
+     *
+     * @param call the call received by rpcbind.
+     * @param args the procedure to call and its arguments.
+     * @param silent if {@code true}, reply only if forwarded call succeeds.
+     * @param result builds reply from the address of the service and its encoded results.
+     */
+    private void indirect(RpcCall call, rpcb_rmtcallargs args, boolean silent, BiFunction<String, Opaque, XdrAble> result) {
+        if (!_remoteCalls) {
+            if (!silent) {
+                call.failProcedureUnavailable();
+            }
+            return;
+        }
+
+        if (args.getProg() == OncRpcPortmap.PORTMAP_PROGRAMM) {
+            _log.debug("Rejecting indirect call to rpcbind from {}", call.getTransport().getRemoteSocketAddress());
+            if (!silent) {
+                call.failProgramUnavailable();
+            }
+            return;
+        }
+
+        rpcb service = _services.get(args.getProg(), args.getVers(), "udp");
+        if (service == null) {
+            service = _services.get(args.getProg(), args.getVers(), "udp6");
+        }
+        if (service == null) {
+            if (!silent) {
+                call.failProgramUnavailable();
+            }
+            return;
+        }
+
+        String addr = mergeAddress(service.getAddr(), call.getTransport());
+        try {
+            InetSocketAddress target = netid.toInetSocketAddress(service.getAddr());
+            if (target.getAddress().isAnyLocalAddress()) {
+                target = new InetSocketAddress(InetAddress.getLoopbackAddress(), target.getPort());
+            }
+
+            _forwarder.forward(target, args.getProg(), args.getVers(), args.getProc(), NO_AUTH,
+                    new OpaqueBody(args.getArgs()), new CompletionHandler<RpcReply, RpcTransport>() {
+                        @Override
+                        public void completed(RpcReply reply, RpcTransport transport) {
+                            try {
+                                if (!silent || (reply.isAccepted() && reply.getAcceptStatus() == RpcAccepsStatus.SUCCESS)) {
+                                    replyIndirect(call, addr, reply, result);
+                                }
+                            } catch (IOException e) {
+                                _log.warn("Invalid reply to indirect call from {}: {}", addr, e.getMessage());
+                                if (!silent) {
+                                    call.failRpcSystem();
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void failed(Throwable t, RpcTransport transport) {
+                            _log.debug("Indirect call to {} failed: {}", addr, t.toString());
+                            if (!silent) {
+                                call.failRpcSystem();
+                            }
+                        }
+                    });
+        } catch (IllegalArgumentException | IOException e) {
+            _log.warn("Failed to forward indirect call to {}: {}", addr, e.getMessage());
+            if (!silent) {
+                call.failRpcSystem();
+            }
+        }
+    }
+
+    /*
+     * Pass reply of the service to the caller.
+     */
+    private static void replyIndirect(RpcCall call, String addr, RpcReply reply,
+            BiFunction<String, Opaque, XdrAble> result) throws OncRpcException, IOException {
+        if (!reply.isAccepted()) {
+            XdrAble reason = reply.getRejectStatus() == RpcRejectStatus.AUTH_ERROR
+                    ? new XdrInt(reply.getAuthStatus()) : reply.getMismatchInfo();
+            call.reject(reply.getRejectStatus(), reason);
+            return;
+        }
+
+        switch (reply.getAcceptStatus()) {
+            case RpcAccepsStatus.SUCCESS:
+                OpaqueBody results = new OpaqueBody();
+                reply.getReplyResult(results);
+                call.reply(result.apply(addr, results.getBody()));
+                break;
+            case RpcAccepsStatus.PROG_MISMATCH:
+                call.acceptedReply(RpcAccepsStatus.PROG_MISMATCH, reply.getMismatchInfo());
+                break;
+            default:
+                call.acceptedReply(reply.getAcceptStatus(), XdrVoid.XDR_VOID);
+        }
+    }
+
+    private static rpcb_entry entryOf(rpcb service, RpcTransport transport) {
+        String nid = service.getNetid();
+        boolean inet6 = nid.endsWith("6");
+        String proto = inet6 ? nid.substring(0, nid.length() - 1) : nid;
+        return new rpcb_entry(mergeAddress(service.getAddr(), transport),
+                nid,
+                proto.equals("udp") ? rpcb_entry.NC_TPI_CLTS : rpcb_entry.NC_TPI_COTS_ORD,
+                inet6 ? "inet6" : "inet",
+                proto);
+    }
+
+    private static String netidOf(RpcTransport transport) {
+        String proto = transport.isStreaming() ? "tcp" : "udp";
+        return transport.getLocalSocketAddress().getAddress() instanceof Inet6Address ? proto + "6" : proto;
+    }
+
+    /*
+     * Services registered on wildcard address are reported with the local address
+     * on which the request was received.
+     */
+    private static String mergeAddress(String uaddr, RpcTransport transport) {
+        try {
+            InetSocketAddress address = netid.toInetSocketAddress(uaddr);
+            InetAddress local = transport.getLocalSocketAddress().getAddress();
+            if (!address.getAddress().isAnyLocalAddress() || local.isAnyLocalAddress()) {
+                return uaddr;
+            }
+            return InetSocketAddresses.uaddrOf(new InetSocketAddress(local, address.getPort()));
+        } catch (IllegalArgumentException e) {
+            return uaddr;
+        }
+    }
+
+    private EncodedReply pmapDump() throws OncRpcException, IOException {
+        EncodedReply dump = _pmapDump;
+        // the generation must be taken before the services are listed
+        long generation = _services.generation();
+        if (dump == null || dump._generation != generation) {
+            try (Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE)) {
+                xdr.beginEncoding();
+                for (rpcb m : _services.list()) {
+                    if (!v2NetIDs.contains(m.getNetid())) { // skip netid's which are not v2
+                        continue;
+                    }
+                    xdr.xdrEncodeBoolean(true);
+                    new mapping(m.getProg(), m.getVers(), netid.idOf(m.getNetid()), netid.getPort(m.getAddr())).xdrEncode(xdr);
+                }
+                xdr.xdrEncodeBoolean(false);
+                xdr.endEncoding();
+                dump = new EncodedReply(generation, xdr.toOpaque());
             }
+            _pmapDump = dump;
+        }
+        return dump;
+    }
+
+    private EncodedReply rpcbDump() throws OncRpcException, IOException {
+        EncodedReply dump = _rpcbDump;
+        // the generation must be taken before the services are listed
+        long generation = _services.generation();
+        if (dump == null || dump._generation != generation) {
+            try (Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE)) {
+                xdr.beginEncoding();
+                for (rpcb m : _services.list()) {
+                    xdr.xdrEncodeBoolean(true);
+                    m.xdrEncode(xdr);
+                }
+                xdr.xdrEncodeBoolean(false);
+                xdr.endEncoding();
+                dump = new EncodedReply(generation, xdr.toOpaque());
+            }
+            _rpcbDump = dump;
+        }
+        return dump;
+    }
+
+    /**
+     * A reply which is encoded once and sent as is to every client, as long as
+     * registered services are not modified.
+     */
+    private static class EncodedReply implements XdrAble {
+
+        /**
+         * Generation of the registry this reply was built from.
+         */
+        private final long _generation;
+        private final Opaque _body;
+
+        EncodedReply(long generation, Opaque body) {
+            _generation = generation;
+            _body = body;
+        }
+
+        @Override
+        public void xdrDecode(XdrDecodingStream xdr) {
+            throw new UnsupportedOperationException("encode-only");
+        }
+
+        @Override
+        public void xdrEncode(XdrEncodingStream xdr) {
+            xdr.xdrEncodeOpaque(_body, _body.numBytes());
         }
-        return null;
     }
 
     /*
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+import com.google.common.base.Throwables;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.rpc.net.netid;
+
+/**
+ * A cache of portmap lookups shared by {@link GenericPortmapClient}s.
+ * <p>
+ * Results of {@code getPort} are cached per portmap service for a limited time. Lookups
+ * of services which are not registered are cached as well, usually for a shorter time.
+ * Concurrent lookups of the same service share a single request to the portmap service.
+ * Failed lookups are not cached.
+ * <p>
+ * Additionally the protocol version supported by a portmap service is cached, thus
+ * new clients don't need to probe the service.
+ */
+public class PortmapCache {
+
+    /**
+     * Default time to cache addresses of registered services.
+     */
+    public static final long DEFAULT_TTL = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Default time to cache lookups of services which are not registered.
+     */
+    public static final long DEFAULT_NEGATIVE_TTL = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Default time to cache the protocol version supported by a portmap service.
+     */
+    public static final long DEFAULT_VERSION_TTL = TimeUnit.MINUTES.toNanos(10);
+
+    /**
+     * Number of entries after which expired entries are removed on insert.
+     */
+    private static final int CLEANUP_THRESHOLD = 1024;
+
+    private static final PortmapCache DEFAULT = new PortmapCache(DEFAULT_TTL, DEFAULT_NEGATIVE_TTL,
+            DEFAULT_VERSION_TTL, TimeUnit.NANOSECONDS);
+
+    /**
+     * Lookup of a service address.
+     */
+    @FunctionalInterface
+    public interface Lookup {
+        String lookup() throws OncRpcException, IOException, TimeoutException;
+    }
+
+    private final long _ttl;
+    private final long _negativeTtl;
+    private final long _versionTtl;
+    private final LongSupplier _clock;
+
+    private final ConcurrentMap<Key, Entry> _entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InetSocketAddress, Version> _versions = new ConcurrentHashMap<>();
+
+    /**
+     * Get cache shared by all {@link GenericPortmapClient}s, which are created without explicit cache.
+     *
+     * @return the shared cache.
+     */
+    public static PortmapCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param ttl time to cache addresses of registered services.
+     * @param negativeTtl time to cache lookups of services which are not registered.
+     * @param versionTtl time to cache the protocol version supported by a portmap service.
+     * @param unit the time unit of other arguments.
+     */
+    public PortmapCache(long ttl, long negativeTtl, long versionTtl, TimeUnit unit) {
+        this(ttl, negativeTtl, versionTtl, unit, System::nanoTime);
+    }
+
+    PortmapCache(long ttl, long negativeTtl, long versionTtl, TimeUnit unit, LongSupplier clock) {
+        _ttl = unit.toNanos(ttl);
+        _negativeTtl = unit.toNanos(negativeTtl);
+        _versionTtl = unit.toNanos(versionTtl);
+        _clock = clock;
+    }
+
+    /**
+     * Get the address of a service. If address is not cached, the {@code lookup} is used to
+     * query the portmap service. If other thread is querying the same service, the result of
+     * that query is used.
+     *
+     * @param portmap the address of the portmap service.
+     * @param prog program number.
+     * @param vers program version.
+     * @param netid network id.
+     * @param lookup the query of the portmap service.
+     * @return the universal address of the service as returned by {@code lookup}.
+     * @throws OncRpcException if the query fails.
+     * @throws IOException if the query fails.
+     * @throws TimeoutException if the query times out.
+     */
+    public String getPort(InetSocketAddress portmap, int prog, int vers, String netid, Lookup lookup)
+            throws OncRpcException, IOException, TimeoutException {
+
+        Key key = new Key(portmap, prog, vers, netid);
+        while (true) {
+            Entry entry = _entries.get(key);
+            if (entry != null && (!entry.result.isDone() || entry.expires - _clock.getAsLong() > 0)) {
+                return await(entry);
+            }
+
+            Entry newEntry = new Entry();
+            boolean installed = entry == null
+                    ? _entries.putIfAbsent(key, newEntry) == null
+                    : _entries.replace(key, entry, newEntry);
+            if (!installed) {
+                // other thread started the query
+                continue;
+            }
+
+            if (_entries.size() > CLEANUP_THRESHOLD) {
+                removeExpired();
+            }
+
+            try {
+                String addr = lookup.lookup();
+                newEntry.expires = _clock.getAsLong() + (isRegistered(addr) ? _ttl : _negativeTtl);
+                newEntry.result.complete(addr);
+                return addr;
+            } catch (IOException | TimeoutException | RuntimeException e) {
+                _entries.remove(key, newEntry);
+                newEntry.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Remove cached addresses of the given program and version.
+     *
+     * @param portmap the address of the portmap service.
+     * @param prog program number.
+     * @param vers program version.
+     */
+    public void invalidate(InetSocketAddress portmap, int prog, int vers) {
+        _entries.keySet().removeIf(k -> k.prog == prog && k.vers == vers && k.portmap.equals(portmap));
+    }
+
+    /**
+     * Get the cached protocol version of a portmap service.
+     *
+     * @param portmap the address of the portmap service.
+     * @return the cached version or {@code 0}, if version is not known.
+     */
+    public int getVersion(InetSocketAddress portmap) {
+        Version version = _versions.get(portmap);
+        if (version == null) {
+            return 0;
+        }
+        if (version.expires - _clock.getAsLong() <= 0) {
+            _versions.remove(portmap, version);
+            return 0;
+        }
+        return version.version;
+    }
+
+    /**
+     * Store the protocol version of a portmap service.
+     *
+     * @param portmap the address of the portmap service.
+     * @param version the protocol version.
+     */
+    public void setVersion(InetSocketAddress portmap, int version) {
+        _versions.put(portmap, new Version(version, _clock.getAsLong() + _versionTtl));
+    }
+
+    /**
+     * Remove the cached protocol version and all cached addresses of a portmap service.
+     *
+     * @param portmap the address of the portmap service.
+     */
+    public void invalidate(InetSocketAddress portmap) {
+        _versions.remove(portmap);
+        _entries.keySet().removeIf(k -> k.portmap.equals(portmap));
+    }
+
+    private void removeExpired() {
+        long now = _clock.getAsLong();
+        _entries.values().removeIf(e -> e.result.isDone() && e.expires - now <= 0);
+    }
+
+    /*
+     * Services which are not registered are reported with an empty address by
+     * rpcbind v4 and with port zero by portmap v2.
+     */
+    private static boolean isRegistered(String addr) {
+        if (addr == null || addr.isEmpty()) {
+            return false;
+        }
+        try {
+            return netid.getPort(addr) != 0;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static String await(Entry entry) throws OncRpcException, IOException, TimeoutException {
+        try {
+            return entry.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            Throwables.throwIfInstanceOf(t, IOException.class);
+            Throwables.throwIfInstanceOf(t, TimeoutException.class);
+            Throwables.throwIfUnchecked(t);
+            throw new IOException(t.getMessage(), t);
+        }
+    }
+
+    private static class Key {
+
+        private final InetSocketAddress portmap;
+        private final int prog;
+        private final int vers;
+        private final String netid;
+
+        Key(InetSocketAddress portmap, int prog, int vers, String netid) {
+            this.portmap = portmap;
+            this.prog = prog;
+            this.vers = vers;
+            this.netid = netid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return prog == other.prog && vers == other.vers
+                    && netid.equals(other.netid) && portmap.equals(other.portmap);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(portmap, prog, vers, netid);
+        }
+    }
+
+    private static class Entry {
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        /**
+         * Expiration time, valid when {@link #result} is completed.
+         */
+        private volatile long expires;
+    }
+
+    private static class Version {
+
+        private final int version;
+        private final long expires;
+
+        Version(int version, long expires) {
+            this.version = version;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuth;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcReply;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+
+/**
+ * Forwards calls received by rpcbind to registered services over UDP.
+ * <p>
+ * The client side service is started on first use. Transports to services
+ * are kept open and re-used by subsequent calls.
+ */
+class RpcbForwarder implements AutoCloseable {
+
+    private final long _timeout;
+    private final TimeUnit _timeoutUnit;
+
+    /**
+     * Transports to services by address.
+     */
+    private final ConcurrentMap<InetSocketAddress, RpcTransport> _transports = new ConcurrentHashMap<>();
+
+    /**
+     * Client side service used to connect to services, created on first use.
+     */
+    private OncRpcSvc _clientSvc;
+
+    RpcbForwarder(long timeout, TimeUnit timeoutUnit) {
+        _timeout = timeout;
+        _timeoutUnit = timeoutUnit;
+    }
+
+    /**
+     * Send a call to a service. The {@code callback} is notified when the service replies
+     * or the call times out.
+     *
+     * @param address the address of the service.
+     * @param prog program number.
+     * @param vers program version.
+     * @param proc procedure number.
+     * @param auth credential used for the call.
+     * @param args encoded arguments of the procedure.
+     * @param callback the completion handler.
+     * @throws IOException if the call can't be sent.
+     */
+    void forward(InetSocketAddress address, int prog, int vers, int proc, RpcAuth auth, XdrAble args,
+            CompletionHandler<RpcReply, RpcTransport> callback) throws IOException {
+        RpcCall call = new RpcCall(prog, vers, auth, transportOf(address));
+        call.call(proc, args, callback, _timeout, _timeoutUnit);
+    }
+
+    private RpcTransport transportOf(InetSocketAddress address) throws IOException {
+        RpcTransport transport = _transports.get(address);
+        if (transport == null || !transport.isOpen()) {
+            transport = clientSvc().connect(address, _timeout, _timeoutUnit);
+            _transports.put(address, transport);
+        }
+        return transport;
+    }
+
+    private synchronized OncRpcSvc clientSvc() throws IOException {
+        if (_clientSvc == null) {
+            OncRpcSvc svc = new OncRpcSvcBuilder()
+                    .withClientMode()
+                    .withUDP()
+                    .withWorkerThreadIoStrategy()
+                    .withSelectorThreadPoolSize(1)
+                    .withWorkerThreadPoolSize(1)
+                    .withoutAutoPublish()
+                    .withServiceName("rpcbind-forwarder")
+                    .build();
+            svc.start();
+            _clientSvc = svc;
+        }
+        return _clientSvc;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        _transports.clear();
+        if (_clientSvc != null) {
+            _clientSvc.stop();
+            _clientSvc = null;
+        }
+    }
+}
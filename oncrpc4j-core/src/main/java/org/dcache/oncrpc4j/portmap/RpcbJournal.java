@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of rpcbind registrations backed by a memory-mapped file.
+ * <p>
+ * The journal starts with a header, followed by records. Each record consists of
+ * the length of the record body and the XDR encoded body: the operation
+ * ({@link #ADD} or {@link #REMOVE}) and the {@link rpcb} it applies to. The length
+ * of a record is written after its body, thus a record, which was not completely
+ * written, is seen as the end of the journal.
+ * <p>
+ * The journal is compacted by writing live registrations into a new file which then
+ * atomically replaces the journal.
+ */
+class RpcbJournal implements Closeable {
+
+    private static final Logger _log = LoggerFactory.getLogger(RpcbJournal.class);
+
+    /**
+     * Operation to add a registration.
+     */
+    static final int ADD = 1;
+
+    /**
+     * Operation to remove a registration.
+     */
+    static final int REMOVE = 2;
+
+    /**
+     * Journal file magic: 'rpcb'.
+     */
+    private static final int MAGIC = 0x72706362;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    /**
+     * Upper limit of a record size, as registrations consists of a few short strings.
+     */
+    private static final int MAX_RECORD_SIZE = 4096;
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void apply(int op, rpcb service);
+    }
+
+    private final Path _path;
+    private FileChannel _channel;
+    private MappedByteBuffer _map;
+
+    /**
+     * Number of records in the journal.
+     */
+    private int _records;
+
+    /**
+     * Open journal. A new journal is created if file doesn't exist.
+     *
+     * @param path the location of the journal file.
+     * @throws IOException if journal can't be opened.
+     */
+    RpcbJournal(Path path) throws IOException {
+        _path = path;
+        map(path);
+    }
+
+    private void map(Path path) throws IOException {
+        _channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        _map = _channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(_channel.size(), INITIAL_SIZE));
+        _map.order(ByteOrder.BIG_ENDIAN);
+        if (_map.getInt(0) != MAGIC || _map.getInt(4) != FORMAT_VERSION) {
+            if (_map.getInt(0) != 0) {
+                _log.warn("Discarding journal {} of unknown format", path);
+            }
+            clear(0);
+            _map.putInt(0, MAGIC);
+            _map.putInt(4, FORMAT_VERSION);
+        }
+        _map.position(HEADER_SIZE);
+        _records = 0;
+    }
+
+    /**
+     * Read all records of the journal and pass them to the given handler. New records
+     * are appended after the last valid record.
+     *
+     * @param handler the handler of records.
+     */
+    void replay(RecordHandler handler) {
+        int position = HEADER_SIZE;
+        int records = 0;
+        while (position + 4 <= _map.limit()) {
+            int len = _map.getInt(position);
+            if (len <= 0 || len > MAX_RECORD_SIZE || position + 4 + len > _map.limit()) {
+                break;
+            }
+
+            byte[] bytes = new byte[len];
+            _map.position(position + 4);
+            _map.get(bytes);
+            try (Xdr xdr = new Xdr(bytes)) {
+                xdr.beginDecoding();
+                int op = xdr.xdrDecodeInt();
+                rpcb service = new rpcb();
+                service.xdrDecode(xdr);
+                handler.apply(op, service);
+            } catch (IOException e) {
+                _log.warn("Discarding corrupted record in journal {} at offset {}: {}", _path, position, e.getMessage());
+                break;
+            }
+            position += 4 + len;
+            records++;
+        }
+
+        // drop partially written or corrupted records
+        clear(position);
+        _map.position(position);
+        _records = records;
+    }
+
+    /**
+     * Append a record to the journal.
+     *
+     * @param op the operation.
+     * @param service the registration.
+     * @throws IOException if record can't be written.
+     */
+    void append(int op, rpcb service) throws IOException {
+        byte[] bytes = encode(op, service);
+        if (bytes.length > MAX_RECORD_SIZE) {
+            // replay would take such record for corruption and drop all following records
+            throw new IOException("Registration too large for journal: " + bytes.length + " bytes");
+        }
+        if (_map.remaining() < 4 + bytes.length + 4) {
+            grow(_map.capacity() * 2);
+        }
+
+        int position = _map.position();
+        _map.position(position + 4);
+        _map.put(bytes);
+        _map.putInt(position, bytes.length);
+        _map.force();
+        _records++;
+    }
+
+    /**
+     * Check whether the given registration fits into a journal record.
+     *
+     * @param service the registration.
+     * @return {@code true} if registration can be recorded.
+     */
+    static boolean fits(rpcb service) {
+        int size = Integer.BYTES // op
+                + Integer.BYTES // prog
+                + Integer.BYTES // vers
+                + Xdr.sizeOfString(service.getNetid())
+                + Xdr.sizeOfString(service.getAddr())
+                + Xdr.sizeOfString(service.getOwner());
+        return size <= MAX_RECORD_SIZE;
+    }
+
+    /**
+     * Replace the content of the journal with the given registrations.
+     *
+     * @param services live registrations.
+     * @throws IOException if journal can't be written.
+     */
+    void compact(Collection<rpcb> services) throws IOException {
+        Path tmp = _path.resolveSibling(_path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING); Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE)) {
+            xdr.beginEncoding();
+            xdr.xdrEncodeInt(MAGIC);
+            xdr.xdrEncodeInt(FORMAT_VERSION);
+            for (rpcb service : services) {
+                byte[] bytes = encode(ADD, service);
+                xdr.xdrEncodeInt(bytes.length);
+                xdr.xdrEncodeOpaqueArray(bytes, bytes.length);
+            }
+            xdr.endEncoding();
+            ByteBuffer bb = ByteBuffer.wrap(xdr.getBytes());
+            while (bb.hasRemaining()) {
+                out.write(bb);
+            }
+            out.force(true);
+        }
+
+        _channel.close();
+        try {
+            Files.move(tmp, _path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        } finally {
+            // re-open the compacted journal or, if move failed, the old one
+            map(_path);
+            replay((op, service) -> {});
+        }
+    }
+
+    /**
+     * Get number of records in the journal.
+     *
+     * @return number of records.
+     */
+    int records() {
+        return _records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _map.force();
+        _channel.close();
+    }
+
+    private void grow(int size) throws IOException {
+        int position = _map.position();
+        _map.force();
+        _map = _channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        _map.order(ByteOrder.BIG_ENDIAN);
+        _map.position(position);
+    }
+
+    private void clear(int from) {
+        for (int i = from; i < _map.limit(); i++) {
+            _map.put(i, (byte) 0);
+        }
+    }
+
+    private static byte[] encode(int op, rpcb service) throws IOException {
+        try (Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE)) {
+            xdr.beginEncoding();
+            xdr.xdrEncodeInt(op);
+            service.xdrEncode(xdr);
+            xdr.endEncoding();
+            return xdr.getBytes();
+        } catch (OncRpcException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.rpc.net.netid;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks whatever registered services are reachable by calling their NULL procedure.
+ * <p>
+ * Services are probed in parallel. A service is considered to be reachable if it
+ * replies to the call, even with an error. Connections to probed services are
+ * closed when prober is closed.
+ */
+class RpcbProber implements AutoCloseable {
+
+    private static final Logger _log = LoggerFactory.getLogger(RpcbProber.class);
+
+    /**
+     * Maximal number of concurrent probes.
+     */
+    private static final int MAX_PARALLEL_PROBES = 32;
+
+    private final OncRpcSvc _tcpSvc;
+    private final OncRpcSvc _udpSvc;
+    private final ExecutorService _executor;
+
+    RpcbProber() throws IOException {
+        _tcpSvc = clientSvc(true);
+        _udpSvc = clientSvc(false);
+        _executor = Executors.newFixedThreadPool(MAX_PARALLEL_PROBES);
+    }
+
+    private static OncRpcSvc clientSvc(boolean tcp) throws IOException {
+        OncRpcSvcBuilder builder = new OncRpcSvcBuilder()
+                .withClientMode()
+                .withWorkerThreadIoStrategy()
+                .withSelectorThreadPoolSize(1)
+                .withWorkerThreadPoolSize(1)
+                .withoutAutoPublish()
+                .withServiceName("rpcbind-prober");
+        OncRpcSvc svc = (tcp ? builder.withTCP() : builder.withUDP()).build();
+        svc.start();
+        return svc;
+    }
+
+    /**
+     * Probe given services.
+     *
+     * @param services services to probe.
+     * @param timeout time to wait for a reply of each service.
+     * @param unit the time unit of timeout.
+     * @return list of services which didn't reply.
+     * @throws InterruptedException if interrupted while waiting for probes.
+     */
+    List<rpcb> unreachable(List<rpcb> services, long timeout, TimeUnit unit) throws InterruptedException {
+        List<Future<Boolean>> probes = new ArrayList<>(services.size());
+        for (rpcb service : services) {
+            probes.add(_executor.submit(() -> isReachable(service, timeout, unit)));
+        }
+
+        List<rpcb> unreachable = new ArrayList<>();
+        for (int i = 0; i < services.size(); i++) {
+            try {
+                if (!probes.get(i).get()) {
+                    unreachable.add(services.get(i));
+                }
+            } catch (ExecutionException e) {
+                _log.warn("Failed to probe {}: {}", services.get(i).getAddr(), e.getCause().toString());
+            }
+        }
+        return unreachable;
+    }
+
+    private boolean isReachable(rpcb service, long timeout, TimeUnit unit) {
+        OncRpcSvc svc;
+        switch (service.getNetid()) {
+            case "tcp":
+            case "tcp6":
+                svc = _tcpSvc;
+                break;
+            case "udp":
+            case "udp6":
+                svc = _udpSvc;
+                break;
+            default:
+                // can't probe, keep it
+                return true;
+        }
+
+        InetSocketAddress address;
+        try {
+            address = netid.toInetSocketAddress(service.getAddr());
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        if (address.getAddress().isAnyLocalAddress()) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), address.getPort());
+        }
+
+        try {
+            RpcTransport transport = svc.connect(address, timeout, unit);
+            RpcCall call = new RpcCall(service.getProg(), service.getVers(), new RpcAuthTypeNone(), transport);
+            call.call(OncRpcPortmap.RPCBPROC_NULL, XdrVoid.XDR_VOID, XdrVoid.XDR_VOID, timeout, unit);
+            return true;
+        } catch (OncRpcException e) {
+            // the service has replied with an error
+            return true;
+        } catch (IOException | TimeoutException e) {
+            _log.debug("Service {} at {} is unreachable: {}", service.getProg(), service.getAddr(), e.toString());
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _executor.shutdownNow();
+        try {
+            _tcpSvc.stop();
+        } finally {
+            _udpSvc.stop();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of rpcbind services indexed by (program, version, netid) and by owner.
+ * <p>
+ * Lookups do not take any locks and can run concurrently with modifications. Modifications
+ * are serialized to keep both indexes consistent, as registration changes are rare compared
+ * to lookups.
+ * <p>
+ * Optionally, modifications are recorded in a {@link RpcbJournal}, which is replayed when
+ * registry is created. The journal is compacted when it contains much more records than
+ * there are registered services.
+ */
+class RpcbRegistry {
+
+    private static final Logger _log = LoggerFactory.getLogger(RpcbRegistry.class);
+
+    /**
+     * Minimal number of journal records before journal is compacted.
+     */
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    /**
+     * Registered services by (program, version) and netid.
+     */
+    private final ConcurrentMap<Long, ConcurrentMap<String, rpcb>> _byProgVers = new ConcurrentHashMap<>();
+
+    /**
+     * Registered services by owner.
+     */
+    private final ConcurrentMap<String, Set<rpcb>> _byOwner = new ConcurrentHashMap<>();
+
+    /**
+     * Lock to serialize modifications.
+     */
+    private final Object _updateLock = new Object();
+
+    /**
+     * Counter incremented on every modification.
+     */
+    private volatile long _generation;
+
+    /**
+     * Journal of modifications or {@code null}, if registrations are not persistent.
+     */
+    private final RpcbJournal _journal;
+
+    /**
+     * Create a registry, which is not persistent.
+     */
+    RpcbRegistry() {
+        _journal = null;
+    }
+
+    /**
+     * Create a registry with registrations recorded in the given journal. The registry
+     * is populated with registrations found in the journal.
+     *
+     * @param journal the journal of registrations.
+     * @throws IOException if journal can't be compacted after replay.
+     */
+    RpcbRegistry(RpcbJournal journal) throws IOException {
+        _journal = journal;
+        synchronized (_updateLock) {
+            _journal.replay((op, service) -> {
+                switch (op) {
+                    case RpcbJournal.ADD:
+                        doAdd(service);
+                        break;
+                    case RpcbJournal.REMOVE:
+                        doRemove(service.getProg(), service.getVers(), service.getNetid(), service.getOwner());
+                        break;
+                    default:
+                        _log.warn("Ignoring unknown journal operation: {}", op);
+                }
+            });
+            _journal.compact(list());
+        }
+    }
+
+    private static Long keyOf(int prog, int vers) {
+        return ((long) prog << 32) | (vers & 0xffffffffL);
+    }
+
+    /**
+     * Register a new service, if no service with the same program, version and netid
+     * is registered. With a journal, services which don't fit into a journal record
+     * are refused.
+     *
+     * @param service the service to register.
+     * @return {@code true} if service was registered.
+     */
+    boolean add(rpcb service) {
+        if (_journal != null && !RpcbJournal.fits(service)) {
+            _log.warn("Refusing too large registration: prog: {}, vers: {}, netid: {}",
+                    service.getProg(), service.getVers(), service.getNetid());
+            return false;
+        }
+        synchronized (_updateLock) {
+            if (!doAdd(service)) {
+                return false;
+            }
+            record(RpcbJournal.ADD, service);
+            return true;
+        }
+    }
+
+    private boolean doAdd(rpcb service) {
+        ConcurrentMap<String, rpcb> byNetid = _byProgVers.computeIfAbsent(keyOf(service.getProg(), service.getVers()),
+                k -> new ConcurrentHashMap<>());
+        if (byNetid.putIfAbsent(service.getNetid(), service) != null) {
+            return false;
+        }
+        _byOwner.computeIfAbsent(service.getOwner(), k -> ConcurrentHashMap.newKeySet()).add(service);
+        _generation++;
+        return true;
+    }
+
+    /**
+     * Get service registered for the given program, version and netid.
+     *
+     * @param prog program number.
+     * @param vers program version.
+     * @param netid network id.
+     * @return registered service or {@code null}, if there is no such service.
+     */
+    rpcb get(int prog, int vers, String netid) {
+        Map<String, rpcb> byNetid = _byProgVers.get(keyOf(prog, vers));
+        return byNetid == null ? null : byNetid.get(netid);
+    }
+
+    /**
+     * Get a service registered for the given program and netid with any version. As all
+     * registrations are scanned, this method should be used only if no service with the
+     * requested version is registered.
+     *
+     * @param prog program number.
+     * @param netid network id.
+     * @return registered service or {@code null}, if there is no such service.
+     */
+    rpcb find(int prog, String netid) {
+        for (Map.Entry<Long, ConcurrentMap<String, rpcb>> e : _byProgVers.entrySet()) {
+            if ((int) (e.getKey() >>> 32) == prog) {
+                rpcb service = e.getValue().get(netid);
+                if (service != null) {
+                    return service;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get all services registered for the given program and version.
+     *
+     * @param prog program number.
+     * @param vers program version.
+     * @return collection of registered services.
+     */
+    Collection<rpcb> get(int prog, int vers) {
+        Map<String, rpcb> byNetid = _byProgVers.get(keyOf(prog, vers));
+        return byNetid == null ? Collections.emptyList() : Collections.unmodifiableCollection(byNetid.values());
+    }
+
+    /**
+     * Get all services registered by the given owner.
+     *
+     * @param owner the owner of services.
+     * @return collection of registered services.
+     */
+    Collection<rpcb> getByOwner(String owner) {
+        Set<rpcb> services = _byOwner.get(owner);
+        return services == null ? Collections.emptySet() : Collections.unmodifiableSet(services);
+    }
+
+    /**
+     * Remove services of the given program and version which are owned by {@code owner}.
+     *
+     * @param prog program number.
+     * @param vers program version.
+     * @param netid network id of service to remove or {@code null} to remove all netids.
+     * @param owner owner of the services or {@code null} to remove services of any owner.
+     * @return list of removed services.
+     */
+    List<rpcb> remove(int prog, int vers, String netid, String owner) {
+        synchronized (_updateLock) {
+            List<rpcb> removed = doRemove(prog, vers, netid, owner);
+            for (rpcb service : removed) {
+                record(RpcbJournal.REMOVE, service);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Remove the given registration, if it's still registered. A service, which was
+     * re-registered in the meantime, is not affected.
+     *
+     * @param service the registration to remove, as returned by {@link #list()} or {@link #get(int, int, String)}.
+     * @return {@code true} if service was removed.
+     */
+    boolean removeIfRegistered(rpcb service) {
+        synchronized (_updateLock) {
+            Long key = keyOf(service.getProg(), service.getVers());
+            ConcurrentMap<String, rpcb> byNetid = _byProgVers.get(key);
+            if (byNetid == null || !byNetid.remove(service.getNetid(), service)) {
+                return false;
+            }
+            unlinkOwner(service);
+            if (byNetid.isEmpty()) {
+                _byProgVers.remove(key, byNetid);
+            }
+            _generation++;
+            record(RpcbJournal.REMOVE, service);
+            return true;
+        }
+    }
+
+    private void unlinkOwner(rpcb service) {
+        Set<rpcb> owned = _byOwner.get(service.getOwner());
+        owned.remove(service);
+        if (owned.isEmpty()) {
+            _byOwner.remove(service.getOwner(), owned);
+        }
+    }
+
+    private List<rpcb> doRemove(int prog, int vers, String netid, String owner) {
+        Long key = keyOf(prog, vers);
+        ConcurrentMap<String, rpcb> byNetid = _byProgVers.get(key);
+        if (byNetid == null) {
+            return Collections.emptyList();
+        }
+
+        List<rpcb> removed = new ArrayList<>();
+        for (rpcb service : byNetid.values()) {
+            if ((owner == null || service.getOwner().equals(owner))
+                    && (netid == null || service.getNetid().equals(netid))) {
+                byNetid.remove(service.getNetid(), service);
+                removed.add(service);
+                unlinkOwner(service);
+            }
+        }
+
+        if (byNetid.isEmpty()) {
+            _byProgVers.remove(key, byNetid);
+        }
+
+        if (!removed.isEmpty()) {
+            _generation++;
+        }
+        return removed;
+    }
+
+    /*
+     * Record modification in the journal, if any. Journal failures do not fail the
+     * modification, as the registry still can serve the requests.
+     */
+    private void record(int op, rpcb service) {
+        if (_journal == null) {
+            return;
+        }
+        try {
+            _journal.append(op, service);
+            if (_journal.records() > COMPACT_THRESHOLD && _journal.records() > 2 * size()) {
+                _journal.compact(list());
+            }
+        } catch (IOException e) {
+            _log.error("Failed to update registration journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Get all registered services. The returned list is a snapshot, which is not affected
+     * by subsequent modifications of the registry.
+     *
+     * @return list of registered services.
+     */
+    List<rpcb> list() {
+        List<rpcb> services = new ArrayList<>();
+        _byProgVers.values().forEach(m -> services.addAll(m.values()));
+        return services;
+    }
+
+    /**
+     * Get the modification counter of this registry. The value changes every time a
+     * service is added or removed.
+     *
+     * @return the modification counter.
+     */
+    long generation() {
+        return _generation;
+    }
+
+    /**
+     * Get the number of registered services.
+     *
+     * @return number of registered services.
+     */
+    int size() {
+        int size = 0;
+        for (Map<String, rpcb> byNetid : _byProgVers.values()) {
+            size += byNetid.size();
+        }
+        return size;
+    }
+
+    /**
+     * Close the journal, if any.
+     *
+     * @throws IOException if journal can't be closed.
+     */
+    void close() throws IOException {
+        if (_journal != null) {
+            synchronized (_updateLock) {
+                _journal.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * Results of remote call made through portmap with PMAPPROC_CALLIT.
+ */
+public class call_result implements XdrAble {
+
+    /**
+     * port of the service which executed the call
+     */
+    private int _port;
+    /**
+     * encoded results of the remote procedure
+     */
+    private Opaque _res;
+
+    public call_result() {}
+
+    public call_result(int port, Opaque res) {
+        _port = port;
+        _res = res;
+    }
+
+    public int getPort() {
+        return _port;
+    }
+
+    public Opaque getRes() {
+        return _res;
+    }
+
+    @Override
+    public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+        _port = xdr.xdrDecodeInt();
+        _res = xdr.xdrDecodeDynamicOpaque();
+    }
+
+    @Override
+    public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+        xdr.xdrEncodeInt(_port);
+        xdr.xdrEncodeDynamicOpaque(_res);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("port: %d, res: %d bytes", _port, _res.numBytes());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * An address of a service together with the transport it is available on, as
+ * returned by RPCBPROC_GETADDRLIST.
+ */
+public class rpcb_entry implements XdrAble {
+
+    /**
+     * Connectionless transport.
+     */
+    public static final int NC_TPI_CLTS = 1;
+
+    /**
+     * Connection oriented transport.
+     */
+    public static final int NC_TPI_COTS = 2;
+
+    /**
+     * Connection oriented transport with orderly release.
+     */
+    public static final int NC_TPI_COTS_ORD = 3;
+
+    /**
+     * Raw connectionless transport.
+     */
+    public static final int NC_TPI_RAW = 4;
+
+    /**
+     * merged address of service
+     */
+    private String _maddr;
+    /**
+     * netid field
+     */
+    private String _netid;
+    /**
+     * semantics of transport
+     */
+    private int _semantics;
+    /**
+     * protocol family
+     */
+    private String _protofmly;
+    /**
+     * protocol name
+     */
+    private String _proto;
+
+    public rpcb_entry() {}
+
+    public rpcb_entry(String maddr, String netid, int semantics, String protofmly, String proto) {
+        _maddr = maddr;
+        _netid = netid;
+        _semantics = semantics;
+        _protofmly = protofmly;
+        _proto = proto;
+    }
+
+    public String getMaddr() {
+        return _maddr;
+    }
+
+    public String getNetid() {
+        return _netid;
+    }
+
+    public int getSemantics() {
+        return _semantics;
+    }
+
+    public String getProtofmly() {
+        return _protofmly;
+    }
+
+    public String getProto() {
+        return _proto;
+    }
+
+    @Override
+    public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+        _maddr = xdr.xdrDecodeString();
+        _netid = xdr.xdrDecodeString();
+        _semantics = xdr.xdrDecodeInt();
+        _protofmly = xdr.xdrDecodeString();
+        _proto = xdr.xdrDecodeString();
+    }
+
+    @Override
+    public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+        xdr.xdrEncodeString(_maddr);
+        xdr.xdrEncodeString(_netid);
+        xdr.xdrEncodeInt(_semantics);
+        xdr.xdrEncodeString(_protofmly);
+        xdr.xdrEncodeString(_proto);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("maddr: %s, netid: %s, semantics: %d, protofmly: %s, proto: %s",
+                _maddr, _netid, _semantics, _protofmly, _proto);
+    }
+}
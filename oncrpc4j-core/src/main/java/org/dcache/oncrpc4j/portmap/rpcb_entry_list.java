@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * A list of addresses, as returned by RPCBPROC_GETADDRLIST.
+ */
+public class rpcb_entry_list implements XdrAble {
+
+    private final List<rpcb_entry> _entries;
+
+    public rpcb_entry_list() {
+        this(new ArrayList<>());
+    }
+
+    public rpcb_entry_list(List<rpcb_entry> entries) {
+        _entries = entries;
+    }
+
+    public List<rpcb_entry> getEntries() {
+        return _entries;
+    }
+
+    @Override
+    public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+        _entries.clear();
+        while (xdr.xdrDecodeBoolean()) {
+            rpcb_entry entry = new rpcb_entry();
+            entry.xdrDecode(xdr);
+            _entries.add(entry);
+        }
+    }
+
+    @Override
+    public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+        for (rpcb_entry entry : _entries) {
+            xdr.xdrEncodeBoolean(true);
+            entry.xdrEncode(xdr);
+        }
+        xdr.xdrEncodeBoolean(false);
+    }
+
+    @Override
+    public String toString() {
+        return _entries.toString();
+    }
+}
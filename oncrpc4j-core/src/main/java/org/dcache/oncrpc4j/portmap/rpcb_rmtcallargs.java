@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * Arguments of remote call made through rpcbind with RPCBPROC_INDIRECT
+ * or RPCBPROC_CALLIT. The arguments of PMAPPROC_CALLIT of portmap v2
+ * have the same encoding.
+ */
+public class rpcb_rmtcallargs implements XdrAble {
+
+    private int _prog;
+    private int _vers;
+    private int _proc;
+    /**
+     * encoded arguments of the remote procedure
+     */
+    private Opaque _args;
+
+    public rpcb_rmtcallargs() {}
+
+    public rpcb_rmtcallargs(int prog, int vers, int proc, Opaque args) {
+        _prog = prog;
+        _vers = vers;
+        _proc = proc;
+        _args = args;
+    }
+
+    public int getProg() {
+        return _prog;
+    }
+
+    public int getVers() {
+        return _vers;
+    }
+
+    public int getProc() {
+        return _proc;
+    }
+
+    public Opaque getArgs() {
+        return _args;
+    }
+
+    @Override
+    public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+        _prog = xdr.xdrDecodeInt();
+        _vers = xdr.xdrDecodeInt();
+        _proc = xdr.xdrDecodeInt();
+        _args = xdr.xdrDecodeDynamicOpaque();
+    }
+
+    @Override
+    public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+        xdr.xdrEncodeInt(_prog);
+        xdr.xdrEncodeInt(_vers);
+        xdr.xdrEncodeInt(_proc);
+        xdr.xdrEncodeDynamicOpaque(_args);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("prog: %d, vers: %d, proc: %d, args: %d bytes",
+                _prog, _vers, _proc, _args.numBytes());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * Results of remote call made through rpcbind with RPCBPROC_INDIRECT
+ * or RPCBPROC_CALLIT.
+ */
+public class rpcb_rmtcallres implements XdrAble {
+
+    /**
+     * universal address of the service which executed the call
+     */
+    private String _addr;
+    /**
+     * encoded results of the remote procedure
+     */
+    private Opaque _results;
+
+    public rpcb_rmtcallres() {}
+
+    public rpcb_rmtcallres(String addr, Opaque results) {
+        _addr = addr;
+        _results = results;
+    }
+
+    public String getAddr() {
+        return _addr;
+    }
+
+    public Opaque getResults() {
+        return _results;
+    }
+
+    @Override
+    public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+        _addr = xdr.xdrDecodeString();
+        _results = xdr.xdrDecodeDynamicOpaque();
+    }
+
+    @Override
+    public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+        xdr.xdrEncodeString(_addr);
+        xdr.xdrEncodeDynamicOpaque(_results);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("addr: %s, results: %d bytes", _addr, _results.numBytes());
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A window of outstanding calls on a client transport, similar to the slot table
+ * of an NFSv4.1 session.
+ * <p>
+ * A call takes a permit before it's sent and returns it when the call completes,
+ * fails or times out. When all permits are in use, asynchronous calls are queued
+ * and sent as soon as a permit is returned, while synchronous calls block the caller.
+ * Thus the number of calls, which occupy write buffers and server resources, is
+ * bounded.
+ * <p>
+ * The time spent waiting for a permit counts towards the timeout of the call. A
+ * queued call, which times out before it gets a permit, is removed from the queue.
+ */
+public class CallWindow {
+
+    /**
+     * Waiters, which got a permit by a nested release in the current thread.
+     */
+    private static final ThreadLocal<Deque<Runnable>> GRANTED = new ThreadLocal<>();
+
+    private final int _size;
+
+    /**
+     * Actions waiting for a permit in arrival order.
+     */
+    private final Deque<Runnable> _waiters = new ArrayDeque<>();
+
+    private int _inUse;
+    private long _acquired;
+    private long _delayed;
+
+    /**
+     * Create a new window.
+     *
+     * @param size the maximal number of outstanding calls.
+     */
+    public CallWindow(int size) {
+        checkArgument(size > 0, "window size must be positive");
+        _size = size;
+    }
+
+    /**
+     * Take a permit, if one is available.
+     *
+     * @return {@code true} if permit is taken.
+     */
+    public synchronized boolean tryAcquire() {
+        if (_inUse == _size) {
+            return false;
+        }
+        _inUse++;
+        _acquired++;
+        return true;
+    }
+
+    /**
+     * Take a permit, waiting if necessary up to the given time.
+     *
+     * @param timeout the maximal time to wait.
+     * @param unit the time unit of the timeout.
+     * @return {@code true} if permit is taken and {@code false} if timeout elapsed.
+     * @throws InterruptedException if current thread is interrupted while waiting.
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        CountDownLatch granted = new CountDownLatch(1);
+        Runnable waiter = granted::countDown;
+        synchronized (this) {
+            if (tryAcquire()) {
+                return true;
+            }
+            _delayed++;
+            _waiters.addLast(waiter);
+        }
+
+        boolean interrupted = false;
+        try {
+            if (granted.await(timeout, unit)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        synchronized (this) {
+            if (_waiters.removeFirstOccurrence(waiter)) {
+                if (interrupted) {
+                    throw new InterruptedException();
+                }
+                return false;
+            }
+        }
+
+        // permit granted concurrently
+        if (interrupted) {
+            release();
+            throw new InterruptedException();
+        }
+        return true;
+    }
+
+    /**
+     * Run the given action when a permit is taken. If a permit is available, the
+     * action runs in the current thread, otherwise in the thread which returns a permit.
+     *
+     * @param onAcquired the action to run.
+     */
+    public void acquire(Runnable onAcquired) {
+        synchronized (this) {
+            if (!tryAcquire()) {
+                _delayed++;
+                _waiters.addLast(onAcquired);
+                return;
+            }
+        }
+        onAcquired.run();
+    }
+
+    /**
+     * Remove an action, which waits for a permit, from the queue.
+     *
+     * @param onAcquired the action passed to {@link #acquire(Runnable)}.
+     * @return {@code true} if the action was waiting and never runs, {@code false} if
+     * it got a permit already.
+     */
+    public synchronized boolean cancel(Runnable onAcquired) {
+        return _waiters.removeFirstOccurrence(onAcquired);
+    }
+
+    /**
+     * Return a permit. If there are waiters, the permit is passed to the first of them.
+     * <p>
+     * A waiter, which returns its permit right away, for example because the transport
+     * is closed, hands the permit over to the next waiter. Such nested hand-overs are
+     * queued and run by the outermost release in the current thread, thus the stack
+     * depth doesn't grow with the number of waiters.
+     */
+    public void release() {
+        Runnable next;
+        synchronized (this) {
+            next = _waiters.pollFirst();
+            if (next == null) {
+                _inUse--;
+                return;
+            }
+            _acquired++;
+        }
+
+        Deque<Runnable> granted = GRANTED.get();
+        if (granted != null) {
+            granted.addLast(next);
+            return;
+        }
+
+        granted = new ArrayDeque<>();
+        GRANTED.set(granted);
+        RuntimeException error = null;
+        try {
+            do {
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    // the remaining waiters already hold a permit and must run
+                    if (error == null) {
+                        error = e;
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                }
+            } while ((next = granted.pollFirst()) != null);
+        } finally {
+            GRANTED.remove();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Get the maximal number of outstanding calls.
+     *
+     * @return the size of the window.
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * Get the number of permits in use.
+     *
+     * @return the number of outstanding calls.
+     */
+    public synchronized int getInUse() {
+        return _inUse;
+    }
+
+    /**
+     * Get the number of calls waiting for a permit.
+     *
+     * @return the number of waiting calls.
+     */
+    public synchronized int getWaiting() {
+        return _waiters.size();
+    }
+
+    /**
+     * Get the fraction of permits in use.
+     *
+     * @return the utilisation of the window between {@code 0} and {@code 1}.
+     */
+    public synchronized double getUtilisation() {
+        return (double) _inUse / _size;
+    }
+
+    /**
+     * Get the total number of taken permits.
+     *
+     * @return the number of calls sent through the window.
+     */
+    public synchronized long getAcquired() {
+        return _acquired;
+    }
+
+    /**
+     * Get the total number of calls, which had to wait for a permit.
+     *
+     * @return the number of delayed calls.
+     */
+    public synchronized long getDelayed() {
+        return _delayed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CallWindow{size=" + _size + ", inUse=" + _inUse + ", waiting=" + _waiters.size() + '}';
+    }
+}
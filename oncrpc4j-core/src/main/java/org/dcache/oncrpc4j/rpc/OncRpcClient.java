@@ -26,8 +26,11 @@ import javax.net.ssl.SSLParameters;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
 
 public class OncRpcClient implements AutoCloseable {
 
@@ -37,6 +40,7 @@ public class OncRpcClient implements AutoCloseable {
     private final long _connectTimeout;
     private final TimeUnit _connectTimeoutUnit;
     private final OncRpcSvc _rpcsvc;
+    private final List<ResilientRpcTransport> _resilientTransports = new CopyOnWriteArrayList<>();
 
     public OncRpcClient(InetAddress address, int protocol, int port) {
         this(new InetSocketAddress(address, port), protocol, 0, IoStrategy.SAME_THREAD, DEFAULT_SERVICE_NAME);
@@ -95,8 +99,35 @@ public class OncRpcClient implements AutoCloseable {
         return t;
     }
 
+    /**
+     * Connect to the server with a transport, which reconnects when connection is lost
+     * and re-sends pending calls of idempotent procedures.
+     *
+     * @param idempotent tests whatever a procedure number denotes an idempotent procedure.
+     * @return the connected transport.
+     * @throws IOException if initial connection can't be established.
+     * @see ResilientRpcTransport
+     */
+    public RpcTransport connectResilient(IntPredicate idempotent) throws IOException {
+        long connectTimeout = Math.min(_connectTimeoutUnit.toMillis(_connectTimeout),
+                ResilientRpcTransport.DEFAULT_CONNECT_TIMEOUT);
+        ResilientRpcTransport t;
+        try {
+            _rpcsvc.start();
+            t = new ResilientRpcTransport(_rpcsvc, _socketAddress, idempotent,
+                    ResilientRpcTransport.DEFAULT_INITIAL_BACKOFF, ResilientRpcTransport.DEFAULT_MAX_BACKOFF,
+                    connectTimeout, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            _rpcsvc.stop();
+            throw e;
+        }
+        _resilientTransports.add(t);
+        return t;
+    }
+
     @Override
     public void close() throws IOException {
+        _resilientTransports.forEach(ResilientRpcTransport::close);
         _rpcsvc.stop();
     }
 
@@ -179,6 +210,11 @@ public class OncRpcClient implements AutoCloseable {
             return this;
         }
 
+        public OncRpcClientBuilder withCallWindow(int size) {
+            svcBuilder.withCallWindow(size);
+            return this;
+        }
+
         public OncRpcClientBuilder withSSLContext(SSLContext sslContext) {
             svcBuilder.withSSLContext(sslContext);
             return this;
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.dcache.oncrpc4j.grizzly.GrizzlyRpcTransport;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A client which keeps multiple connections to one or more servers, for instance
+ * replicas of the same service. The {@link RpcTransport} returned by {@link #connect()}
+ * spreads calls made with {@link RpcCall} over the connections, preferring the
+ * connection with the least number of outstanding requests.
+ * <p>
+ * Closed connections are skipped and replaced in the background.
+ */
+public class OncRpcClientPool implements AutoCloseable {
+
+    private static final Logger _log = LoggerFactory.getLogger(OncRpcClientPool.class);
+
+    /**
+     * Interval between checks of pooled connections.
+     */
+    private static final long REPAIR_INTERVAL = 1;
+    private static final TimeUnit REPAIR_INTERVAL_UNIT = TimeUnit.SECONDS;
+
+    private final List<InetSocketAddress> _endpoints;
+    private final int _connectionsPerEndpoint;
+    private final long _connectTimeout;
+    private final TimeUnit _connectTimeoutUnit;
+    private final OncRpcSvc _rpcsvc;
+
+    /**
+     * Pooled connections. The connections to {@code _endpoints[i]} are stored in slots
+     * {@code i * _connectionsPerEndpoint} to {@code (i + 1) * _connectionsPerEndpoint - 1}.
+     */
+    private final AtomicReferenceArray<RpcTransport> _connections;
+
+    /**
+     * Start position of connection selection, rotated to spread calls over connections
+     * with equal load.
+     */
+    private final AtomicInteger _next = new AtomicInteger();
+
+    private final AtomicBoolean _repairScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService _repairExecutor;
+
+    public OncRpcClientPool(List<InetSocketAddress> endpoints, int connectionsPerEndpoint,
+            long connectTimeout, TimeUnit connectTimeoutUnit, OncRpcSvc clientSvc) {
+        checkArgument(!endpoints.isEmpty(), "no endpoints");
+        checkArgument(connectionsPerEndpoint > 0, "connectionsPerEndpoint must be positive");
+        _endpoints = new ArrayList<>(endpoints);
+        _connectionsPerEndpoint = connectionsPerEndpoint;
+        _connectTimeout = connectTimeout;
+        _connectTimeoutUnit = connectTimeoutUnit;
+        _rpcsvc = clientSvc;
+        _connections = new AtomicReferenceArray<>(_endpoints.size() * connectionsPerEndpoint);
+        _repairExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("rpc-pool-repair-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Open connections to all endpoints.
+     *
+     * @return transport which spreads calls over pooled connections.
+     * @throws IOException if no connection can be opened.
+     */
+    public RpcTransport connect() throws IOException {
+        _rpcsvc.start();
+        repair();
+
+        ReplyQueue replyQueue = null;
+        for (int i = 0; i < _connections.length(); i++) {
+            RpcTransport connection = _connections.get(i);
+            if (connection != null) {
+                replyQueue = connection.getReplyQueue();
+                break;
+            }
+        }
+
+        if (replyQueue == null) {
+            _rpcsvc.stop();
+            throw new IOException("Failed to connect to any of " + _endpoints);
+        }
+
+        _repairExecutor.scheduleWithFixedDelay(this::repair, REPAIR_INTERVAL, REPAIR_INTERVAL, REPAIR_INTERVAL_UNIT);
+        return new PooledRpcTransport(replyQueue);
+    }
+
+    @Override
+    public void close() throws IOException {
+        _repairExecutor.shutdownNow();
+        _rpcsvc.stop();
+    }
+
+    /**
+     * Get number of open connections.
+     *
+     * @return number of open connections.
+     */
+    public int getOpenConnections() {
+        int open = 0;
+        for (int i = 0; i < _connections.length(); i++) {
+            RpcTransport connection = _connections.get(i);
+            if (connection != null && connection.isOpen()) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    /*
+     * Replace missing or closed connections.
+     */
+    private void repair() {
+        _repairScheduled.set(false);
+        for (int i = 0; i < _connections.length(); i++) {
+            RpcTransport connection = _connections.get(i);
+            if (connection != null && connection.isOpen()) {
+                continue;
+            }
+
+            InetSocketAddress endpoint = _endpoints.get(i / _connectionsPerEndpoint);
+            try {
+                RpcTransport newConnection = _rpcsvc.connect(endpoint, _connectTimeout, _connectTimeoutUnit);
+                _connections.set(i, newConnection);
+                if (newConnection instanceof GrizzlyRpcTransport) {
+                    int slot = i;
+                    ((GrizzlyRpcTransport) newConnection).addCloseListener(() -> disconnected(slot, newConnection));
+                }
+            } catch (IOException e) {
+                _log.debug("Failed to connect to {}: {}", endpoint, e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Drop closed connection from the pool, so that it's never selected again, and fail
+     * calls waiting for a reply on it. The reply queue reacts only on remotely closed
+     * connections, but a reset connection is closed locally.
+     */
+    private void disconnected(int slot, RpcTransport connection) {
+        if (_connections.compareAndSet(slot, connection, null)) {
+            _log.debug("Connection {} closed", connection);
+            connection.getReplyQueue().handleDisconnect(connection.getLocalSocketAddress());
+            scheduleRepair();
+        }
+    }
+
+    private void scheduleRepair() {
+        if (_repairScheduled.compareAndSet(false, true)) {
+            try {
+                _repairExecutor.execute(this::repair);
+            } catch (RuntimeException e) {
+                // pool is closed
+                _repairScheduled.set(false);
+            }
+        }
+    }
+
+    /*
+     * Select the open connection with the least outstanding requests.
+     */
+    private RpcTransport select(ReplyQueue replyQueue) throws EOFException {
+        int n = _connections.length();
+        int start = Math.floorMod(_next.getAndIncrement(), n);
+
+        RpcTransport selected = null;
+        int selectedLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            RpcTransport connection = _connections.get((start + i) % n);
+            if (connection == null || !connection.isOpen()) {
+                scheduleRepair();
+                continue;
+            }
+
+            int load = replyQueue.inFlight(connection.getLocalSocketAddress());
+            if (load < selectedLoad) {
+                selected = connection;
+                selectedLoad = load;
+                if (load == 0) {
+                    break;
+                }
+            }
+        }
+
+        if (selected == null) {
+            throw new EOFException("No open connection to " + _endpoints);
+        }
+        return selected;
+    }
+
+    /*
+     * The first open connection of the pool or {@code null}, if there is none. Unlike
+     * select, has no side effects, thus suitable for property getters.
+     */
+    private RpcTransport firstOpen() {
+        for (int i = 0; i < _connections.length(); i++) {
+            RpcTransport connection = _connections.get(i);
+            if (connection != null && connection.isOpen()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    private class PooledRpcTransport implements RpcTransport {
+
+        private final ReplyQueue _replyQueue;
+
+        PooledRpcTransport(ReplyQueue replyQueue) {
+            _replyQueue = replyQueue;
+        }
+
+        @Override
+        public RpcTransport selectTransport() {
+            try {
+                return select(_replyQueue);
+            } catch (EOFException e) {
+                // let the send fail
+                return this;
+            }
+        }
+
+        @Override
+        public <A> void send(Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
+            RpcTransport connection;
+            try {
+                connection = select(_replyQueue);
+            } catch (EOFException e) {
+                handler.failed(e, attachment);
+                return;
+            }
+            connection.send(xdr, attachment, handler);
+        }
+
+        @Override
+        public ReplyQueue getReplyQueue() {
+            return _replyQueue;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return getOpenConnections() > 0;
+        }
+
+        @Override
+        public InetSocketAddress getLocalSocketAddress() {
+            RpcTransport connection = firstOpen();
+            return connection == null ? null : connection.getLocalSocketAddress();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteSocketAddress() {
+            RpcTransport connection = firstOpen();
+            return connection == null ? null : connection.getRemoteSocketAddress();
+        }
+
+        @Override
+        public RpcTransport getPeerTransport() {
+            RpcTransport connection = firstOpen();
+            if (connection == null) {
+                throw new IllegalStateException("No open connection to " + _endpoints);
+            }
+            return connection.getPeerTransport();
+        }
+
+        @Override
+        public void startTLS() throws RpcAuthException, IllegalStateException {
+            throw new IllegalStateException("TLS must be enabled by client service of the pool.");
+        }
+
+        @Override
+        public boolean isTLS() {
+            RpcTransport connection = firstOpen();
+            return connection != null && connection.isTLS();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            RpcTransport connection = firstOpen();
+            return connection != null && connection.isStreaming();
+        }
+
+        @Override
+        public String toString() {
+            return "pool of " + _connections.length() + " connections to " + _endpoints;
+        }
+    }
+
+    public static OncRpcClientPoolBuilder newBuilder() {
+        return new OncRpcClientPoolBuilder();
+    }
+
+    public static class OncRpcClientPoolBuilder {
+
+        private final OncRpcSvcBuilder svcBuilder = new OncRpcSvcBuilder()
+                .withClientMode()
+                .withWorkerThreadIoStrategy()
+                .withoutAutoPublish();
+        private final List<InetSocketAddress> endpoints = new ArrayList<>();
+        private int connectionsPerEndpoint = 1;
+        private long connectTimeout = Long.MAX_VALUE;
+        private TimeUnit connectTimeoutUnit = TimeUnit.MILLISECONDS;
+
+        private OncRpcClientPoolBuilder() {
+            // no direct instantiation
+        }
+
+        public OncRpcClientPoolBuilder withEndpoint(InetSocketAddress endpoint) {
+            endpoints.add(endpoint);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withEndpoints(List<InetSocketAddress> endpoints) {
+            this.endpoints.addAll(endpoints);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withConnectionsPerEndpoint(int connectionsPerEndpoint) {
+            this.connectionsPerEndpoint = connectionsPerEndpoint;
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withProtocol(int protocol) {
+            svcBuilder.withIpProtocolType(protocol);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withTCP() {
+            svcBuilder.withTCP();
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withUDP() {
+            svcBuilder.withUDP();
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withIoStrategy(IoStrategy ioStrategy) {
+            svcBuilder.withIoStrategy(ioStrategy);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withServiceName(String serviceName) {
+            svcBuilder.withServiceName(serviceName);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withWorkerThreadPoolSize(int size) {
+            svcBuilder.withWorkerThreadPoolSize(size);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withSelectorThreadPoolSize(int size) {
+            svcBuilder.withSelectorThreadPoolSize(size);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withTcpNoDelay(boolean tcpNoDelay) {
+            svcBuilder.withTcpNoDelay(tcpNoDelay);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withCallWindow(int size) {
+            svcBuilder.withCallWindow(size);
+            return this;
+        }
+
+        public OncRpcClientPoolBuilder withConnectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeout = timeout;
+            this.connectTimeoutUnit = unit;
+            return this;
+        }
+
+        /**
+         * Build a new {@link OncRpcClientPool} instance.
+         *
+         * @return a new {@link OncRpcClientPool} instance
+         */
+        public OncRpcClientPool build() {
+            return new OncRpcClientPool(endpoints, connectionsPerEndpoint, connectTimeout, connectTimeoutUnit,
+                    svcBuilder.build());
+        }
+    }
+}
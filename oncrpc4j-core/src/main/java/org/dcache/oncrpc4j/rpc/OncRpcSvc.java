@@ -29,6 +29,7 @@ import org.dcache.oncrpc4j.rpc.gss.GssProtocolFilter;
 import org.dcache.oncrpc4j.rpc.gss.GssSessionManager;
 import org.dcache.oncrpc4j.rpc.net.InetSocketAddresses;
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrStringCache;
 import org.glassfish.grizzly.CloseType;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.ConnectionProbe;
@@ -44,6 +45,7 @@ import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.nio.NIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.nio.transport.UDPNIOServerConnection;
 import org.glassfish.grizzly.nio.transport.UDPNIOTransport;
 import org.glassfish.grizzly.nio.transport.UDPNIOTransportBuilder;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
@@ -60,8 +62,11 @@ import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
 import java.net.UnknownHostException;
+import java.nio.channels.DatagramChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -74,6 +79,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Throwables.getRootCause;
@@ -140,6 +146,31 @@ public class OncRpcSvc {
 
     private final TransportFilter _transportFilter;
 
+    /**
+     * Maximal number of outstanding calls per client connection, 0 if not limited.
+     */
+    private final int _callWindowSize;
+
+    /**
+     * Maximal time in nanoseconds requests of a program may wait for execution.
+     */
+    private final Map<OncRpcProgram, Long> _maxQueueResidence;
+
+    /**
+     * Listener notified after a request to a described procedure was processed.
+     */
+    private final RpcProcedureListener _procedureListener;
+
+    /**
+     * Selects the {@link ExecutorService} for requests to a described procedure.
+     */
+    private final Function<RpcProcedureDescriptor, ExecutorService> _procedureExecutor;
+
+    /**
+     * Cache used to decode strings of received messages, or {@code null}.
+     */
+    private final XdrStringCache _stringCache;
+
     /**
      * Create new RPC service with defined configuration.
      * @param builder to build this service
@@ -213,6 +244,11 @@ public class OncRpcSvc {
         _startTLS = builder.isStartTLS();
         _sslParams = builder.getSSLParameters();
         _callInterceptor = builder.getCallInterceptor();
+        _callWindowSize = builder.getCallWindowSize();
+        _maxQueueResidence = new HashMap<>(builder.getMaxQueueResidence());
+        _procedureListener = builder.getProcedureListener();
+        _procedureExecutor = builder.getProcedureExecutor();
+        _stringCache = builder.getStringCache();
     }
 
     /**
@@ -365,13 +401,14 @@ public class OncRpcSvc {
                 filterChain.add(_startTLS ? new StartTlsFilter(sslFilter, _isClient) : sslFilter);
             }
 
-            filterChain.add(rpcMessageReceiverFor(t));
+            filterChain.add(rpcMessageReceiverFor(t, _stringCache));
             filterChain.add(new RpcProtocolFilter(_replyQueue));
             // use GSS if configures
             if (_gssSessionManager != null) {
                 filterChain.add(new GssProtocolFilter(_gssSessionManager));
             }
-            filterChain.add(new RpcDispatcher(_requestExecutor, _programs, _withSubjectPropagation, _callInterceptor));
+            filterChain.add(new RpcDispatcher(_requestExecutor, _programs, _withSubjectPropagation, _callInterceptor,
+                    _maxQueueResidence, _procedureListener, _procedureExecutor));
 
             final FilterChain filters = filterChain.build();
 
@@ -460,7 +497,8 @@ public class OncRpcSvc {
         try {
             //noinspection unchecked
             Connection<InetSocketAddress> connection = connectFuture.get(timeout, timeUnit);
-            return new GrizzlyRpcTransport(connection, _replyQueue);
+            return new GrizzlyRpcTransport(connection, connection.getPeerAddress(), _replyQueue,
+                    _callWindowSize > 0 ? new CallWindow(_callWindowSize) : null);
         } catch (ExecutionException e) {
             Throwable t = getRootCause(e);
             propagateIfPossible(t, IOException.class);
@@ -470,6 +508,31 @@ public class OncRpcSvc {
         }
     }
 
+    /**
+     * Create a transport to send broadcast or multicast requests with
+     * {@link RpcCall#broadcast(int, org.dcache.oncrpc4j.xdr.XdrAble, java.nio.channels.CompletionHandler, long, TimeUnit)}.
+     * Unlike {@link #connect(InetSocketAddress)}, the underlying socket is not connected, thus
+     * replies from any server are accepted. The socket stays open until service is stopped.
+     *
+     * @param destination the broadcast or multicast address and port of the requests.
+     * @return transport to send requests to the given destination.
+     * @throws IOException if socket can't be created.
+     * @throws IllegalStateException if service is not a UDP client.
+     */
+    public RpcTransport bindBroadcast(InetSocketAddress destination) throws IOException {
+
+        // in client mode only one transport is defined
+        NIOTransport transport = _transports.get(0);
+        if (!_isClient || !(transport instanceof UDPNIOTransport)) {
+            throw new IllegalStateException("Broadcast requires UDP client");
+        }
+
+        UDPNIOServerConnection connection = ((UDPNIOTransport) transport).bind(new InetSocketAddress(0));
+        ((DatagramChannel) connection.getChannel()).setOption(StandardSocketOptions.SO_BROADCAST, true);
+        //noinspection unchecked
+        return new GrizzlyRpcTransport((Connection<InetSocketAddress>) (Connection<?>) connection, destination, _replyQueue);
+    }
+
     /**
      * Returns the socket address of the endpoint to which this service is bound,
      * or <code>null</code> if it is not bound yet.
@@ -23,6 +23,7 @@ import com.google.common.annotations.Beta;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.dcache.oncrpc4j.rpc.gss.GssSessionManager;
+import org.dcache.oncrpc4j.xdr.XdrStringCache;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -30,7 +31,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
 
@@ -90,9 +93,14 @@ public class OncRpcSvcBuilder {
     private SSLParameters _sslParams;
     private MemoryAllocator _allocator = MemoryAllocator.DEFAULT;
     private boolean _tcpNoDelay = TCPNIOTransport.DEFAULT_TCP_NO_DELAY;
+    private int _callWindowSize = 0;
+    private final Map<OncRpcProgram, Long> _maxQueueResidence = new HashMap<>();
     TransportFilter _transportFilter;
 
     private Consumer<RpcCall> _callInterceptor = c -> {};
+    private RpcProcedureListener _procedureListener = (procedure, call, elapsed, error) -> {};
+    private Function<RpcProcedureDescriptor, ExecutorService> _procedureExecutor = procedure -> null;
+    private XdrStringCache _stringCache;
 
     public OncRpcSvcBuilder withAutoPublish() {
         _autoPublish = true;
@@ -238,6 +246,35 @@ public class OncRpcSvcBuilder {
         return this;
     }
 
+    /**
+     * Drop requests of the given program, which waited for execution longer than
+     * the given time. Dropped requests are not replied, as the client most likely
+     * gave up on them.
+     *
+     * @param program the RPC program.
+     * @param time the maximal time a request may wait for execution.
+     * @param unit the time unit of the time argument.
+     * @return this builder.
+     */
+    public OncRpcSvcBuilder withMaxQueueResidence(OncRpcProgram program, long time, TimeUnit unit) {
+        checkArgument(time > 0, "queue residence must be positive");
+        _maxQueueResidence.put(program, unit.toNanos(time));
+        return this;
+    }
+
+    /**
+     * Limit the number of outstanding calls per client connection.
+     *
+     * @param size the maximal number of outstanding calls, 0 for no limit.
+     * @return this builder.
+     * @see CallWindow
+     */
+    public OncRpcSvcBuilder withCallWindow(int size) {
+        checkArgument(size >= 0, "window size can't be negative");
+        _callWindowSize = size;
+        return this;
+    }
+
     public OncRpcSvcBuilder withSSLContext(SSLContext sslContext) {
         _sslContext = sslContext;
         return this;
@@ -316,6 +353,14 @@ public class OncRpcSvcBuilder {
         return _tcpNoDelay;
     }
 
+    public int getCallWindowSize() {
+        return _callWindowSize;
+    }
+
+    public Map<OncRpcProgram, Long> getMaxQueueResidence() {
+        return _maxQueueResidence;
+    }
+
     public GssSessionManager getGssSessionManager() {
         return _gssSessionManager;
     }
@@ -329,6 +374,56 @@ public class OncRpcSvcBuilder {
         return _callInterceptor;
     }
 
+    /**
+     * Set the listener, which is notified after each request to a procedure described
+     * by {@link RpcDispatchable#getProcedureDescriptor(int, int)} was processed.
+     *
+     * @param listener the listener to notify.
+     * @return this builder.
+     */
+    public OncRpcSvcBuilder withProcedureListener(RpcProcedureListener listener) {
+        _procedureListener = listener;
+        return this;
+    }
+
+    public RpcProcedureListener getProcedureListener() {
+        return _procedureListener;
+    }
+
+    /**
+     * Set the function selecting the {@link ExecutorService} for requests to a procedure
+     * described by {@link RpcDispatchable#getProcedureDescriptor(int, int)}. If the function
+     * returns {@code null}, the worker thread pool is used. The returned executors are not
+     * shut down by the service.
+     *
+     * @param procedureExecutor function returning the executor for a procedure.
+     * @return this builder.
+     */
+    public OncRpcSvcBuilder withProcedureExecutor(Function<RpcProcedureDescriptor, ExecutorService> procedureExecutor) {
+        _procedureExecutor = procedureExecutor;
+        return this;
+    }
+
+    public Function<RpcProcedureDescriptor, ExecutorService> getProcedureExecutor() {
+        return _procedureExecutor;
+    }
+
+    /**
+     * Set the cache used to decode strings of received messages. A cache avoids repeated
+     * decoding and allocation of frequently used strings, like file names.
+     *
+     * @param stringCache the cache to use.
+     * @return this builder.
+     */
+    public OncRpcSvcBuilder withStringCache(XdrStringCache stringCache) {
+        _stringCache = stringCache;
+        return this;
+    }
+
+    public XdrStringCache getStringCache() {
+        return _stringCache;
+    }
+
     public ExecutorService getWorkerThreadExecutorService() {
         if (_ioStrategy == IoStrategy.SAME_THREAD ) {
             return MoreExecutors.newDirectExecutorService();
@@ -35,6 +35,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class ReplyQueue {
 
     private final ScheduledThreadPoolExecutor executorService = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
@@ -49,6 +51,11 @@ public class ReplyQueue {
     });
     private final ConcurrentMap<Integer, PendingRequest> _queue = new ConcurrentHashMap<>();
 
+    /**
+     * Number of pending requests by local socket address.
+     */
+    private final ConcurrentMap<SocketAddress, Integer> _inFlight = new ConcurrentHashMap<>();
+
     public ReplyQueue() {
         executorService.setRemoveOnCancelPolicy(true);
     }
@@ -80,16 +87,60 @@ public class ReplyQueue {
      * @throws EOFException if disconnected
      */
     public void registerKey(int xid, SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> callback, final long timeout, final TimeUnit timeoutUnits) throws EOFException {
-        ScheduledFuture<?> scheduledTimeout = null;
+        registerKey(xid, addr, callback, timeout, timeoutUnits, null);
+    }
+
+    /**
+     * Register callback handler for a given xid, which holds a permit of a {@link CallWindow}.
+     * The permit is returned when request is unregistered.
+     *
+     * @param xid xid of RPC request.
+     * @param addr socket address of remote endpoint.
+     * @param callback completion handler which will be used when request execution is
+     * finished.
+     * @param timeout how long client is interested in the reply.
+     * @param timeoutUnits units in which timeout value is expressed.
+     * @param window the call window of the transport or {@code null}.
+     */
+    public void registerKey(int xid, SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> callback,
+            long timeout, TimeUnit timeoutUnits, CallWindow window) {
+        PendingRequest request = new PendingRequest(addr, callback, false, window);
+        // the request must be visible before the timeout can fire
+        add(xid, request);
         if (timeout > 0 && timeoutUnits != null) {
-            scheduledTimeout = executorService.schedule(() -> {
+            request.scheduledTimeout = executorService.schedule(() -> {
                 CompletionHandler<RpcReply, RpcTransport> handler = get(xid);
                 if (handler != null) { //means we're 1st, no response yet
                     handler.failed(new TimeoutException("did not get a response within " + timeout + " " + timeoutUnits), null);
                 }
             }, timeout, timeoutUnits);
         }
-        _queue.put(xid, new PendingRequest(addr, callback, scheduledTimeout));
+    }
+
+    /**
+     * Register callback handler for a given xid of a broadcast request. Unlike
+     * {@link #registerKey(int, SocketAddress, CompletionHandler, long, TimeUnit)}, the
+     * key stays registered after a reply is received, thus the callback is called for
+     * every reply until the deadline expires. Then the key is unregistered and
+     * {@code onDeadline} is run.
+     *
+     * @param xid xid of RPC request.
+     * @param addr socket address of local endpoint.
+     * @param callback completion handler which is called for every reply.
+     * @param onDeadline action to run when deadline expires.
+     * @param timeout how long client is interested in replies.
+     * @param timeoutUnits units in which timeout value is expressed.
+     */
+    public void registerBroadcastKey(int xid, SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> callback,
+            Runnable onDeadline, long timeout, TimeUnit timeoutUnits) {
+        checkArgument(timeout > 0, "broadcast requires a timeout");
+        PendingRequest request = new PendingRequest(addr, callback, true, null);
+        add(xid, request);
+        request.scheduledTimeout = executorService.schedule(() -> {
+            if (remove(xid, request)) {
+                onDeadline.run();
+            }
+        }, timeout, timeoutUnits);
     }
 
     public void handleDisconnect(SocketAddress addr) {
@@ -98,21 +149,130 @@ public class ReplyQueue {
         _queue.entrySet().stream()
                 .filter(e -> e.getValue().addr.equals(addr))
                 .forEach(e -> {
-                    e.getValue().failed(eofException);
-                    _queue.remove(e.getKey());
+                    if (remove(e.getKey(), e.getValue())) {
+                        e.getValue().failed(eofException);
+                    }
                 });
     }
 
+    /**
+     * Schedule an action, which runs after the given delay, if request with the given xid
+     * still waits for a reply. The action is cancelled together with the timeout of the
+     * request. Only one action can be scheduled per request at a time.
+     *
+     * @param xid of RPC request.
+     * @param action the action to run.
+     * @param delay the delay after which the action runs.
+     * @param unit units in which delay value is expressed.
+     */
+    public void scheduleRetransmit(int xid, Runnable action, long delay, TimeUnit unit) {
+        PendingRequest request = _queue.get(xid);
+        if (request == null) {
+            return;
+        }
+        request.scheduledRetransmit = executorService.schedule(() -> {
+            if (_queue.get(xid) == request) {
+                action.run();
+            }
+        }, delay, unit);
+        if (_queue.get(xid) != request) {
+            // reply received concurrently
+            request.scheduledRetransmit.cancel(false);
+        }
+    }
+
+    /**
+     * Schedule an action, which runs after the given delay, on the timeout thread of this
+     * queue. Unlike {@link #scheduleRetransmit}, the action isn't bound to a registered request.
+     *
+     * @param action the action to run.
+     * @param delay the delay after which the action runs.
+     * @param unit units in which delay value is expressed.
+     * @return the future to cancel the action with.
+     */
+    public ScheduledFuture<?> schedule(Runnable action, long delay, TimeUnit unit) {
+        return executorService.schedule(action, delay, unit);
+    }
+
+    /**
+     * Unregister the given xid, if registered, without notifying the callback handler.
+     *
+     * @param xid of RPC request.
+     */
+    public void unregister(int xid) {
+        PendingRequest request = _queue.remove(xid);
+        if (request != null) {
+            released(request);
+            request.cancelTimeout();
+        }
+    }
+
+    /**
+     * Check whatever the given xid is registered.
+     *
+     * @param xid of RPC request.
+     * @return {@code true} if request with the given xid waits for a reply.
+     */
+    public boolean isPending(int xid) {
+        return _queue.containsKey(xid);
+    }
+
+    /**
+     * Get number of pending requests sent from the given local socket address.
+     *
+     * @param addr socket address of local endpoint.
+     * @return number of requests waiting for a reply.
+     */
+    public int inFlight(SocketAddress addr) {
+        Integer n = _inFlight.get(addr);
+        return n == null ? 0 : n;
+    }
+
+    private void add(int xid, PendingRequest request) {
+        if (request.addr != null) {
+            _inFlight.merge(request.addr, 1, Integer::sum);
+        }
+        PendingRequest old = _queue.put(xid, request);
+        if (old != null) {
+            released(old);
+        }
+    }
+
+    private boolean remove(int xid, PendingRequest request) {
+        if (_queue.remove(xid, request)) {
+            released(request);
+            return true;
+        }
+        return false;
+    }
+
+    private void released(PendingRequest request) {
+        if (request.addr != null) {
+            _inFlight.computeIfPresent(request.addr, (k, n) -> n == 1 ? null : n - 1);
+        }
+        if (request.window != null) {
+            request.window.release();
+        }
+    }
+
     /**
      * Get {@link CompletionHandler} for the provided xid.
-     * On completion key will be unregistered.
+     * On completion key will be unregistered, unless the key is registered for
+     * a broadcast request.
      *
      * @param xid of RPC request.
      * @return completion handler for given xid or {@code null} if xid is unknown.
      */
     public CompletionHandler<RpcReply, RpcTransport> get(int xid) {
-        PendingRequest request = _queue.remove(xid);
+        PendingRequest request = _queue.get(xid);
+        if (request != null && request.multipleReplies) {
+            // broadcast requests are unregistered by the deadline
+            return request.handler;
+        }
+
+        request = _queue.remove(xid);
         if (request != null) { //means we're first. call off any pending timeouts
+            released(request);
             request.cancelTimeout();
             return request.handler;
         } else {
@@ -130,18 +290,33 @@ public class ReplyQueue {
 
     public static class PendingRequest {
         private final CompletionHandler<RpcReply, RpcTransport> handler;
-        private final ScheduledFuture<?> scheduledTimeout;
+        private volatile ScheduledFuture<?> scheduledTimeout;
+        private volatile ScheduledFuture<?> scheduledRetransmit;
         private final SocketAddress addr;
+        private final boolean multipleReplies;
+        private final CallWindow window;
 
         public PendingRequest(SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> handler, ScheduledFuture<?> scheduledTimeout) {
-            this.handler = handler;
+            this(addr, handler, false, null);
             this.scheduledTimeout = scheduledTimeout;
+        }
+
+        private PendingRequest(SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> handler,
+                boolean multipleReplies, CallWindow window) {
+            this.handler = handler;
             this.addr = addr;
+            this.multipleReplies = multipleReplies;
+            this.window = window;
         }
 
         void cancelTimeout() {
-            if (scheduledTimeout != null) {
-                scheduledTimeout.cancel(false);
+            ScheduledFuture<?> timeout = scheduledTimeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            ScheduledFuture<?> retransmit = scheduledRetransmit;
+            if (retransmit != null) {
+                retransmit.cancel(false);
             }
         }
 
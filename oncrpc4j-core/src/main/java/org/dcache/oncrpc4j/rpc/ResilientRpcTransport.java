@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.dcache.oncrpc4j.grizzly.GrizzlyRpcTransport;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A client transport which survives server restarts.
+ * <p>
+ * When the connection is lost, the transport reconnects in the background with an
+ * exponential backoff. Pending calls of idempotent procedures are sent again over the
+ * new connection with the same xid, thus a server side duplicate request cache can
+ * recognize them. Pending calls of other procedures fail with {@link EOFException}.
+ * Calls of idempotent procedures made while disconnected are sent once connection is
+ * re-established, calls of other procedures fail immediately.
+ * <p>
+ * Pending calls are still subject to the timeout of the call, which bounds the time a
+ * caller waits for a reply. Calls which contain file regions are not supported.
+ * <p>
+ * As connections are replaced, requests sent with this transport are registered in the
+ * {@link ReplyQueue} with a local address which is not bound to any connection, see
+ * {@link #getLocalSocketAddress()}.
+ */
+public class ResilientRpcTransport implements RpcTransport, AutoCloseable {
+
+    private static final Logger _log = LoggerFactory.getLogger(ResilientRpcTransport.class);
+
+    /**
+     * Default delay before the first reconnect attempt in milliseconds.
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF = 100;
+
+    /**
+     * Default maximal delay between reconnect attempts in milliseconds.
+     */
+    public static final long DEFAULT_MAX_BACKOFF = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Default timeout of a connect attempt in milliseconds.
+     */
+    public static final long DEFAULT_CONNECT_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private static final AtomicInteger ID = new AtomicInteger();
+
+    /**
+     * Number of calls after which records of completed calls are removed.
+     */
+    private static final int PRUNE_INTERVAL = 64;
+
+    /**
+     * Offsets of xid, message type and procedure number in a call message.
+     */
+    private static final int XID_OFFSET = 0;
+    private static final int TYPE_OFFSET = 4;
+    private static final int PROC_OFFSET = 20;
+
+    private final OncRpcSvc _svc;
+    private final InetSocketAddress _remoteAddress;
+    private final InetSocketAddress _localAddress;
+    private final IntPredicate _idempotent;
+    private final long _initialBackoff;
+    private final long _maxBackoff;
+    private final long _connectTimeout;
+    private final ReplyQueue _replyQueue;
+    private final boolean _isStreaming;
+    private final CallWindow _callWindow;
+
+    /**
+     * Calls sent with this transport by xid. Records of completed calls are removed lazily.
+     */
+    private final ConcurrentMap<Integer, PendingCall> _calls = new ConcurrentHashMap<>();
+    private final AtomicInteger _sends = new AtomicInteger();
+
+    private final ScheduledExecutorService _reconnectExecutor;
+
+    private final Object _lock = new Object();
+
+    /**
+     * Current connection or {@code null}, if disconnected.
+     */
+    private GrizzlyRpcTransport _connection;
+    private boolean _closed;
+
+    /**
+     * Current delay between reconnect attempts in nanoseconds.
+     */
+    private long _backoff;
+
+    /**
+     * Connect to a server.
+     *
+     * @param svc client service used to establish connections.
+     * @param remoteAddress the address of the server.
+     * @param idempotent tests whatever a procedure number denotes an idempotent procedure.
+     * @param initialBackoff delay before the first reconnect attempt.
+     * @param maxBackoff maximal delay between reconnect attempts.
+     * @param connectTimeout timeout of a connect attempt.
+     * @param unit the time unit of other arguments.
+     * @throws IOException if initial connection can't be established.
+     */
+    public ResilientRpcTransport(OncRpcSvc svc, InetSocketAddress remoteAddress, IntPredicate idempotent,
+            long initialBackoff, long maxBackoff, long connectTimeout, TimeUnit unit) throws IOException {
+        _svc = svc;
+        _remoteAddress = remoteAddress;
+        _idempotent = idempotent;
+        _initialBackoff = unit.toNanos(initialBackoff);
+        _maxBackoff = unit.toNanos(maxBackoff);
+        _connectTimeout = unit.toNanos(connectTimeout);
+        _localAddress = InetSocketAddress.createUnresolved("resilient-" + ID.incrementAndGet(), 0);
+
+        GrizzlyRpcTransport connection = (GrizzlyRpcTransport) _svc.connect(_remoteAddress, _connectTimeout, TimeUnit.NANOSECONDS);
+        _replyQueue = connection.getReplyQueue();
+        _isStreaming = connection.isStreaming();
+        // keep the window of the first connection, as calls outlive connections
+        _callWindow = connection.getCallWindow();
+        _reconnectExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("rpc-reconnect-" + _remoteAddress + "-%d")
+                .setDaemon(true)
+                .build());
+        connected(connection);
+    }
+
+    @Override
+    public <A> void send(Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
+        GrizzlyRpcTransport connection;
+
+        if (xdr.remaining() < PROC_OFFSET + Integer.BYTES || xdr.intAt(TYPE_OFFSET) != RpcMessageType.CALL) {
+            synchronized (_lock) {
+                connection = _connection;
+            }
+            if (connection == null) {
+                handler.failed(new EOFException("Disconnected from " + _remoteAddress), attachment);
+            } else {
+                connection.send(xdr, attachment, handler);
+            }
+            return;
+        }
+
+        int xid = xdr.intAt(XID_OFFSET);
+        boolean replayable = _idempotent.test(xdr.intAt(PROC_OFFSET));
+        // only calls, which can be re-sent, keep a copy of the message
+        byte[] message = replayable ? xdr.getBytes() : null;
+        PendingCall call;
+
+        synchronized (_lock) {
+            connection = _connection;
+            if (connection == null) {
+                if (_closed || !replayable) {
+                    handler.failed(new EOFException("Disconnected from " + _remoteAddress), attachment);
+                } else {
+                    // send on reconnect
+                    _calls.put(xid, new PendingCall(message, null, new CompletionHandler<Integer, Object>() {
+                        @Override
+                        public void completed(Integer result, Object ignored) {
+                            handler.completed(result, attachment);
+                        }
+
+                        @Override
+                        public void failed(Throwable t, Object ignored) {
+                            handler.failed(t, attachment);
+                        }
+                    }));
+                }
+                return;
+            }
+
+            call = new PendingCall(message, connection, null);
+            _calls.put(xid, call);
+        }
+
+        if (_sends.incrementAndGet() % PRUNE_INTERVAL == 0) {
+            _calls.keySet().removeIf(x -> !_replyQueue.isPending(x));
+        }
+        connection.send(xdr, attachment, handler);
+    }
+
+    /*
+     * Install new connection and resend pending calls.
+     */
+    private void connected(GrizzlyRpcTransport connection) {
+        synchronized (_lock) {
+            if (_closed) {
+                return;
+            }
+            _connection = connection;
+            _backoff = _initialBackoff;
+        }
+        connection.addCloseListener(() -> disconnected(connection));
+
+        for (Map.Entry<Integer, PendingCall> e : _calls.entrySet()) {
+            int xid = e.getKey();
+            PendingCall call = e.getValue();
+            if (!_replyQueue.isPending(xid)) {
+                _calls.remove(xid, call);
+                continue;
+            }
+
+            GrizzlyRpcTransport sentOn = call.sentOn.get();
+            if (call.message == null || sentOn == connection || !call.sentOn.compareAndSet(sentOn, connection)) {
+                continue;
+            }
+
+            _log.debug("Re-sending request xid={} to {}", xid, _remoteAddress);
+            connection.send(new Xdr(call.message), null, call.sendHandler);
+        }
+    }
+
+    /*
+     * Fail pending calls which can't be re-sent and start reconnecting.
+     */
+    private void disconnected(GrizzlyRpcTransport connection) {
+        synchronized (_lock) {
+            if (_connection != connection) {
+                return;
+            }
+            _connection = null;
+            if (_closed) {
+                return;
+            }
+        }
+
+        _log.info("Connection to {} lost, reconnecting", _remoteAddress);
+        failPending(false);
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        try {
+            _reconnectExecutor.schedule(this::reconnect, _backoff, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            // transport is closed
+        }
+    }
+
+    private void reconnect() {
+        GrizzlyRpcTransport connection;
+        try {
+            connection = (GrizzlyRpcTransport) _svc.connect(_remoteAddress, _connectTimeout, TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            synchronized (_lock) {
+                if (_closed) {
+                    return;
+                }
+                _backoff = Math.min(_backoff * 2, _maxBackoff);
+            }
+            _log.debug("Failed to reconnect to {}: {}", _remoteAddress, e.getMessage());
+            scheduleReconnect();
+            return;
+        }
+
+        _log.info("Reconnected to {}", _remoteAddress);
+        connected(connection);
+    }
+
+    /*
+     * Fail pending calls which can't be re-sent, or all pending calls.
+     */
+    private void failPending(boolean all) {
+        EOFException eof = new EOFException("Disconnected from " + _remoteAddress);
+        for (Map.Entry<Integer, PendingCall> e : _calls.entrySet()) {
+            PendingCall call = e.getValue();
+            if (!all && call.message != null) {
+                continue;
+            }
+
+            _calls.remove(e.getKey(), call);
+            CompletionHandler<RpcReply, RpcTransport> handler = _replyQueue.get(e.getKey());
+            if (handler != null) {
+                handler.failed(eof, this);
+            }
+        }
+    }
+
+    /**
+     * Stop reconnecting. If transport is disconnected, all pending calls fail.
+     */
+    @Override
+    public void close() {
+        boolean connected;
+        synchronized (_lock) {
+            _closed = true;
+            connected = _connection != null;
+        }
+        _reconnectExecutor.shutdownNow();
+        if (!connected) {
+            failPending(true);
+        }
+    }
+
+    @Override
+    public ReplyQueue getReplyQueue() {
+        return _replyQueue;
+    }
+
+    @Override
+    public CallWindow getCallWindow() {
+        return _callWindow;
+    }
+
+    @Override
+    public boolean isOpen() {
+        synchronized (_lock) {
+            return _connection != null && _connection.isOpen();
+        }
+    }
+
+    /**
+     * Get the local address, which is used to register requests in {@link ReplyQueue}.
+     * The address is not bound to any connection and doesn't change when transport
+     * reconnects.
+     *
+     * @return the local address of this transport.
+     */
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return _localAddress;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress() {
+        return _remoteAddress;
+    }
+
+    @Override
+    public RpcTransport getPeerTransport() {
+        synchronized (_lock) {
+            if (_connection == null) {
+                throw new IllegalStateException("Disconnected from " + _remoteAddress);
+            }
+            return _connection.getPeerTransport();
+        }
+    }
+
+    @Override
+    public void startTLS() throws RpcAuthException, IllegalStateException {
+        throw new IllegalStateException("TLS must be enabled by client service.");
+    }
+
+    @Override
+    public boolean isTLS() {
+        synchronized (_lock) {
+            return _connection != null && _connection.isTLS();
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return _isStreaming;
+    }
+
+    @Override
+    public String toString() {
+        return "resilient " + _remoteAddress;
+    }
+
+    private static class PendingCall {
+
+        /**
+         * Encoded call or {@code null}, if call can't be re-sent.
+         */
+        private final byte[] message;
+
+        /**
+         * Connection on which call was sent last time.
+         */
+        private final AtomicReference<GrizzlyRpcTransport> sentOn;
+
+        /**
+         * Handler to notify when call is sent.
+         */
+        private final CompletionHandler<Integer, Object> sendHandler;
+
+        PendingCall(byte[] message, GrizzlyRpcTransport sentOn, CompletionHandler<Integer, Object> sendHandler) {
+            this.message = message;
+            this.sentOn = new AtomicReference<>(sentOn);
+            this.sendHandler = sendHandler != null ? sendHandler : new CompletionHandler<Integer, Object>() {
+                @Override
+                public void completed(Integer result, Object attachment) {
+                }
+
+                @Override
+                public void failed(Throwable t, Object attachment) {
+                    _log.debug("Failed to re-send request: {}", t.getMessage());
+                }
+            };
+        }
+    }
+}
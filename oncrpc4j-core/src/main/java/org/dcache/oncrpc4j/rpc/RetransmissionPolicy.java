@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.net.SocketAddress;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Retransmission policy of calls sent over datagram transports.
+ * <p>
+ * A call which is not answered within the retransmission timeout (RTO) is sent again
+ * with the same xid, and the timeout of the next attempt is doubled, up to the maximal
+ * timeout. When the maximal number of retransmissions is exhausted and the last attempt
+ * times out as well, the call fails with {@link java.util.concurrent.TimeoutException}.
+ * The timeout of the call, if any, still bounds the total time of all attempts.
+ * <p>
+ * Like the Linux sunrpc timer, the RTO is estimated from measured round trip times
+ * per remote endpoint and procedure class, as procedures differ in their
+ * execution time. Round trip times of retransmitted calls are not measured, as
+ * it's unknown which of the attempts has been answered.
+ * <p>
+ * The same policy can be shared by multiple {@link RpcCall}s.
+ */
+public class RetransmissionPolicy {
+
+    /**
+     * Default timeout of the first attempt, if round trip time is not known yet.
+     */
+    public static final long DEFAULT_INITIAL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1100);
+
+    /**
+     * Default lower bound of the estimated timeout.
+     */
+    public static final long DEFAULT_MIN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Default upper bound of the timeout.
+     */
+    public static final long DEFAULT_MAX_TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Default maximal number of retransmissions of a call.
+     */
+    public static final int DEFAULT_MAX_RETRANSMITS = 5;
+
+    private final long _initialTimeout;
+    private final long _minTimeout;
+    private final long _maxTimeout;
+    private final int _maxRetransmits;
+    private final IntUnaryOperator _procedureClass;
+
+    private final ConcurrentMap<Key, Estimator> _estimators = new ConcurrentHashMap<>();
+
+    /**
+     * Create a policy with default timeouts, where every procedure forms its own class.
+     */
+    public RetransmissionPolicy() {
+        this(DEFAULT_INITIAL_TIMEOUT, DEFAULT_MIN_TIMEOUT, DEFAULT_MAX_TIMEOUT, TimeUnit.NANOSECONDS,
+                DEFAULT_MAX_RETRANSMITS, IntUnaryOperator.identity());
+    }
+
+    /**
+     * Create a new policy.
+     *
+     * @param initialTimeout timeout of the first attempt, if round trip time is not known.
+     * @param minTimeout lower bound of the estimated timeout.
+     * @param maxTimeout upper bound of the timeout.
+     * @param unit the time unit of timeouts.
+     * @param maxRetransmits maximal number of retransmissions of a call.
+     * @param procedureClass maps a procedure number to its class. Round trip times are
+     * estimated per class.
+     */
+    public RetransmissionPolicy(long initialTimeout, long minTimeout, long maxTimeout, TimeUnit unit,
+            int maxRetransmits, IntUnaryOperator procedureClass) {
+        checkArgument(minTimeout > 0, "minimal timeout must be positive");
+        checkArgument(minTimeout <= initialTimeout && initialTimeout <= maxTimeout,
+                "initial timeout must be between minimal and maximal timeout");
+        checkArgument(maxRetransmits >= 0, "number of retransmissions can't be negative");
+        _initialTimeout = unit.toNanos(initialTimeout);
+        _minTimeout = unit.toNanos(minTimeout);
+        _maxTimeout = unit.toNanos(maxTimeout);
+        _maxRetransmits = maxRetransmits;
+        _procedureClass = procedureClass;
+    }
+
+    /**
+     * Get the maximal number of retransmissions of a call.
+     *
+     * @return the maximal number of retransmissions.
+     */
+    public int getMaxRetransmits() {
+        return _maxRetransmits;
+    }
+
+    /**
+     * Get the timeout of an attempt to call a procedure.
+     *
+     * @param remote the address of the remote endpoint.
+     * @param procedure the number of the procedure.
+     * @param attempt the number of the attempt, starting with zero.
+     * @return the timeout in nanoseconds.
+     */
+    public long getTimeout(SocketAddress remote, int procedure, int attempt) {
+        Estimator estimator = _estimators.get(new Key(remote, _procedureClass.applyAsInt(procedure)));
+        long timeout = estimator == null ? _initialTimeout : estimator.rto(_minTimeout, _maxTimeout);
+        for (int i = 0; i < attempt && timeout < _maxTimeout; i++) {
+            timeout <<= 1;
+        }
+        return Math.min(timeout, _maxTimeout);
+    }
+
+    /**
+     * Update round trip time estimation with a new sample.
+     *
+     * @param remote the address of the remote endpoint.
+     * @param procedure the number of the procedure.
+     * @param rtt measured round trip time in nanoseconds.
+     */
+    public void update(SocketAddress remote, int procedure, long rtt) {
+        _estimators.computeIfAbsent(new Key(remote, _procedureClass.applyAsInt(procedure)), k -> new Estimator())
+                .update(Math.max(rtt, 1));
+    }
+
+    /**
+     * Round trip time estimator as described in RFC 6298.
+     */
+    private static class Estimator {
+
+        /**
+         * Smoothed round trip time.
+         */
+        private long _srtt;
+
+        /**
+         * Round trip time variation.
+         */
+        private long _rttvar;
+
+        synchronized void update(long rtt) {
+            if (_srtt == 0) {
+                _srtt = rtt;
+                _rttvar = rtt / 2;
+            } else {
+                long delta = rtt - _srtt;
+                _srtt += delta / 8;
+                _rttvar += (Math.abs(delta) - _rttvar) / 4;
+            }
+        }
+
+        synchronized long rto(long min, long max) {
+            return Math.min(Math.max(_srtt + 4 * _rttvar, min), max);
+        }
+    }
+
+    private static class Key {
+
+        private final SocketAddress remote;
+        private final int procedureClass;
+
+        Key(SocketAddress remote, int procedureClass) {
+            this.remote = remote;
+            this.procedureClass = procedureClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return procedureClass == other.procedureClass && remote.equals(other.remote);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(remote, procedureClass);
+        }
+    }
+}
@@ -37,8 +37,11 @@ import java.util.Random;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -61,6 +64,13 @@ public class RpcCall {
      */
     private final static int RPCVERS = 2;
 
+    /**
+     * Upper bound of the call header size with AUTH_SYS credentials: xid, message type,
+     * rpc version, program, version and procedure, followed by credentials and verifier,
+     * each with up to 400 bytes of body.
+     */
+    private final static int MAX_CALL_HEADER_SIZE = 6 * 4 + 2 * (2 * 4 + 400);
+
     /**
      * RPC program number
      */
@@ -96,11 +106,22 @@ public class RpcCall {
      */
     private final Xdr _xdr;
 
+    /**
+     * Retransmission policy of calls over datagram transports or {@code null}, if calls
+     * are not retransmitted.
+     */
+    private volatile RetransmissionPolicy _retransmissionPolicy;
+
     /**
      * Object used to synchronize access to sendListeners.
      */
     private final Object _listenerLock = new Object();
 
+    /**
+     * Value of {@link System#nanoTime()} when the request was received.
+     */
+    private long _arrivalTime;
+
     /**
      * The {link CompletionHandler} which is used to notify all registered
      * completion listeners.
@@ -258,6 +279,22 @@ public class RpcCall {
         return _xid;
     }
 
+    /**
+     * Get the time when this request was received.
+     * @return value of {@link System#nanoTime()} when request was received.
+     */
+    public long getArrivalTime() {
+        return _arrivalTime;
+    }
+
+    /**
+     * Set the time when this request was received.
+     * @param arrivalTime value of {@link System#nanoTime()} when request was received.
+     */
+    public void setArrivalTime(long arrivalTime) {
+        _arrivalTime = arrivalTime;
+    }
+
     /**
      * Get {@link Xdr} stream used by this message.
      * @return xdr stream
@@ -330,6 +367,11 @@ public class RpcCall {
             xdr.xdrEncodeInt(RpcReplyStatus.MSG_ACCEPTED);
             _cred.getVerifier().xdrEncode(xdr);
             xdr.xdrEncodeInt(state);
+            int replySize = reply.xdrEncodedSize();
+            if (replySize > 0) {
+                // grow the buffer at most once
+                ((Xdr)xdr).ensureCapacity(replySize);
+            }
             reply.xdrEncode(xdr);
             xdr.endEncoding();
 
@@ -393,6 +435,35 @@ public class RpcCall {
         acceptedReply(RpcAccepsStatus.SYSTEM, XdrVoid.XDR_VOID);
     }
 
+    /**
+     * Send the reply to the client when the given result is available. This allows
+     * a {@link RpcDispatchable} to return without blocking the worker thread while
+     * the result is computed elsewhere.
+     * <p>
+     * If the result completes exceptionally with {@link RpcException}, the call is
+     * rejected. Any other failure is reported to the client as system error.
+     *
+     * @param result the pending result of the call.
+     */
+    public void replyWhenComplete(CompletionStage<? extends XdrAble> result) {
+        result.whenComplete((reply, t) -> {
+            if (t == null) {
+                reply(reply);
+                return;
+            }
+
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            if (cause instanceof RpcException) {
+                RpcException e = (RpcException) cause;
+                reject(e.getStatus(), e.getRpcReply());
+                _log.warn("Failed to process RPC request: {}", e.getMessage());
+            } else {
+                _log.error("Failed to process RPC request:", cause);
+                failRpcSystem();
+            }
+        });
+    }
+
     /**
      * Send asynchronous RPC request to a remove server.
      *
@@ -413,7 +484,7 @@ public class RpcCall {
      */
     public void call(int procedure, XdrAble args, CompletionHandler<RpcReply, RpcTransport> callback, long timeoutValue, TimeUnit timeoutUnits, RpcAuth auth)
             throws IOException {
-        callInternal(procedure, args, callback, timeoutValue, timeoutUnits, auth);
+        callInternal(procedure, args, callback, timeoutValue, timeoutUnits, auth, false);
     }
 
     /**
@@ -448,16 +519,218 @@ public class RpcCall {
      * @param timeoutValue timeout value. 0 means no timeout
      * @param timeoutUnits units for timeout value
      * @param auth auth to use for this call. null for constructor-provided default
+     * @param blocking whatever to block the caller, if transport's call window is full
      * @return the xid for the call
      * @throws IOException if I/O or RPC error occurs
      */
     private int callInternal(int procedure, XdrAble args, CompletionHandler<RpcReply, RpcTransport> callback,
-                             long timeoutValue, TimeUnit timeoutUnits, RpcAuth auth)
+                             long timeoutValue, TimeUnit timeoutUnits, RpcAuth auth, boolean blocking)
             throws IOException {
 
         int xid = nextXid();
+        Xdr xdr = encodeCall(xid, procedure, args, auth);
+
+        // pooled transports pick the connection to use for this call
+        RpcTransport transport = _transport.selectTransport();
+        CompletionHandler<RpcReply, RpcTransport> handler = callback == null? NOOP : callback;
+        long timeout = timeoutValue > 0 && timeoutUnits != null ? timeoutUnits.toNanos(timeoutValue) : 0;
+
+        CallWindow window = transport.getCallWindow();
+        if (window == null || window.tryAcquire()) {
+            send(xid, procedure, xdr, transport, window, callback, handler, timeout);
+        } else if (blocking) {
+            long started = System.nanoTime();
+            try {
+                if (!window.tryAcquire(timeout > 0 ? timeout : Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                    handler.failed(new TimeoutException("no free slot in " + window), transport);
+                    return xid;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+            sendIfNotExpired(xid, procedure, xdr, transport, window, callback, handler, timeout, started);
+        } else {
+            new QueuedCall(xid, procedure, xdr, transport, window, callback, handler, timeout).enqueue();
+        }
+        return xid;
+    }
+
+    /*
+     * An asynchronous call, which waits for a slot in the call window. If the call times
+     * out before it gets a slot, it's removed from the queue and fails.
+     */
+    private class QueuedCall implements Runnable {
+
+        private final int xid;
+        private final int procedure;
+        private final Xdr xdr;
+        private final RpcTransport transport;
+        private final CallWindow window;
+        private final CompletionHandler<RpcReply, RpcTransport> callback;
+        private final CompletionHandler<RpcReply, RpcTransport> handler;
+        private final long timeout;
+        private final long started = System.nanoTime();
+        private volatile ScheduledFuture<?> expiry;
+
+        QueuedCall(int xid, int procedure, Xdr xdr, RpcTransport transport, CallWindow window,
+                CompletionHandler<RpcReply, RpcTransport> callback, CompletionHandler<RpcReply, RpcTransport> handler,
+                long timeout) {
+            this.xid = xid;
+            this.procedure = procedure;
+            this.xdr = xdr;
+            this.transport = transport;
+            this.window = window;
+            this.callback = callback;
+            this.handler = handler;
+            this.timeout = timeout;
+        }
+
+        void enqueue() {
+            window.acquire(this);
+            if (timeout > 0) {
+                expiry = transport.getReplyQueue().schedule(this::expire, timeout, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void expire() {
+            if (window.cancel(this)) {
+                handler.failed(new TimeoutException("no free slot in " + window), transport);
+            }
+        }
+
+        @Override
+        public void run() {
+            ScheduledFuture<?> f = expiry;
+            if (f != null) {
+                f.cancel(false);
+            }
+            sendIfNotExpired(xid, procedure, xdr, transport, window, callback, handler, timeout, started);
+        }
+    }
+
+    /*
+     * Send a call, which has waited for a slot in the call window since started, with
+     * the timeout left. If the timeout expired while waiting, the slot is returned
+     * and the call fails without being sent.
+     */
+    private void sendIfNotExpired(int xid, int procedure, Xdr xdr, RpcTransport transport, CallWindow window,
+            CompletionHandler<RpcReply, RpcTransport> callback, CompletionHandler<RpcReply, RpcTransport> handler,
+            long timeout, long started) {
+
+        long remaining = 0;
+        if (timeout > 0) {
+            remaining = timeout - (System.nanoTime() - started);
+            if (remaining <= 0) {
+                window.release();
+                handler.failed(new TimeoutException("no free slot in " + window), transport);
+                return;
+            }
+        }
+        send(xid, procedure, xdr, transport, window, callback, handler, remaining);
+    }
+
+    private void send(int xid, int procedure, Xdr xdr, RpcTransport transport, CallWindow window,
+            CompletionHandler<RpcReply, RpcTransport> callback, CompletionHandler<RpcReply, RpcTransport> handler,
+            long timeout) {
+
+        ReplyQueue replyQueue = transport.getReplyQueue();
 
-        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        RetransmissionPolicy retransmissionPolicy = _retransmissionPolicy;
+        Retransmission retransmission = null;
+        if (retransmissionPolicy != null && !transport.isStreaming()) {
+            retransmission = new Retransmission(xid, procedure, xdr.getBytes(), transport, retransmissionPolicy, handler);
+            callback = retransmission;
+        }
+        replyQueue.registerKey(xid, transport.getLocalSocketAddress(), callback, timeout, TimeUnit.NANOSECONDS, window);
+
+        transport.send(xdr, transport.getRemoteSocketAddress(), new NotifyListenersCompletionHandler() {
+
+            @Override
+            public void failed(Throwable t, InetSocketAddress attachment) {
+                super.failed(t, attachment);
+                replyQueue.get(xid);
+                handler.failed(t, transport);
+            }
+        });
+
+        if (retransmission != null) {
+            retransmission.schedule();
+        }
+    }
+
+    /**
+     * Retransmits a call over datagram transport until a reply is received.
+     */
+    private class Retransmission implements CompletionHandler<RpcReply, RpcTransport> {
+
+        private final int xid;
+        private final int procedure;
+        private final byte[] message;
+        private final RpcTransport transport;
+        private final RetransmissionPolicy policy;
+        private final CompletionHandler<RpcReply, RpcTransport> handler;
+        private final long started = System.nanoTime();
+        private volatile int attempt;
+
+        Retransmission(int xid, int procedure, byte[] message, RpcTransport transport,
+                RetransmissionPolicy policy, CompletionHandler<RpcReply, RpcTransport> handler) {
+            this.xid = xid;
+            this.procedure = procedure;
+            this.message = message;
+            this.transport = transport;
+            this.policy = policy;
+            this.handler = handler;
+        }
+
+        void schedule() {
+            long timeout = policy.getTimeout(transport.getRemoteSocketAddress(), procedure, attempt);
+            transport.getReplyQueue().scheduleRetransmit(xid, this::expired, timeout, TimeUnit.NANOSECONDS);
+        }
+
+        private void expired() {
+            ReplyQueue replyQueue = transport.getReplyQueue();
+            if (attempt == policy.getMaxRetransmits()) {
+                CompletionHandler<RpcReply, RpcTransport> h = replyQueue.get(xid);
+                if (h != null) {
+                    h.failed(new TimeoutException("did not get a response after " + attempt + " retransmissions"), null);
+                }
+                return;
+            }
+
+            attempt++;
+            _log.debug("Retransmitting request xid={} to {}, attempt {}", xid, transport.getRemoteSocketAddress(), attempt);
+            transport.send(new Xdr(message), transport.getRemoteSocketAddress(), new NotifyListenersCompletionHandler() {
+
+                @Override
+                public void failed(Throwable t, InetSocketAddress attachment) {
+                    super.failed(t, attachment);
+                    if (replyQueue.get(xid) != null) {
+                        handler.failed(t, transport);
+                    }
+                }
+            });
+            schedule();
+        }
+
+        @Override
+        public void completed(RpcReply reply, RpcTransport attachment) {
+            // a reply to a retransmitted call can't be matched to an attempt
+            if (attempt == 0) {
+                policy.update(transport.getRemoteSocketAddress(), procedure, System.nanoTime() - started);
+            }
+            handler.completed(reply, attachment);
+        }
+
+        @Override
+        public void failed(Throwable t, RpcTransport attachment) {
+            handler.failed(t, attachment);
+        }
+    }
+
+    private Xdr encodeCall(int xid, int procedure, XdrAble args, RpcAuth auth) throws IOException {
+        int argsSize = args.xdrEncodedSize();
+        Xdr xdr = new Xdr(argsSize < 0 ? Xdr.INITIAL_XDR_SIZE : Math.max(Xdr.INITIAL_XDR_SIZE, MAX_CALL_HEADER_SIZE + argsSize));
         xdr.beginEncoding();
         xdr.xdrEncodeInt(xid);
         xdr.xdrEncodeInt(RpcMessageType.CALL);
@@ -472,22 +745,58 @@ public class RpcCall {
         }
         args.xdrEncode(xdr);
         xdr.endEncoding();
+        return xdr;
+    }
 
-        ReplyQueue replyQueue = _transport.getReplyQueue();
+    /**
+     * Send a broadcast RPC request.
+     *
+     * The request is sent once to the remote address of the transport, which is
+     * expected to be a broadcast or multicast address, see
+     * {@link OncRpcSvc#bindBroadcast(InetSocketAddress)}. All replies received until
+     * the deadline expires are passed to the completion handler as they arrive. The
+     * transport passed to the handler points to the server which sent the reply.
+     * Error replies are passed to {@link CompletionHandler#failed(Throwable, Object)}
+     * with transport of the server which sent it.
+     *
+     * @param procedure The number of the procedure.
+     * @param args The argument of the procedure.
+     * @param callback The completion handler called for every reply.
+     * @param deadline how long to collect replies.
+     * @param deadlineUnits units for deadline value.
+     * @param auth auth to use for the call. null for constructor-provided default
+     * @return a future which completes when deadline expires or fails if request can't be sent.
+     * @throws IOException if I/O or RPC error occurs
+     */
+    public CompletableFuture<Void> broadcast(int procedure, XdrAble args, CompletionHandler<RpcReply, RpcTransport> callback,
+            long deadline, TimeUnit deadlineUnits, RpcAuth auth) throws IOException {
 
-        CompletionHandler<RpcReply, RpcTransport> handler = callback == null? NOOP : callback;
-        replyQueue.registerKey(xid, _transport.getLocalSocketAddress(), callback, timeoutValue, timeoutUnits);
+        int xid = nextXid();
+        Xdr xdr = encodeCall(xid, procedure, args, auth);
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        ReplyQueue replyQueue = _transport.getReplyQueue();
+        replyQueue.registerBroadcastKey(xid, _transport.getLocalSocketAddress(), callback,
+                () -> done.complete(null), deadline, deadlineUnits);
 
         _transport.send(xdr, _transport.getRemoteSocketAddress(), new NotifyListenersCompletionHandler() {
 
             @Override
             public void failed(Throwable t, InetSocketAddress attachment) {
                 super.failed(t, attachment);
-                replyQueue.get(xid);
-                handler.failed(t, _transport);
+                replyQueue.unregister(xid);
+                done.completeExceptionally(t);
             }
         });
-        return xid;
+        return done;
+    }
+
+    /**
+     * convenience version of {@link #broadcast(int, XdrAble, CompletionHandler, long, TimeUnit, RpcAuth)} with no auth
+     */
+    public CompletableFuture<Void> broadcast(int procedure, XdrAble args, CompletionHandler<RpcReply, RpcTransport> callback,
+            long deadline, TimeUnit deadlineUnits) throws IOException {
+        return broadcast(procedure, args, callback, deadline, deadlineUnits, null);
     }
 
     /**
@@ -513,7 +822,7 @@ public class RpcCall {
             throws IOException {
         try {
             T result = type.getDeclaredConstructor().newInstance();
-            return getCallFuture(procedure, args, result, 0, null, auth);
+            return getCallFuture(procedure, args, result, 0, null, auth, false);
         } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
             // this exceptions point to bugs
             throw new RuntimeException("Failed to create in instance of " + type, e);
@@ -561,7 +870,7 @@ public class RpcCall {
     public void call(int procedure, XdrAble args, XdrAble result, long timeoutValue, TimeUnit timeoutUnits, RpcAuth auth)
             throws IOException, TimeoutException {
         try {
-            Future<XdrAble> future = getCallFuture(procedure, args, result, timeoutValue, timeoutUnits, auth);
+            Future<XdrAble> future = getCallFuture(procedure, args, result, timeoutValue, timeoutUnits, auth, true);
             future.get();
         } catch (InterruptedException e) {
             // workaround missing chained constructor
@@ -613,7 +922,7 @@ public class RpcCall {
         }
     }
 
-    private <T extends XdrAble> CompletableFuture<T> getCallFuture(int procedure, XdrAble args, final T result, long timeoutValue, TimeUnit timeoutUnits, RpcAuth auth)
+    private <T extends XdrAble> CompletableFuture<T> getCallFuture(int procedure, XdrAble args, final T result, long timeoutValue, TimeUnit timeoutUnits, RpcAuth auth, boolean blocking)
             throws IOException {
 
         final CompletableFuture<T> future = new CompletableFuture<>();
@@ -635,7 +944,7 @@ public class RpcCall {
             }
         };
 
-        int xid = callInternal(procedure, args, callback, timeoutValue, timeoutUnits, auth);
+        int xid = callInternal(procedure, args, callback, timeoutValue, timeoutUnits, auth, blocking);
         //wrap the future if no timeout provided up-front to properly un-register
         //the handler if a timeout is later provided to Future.get()
         return timeoutValue > 0 ? future : new TimeoutAwareFuture<>(future, xid);
@@ -699,6 +1008,16 @@ public class RpcCall {
         return xidGenerator.incrementAndGet();
     }
 
+    /**
+     * Set retransmission policy of calls sent with this {@code RpcCall}. The policy applies
+     * to datagram transports only, calls over stream transports are never retransmitted.
+     *
+     * @param policy the retransmission policy or {@code null} to disable retransmissions.
+     */
+    public void setRetransmissionPolicy(RetransmissionPolicy policy) {
+        _retransmissionPolicy = policy;
+    }
+
     /**
      * Register {@link CompletionHandler} to receive notification when message
      * send is complete. NOTICE: when processing RPC call on the server side
@@ -31,4 +31,15 @@ public interface RpcDispatchable {
     public void dispatchOncRpcCall(RpcCall call)
             throws OncRpcException, IOException;
 
+    /**
+     * Get the descriptor of a procedure of this program.
+     *
+     * @param version program version.
+     * @param procedure procedure number.
+     * @return procedure descriptor or {@code null} if not known.
+     */
+    default RpcProcedureDescriptor getProcedureDescriptor(int version, int procedure) {
+        return null;
+    }
+
 }
@@ -23,9 +23,12 @@ import javax.security.auth.Subject;
 import java.io.IOException;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.google.common.base.Throwables;
 import org.slf4j.Logger;
@@ -61,6 +64,22 @@ public class RpcDispatcher extends BaseFilter {
      */
     private final Consumer<RpcCall> _callInterceptor;
 
+    /**
+     * Maximal time in nanoseconds a request of a program may wait for execution.
+     */
+    private final Map<OncRpcProgram, Long> _maxQueueResidence;
+
+    /**
+     * Listener notified after a request to a described procedure was processed.
+     */
+    private final RpcProcedureListener _procedureListener;
+
+    /**
+     * Selects the {@link ExecutorService} for requests to a described procedure,
+     * {@code null} means the default executor.
+     */
+    private final Function<RpcProcedureDescriptor, ExecutorService> _procedureExecutor;
+
     /**
      * Create new RPC dispatcher for given program.
      *
@@ -76,7 +95,59 @@ public class RpcDispatcher extends BaseFilter {
     public RpcDispatcher(ExecutorService executor, Map<OncRpcProgram,
             RpcDispatchable> programs, boolean withSubjectPropagation, Consumer<RpcCall> callInterceptor)
             throws NullPointerException {
+        this(executor, programs, withSubjectPropagation, callInterceptor, Collections.emptyMap());
+    }
+
+    /**
+     * Create new RPC dispatcher for given program.
+     *
+     * @param executor {@link ExecutorService} to use for request processing
+     * @param programs {@link Map}
+     *     with a mapping between program number and program
+     *     handler.
+     * @param withSubjectPropagation use {@link Subject#doAs} to exacerbate request.
+     * @param callInterceptor consumer that will be called before the dispatcher performs its real work.
+     * @param maxQueueResidence {@link Map} with a mapping between program and maximal time
+     *     in nanoseconds its requests may wait for execution. Requests which waited longer
+     *     are dropped without reply, as the client most likely gave up on them.
+     *
+     * @throws NullPointerException if executor or program is null
+     */
+    public RpcDispatcher(ExecutorService executor, Map<OncRpcProgram,
+            RpcDispatchable> programs, boolean withSubjectPropagation, Consumer<RpcCall> callInterceptor,
+            Map<OncRpcProgram, Long> maxQueueResidence)
+            throws NullPointerException {
+        this(executor, programs, withSubjectPropagation, callInterceptor, maxQueueResidence,
+                (procedure, call, elapsed, error) -> {}, procedure -> null);
+    }
 
+    /**
+     * Create new RPC dispatcher for given program.
+     *
+     * @param executor {@link ExecutorService} to use for request processing
+     * @param programs {@link Map}
+     *     with a mapping between program number and program
+     *     handler.
+     * @param withSubjectPropagation use {@link Subject#doAs} to exacerbate request.
+     * @param callInterceptor consumer that will be called before the dispatcher performs its real work.
+     * @param maxQueueResidence {@link Map} with a mapping between program and maximal time
+     *     in nanoseconds its requests may wait for execution.
+     * @param procedureListener listener notified after a request to a procedure with a
+     *     {@link RpcProcedureDescriptor} was processed.
+     * @param procedureExecutor selects the {@link ExecutorService} for requests to a procedure
+     *     with a {@link RpcProcedureDescriptor}, or returns {@code null} to use {@code executor}.
+     *
+     * @throws NullPointerException if executor or program is null
+     */
+    public RpcDispatcher(ExecutorService executor, Map<OncRpcProgram,
+            RpcDispatchable> programs, boolean withSubjectPropagation, Consumer<RpcCall> callInterceptor,
+            Map<OncRpcProgram, Long> maxQueueResidence, RpcProcedureListener procedureListener,
+            Function<RpcProcedureDescriptor, ExecutorService> procedureExecutor)
+            throws NullPointerException {
+
+        _procedureListener = requireNonNull(procedureListener, "Procedure listener is NULL");
+        _procedureExecutor = requireNonNull(procedureExecutor, "Procedure executor is NULL");
+        _maxQueueResidence = requireNonNull(maxQueueResidence, "Max queue residence is NULL");
         _programs = requireNonNull(programs, "Programs is NULL");
         _asyncExecutorService = requireNonNull(executor, "ExecutorService is NULL");
         _withSubjectPropagation = withSubjectPropagation;
@@ -93,16 +164,37 @@ public class RpcDispatcher extends BaseFilter {
 
         _log.debug("processing request {}", call);
 
-        final RpcDispatchable program = _programs.get(new OncRpcProgram(prog, vers));
+        final OncRpcProgram key = new OncRpcProgram(prog, vers);
+        final RpcDispatchable program = _programs.get(key);
         if (program == null) {
             call.failProgramUnavailable();
         } else {
-            _asyncExecutorService.execute(new Runnable() {
+            final Long maxQueueResidence = _maxQueueResidence.get(key);
+            final RpcProcedureDescriptor descriptor = program.getProcedureDescriptor(vers, proc);
+            ExecutorService executor = _asyncExecutorService;
+            if (descriptor != null) {
+                ExecutorService procedureExecutor = _procedureExecutor.apply(descriptor);
+                if (procedureExecutor != null) {
+                    executor = procedureExecutor;
+                }
+            }
+            executor.execute(new Runnable() {
                 @Override
                 public void run() {
 
+                    if (maxQueueResidence != null) {
+                        long residence = System.nanoTime() - call.getArrivalTime();
+                        if (residence > maxQueueResidence) {
+                            _log.debug("Dropping request {} after {} ms in queue", call,
+                                    TimeUnit.NANOSECONDS.toMillis(residence));
+                            return;
+                        }
+                    }
+
                     _callInterceptor.accept(call);
 
+                    long started = System.nanoTime();
+                    Throwable error = null;
                     try {
                         if (_withSubjectPropagation) {
                             Subject subject = call.getCredential().getSubject();
@@ -122,12 +214,15 @@ public class RpcDispatcher extends BaseFilter {
                             program.dispatchOncRpcCall(call);
                         }
                     } catch (RpcException e) {
+                        error = e;
                         call.reject(e.getStatus(), e.getRpcReply());
                         _log.warn("Failed to process RPC request: {}", e.getMessage());
                     } catch (OncRpcException e) {
+                        error = e;
                         call.failRpcGarbage();
                         _log.warn("Failed to process RPC request: {}", e.getMessage());
                     } catch (IOException e) {
+                        error = e;
                         call.failRpcGarbage();
                         _log.warn("Failed to process RPC request: {}", e.getMessage());
                     } catch (RuntimeException e) {
@@ -135,9 +230,15 @@ public class RpcDispatcher extends BaseFilter {
                          * This looks like a bug in dispatcher implementation.
                          * Log the error and tell client that we fail.
                          */
+                        error = e;
                         _log.error("Failed to process RPC request:", e);
                         call.failRpcSystem();
                         throw e;
+                    } finally {
+                        if (descriptor != null) {
+                            _procedureListener.procedureCompleted(descriptor, call,
+                                    System.nanoTime() - started, error);
+                        }
                     }
                 }
 
@@ -22,6 +22,7 @@ package org.dcache.oncrpc4j.rpc;
 import java.io.IOException;
 
 import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrStringCache;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
@@ -40,6 +41,24 @@ public class RpcMessageParserTCP extends BaseFilter {
      */
     public final static int RPC_SIZE_MASK = 0x7fffffff;
 
+    /**
+     * Cache used to decode strings, or {@code null}.
+     */
+    private final XdrStringCache _stringCache;
+
+    public RpcMessageParserTCP() {
+        this(null);
+    }
+
+    /**
+     * Create a new parser, which decodes strings of received messages through the given cache.
+     *
+     * @param stringCache the cache to use, or {@code null} to decode every string.
+     */
+    public RpcMessageParserTCP(XdrStringCache stringCache) {
+        _stringCache = stringCache;
+    }
+
     @Override
     public NextAction handleRead(FilterChainContext ctx) throws IOException {
 
@@ -136,6 +155,8 @@ public class RpcMessageParserTCP extends BaseFilter {
             }
         } while (!messageComplete);
 
-        return new Xdr(multipleFragments == null ? currentFragment : multipleFragments, memoryManager);
+        Xdr xdr = new Xdr(multipleFragments == null ? currentFragment : multipleFragments, memoryManager);
+        xdr.setStringCache(_stringCache);
+        return xdr;
     }
 }
@@ -20,6 +20,7 @@
 package org.dcache.oncrpc4j.rpc;
 
 import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrStringCache;
 import java.io.IOException;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.filterchain.BaseFilter;
@@ -33,11 +34,30 @@ import org.glassfish.grizzly.filterchain.NextAction;
  */
 public class RpcMessageParserUDP extends BaseFilter {
 
+    /**
+     * Cache used to decode strings, or {@code null}.
+     */
+    private final XdrStringCache _stringCache;
+
+    public RpcMessageParserUDP() {
+        this(null);
+    }
+
+    /**
+     * Create a new parser, which decodes strings of received messages through the given cache.
+     *
+     * @param stringCache the cache to use, or {@code null} to decode every string.
+     */
+    public RpcMessageParserUDP(XdrStringCache stringCache) {
+        _stringCache = stringCache;
+    }
+
     @Override
     public NextAction handleRead(FilterChainContext ctx) throws IOException {
         Buffer messageBuffer = ctx.getMessage();
 
         Xdr xdr = new Xdr(messageBuffer, ctx.getMemoryManager());
+        xdr.setStringCache(_stringCache);
         ctx.setMessage(xdr);
 
         return ctx.getInvokeAction();
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.util.function.Supplier;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Static description of a remote procedure of an ONC RPC program: its number, name,
+ * argument and result types, whether it is idempotent, and a factory for argument
+ * objects. Descriptor tables are generated by jrpcgen and exposed through
+ * {@link RpcDispatchable#getProcedureDescriptor(int, int)}, which allows the
+ * dispatcher to collect per-procedure metrics and route requests without reflection.
+ */
+public final class RpcProcedureDescriptor {
+
+    private final int _program;
+    private final int _version;
+    private final int _procedure;
+    private final String _name;
+    private final Class<? extends XdrAble> _argumentType;
+    private final Class<? extends XdrAble> _resultType;
+    private final boolean _idempotent;
+    private final Supplier<? extends XdrAble> _argumentFactory;
+
+    /**
+     * Create a new procedure descriptor.
+     *
+     * @param program program number.
+     * @param version program version.
+     * @param procedure procedure number.
+     * @param name name of the procedure as defined in the x-file.
+     * @param argumentType XDR type of the call arguments.
+     * @param resultType XDR type of the reply.
+     * @param idempotent {@code true} if the procedure can be executed more than once
+     *     with the same result.
+     * @param argumentFactory creates new, empty argument objects.
+     */
+    public RpcProcedureDescriptor(int program, int version, int procedure, String name,
+            Class<? extends XdrAble> argumentType, Class<? extends XdrAble> resultType,
+            boolean idempotent, Supplier<? extends XdrAble> argumentFactory) {
+        _program = program;
+        _version = version;
+        _procedure = procedure;
+        _name = requireNonNull(name, "name is NULL");
+        _argumentType = requireNonNull(argumentType, "argument type is NULL");
+        _resultType = requireNonNull(resultType, "result type is NULL");
+        _idempotent = idempotent;
+        _argumentFactory = requireNonNull(argumentFactory, "argument factory is NULL");
+    }
+
+    public int getProgram() {
+        return _program;
+    }
+
+    public int getVersion() {
+        return _version;
+    }
+
+    public int getProcedure() {
+        return _procedure;
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    public Class<? extends XdrAble> getArgumentType() {
+        return _argumentType;
+    }
+
+    public Class<? extends XdrAble> getResultType() {
+        return _resultType;
+    }
+
+    public boolean isIdempotent() {
+        return _idempotent;
+    }
+
+    /**
+     * Create a new, empty argument object to decode the call arguments into.
+     *
+     * @return new argument object.
+     */
+    public XdrAble newArguments() {
+        return _argumentFactory.get();
+    }
+
+    @Override
+    public String toString() {
+        return _name + "[" + _program + "." + _version + "." + _procedure + "]";
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+/**
+ * Listener notified by {@link RpcDispatcher} after a request to a procedure, for which
+ * the program provides a {@link RpcProcedureDescriptor}, was processed. It can be used
+ * to collect per-procedure metrics.
+ * <p>
+ * The elapsed time covers the call to {@link RpcDispatchable#dispatchOncRpcCall(RpcCall)};
+ * for dispatchers which reply asynchronously, it does not include the time until the
+ * reply is sent.
+ */
+@FunctionalInterface
+public interface RpcProcedureListener {
+
+    /**
+     * Called on the thread that processed the request.
+     *
+     * @param procedure the descriptor of the called procedure.
+     * @param call the processed request.
+     * @param elapsed time spent in the dispatcher in nanoseconds.
+     * @param error the exception thrown by the dispatcher or {@code null} on success.
+     */
+    void procedureCompleted(RpcProcedureDescriptor procedure, RpcCall call, long elapsed, Throwable error);
+}
@@ -42,6 +42,7 @@ public class RpcProtocolFilter extends BaseFilter {
     @Override
     public NextAction handleRead(FilterChainContext ctx) throws IOException {
 
+        final long arrivalTime = System.nanoTime();
         Xdr xdr = ctx.getMessage();
         if (xdr == null) {
             _log.error("Parser returns bad XDR");
@@ -63,6 +64,7 @@ public class RpcProtocolFilter extends BaseFilter {
         switch (type) {
             case RpcMessageType.CALL:
                 RpcCall call = new RpcCall(xid, xdr, transport);
+                call.setArrivalTime(arrivalTime);
                 try {
                     call.accept();
                     ctx.setMessage(call);
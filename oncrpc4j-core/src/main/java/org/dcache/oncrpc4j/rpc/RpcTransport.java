@@ -91,4 +91,32 @@ public interface RpcTransport {
      */
     @Beta
     boolean isTLS();
+
+    /**
+     * Check whatever this transport is stream-oriented, like TCP, or datagram-oriented, like UDP.
+     * Datagram-oriented transports must override the default, which assumes a stream.
+     * @return {@code true} if and only if messages are sent over a stream-oriented transport.
+     */
+    default boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * Get transport to send the next call with. Transports which spread calls over
+     * multiple connections return one of the connections, others return itself.
+     *
+     * @return transport to send the next call with.
+     */
+    default RpcTransport selectTransport() {
+        return this;
+    }
+
+    /**
+     * Get the window, which limits the number of outstanding calls sent with this transport.
+     *
+     * @return the call window or {@code null}, if the number of calls is not limited.
+     */
+    default CallWindow getCallWindow() {
+        return null;
+    }
 }
@@ -33,6 +33,7 @@ import org.dcache.oncrpc4j.rpc.RpcRejectStatus;
 import org.dcache.oncrpc4j.util.Bytes;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.dcache.oncrpc4j.xdr.BadXdrOncRpcException;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
@@ -43,8 +44,6 @@ import org.ietf.jgss.MessageProp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.primitives.Ints;
-
 /**
  * A {@link Filter} that handles RPCSEC_GSS requests. Filter is responsible to establish and destroy GSS context. For
  * requests with established contexts RPC requests repacked into GSS aware {@link RpcGssCall}.
@@ -68,6 +67,11 @@ public class GssProtocolFilter extends BaseFilter {
 
     private final GssSessionManager _gssSessionManager;
 
+    /**
+     * Per-thread scratch space used to calculate and verify MICs.
+     */
+    private static final ThreadLocal<MicScratch> MIC_SCRATCH = ThreadLocal.withInitial(MicScratch::new);
+
     public GssProtocolFilter(GssSessionManager gssSessionManager) {
         _gssSessionManager = gssSessionManager;
     }
@@ -115,9 +119,7 @@ public class GssProtocolFilter extends BaseFilter {
                         // FIXME: hard coded number
                         _sequence = 128;
                         res.setSequence(_sequence);
-                        byte[] crc = Ints.toByteArray(_sequence);
-                        crc = gssContext.getMIC(crc, 0, 4, new MessageProp(false));
-                        authGss.setVerifier(new RpcAuthVerifier(authGss.type(), Opaque.forImmutableBytes(crc)));
+                        authGss.setVerifier(sequenceVerifier(authGss, gssContext, _sequence));
                     }
                     call.reply(res);
                     break;
@@ -129,13 +131,9 @@ public class GssProtocolFilter extends BaseFilter {
                 case GssProc.RPCSEC_GSS_DATA:
                     gssContext = _gssSessionManager.getEstablishedContext(authGss.getHandle());
                     validateVerifier(authGss, gssContext);
-                    authGss.getSubject()
-                            .getPrincipals()
-                            .addAll(_gssSessionManager.subjectOf(call.getTransport(), gssContext).getPrincipals());
+                    authGss.setSubject(_gssSessionManager.getSubject(call.getTransport(), authGss.getHandle()));
                     _log.debug("RPCGSS_SEC: {}", gssContext.getSrcName());
-                    byte[] crc = Ints.toByteArray(authGss.getSequence());
-                    crc = gssContext.getMIC(crc, 0, 4, new MessageProp(false));
-                    authGss.setVerifier(new RpcAuthVerifier(authGss.type(), Opaque.forImmutableBytes(crc)));
+                    authGss.setVerifier(sequenceVerifier(authGss, gssContext, authGss.getSequence()));
                     ctx.setMessage(new RpcGssCall(call, gssContext, new MessageProp(false)));
                     hasContext = true;
             }
@@ -159,16 +157,79 @@ public class GssProtocolFilter extends BaseFilter {
 
     /**
      * According to rfc2203 verifier should contain the checksum of the RPC header up to and including the credential.
+     * <p>
+     * The checksum is verified against the received buffer, if possible, without copying the header.
      *
      * @param auth RPC request authentication credentials.
      * @param context gss context
      * @throws GSSException if cant validate the checksum
      */
-    private void validateVerifier(RpcAuthGss auth, GSSContext context) throws GSSException {
-        ByteBuffer header = auth.getHeader();
-        byte[] bb = new byte[header.remaining()];
-        header.get(bb);
-        context.verifyMIC(auth.getVerifier().getBody().toBytes(), 0, auth.getVerifier().getBody().numBytes(),
-                bb, 0, bb.length, new MessageProp(false));
+    void validateVerifier(RpcAuthGss auth, GSSContext context) throws GSSException {
+        MicScratch scratch = MIC_SCRATCH.get();
+
+        Opaque mic = auth.getVerifier().getBody();
+        int micLen = mic.numBytes();
+        ByteBuffer micBuffer = scratch.token(micLen);
+        mic.putBytes(micBuffer);
+
+        Buffer header = auth.getHeader();
+        int headerLen = header.remaining();
+        byte[] headerBytes;
+        int headerOffset;
+        if (header.hasArray()) {
+            headerBytes = header.array();
+            headerOffset = header.arrayOffset() + header.position();
+        } else {
+            headerBytes = scratch.header(headerLen);
+            headerOffset = 0;
+            header.get(headerBytes, 0, headerLen);
+        }
+
+        context.verifyMIC(micBuffer.array(), 0, micLen, headerBytes, headerOffset, headerLen, scratch.messageProp());
+    }
+
+    /**
+     * Build reply verifier, which according to rfc2203 contains the checksum of the sequence number.
+     */
+    RpcAuthVerifier sequenceVerifier(RpcAuthGss auth, GSSContext context, int sequence) throws GSSException {
+        MicScratch scratch = MIC_SCRATCH.get();
+        byte[] seq = scratch.sequence;
+        Bytes.putInt(seq, 0, sequence);
+        byte[] mic = context.getMIC(seq, 0, seq.length, scratch.messageProp());
+        return new RpcAuthVerifier(auth.type(), Opaque.forImmutableBytes(mic));
+    }
+
+    /**
+     * Reusable buffers and {@link MessageProp} for MIC calculation. Not thread safe.
+     */
+    private static class MicScratch {
+
+        private final byte[] sequence = new byte[Integer.BYTES];
+        private final MessageProp messageProp = new MessageProp(false);
+        private byte[] header = new byte[512];
+        private ByteBuffer token = ByteBuffer.allocate(128);
+
+        MessageProp messageProp() {
+            // verifyMIC updates supplementary status, reset to initial state
+            messageProp.setQOP(0);
+            messageProp.setPrivacy(false);
+            messageProp.setSupplementaryStates(false, false, false, false, 0, null);
+            return messageProp;
+        }
+
+        byte[] header(int len) {
+            if (header.length < len) {
+                header = new byte[len];
+            }
+            return header;
+        }
+
+        ByteBuffer token(int len) {
+            if (token.capacity() < len) {
+                token = ByteBuffer.allocate(len);
+            }
+            token.clear();
+            return token;
+        }
     }
 }
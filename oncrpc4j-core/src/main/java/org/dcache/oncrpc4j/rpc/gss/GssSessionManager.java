@@ -20,8 +20,10 @@
 package org.dcache.oncrpc4j.rpc.gss;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
 
@@ -42,16 +44,28 @@ public class GssSessionManager {
     private final String KRB5_OID = "1.2.840.113554.1.2.2";
 
     private static final Logger _log = LoggerFactory.getLogger(GssSessionManager.class);
-    private final GSSManager gManager = GSSManager.getInstance();
+    private final GSSManager gManager;
     private final GSSCredential _serviceCredential;
     private final RpcLoginService _loginService;
 
+    /**
+     * Default time in milliseconds for which the result of {@link RpcLoginService#login} is
+     * cached with the established context.
+     */
+    public static final long DEFAULT_SUBJECT_CACHE_TIME = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Time in nanoseconds for which login result is valid.
+     */
+    private volatile long _subjectCacheTime = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SUBJECT_CACHE_TIME);
+
     public GssSessionManager(RpcLoginService loginService, String servicePrincipal, String keytab)
             throws GSSException, IOException {
         System.setProperty("javax.security.auth.useSubjectCredsOnly", "false");
         System.setProperty("java.security.auth.login.config",
                 JaasConfigGenerator.generateJaasConfig(servicePrincipal, keytab));
 
+        gManager = GSSManager.getInstance();
         Oid krb5Mechanism = new Oid(KRB5_OID);
         _serviceCredential = gManager.createCredential(null,
                 GSSCredential.INDEFINITE_LIFETIME,
@@ -62,27 +76,49 @@ public class GssSessionManager {
     public GssSessionManager(RpcLoginService loginService) throws GSSException {
         System.setProperty("javax.security.auth.useSubjectCredsOnly", "false");
 
+        gManager = GSSManager.getInstance();
         Oid krb5Mechanism = new Oid(KRB5_OID);
         _serviceCredential = gManager.createCredential(null,
                 GSSCredential.INDEFINITE_LIFETIME,
                 krb5Mechanism, GSSCredential.ACCEPT_ONLY);
         _loginService = loginService;
     }
-    private final Map<XdrOpaque, GSSContext> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Create a session manager, which uses the given GSS manager and service credential.
+     */
+    GssSessionManager(RpcLoginService loginService, GSSManager manager, GSSCredential serviceCredential) {
+        gManager = manager;
+        _serviceCredential = serviceCredential;
+        _loginService = loginService;
+    }
+
+    private final Map<XdrOpaque, GssSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Set the time for which the {@link Subject} returned by {@link RpcLoginService#login}
+     * is re-used for requests with the same context. Zero disables caching.
+     *
+     * @param time the time for which the subject is cached.
+     * @param unit the time unit of the {@code time} argument.
+     */
+    public void setSubjectCacheTime(long time, TimeUnit unit) {
+        if (time < 0) {
+            throw new IllegalArgumentException("Negative cache time: " + time);
+        }
+        _subjectCacheTime = unit.toNanos(time);
+    }
 
     public GSSContext createContext(Opaque handle) throws GSSException {
         GSSContext context = gManager.createContext(_serviceCredential);
-        sessions.put(new XdrOpaque(handle.toImmutableOpaque()), context);
+        sessions.put(new XdrOpaque(handle.toImmutableOpaque()), new GssSession(context));
         return context;
     }
 
     public GSSContext getContext(Opaque handle) throws GSSException {
-        GSSContext context = sessions.get(new XdrOpaque(handle));
-        if(context == null) {
-            throw new GSSException(GSSException.NO_CONTEXT);
-        }
-        return context;
+        return getSession(handle).context;
     }
+
     public GSSContext getEstablishedContext(Opaque handle) throws GSSException {
         GSSContext context = getContext(handle);
         if (!context.isEstablished()) {
@@ -92,14 +128,66 @@ public class GssSessionManager {
     }
 
     public GSSContext destroyContext(Opaque handle) throws GSSException {
-        GSSContext context = sessions.remove(new XdrOpaque(handle));
-        if(context == null || !context.isEstablished()) {
+        GssSession session = sessions.remove(new XdrOpaque(handle));
+        if(session == null || !session.context.isEstablished()) {
             throw new GSSException(GSSException.NO_CONTEXT);
         }
-        return context;
+        return session.context;
     }
 
     public Subject subjectOf(RpcTransport transport, GSSContext context) {
         return _loginService.login(transport, context);
     }
+
+    /**
+     * Get read-only {@link Subject} associated with an established context. The result of
+     * {@link #subjectOf(RpcTransport, GSSContext)} is cached with the context, thus the login
+     * service is consulted once per context and cache period rather than once per request.
+     *
+     * @param transport the transport used by the request.
+     * @param handle the context handle.
+     * @return read-only subject associated with the context.
+     * @throws GSSException if there is no established context for the given handle.
+     */
+    public Subject getSubject(RpcTransport transport, Opaque handle) throws GSSException {
+        GssSession session = getSession(handle);
+        if (!session.context.isEstablished()) {
+            throw new GSSException(GSSException.NO_CONTEXT);
+        }
+
+        long now = System.nanoTime();
+        Subject subject = session.subject;
+        if (subject != null && now - session.subjectTimestamp < _subjectCacheTime) {
+            return subject;
+        }
+
+        // concurrent requests may login in parallel, the last one wins
+        Subject loggedIn = subjectOf(transport, session.context);
+        subject = new Subject(true, loggedIn.getPrincipals(), Collections.emptySet(), Collections.emptySet());
+        session.subjectTimestamp = now;
+        session.subject = subject;
+        return subject;
+    }
+
+    private GssSession getSession(Opaque handle) throws GSSException {
+        GssSession session = sessions.get(new XdrOpaque(handle));
+        if(session == null) {
+            throw new GSSException(GSSException.NO_CONTEXT);
+        }
+        return session;
+    }
+
+    /**
+     * GSS context with its cached login result.
+     */
+    private static class GssSession {
+
+        private final GSSContext context;
+        private volatile long subjectTimestamp;
+        private volatile Subject subject;
+
+        GssSession(GSSContext context) {
+            this.context = context;
+        }
+    }
 }
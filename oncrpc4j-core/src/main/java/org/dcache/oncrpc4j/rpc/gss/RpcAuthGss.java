@@ -20,7 +20,6 @@
 package org.dcache.oncrpc4j.rpc.gss;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import javax.security.auth.Subject;
 
@@ -50,7 +49,16 @@ public class RpcAuthGss implements RpcAuth, XdrAble {
     private Opaque _handle;
     private Buffer _header;
 
-    private Subject _subject = new Subject();
+    /**
+     * Subject used until login result is available.
+     */
+    private static final Subject EMPTY_SUBJECT;
+    static {
+        EMPTY_SUBJECT = new Subject();
+        EMPTY_SUBJECT.setReadOnly();
+    }
+
+    private Subject _subject = EMPTY_SUBJECT;
 
     public Opaque getHandle() {
         return _handle;
@@ -84,11 +92,28 @@ public class RpcAuthGss implements RpcAuth, XdrAble {
         _version = version;
     }
 
+    /**
+     * Get the subject of the request. The subject is shared by all requests with the
+     * same context and is cached for the period configured by
+     * {@link GssSessionManager#setSubjectCacheTime(long, java.util.concurrent.TimeUnit)}, thus
+     * it's read-only. Callers, which need to add principals or credentials, must create
+     * a new {@link Subject}.
+     *
+     * @return read-only subject of the request.
+     */
     @Override
     public Subject getSubject() {
         return _subject;
     }
 
+    /**
+     * Associate a subject with this credential. The subject is shared between
+     * requests with the same context and expected to be read-only.
+     */
+    void setSubject(Subject subject) {
+        _subject = subject;
+    }
+
     @Override
     public int type() {
         return _type;
@@ -108,10 +133,11 @@ public class RpcAuthGss implements RpcAuth, XdrAble {
     }
 
     /**
-     * Get a read-only ByteBuffer containing RPC header including credential.
+     * Get a view of the received buffer containing RPC header including credential.
+     * The content of returned buffer must not be modified.
      */
-    ByteBuffer getHeader() {
-        return _header.asReadOnlyBuffer().toByteBuffer();
+    Buffer getHeader() {
+        return _header.duplicate();
     }
 
     public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
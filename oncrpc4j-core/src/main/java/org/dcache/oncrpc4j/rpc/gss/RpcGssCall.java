@@ -54,6 +54,7 @@ public class RpcGssCall extends RpcCall {
                 call.getProcedure(), call.getCredential(), call.getXdr(), call.getTransport());
         _gssContext = gssContext;
         _mop = mop;
+        setArrivalTime(call.getArrivalTime());
     }
 
     @Override
@@ -19,9 +19,12 @@
  */
 package org.dcache.oncrpc4j.util;
 
+import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
@@ -172,6 +175,43 @@ public interface Opaque {
         return new OpaqueByteBufferImpl(buf, index, length);
     }
 
+    /**
+     * Returns an immutable {@link Opaque} instance backed by a region of the given memory-mapped file, for the given
+     * number of bytes starting from the given absolute index.
+     * <p>
+     * The content is served directly from the page cache and is not copied into the heap. It is assumed that the
+     * mapped region is not modified for the entire lifetime of the returned {@link Opaque}. Large mapped opaques are
+     * encoded by {@link org.dcache.oncrpc4j.xdr.Xdr} without copying the content into the reply buffer.
+     *
+     * @param buf The memory-mapped buffer backing the {@link Opaque}.
+     * @param index The absolute index to start from.
+     * @param length The number of bytes.
+     * @return The {@link Opaque} instance.
+     */
+    static Opaque forMappedByteBuffer(MappedByteBuffer buf, int index, int length) {
+        if (length == 0) {
+            return EMPTY_OPAQUE;
+        }
+        return new OpaqueMappedImpl(buf, index, length);
+    }
+
+    /**
+     * Returns an immutable {@link Opaque} instance backed by a read-only memory mapping of the given file region.
+     *
+     * @param channel The file channel to map.
+     * @param position The position within the file at which the region starts.
+     * @param length The number of bytes.
+     * @return The {@link Opaque} instance.
+     * @throws IOException if the region can't be mapped.
+     * @see #forMappedByteBuffer(MappedByteBuffer, int, int)
+     */
+    static Opaque forMappedFile(FileChannel channel, long position, int length) throws IOException {
+        if (length == 0) {
+            return EMPTY_OPAQUE;
+        }
+        return forMappedByteBuffer(channel.map(FileChannel.MapMode.READ_ONLY, position, length), 0, length);
+    }
+
     static Opaque forOwnedBuffer(Buffer buf, int index, int length) {
         if (buf.order() != ByteOrder.BIG_ENDIAN) {
             buf = buf.duplicate();
@@ -700,6 +740,97 @@ public interface Opaque {
         }
     }
 
+    /**
+     * An immutable {@link Opaque} backed by a memory-mapped file region.
+     */
+    final class OpaqueMappedImpl implements Opaque {
+        private final ByteBuffer buf;
+        private final OpaqueByteBufferImpl opaque;
+        private int hashCode;
+
+        private OpaqueMappedImpl(MappedByteBuffer buf, int index, int length) {
+            this.buf = buf.slice(index, length).asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+            this.opaque = new OpaqueByteBufferImpl(this.buf, 0, length);
+        }
+
+        /**
+         * Returns a read-only {@link ByteBuffer} view of the mapped region.
+         */
+        @Override
+        public ByteBuffer asByteBuffer() {
+            return buf.duplicate();
+        }
+
+        @Override
+        public byte[] toBytes() {
+            return opaque.toBytes();
+        }
+
+        @Override
+        public int numBytes() {
+            return opaque.numBytes();
+        }
+
+        @Override
+        public Opaque toImmutableOpaque() {
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            if (hashCode == 0) {
+                hashCode = opaque.hashCode();
+            }
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (o instanceof OpaqueMappedImpl) {
+                return opaque.equals(((OpaqueMappedImpl) o).opaque);
+            }
+            return opaque.equals(o);
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + "[" + numBytes() + " mapped bytes]";
+        }
+
+        @Override
+        public byte byteAt(int byteOffset) {
+            return opaque.byteAt(byteOffset);
+        }
+
+        @Override
+        public long longAt(int byteOffset) {
+            return opaque.longAt(byteOffset);
+        }
+
+        @Override
+        public int intAt(int byteOffset) {
+            return opaque.intAt(byteOffset);
+        }
+
+        @Override
+        public byte[] bytesAt(int byteOffset, int length) {
+            return opaque.bytesAt(byteOffset, length);
+        }
+
+        @Override
+        public void putBytes(ByteBuffer out) {
+            opaque.putBytes(out);
+        }
+
+        @Override
+        public void putBytes(Buffer out) {
+            opaque.putBytes(out);
+        }
+    }
+
     static final class OpaqueZero implements Opaque {
         private final int num;
 
@@ -4,15 +4,18 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
+import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
 import org.dcache.oncrpc4j.rpc.RpcMessageParserTCP;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.FileChunk;
 import org.glassfish.grizzly.asyncqueue.WritableMessage;
 import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
 import org.glassfish.grizzly.nio.transport.TCPNIOUtils;
 
@@ -25,18 +28,44 @@ public class ChunkedWritableMessage implements FileChunk, Closeable {
     private final boolean nioConn;
     private final List<WritableMessage> chunks;
     private int remaining = 0;
-    private boolean streaming;
     private final Connection<InetSocketAddress> connection;
 
+    /**
+     * Record marker, if message is sent over stream-oriented transport, or {@code null}.
+     */
+    private ByteBuffer recordMarker;
+
+    /**
+     * Index of the first chunk not completely written yet.
+     */
+    private int currentChunk;
+
     public ChunkedWritableMessage(Connection<InetSocketAddress> connection, List<WritableMessage> messageChunks,
             boolean streaming) {
         this.connection = connection;
         this.chunks = messageChunks;
-        this.streaming = streaming;
         for (WritableMessage wm : messageChunks) {
             remaining += wm.remaining();
         }
 
+        if (streaming) {
+            int marker = remaining | RpcMessageParserTCP.RPC_LAST_FRAG;
+            if (!chunks.isEmpty() && chunks.get(0) instanceof Buffer) {
+                // send record marker and the first chunk with a single write
+                MemoryManager<?> memoryManager = connection.getMemoryManager();
+                Buffer markerBuffer = memoryManager.allocate(Integer.BYTES);
+                markerBuffer.order(ByteOrder.BIG_ENDIAN);
+                markerBuffer.putInt(marker);
+                markerBuffer.flip();
+                chunks.set(0, GrizzlyMemoryManager.prepend(memoryManager, (Buffer) chunks.get(0), markerBuffer));
+            } else {
+                recordMarker = ByteBuffer.allocate(Integer.BYTES);
+                recordMarker.putInt(marker);
+                recordMarker.flip();
+            }
+            remaining += Integer.BYTES;
+        }
+
         nioConn = (((Connection<?>) connection) instanceof TCPNIOConnection);
     }
 
@@ -64,69 +93,62 @@ public class ChunkedWritableMessage implements FileChunk, Closeable {
         return true;
     }
 
+    /**
+     * Writes as much of the message as the channel accepts without blocking. If the channel can't
+     * accept more data, the method returns and the write is continued by the next invocation.
+     */
     @Override
     public long writeTo(WritableByteChannel c) throws IOException {
-        long written = 0;
         if (remaining <= 0) {
             return -1;
         }
 
-        try {
-            if (streaming) {
-                ByteBuffer bb = ByteBuffer.allocate(4);
-                bb.putInt(remaining | RpcMessageParserTCP.RPC_LAST_FRAG);
-                bb.flip();
+        long written = 0;
+        if (recordMarker != null) {
+            int w = c.write(recordMarker);
+            written += w;
+            remaining -= w;
+            if (recordMarker.hasRemaining()) {
+                return written;
+            }
+            recordMarker = null;
+        }
+
+        while (currentChunk < chunks.size()) {
+            WritableMessage msg = chunks.get(currentChunk);
 
-                while (bb.hasRemaining()) {
-                    c.write(bb);
-                }
-                streaming = false;
+            long w;
+            if (!msg.hasRemaining()) {
+                w = 0;
+            } else if (msg instanceof FileChunk) {
+                w = ((FileChunk) msg).writeTo(c);
+            } else {
+                w = writeBuffer((Buffer) msg, c);
             }
+            written += w;
+            remaining -= w;
 
-            for (WritableMessage msg : chunks) {
-                if (!msg.hasRemaining()) {
-                    continue;
-                }
-
-                if (msg instanceof FileChunk) {
-                    long w = ((FileChunk) msg).writeTo(c);
-                    written += w;
-                    remaining -= w;
-                    continue;
-                }
-
-                Buffer buffer = (Buffer) msg;
-
-                if (nioConn) {
-                    TCPNIOConnection conn = (TCPNIOConnection) (Connection<?>) connection;
-                    while (buffer.hasRemaining()) {
-                        int wri = buffer.isComposite() ? TCPNIOUtils.writeCompositeBuffer(
-                                conn, (CompositeBuffer) buffer)
-                                : TCPNIOUtils.writeSimpleBuffer(conn, buffer);
-                        written += wri;
-                        remaining -= wri;
-                    }
-                } else {
-                    ByteBuffer bb = buffer.toByteBuffer().slice();
-                    int w;
-                    while (bb.hasRemaining()) {
-                        w = c.write(bb);
-                        written += w;
-                        remaining -= w;
-                    }
-                }
+            if (msg.hasRemaining()) {
+                // channel is full, continue when writable
+                break;
             }
+            currentChunk++;
+        }
 
-            chunks.clear();
+        return written;
+    }
 
-            return written;
-        } catch (RuntimeException | IOException e) {
-            e.printStackTrace();
-            throw e;
-        } finally {
-            remaining = 0;
-            chunks.clear();
+    private int writeBuffer(Buffer buffer, WritableByteChannel c) throws IOException {
+        if (nioConn) {
+            TCPNIOConnection conn = (TCPNIOConnection) (Connection<?>) connection;
+            return buffer.isComposite()
+                    ? TCPNIOUtils.writeCompositeBuffer(conn, (CompositeBuffer) buffer)
+                    : TCPNIOUtils.writeSimpleBuffer(conn, buffer);
         }
+
+        int w = c.write(buffer.toByteBuffer());
+        buffer.position(buffer.position() + w);
+        return w;
     }
 
     @Override
@@ -137,5 +159,7 @@ public class ChunkedWritableMessage implements FileChunk, Closeable {
             }
         }
         chunks.clear();
+        currentChunk = 0;
+        remaining = 0;
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.glassfish.grizzly.FileChunk;
+
+/**
+ * A {@link FileChunk} which sends a region of an open {@link FileChannel} with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}. The channel is
+ * not closed by this class.
+ */
+class FileRegion implements FileChunk {
+
+    private final FileChannel _channel;
+    private long _position;
+    private int _remaining;
+
+    FileRegion(FileChannel channel, long position, int length) {
+        _channel = channel;
+        _position = position;
+        _remaining = length;
+    }
+
+    @Override
+    public long writeTo(WritableByteChannel c) throws IOException {
+        long n = _channel.transferTo(_position, _remaining, c);
+        if (n == 0 && _position >= _channel.size()) {
+            throw new EOFException("File truncated at offset " + _position + ", " + _remaining + " bytes missing");
+        }
+        _position += n;
+        _remaining -= n;
+        return n;
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return _remaining > 0;
+    }
+
+    @Override
+    public int remaining() {
+        return _remaining;
+    }
+
+    @Override
+    public boolean release() {
+        return true;
+    }
+
+    @Override
+    public boolean isExternal() {
+        return true;
+    }
+}
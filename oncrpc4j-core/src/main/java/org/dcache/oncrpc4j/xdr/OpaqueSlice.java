@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dcache.oncrpc4j.util.Opaque;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferArray;
+
+/**
+ * A read-only {@link Opaque} view of the buffer an {@link Xdr} was decoded from.
+ * <p>
+ * As long as the slice is retained, the owning {@link Xdr} will not re-use the received
+ * buffer to encode a reply, thus the slice can be passed to other threads, for instance,
+ * to write the received data into a file after the reply is sent. Each call to {@link #retain()}
+ * must be paired with a call to {@link #release()}. The slice is created with a single reference
+ * which is owned by the caller of {@link Xdr#xdrDecodeDynamicOpaqueSlice()}.
+ * <p>
+ * The content of a slice must not be accessed after it was released.
+ *
+ * @see Xdr#xdrDecodeDynamicOpaqueSlice()
+ */
+public final class OpaqueSlice implements Opaque, AutoCloseable {
+
+    /**
+     * The backing buffer, shared with the other slices and the owning {@link Xdr}.
+     */
+    private final SlicedBuffer _bufferRefs;
+    private final Buffer _buffer;
+    private final Opaque _opaque;
+    private final AtomicInteger _refCount = new AtomicInteger(1);
+
+    OpaqueSlice(SlicedBuffer bufferRefs, Buffer buffer, int index, int length) {
+        _bufferRefs = bufferRefs;
+        _buffer = buffer.slice(index, index + length);
+        _opaque = Opaque.forOwnedBuffer(_buffer, 0, length);
+    }
+
+    /**
+     * Increment the reference count of this slice.
+     *
+     * @return this slice.
+     * @throws IllegalStateException if slice is already released.
+     */
+    public OpaqueSlice retain() {
+        int refs;
+        do {
+            refs = _refCount.get();
+            if (refs <= 0) {
+                throw new IllegalStateException("Slice already released");
+            }
+        } while (!_refCount.compareAndSet(refs, refs + 1));
+        return this;
+    }
+
+    /**
+     * Decrement the reference count of this slice. When the last reference is released, the
+     * owning {@link Xdr} may re-use the backing buffer. If the {@link Xdr} is already closed or
+     * encodes into a new buffer, the backing buffer is disposed with the last released slice.
+     *
+     * @return {@code true} if the last reference was released.
+     * @throws IllegalStateException if slice is already released.
+     */
+    public boolean release() {
+        int refs = _refCount.decrementAndGet();
+        if (refs < 0) {
+            _refCount.incrementAndGet();
+            throw new IllegalStateException("Slice already released");
+        }
+        if (refs == 0) {
+            _bufferRefs.release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of references held on this slice.
+     *
+     * @return the reference count.
+     */
+    public int refCount() {
+        return _refCount.get();
+    }
+
+    /**
+     * Equivalent to {@link #release()}.
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * Writes the content of this slice into the given channel. The content of composite
+     * (multi-fragment) buffers is written without first being assembled into a single array.
+     *
+     * @param channel the channel to write to.
+     * @return number of bytes written.
+     * @throws IOException if an I/O error occurs.
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        checkRetained();
+        long written = 0;
+        for (ByteBuffer bb : byteBuffers()) {
+            while (bb.hasRemaining()) {
+                written += channel.write(bb);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes the content of this slice into the given file channel, starting at the given file position.
+     * The channel's own position is not modified.
+     *
+     * @param channel the file channel to write to.
+     * @param position the file position at which the transfer is to begin.
+     * @return number of bytes written.
+     * @throws IOException if an I/O error occurs.
+     */
+    public long writeTo(FileChannel channel, long position) throws IOException {
+        checkRetained();
+        long written = 0;
+        for (ByteBuffer bb : byteBuffers()) {
+            while (bb.hasRemaining()) {
+                written += channel.write(bb, position + written);
+            }
+        }
+        return written;
+    }
+
+    private ByteBuffer[] byteBuffers() {
+        if (!_buffer.isComposite()) {
+            return new ByteBuffer[]{_buffer.toByteBuffer().slice()};
+        }
+
+        ByteBufferArray array = _buffer.toByteBufferArray();
+        try {
+            ByteBuffer[] buffers = new ByteBuffer[array.size()];
+            ByteBuffer[] backing = array.getArray();
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = backing[i].slice();
+            }
+            return buffers;
+        } finally {
+            array.restore();
+            array.recycle();
+        }
+    }
+
+    private void checkRetained() {
+        if (_refCount.get() <= 0) {
+            throw new IllegalStateException("Slice already released");
+        }
+    }
+
+    /**
+     * Returns a read-only {@link ByteBuffer} view of this slice.
+     */
+    @Override
+    public ByteBuffer asByteBuffer() {
+        checkRetained();
+        return _opaque.asByteBuffer().asReadOnlyBuffer();
+    }
+
+    @Override
+    public byte[] toBytes() {
+        checkRetained();
+        return _opaque.toBytes();
+    }
+
+    @Override
+    public int numBytes() {
+        return _opaque.numBytes();
+    }
+
+    @Override
+    public Opaque toImmutableOpaque() {
+        checkRetained();
+        return _opaque.toImmutableOpaque();
+    }
+
+    @Override
+    public void putBytes(ByteBuffer buf) {
+        checkRetained();
+        _opaque.putBytes(buf);
+    }
+
+    @Override
+    public void putBytes(Buffer buf) {
+        checkRetained();
+        _opaque.putBytes(buf);
+    }
+
+    @Override
+    public byte byteAt(int byteOffset) {
+        return _opaque.byteAt(byteOffset);
+    }
+
+    @Override
+    public long longAt(int byteOffset) {
+        return _opaque.longAt(byteOffset);
+    }
+
+    @Override
+    public int intAt(int byteOffset) {
+        return _opaque.intAt(byteOffset);
+    }
+
+    @Override
+    public byte[] bytesAt(int byteOffset, int length) {
+        return _opaque.bytesAt(byteOffset, length);
+    }
+
+    @Override
+    public int hashCode() {
+        return _opaque.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof OpaqueSlice) {
+            return _opaque.equals(((OpaqueSlice) o)._opaque);
+        }
+        return _opaque.equals(o);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[refs=" + _refCount.get() + ", length=" + numBytes() + "]";
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * A decoded buffer shared by the {@link OpaqueSlice}s taken from it.
+ * <p>
+ * The owning {@link Xdr} detaches from the buffer when it's closed or when it needs
+ * a fresh buffer to encode into while slices are still retained. From then on the
+ * slices own the buffer and the last released slice disposes it.
+ */
+final class SlicedBuffer {
+
+    /**
+     * Set when the owning {@link Xdr} has detached from the buffer.
+     */
+    private static final int DETACHED = 1;
+
+    /**
+     * Increment of the state per retained slice.
+     */
+    private static final int SLICE = 2;
+
+    private final Buffer _buffer;
+
+    /**
+     * Number of retained slices, shifted by one bit, and the {@link #DETACHED} flag.
+     */
+    private final AtomicInteger _state = new AtomicInteger();
+
+    SlicedBuffer(Buffer buffer) {
+        _buffer = buffer;
+    }
+
+    /**
+     * Account a new slice of the buffer.
+     */
+    void retain() {
+        _state.addAndGet(SLICE);
+    }
+
+    /**
+     * Release a slice of the buffer. The buffer is disposed if it was the last slice
+     * and the owning {@link Xdr} has detached.
+     */
+    void release() {
+        if (_state.addAndGet(-SLICE) == DETACHED) {
+            _buffer.tryDispose();
+        }
+    }
+
+    /**
+     * Detach the owning {@link Xdr} from the buffer, if any slice is retained.
+     *
+     * @return {@code true} if slices took over the buffer.
+     */
+    boolean detachIfRetained() {
+        int state;
+        do {
+            state = _state.get();
+            if (state < SLICE) {
+                return false;
+            }
+        } while (!_state.compareAndSet(state, state | DETACHED));
+        return true;
+    }
+
+    /**
+     * Detach the owning {@link Xdr} from the buffer. The buffer is disposed right away,
+     * if no slice is retained, otherwise by the last released slice.
+     */
+    void detach() {
+        int state;
+        do {
+            state = _state.get();
+            if ((state & DETACHED) != 0) {
+                return;
+            }
+        } while (!_state.compareAndSet(state, state | DETACHED));
+
+        if (state == 0) {
+            _buffer.tryDispose();
+        }
+    }
+}
@@ -21,9 +21,12 @@ package org.dcache.oncrpc4j.xdr;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,11 +37,15 @@ import org.dcache.oncrpc4j.util.Opaque;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.FileChunk;
+import org.glassfish.grizzly.Processor;
 import org.glassfish.grizzly.asyncqueue.WritableMessage;
+import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.memory.BuffersBuffer;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
+import org.glassfish.grizzly.ssl.SSLFilter;
 
 public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable {
 
@@ -54,6 +61,24 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
 
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
+    /**
+     * Minimal size of memory-mapped opaque, which is encoded without copying into the buffer. Smaller
+     * values are cheaper to copy than to reference.
+     */
+    private static final int MIN_SHALLOW_MAPPED_OPAQUE = 4096;
+
+    /**
+     * Minimal number of elements of an int, hyper, float or double array, which is encoded or decoded through a
+     * bulk view of the backing buffer. Shorter arrays are cheaper to process element by element.
+     */
+    private static final int BULK_THRESHOLD = 16;
+
+    /**
+     * Maximal size of the scratch array used to encode and decode strings, if the backing buffer is not array based.
+     * Longer strings use a temporary array.
+     */
+    private static final int MAX_STRING_SCRATCH = 4096;
+
     /**
      * Byte buffer used by XDR record.
      */
@@ -71,6 +96,21 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
 
     private final List<WritableMessage> messageChunks = new ArrayList<>();
 
+    /**
+     * The {@link OpaqueSlice}s taken from the current buffer or {@code null}, if there are none.
+     */
+    private SlicedBuffer _slices;
+
+    /**
+     * Optional cache of decoded strings.
+     */
+    private XdrStringCache _stringCache;
+
+    /**
+     * Scratch array used to encode and decode strings.
+     */
+    private byte[] _stringScratch;
+
     /**
      * Create a new Xdr object with a buffer of given size.
      *
@@ -137,7 +177,20 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
 
     @Override
     public void beginEncoding() {
+        if (_slices != null) {
+            if (_slices.detachIfRetained()) {
+                /*
+                 * decoded data is still referenced by OpaqueSlice, keep it intact
+                 * and encode into a new buffer. The last released slice disposes
+                 * the old one.
+                 */
+                _buffer = _memoryManager.allocateAtLeast(INITIAL_XDR_SIZE);
+                _buffer.order(ByteOrder.BIG_ENDIAN);
+            }
+            _slices = null;
+        }
         _buffer.clear();
+        messageChunks.clear();
         _inUse = true;
     }
 
@@ -156,6 +209,15 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         return _buffer.hasRemaining();
     }
 
+    /**
+     * Returns the number of bytes available in the stream.
+     *
+     * @return number of bytes which are not decoded yet.
+     */
+    public int remaining() {
+        return _buffer.remaining();
+    }
+
     /**
      * Decodes (aka "deserializes") a "XDR int" value received from a XDR stream. A XDR int is 32 bits wide -- the same
      * width Java's "int" data type has. This method is one of the basic methods all other methods can rely on. Because
@@ -182,11 +244,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
 
         int len = xdrDecodeInt();
         checkArraySize(len);
-        int[] ints = new int[len];
-        for (int i = 0; i < len; i++) {
-            ints[i] = xdrDecodeInt();
-        }
-        return ints;
+        return xdrDecodeIntFixedVector(len);
     }
 
     /**
@@ -199,9 +257,15 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public int[] xdrDecodeIntFixedVector(int length) throws BadXdrOncRpcException {
+        ensureElements(length, Integer.BYTES);
         int[] value = new int[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeInt();
+        ByteBuffer bulk = bulkView(length, Integer.BYTES);
+        if (bulk != null) {
+            bulk.asIntBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                value[i] = xdrDecodeInt();
+            }
         }
         return value;
     }
@@ -217,11 +281,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
 
         int len = xdrDecodeInt();
         checkArraySize(len);
-        long[] longs = new long[len];
-        for (int i = 0; i < len; i++) {
-            longs[i] = xdrDecodeLong();
-        }
-        return longs;
+        return xdrDecodeLongFixedVector(len);
     }
 
     /**
@@ -234,9 +294,15 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public long[] xdrDecodeLongFixedVector(int length) throws BadXdrOncRpcException {
+        ensureElements(length, Long.BYTES);
         long[] value = new long[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeLong();
+        ByteBuffer bulk = bulkView(length, Long.BYTES);
+        if (bulk != null) {
+            bulk.asLongBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                value[i] = xdrDecodeLong();
+            }
         }
         return value;
     }
@@ -286,9 +352,15 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public double[] xdrDecodeDoubleFixedVector(int length) throws BadXdrOncRpcException {
+        ensureElements(length, Double.BYTES);
         double[] value = new double[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeDouble();
+        ByteBuffer bulk = bulkView(length, Double.BYTES);
+        if (bulk != null) {
+            bulk.asDoubleBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                value[i] = xdrDecodeDouble();
+            }
         }
         return value;
     }
@@ -316,9 +388,15 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public float[] xdrDecodeFloatFixedVector(int length) throws BadXdrOncRpcException {
+        ensureElements(length, Float.BYTES);
         float[] value = new float[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeFloat();
+        ByteBuffer bulk = bulkView(length, Float.BYTES);
+        if (bulk != null) {
+            bulk.asFloatBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                value[i] = xdrDecodeFloat();
+            }
         }
         return value;
     }
@@ -380,6 +458,34 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         return xdrDecodeOpaque(length);
     }
 
+    /**
+     * Decodes a XDR variable-length opaque value as a read-only view of the underlying buffer, without copying
+     * the data. Unlike {@link #xdrDecodeDynamicOpaque()}, the returned {@link OpaqueSlice} remains valid after
+     * this Xdr is re-used to encode a reply, until it is released.
+     * <p>
+     * The caller owns one reference to the returned slice and must {@link OpaqueSlice#release() release} it when
+     * the data is not needed anymore, for instance, after it was written into a file with
+     * {@link OpaqueSlice#writeTo(java.nio.channels.FileChannel, long)}.
+     *
+     * @return the retained slice.
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     */
+    public OpaqueSlice xdrDecodeDynamicOpaqueSlice() throws BadXdrOncRpcException {
+        int len = xdrDecodeInt();
+        checkArraySize(len);
+        int padding = (4 - (len & 3)) & 3;
+        ensureBytes(len + padding);
+
+        int pos = _buffer.position();
+        if (_slices == null) {
+            _slices = new SlicedBuffer(_buffer);
+        }
+        _slices.retain();
+        OpaqueSlice slice = new OpaqueSlice(_slices, _buffer, pos, len);
+        _buffer.position(pos + len + padding);
+        return slice;
+    }
+
     /**
      * @see #xdrDecodeDynamicOpaque()
      */
@@ -402,9 +508,49 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
             return "";
         }
         checkArraySize(len);
-        byte[] bytes = new byte[len];
-        xdrDecodeOpaque0(bytes, 0, len);
-        return new String(bytes, StandardCharsets.UTF_8);
+        int padding = (4 - (len & 3)) & 3;
+        // do not allocate more than the stream can hold
+        ensureBytes(len + padding);
+
+        int position = _buffer.position();
+        String value;
+        if (_buffer.hasArray()) {
+            value = decodeString(_buffer.array(), _buffer.arrayOffset() + position, len);
+        } else {
+            byte[] bytes = stringScratch(len);
+            _buffer.get(bytes, 0, len);
+            value = decodeString(bytes, 0, len);
+        }
+        _buffer.position(position + len + padding);
+        return value;
+    }
+
+    private String decodeString(byte[] bytes, int offset, int len) {
+        if (_stringCache != null) {
+            return _stringCache.get(bytes, offset, len);
+        }
+        // String's UTF-8 decoder creates compact Latin-1 strings for ASCII-only input
+        return new String(bytes, offset, len, StandardCharsets.UTF_8);
+    }
+
+    private byte[] stringScratch(int len) {
+        if (len > MAX_STRING_SCRATCH) {
+            return new byte[len];
+        }
+        if (_stringScratch == null || _stringScratch.length < len) {
+            _stringScratch = new byte[MAX_STRING_SCRATCH];
+        }
+        return _stringScratch;
+    }
+
+    /**
+     * Set the cache used to decode strings. Decoded strings are taken from the cache, if the cache
+     * contains a string with the same bytes.
+     *
+     * @param stringCache the cache to use, or {@code null} to decode every string.
+     */
+    public void setStringCache(XdrStringCache stringCache) {
+        _stringCache = stringCache;
     }
 
     @Override
@@ -561,14 +707,30 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         return _buffer;
     }
 
-    public WritableMessage toWritableMessage(Connection<InetSocketAddress> connection, boolean streaming) {
+    /**
+     * Returns the encoded message as a {@link WritableMessage} suitable for the given connection.
+     * <p>
+     * If file regions were added with {@link #xdrEncodeFileRegion(FileChannel, long, int)}, they are sent
+     * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} over plain
+     * TCP connections. For other connections, like TLS or UDP, the file content is read into a buffer.
+     *
+     * @param connection connection used to send the message.
+     * @param streaming {@code true} if record marking has to be used.
+     * @return message to be send.
+     * @throws IOException if the content of a file region can't be read.
+     */
+    public WritableMessage toWritableMessage(Connection<InetSocketAddress> connection, boolean streaming)
+            throws IOException {
         if (!messageChunks.isEmpty()) {
-            List<WritableMessage> list = new ArrayList<>(messageChunks.size() + 1);
-            list.addAll(messageChunks);
-            if (_buffer.remaining() > 0) {
-                list.add(_buffer);
+            if (isZeroCopyCapable(connection)) {
+                List<WritableMessage> list = new ArrayList<>(messageChunks.size() + 1);
+                list.addAll(messageChunks);
+                if (_buffer.remaining() > 0) {
+                    list.add(_buffer);
+                }
+                return new ChunkedWritableMessage(connection, list, streaming);
             }
-            return new ChunkedWritableMessage(connection, list, streaming);
+            assembleChunks();
         }
 
         if (streaming) {
@@ -585,6 +747,66 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         return _buffer;
     }
 
+    /**
+     * Returns {@code true} if {@link FileChunk}s can be written directly into the connection's socket.
+     */
+    private static boolean isZeroCopyCapable(Connection<?> connection) {
+        if (!(connection instanceof TCPNIOConnection)) {
+            return false;
+        }
+        Processor<?> processor = connection.getProcessor();
+        return !(processor instanceof FilterChain) || ((FilterChain) processor).indexOfType(SSLFilter.class) < 0;
+    }
+
+    /**
+     * Copy all message chunks and the remaining of the encoded data into a single buffer.
+     */
+    private void assembleChunks() throws IOException {
+        int size = _buffer.remaining();
+        for (WritableMessage chunk : messageChunks) {
+            size += chunk.remaining();
+        }
+
+        Buffer assembled = _memoryManager.allocate(size);
+        assembled.order(ByteOrder.BIG_ENDIAN);
+        WritableByteChannel sink = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                assembled.put(src);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        for (WritableMessage chunk : messageChunks) {
+            if (chunk instanceof FileChunk) {
+                FileChunk fileChunk = (FileChunk) chunk;
+                while (fileChunk.hasRemaining()) {
+                    fileChunk.writeTo(sink);
+                }
+            } else {
+                assembled.put((Buffer) chunk);
+            }
+            chunk.release();
+        }
+        assembled.put(_buffer);
+        assembled.flip();
+
+        messageChunks.clear();
+        // allocated by addMessageChunk, thus never shared with slices
+        _buffer.tryDispose();
+        _buffer = assembled;
+    }
+
     public static Buffer appendBuffer(MemoryManager<?> memoryManager, Buffer buffer, Buffer special) {
         if (buffer instanceof CompositeBuffer) {
             return ((CompositeBuffer) buffer).append(special);
@@ -603,9 +825,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     public void xdrEncodeIntVector(int[] values) {
         ensureCapacity(Integer.BYTES + Integer.BYTES * values.length);
         _buffer.putInt(values.length);
-        for (int value : values) {
-            _buffer.putInt(value);
-        }
+        putInts(values);
     }
 
     /**
@@ -619,9 +839,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeInt(value[i]);
-        }
+        ensureCapacity(Integer.BYTES * length);
+        putInts(value);
     }
 
     /**
@@ -634,9 +853,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     public void xdrEncodeLongVector(long[] values) {
         ensureCapacity(Integer.BYTES + Long.BYTES * values.length);
         _buffer.putInt(values.length);
-        for (long value : values) {
-            _buffer.putLong(value);
-        }
+        putLongs(values);
     }
 
     /**
@@ -650,9 +867,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeLong(value[i]);
-        }
+        ensureCapacity(Long.BYTES * length);
+        putLongs(value);
     }
 
     /**
@@ -684,11 +900,9 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public void xdrEncodeFloatVector(float[] value) {
-        int size = value.length;
-        xdrEncodeInt(size);
-        for (int i = 0; i < size; i++) {
-            xdrEncodeFloat(value[i]);
-        }
+        ensureCapacity(Integer.BYTES + Float.BYTES * value.length);
+        _buffer.putInt(value.length);
+        putFloats(value);
     }
 
     /**
@@ -702,9 +916,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeFloat(value[i]);
-        }
+        ensureCapacity(Float.BYTES * length);
+        putFloats(value);
     }
 
     /**
@@ -714,11 +927,9 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public void xdrEncodeDoubleVector(double[] value) {
-        int size = value.length;
-        xdrEncodeInt(size);
-        for (int i = 0; i < size; i++) {
-            xdrEncodeDouble(value[i]);
-        }
+        ensureCapacity(Integer.BYTES + Double.BYTES * value.length);
+        _buffer.putInt(value.length);
+        putDoubles(value);
     }
 
     /**
@@ -732,9 +943,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeDouble(value[i]);
-        }
+        ensureCapacity(Double.BYTES * length);
+        putDoubles(value);
     }
 
     /**
@@ -745,7 +955,60 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     public void xdrEncodeString(String string) {
         if (string == null)
             string = "";
-        xdrEncodeDynamicOpaque(Opaque.forUtf8Bytes(string));
+        int len = utf8Length(string);
+        int padding = (4 - (len & 3)) & 3;
+        ensureCapacity(Integer.BYTES + len + padding);
+        _buffer.putInt(len);
+
+        if (_buffer.hasArray()) {
+            int position = _buffer.position();
+            encodeUtf8(string, _buffer.array(), _buffer.arrayOffset() + position);
+            _buffer.position(position + len);
+        } else {
+            byte[] bytes = stringScratch(len);
+            encodeUtf8(string, bytes, 0);
+            _buffer.put(bytes, 0, len);
+        }
+        if (padding > 0) {
+            _buffer.put(paddingZeros, 0, padding);
+        }
+    }
+
+    /*
+     * Writes the UTF-8 encoding of the given string into the array. Unpaired surrogates
+     * are replaced with '?', as by String#getBytes.
+     */
+    private static void encodeUtf8(String string, byte[] dst, int offset) {
+        int len = string.length();
+        int i = 0;
+        for (; i < len; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            dst[offset++] = (byte) c;
+        }
+        for (; i < len; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                dst[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[offset++] = (byte) (0xc0 | (c >> 6));
+                dst[offset++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, string.charAt(++i));
+                dst[offset++] = (byte) (0xf0 | (cp >> 18));
+                dst[offset++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                dst[offset++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                dst[offset++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                dst[offset++] = '?';
+            } else {
+                dst[offset++] = (byte) (0xe0 | (c >> 12));
+                dst[offset++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dst[offset++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
     }
 
     private static final byte[] paddingZeros = {0, 0, 0, 0};
@@ -793,20 +1056,58 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         xdrEncodeInt(numBytes);
 
         if (opaque instanceof FileChunkSupplier) {
-            _buffer.flip();
-            if (_buffer.remaining() > 0) {
-                messageChunks.add(_buffer);
-            }
-
-            FileChunk chunk = ((FileChunkSupplier) opaque).toFileChunk(true);
-            messageChunks.add(chunk);
-
-            _buffer = GrizzlyMemoryManager.allocate(_buffer.capacity());
+            addMessageChunk(((FileChunkSupplier) opaque).toFileChunk(true));
+        } else if (opaque instanceof Opaque.OpaqueMappedImpl && numBytes >= MIN_SHALLOW_MAPPED_OPAQUE) {
+            // serve directly from the page cache
+            appendShallowBuffer(new ByteBufferWrapper(opaque.asByteBuffer()));
         } else {
             xdrEncodeOpaque0(opaque, numBytes);
         }
     }
 
+    /**
+     * Encodes a XDR variable-length opaque value with the content of the given region of a file. The
+     * content is not copied into this Xdr. Over plain TCP connections the region is sent directly from
+     * the file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)};
+     * over TLS or UDP the data is read into the reply buffer when the message is sent.
+     * <p>
+     * The channel must remain open and the region unchanged until the message is sent, for instance,
+     * the channel can be closed by a listener registered with
+     * {@link org.dcache.oncrpc4j.rpc.RpcCall#registerSendOnceListener}.
+     *
+     * @param channel the file channel to read data from.
+     * @param position the position of the region within the file.
+     * @param length the number of bytes to send.
+     */
+    public void xdrEncodeFileRegion(FileChannel channel, long position, int length) {
+        xdrEncodeInt(length);
+        if (length == 0) {
+            return;
+        }
+
+        addMessageChunk(new FileRegion(channel, position, length));
+
+        int padding = (4 - (length & 3)) & 3;
+        if (padding > 0) {
+            ensureCapacity(padding);
+            _buffer.put(paddingZeros, 0, padding);
+        }
+    }
+
+    /**
+     * Finish the current buffer and add a chunk to the message, which is sent after data encoded so far.
+     */
+    private void addMessageChunk(WritableMessage chunk) {
+        _buffer.flip();
+        if (_buffer.remaining() > 0) {
+            messageChunks.add(_buffer);
+        }
+
+        messageChunks.add(chunk);
+
+        _buffer = GrizzlyMemoryManager.allocate(_buffer.capacity());
+    }
+
     /**
      * @see #xdrEncodeDynamicOpaque(Opaque)
      */
@@ -864,9 +1165,16 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      * @param buf The buffer from which bytes are to be retrieved.
      */
     public void xdrEncodeShallowByteBuffer(Buffer buf) {
+        xdrEncodeInt(buf.remaining());
+        appendShallowBuffer(buf);
+    }
+
+    /**
+     * Append the given buffer and XDR padding to the encoded data without copying the buffer's content.
+     */
+    private void appendShallowBuffer(Buffer buf) {
         int len = buf.remaining();
         int padding = (4 - (len & 3)) & 3;
-        xdrEncodeInt(len);
         int ep = _buffer.position() + buf.remaining();
 
         var composite = BuffersBuffer.create(_memoryManager);
@@ -992,6 +1300,21 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         return bytes;
     }
 
+    /**
+     * Get the int at the given byte index of the buffer without changing the position
+     * of the stream, for instance, to peek into the header of an encoded message.
+     *
+     * @param index the byte index of the int.
+     * @return the int value at the given index.
+     * @throws IndexOutOfBoundsException if there are less than four bytes at the given index.
+     */
+    public int intAt(int index) {
+        if (index < 0 || index > _buffer.limit() - Integer.BYTES) {
+            throw new IndexOutOfBoundsException("index " + index + " out of " + _buffer.limit());
+        }
+        return _buffer.getInt(index);
+    }
+
     public Opaque toOpaque() {
         return Opaque.forImmutableBytes(getBytes());
     }
@@ -1000,7 +1323,137 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      * Closes this stream, relinquishing any underlying resources.
      */
     public void close() {
-        _buffer.tryDispose();
+        if (_slices != null) {
+            // disposed by the last released slice, if any is retained
+            _slices.detach();
+        } else {
+            _buffer.tryDispose();
+        }
+    }
+
+    /**
+     * Get the size of an encoded opaque value of the given length, including padding
+     * but not the length field of dynamic opaque values.
+     *
+     * @param length the length of opaque value in bytes.
+     * @return the size of encoded opaque value in bytes.
+     */
+    public static int sizeOfOpaque(int length) {
+        return (length + 3) & ~3;
+    }
+
+    /**
+     * Get the size of an encoded string, including length field and padding.
+     *
+     * @param string the string to encode, {@code null} is encoded as empty string.
+     * @return the size of encoded string in bytes.
+     */
+    public static int sizeOfString(String string) {
+        return string == null ? 4 : 4 + sizeOfOpaque(utf8Length(string));
+    }
+
+    /*
+     * The length of UTF-8 encoding of the given string, without encoding it.
+     * Unpaired surrogates are replaced with a single byte, as by String#getBytes.
+     */
+    private static int utf8Length(String string) {
+        int len = string.length();
+        int n = len;
+        for (int i = 0; i < len; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                n += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(string.charAt(i + 1))) {
+                n += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                n += 2;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Writes ints into the backing buffer. The caller is responsible to ensure
+     * sufficient capacity.
+     */
+    private void putInts(int[] values) {
+        ByteBuffer bulk = bulkView(values.length, Integer.BYTES);
+        if (bulk != null) {
+            bulk.asIntBuffer().put(values);
+        } else {
+            for (int value : values) {
+                _buffer.putInt(value);
+            }
+        }
+    }
+
+    /**
+     * Writes longs into the backing buffer. The caller is responsible to ensure
+     * sufficient capacity.
+     */
+    private void putLongs(long[] values) {
+        ByteBuffer bulk = bulkView(values.length, Long.BYTES);
+        if (bulk != null) {
+            bulk.asLongBuffer().put(values);
+        } else {
+            for (long value : values) {
+                _buffer.putLong(value);
+            }
+        }
+    }
+
+    /**
+     * Writes floats into the backing buffer. The caller is responsible to ensure
+     * sufficient capacity.
+     */
+    private void putFloats(float[] values) {
+        ByteBuffer bulk = bulkView(values.length, Float.BYTES);
+        if (bulk != null) {
+            bulk.asFloatBuffer().put(values);
+        } else {
+            for (float value : values) {
+                _buffer.putInt(Float.floatToRawIntBits(value));
+            }
+        }
+    }
+
+    /**
+     * Writes doubles into the backing buffer. The caller is responsible to ensure
+     * sufficient capacity.
+     */
+    private void putDoubles(double[] values) {
+        ByteBuffer bulk = bulkView(values.length, Double.BYTES);
+        if (bulk != null) {
+            bulk.asDoubleBuffer().put(values);
+        } else {
+            for (double value : values) {
+                _buffer.putLong(Double.doubleToRawLongBits(value));
+            }
+        }
+    }
+
+    /**
+     * Returns a big-endian view of the next {@code count * elementSize} bytes of the backing buffer and advances
+     * the buffer's position past them. Short arrays and composite buffers, where a view would not cover a single
+     * contiguous memory region, are handled element by element and {@code null} is returned.
+     *
+     * @param count number of elements.
+     * @param elementSize size of a single element in bytes.
+     * @return view of the region or {@code null} if elements have to be processed one by one.
+     */
+    private ByteBuffer bulkView(int count, int elementSize) {
+        if (count < BULK_THRESHOLD || _buffer.isComposite()) {
+            return null;
+        }
+        int position = _buffer.position();
+        int size = count * elementSize;
+        ByteBuffer view = _buffer.toByteBuffer(position, position + size).slice().order(ByteOrder.BIG_ENDIAN);
+        _buffer.position(position + size);
+        return view;
     }
 
     public void ensureCapacity(int size) {
@@ -1012,7 +1465,14 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     }
 
     private void ensureBytes(int size) throws BadXdrOncRpcException {
-        if (_buffer.remaining() < size) {
+        // a negative size is a length close to Integer.MAX_VALUE overflowed by padding
+        if (size < 0 || _buffer.remaining() < size) {
+            throw new BadXdrOncRpcException("xdr stream too short");
+        }
+    }
+
+    private void ensureElements(int count, int elementSize) throws BadXdrOncRpcException {
+        if (count > _buffer.remaining() / elementSize) {
             throw new BadXdrOncRpcException("xdr stream too short");
         }
     }
@@ -47,4 +47,14 @@ public interface XdrAble {
      * @throws OncRpcException if an ONC/RPC error occurs.
      */
     public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException;
+
+    /**
+     * Returns the number of bytes {@link #xdrEncode(XdrEncodingStream)} writes into
+     * a XDR stream. Used to allocate encoding buffers of the right size up-front.
+     *
+     * @return size of the encoded object in bytes or {@code -1}, if unknown.
+     */
+    default int xdrEncodedSize() {
+        return -1;
+    }
 }
@@ -51,4 +51,9 @@ public class XdrBoolean implements XdrAble {
         xdr.xdrEncodeBoolean(_value);
     }
 
+    @Override
+    public int xdrEncodedSize() {
+        return 4;
+    }
+
 }
@@ -41,6 +41,14 @@ public class XdrInt implements XdrAble {
         return _value;
     }
 
+    /**
+     * Sets the value of this <code>XdrInt</code> object, so it can be reused.
+     * @param value new value.
+     */
+    public void setValue(int value) {
+        _value = value;
+    }
+
     public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
         _value = xdr.xdrDecodeInt();
     }
@@ -48,4 +56,9 @@ public class XdrInt implements XdrAble {
     public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
         xdr.xdrEncodeInt(_value);
     }
+
+    @Override
+    public int xdrEncodedSize() {
+        return 4;
+    }
 }
\ No newline at end of file
@@ -18,6 +18,10 @@ public class XdrLong implements XdrAble {
         return _value;
     }
 
+    public void setValue(long value) {
+        _value = value;
+    }
+
     public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
         _value = xdr.xdrDecodeLong();
     }
@@ -25,4 +29,9 @@ public class XdrLong implements XdrAble {
     public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
         xdr.xdrEncodeLong(_value);
     }
+
+    @Override
+    public int xdrEncodedSize() {
+        return 8;
+    }
 }
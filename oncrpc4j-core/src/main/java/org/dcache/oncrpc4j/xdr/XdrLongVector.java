@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.util.Opaque;
+
+/**
+ * A variable-length XDR array of {@code long} values, which is decoded lazily.
+ * <p>
+ * When decoded, the vector keeps a view of the received data and decodes an element
+ * only when it is accessed, so a large array, of which only a few elements are used,
+ * is neither decoded nor copied. Like other {@link Opaque} views returned by
+ * {@link Xdr#xdrDecodeOpaque(int)}, the content is only valid as long as the buffer
+ * it was decoded from is not re-used; call {@link #toArray()} to keep a copy.
+ */
+public class XdrLongVector implements XdrAble {
+
+    private static final int ELEMENT_SIZE = 8;
+
+    /**
+     * Encoded elements, if decoded from a stream.
+     */
+    private Opaque _data;
+
+    /**
+     * The elements, if created locally or already decoded.
+     */
+    private long[] _values;
+
+    public XdrLongVector() {
+        _values = new long[0];
+    }
+
+    public XdrLongVector(long[] values) {
+        _values = values;
+    }
+
+    public XdrLongVector(XdrDecodingStream xdr) throws OncRpcException, IOException {
+        xdrDecode(xdr);
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return number of elements.
+     */
+    public int size() {
+        return _values != null ? _values.length : _data.numBytes() / ELEMENT_SIZE;
+    }
+
+    /**
+     * Returns the element at the given index. Only this element is decoded.
+     *
+     * @param index index of the element.
+     * @return the element.
+     * @throws IndexOutOfBoundsException if index is out of range.
+     */
+    public long get(int index) {
+        if (_values != null) {
+            return _values[index];
+        }
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        return _data.longAt(index * ELEMENT_SIZE);
+    }
+
+    /**
+     * Returns a copy of all elements.
+     *
+     * @return array of elements.
+     */
+    public long[] toArray() {
+        if (_values != null) {
+            return _values.clone();
+        }
+        long[] values = new long[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = _data.longAt(i * ELEMENT_SIZE);
+        }
+        return values;
+    }
+
+    @Override
+    public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+        int length = xdr.xdrDecodeInt();
+        if (length < 0 || length > Integer.MAX_VALUE / ELEMENT_SIZE) {
+            throw new BadXdrOncRpcException("corrupted xdr");
+        }
+        _data = xdr.xdrDecodeOpaque(length * ELEMENT_SIZE);
+        _values = null;
+    }
+
+    @Override
+    public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+        if (_values != null) {
+            xdr.xdrEncodeLongVector(_values);
+        } else {
+            xdr.xdrEncodeInt(size());
+            xdr.xdrEncodeOpaque(_data, _data.numBytes());
+        }
+    }
+
+    @Override
+    public int xdrEncodedSize() {
+        return 4 + ELEMENT_SIZE * size();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
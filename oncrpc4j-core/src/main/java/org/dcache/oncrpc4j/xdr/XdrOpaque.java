@@ -87,4 +87,9 @@ public class XdrOpaque implements XdrAble {
     public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
         xdr.xdrEncodeDynamicOpaque(_opaque);
     }
+
+    @Override
+    public int xdrEncodedSize() {
+        return 4 + Xdr.sizeOfOpaque(_opaque.numBytes());
+    }
 }
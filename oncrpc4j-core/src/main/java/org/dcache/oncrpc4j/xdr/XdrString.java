@@ -50,6 +50,11 @@ public class XdrString implements XdrAble {
         xdr.xdrEncodeString(_value);
     }
 
+    @Override
+    public int xdrEncodedSize() {
+        return Xdr.sizeOfString(_value);
+    }
+
     @Override
     public String toString() {
         return _value;
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A bounded cache of decoded XDR strings keyed on their raw UTF-8 bytes. Protocols like NFS
+ * decode the same file names again and again (LOOKUP, READDIR, CREATE); with a cache such
+ * strings are decoded and allocated only once.
+ *
+ * <p>
+ * The cache is direct-mapped: each entry can be stored only in a single slot, which is
+ * selected by the hash of the bytes, and a colliding entry replaces the existing one. Strings
+ * longer than {@code maxLength} bytes are never cached.
+ *
+ * <p>
+ * Instances are safe to be shared by multiple threads. Concurrent updates may overwrite each
+ * other, which only results in a cache miss.
+ */
+public class XdrStringCache {
+
+    /**
+     * Default maximal length of cached strings, which matches the file name limit of most
+     * file systems.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 255;
+
+    private static final class Entry {
+
+        private final byte[] bytes;
+        private final int hash;
+        private final String value;
+
+        Entry(byte[] bytes, int hash, String value) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    private final Entry[] _entries;
+    private final int _mask;
+    private final int _maxLength;
+
+    /**
+     * Create a new cache for strings up to {@link #DEFAULT_MAX_LENGTH} bytes.
+     *
+     * @param size number of entries, rounded up to the next power of two.
+     */
+    public XdrStringCache(int size) {
+        this(size, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param size number of entries, rounded up to the next power of two.
+     * @param maxLength maximal length in bytes of cached strings.
+     */
+    public XdrStringCache(int size, int maxLength) {
+        checkArgument(size > 0 && size <= 1 << 30, "Illegal cache size: %s", size);
+        checkArgument(maxLength >= 0, "Illegal max length: %s", maxLength);
+        int capacity = Integer.highestOneBit(size);
+        if (capacity < size) {
+            capacity <<= 1;
+        }
+        _entries = new Entry[capacity];
+        _mask = capacity - 1;
+        _maxLength = maxLength;
+    }
+
+    /**
+     * Returns the string for the given UTF-8 encoded bytes. Bytes, which are all in
+     * the ASCII range, are converted without UTF-8 decoding.
+     *
+     * @param bytes array which holds the encoded string.
+     * @param offset offset of the first byte of the encoded string.
+     * @param len number of bytes of the encoded string.
+     * @return the decoded string.
+     */
+    public String get(byte[] bytes, int offset, int len) {
+        if (len > _maxLength) {
+            return new String(bytes, offset, len, StandardCharsets.UTF_8);
+        }
+
+        int hash = 1;
+        int bits = 0;
+        for (int i = offset; i < offset + len; i++) {
+            byte b = bytes[i];
+            hash = 31 * hash + b;
+            bits |= b;
+        }
+
+        int index = (hash ^ (hash >>> 16)) & _mask;
+        Entry entry = _entries[index];
+        if (entry != null && entry.hash == hash
+                && Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, offset, offset + len)) {
+            return entry.value;
+        }
+
+        // the sign bit is set if any of the bytes is outside of the ASCII range
+        String value = new String(bytes, offset, len,
+                bits >= 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        _entries[index] = new Entry(Arrays.copyOfRange(bytes, offset, offset + len), hash, value);
+        return value;
+    }
+
+    /**
+     * Removes all cached strings.
+     */
+    public void clear() {
+        Arrays.fill(_entries, null);
+    }
+}
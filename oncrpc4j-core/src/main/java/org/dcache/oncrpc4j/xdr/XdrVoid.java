@@ -36,6 +36,11 @@ public class XdrVoid implements XdrAble {
     {
     }
 
+    @Override
+    public int xdrEncodedSize() {
+        return 0;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a void from a XDR stream in
      * compliance to RFC 1832.
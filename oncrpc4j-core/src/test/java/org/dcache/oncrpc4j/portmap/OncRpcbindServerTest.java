@@ -0,0 +1,364 @@
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.dcache.oncrpc4j.rpc.OncRpcAcceptedException;
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAccepsStatus;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcReply;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.rpc.net.netid;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrInt;
+import org.dcache.oncrpc4j.xdr.XdrString;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OncRpcbindServerTest {
+
+    private static final int PROG = 200001;
+
+    private OncRpcbindServer rpcbind;
+    private OncRpcSvc svc;
+    private OncRpcSvc echoSvc;
+    private OncRpcClient rpcClient;
+    private RpcCall v4Call;
+
+    @Before
+    public void setUp() throws IOException {
+        rpcbind = new OncRpcbindServer();
+        svc = new OncRpcSvcBuilder()
+                .withTCP()
+                .withUDP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2), rpcbind)
+                .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V3), rpcbind)
+                .withRpcService(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V4), rpcbind)
+                .build();
+        svc.start();
+
+        rpcClient = new OncRpcClient(svc.getInetSocketAddress(IpProtocolType.UDP), IpProtocolType.UDP);
+        v4Call = new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V4,
+                new RpcAuthTypeNone(), rpcClient.connect());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        rpcClient.close();
+        svc.stop();
+        if (echoSvc != null) {
+            echoSvc.stop();
+        }
+        rpcbind.close();
+    }
+
+    @Test
+    public void testSetGetUnset() throws Exception {
+        OncPortmapClient portmap = new RpcbindV4Client(v4Call);
+
+        assertTrue(portmap.setPort(PROG, 1, "tcp", "127.0.0.1.8.1", "me"));
+        assertFalse(portmap.setPort(PROG, 1, "tcp", "127.0.0.1.8.2", "me"));
+        assertEquals("127.0.0.1.8.1", portmap.getPort(PROG, 1, "tcp"));
+        assertEquals("", portmap.getPort(PROG, 1, "udp"));
+
+        assertTrue(portmap.unsetPort(PROG, 1, "me"));
+        assertEquals("", portmap.getPort(PROG, 1, "tcp"));
+    }
+
+    @Test
+    public void testGetAddrOfOtherVersion() throws Exception {
+        OncPortmapClient portmap = new RpcbindV4Client(v4Call);
+        portmap.setPort(PROG, 1, "tcp", "127.0.0.1.8.1", "me");
+
+        assertEquals("127.0.0.1.8.1", portmap.getPort(PROG, 2, "tcp"));
+
+        XdrString versAddr = new XdrString();
+        v4Call.call(OncRpcPortmap.RPCBPROC_GETVERSADDR, new rpcb(PROG, 2, "tcp", "", ""), versAddr);
+        assertEquals("", versAddr.stringValue());
+    }
+
+    @Test
+    public void testDumpUpdatedOnSet() throws Exception {
+        OncPortmapClient portmap = new RpcbindV4Client(v4Call);
+        int before = portmap.dump().size();
+
+        portmap.setPort(PROG, 1, "tcp", "127.0.0.1.8.1", "me");
+        List<rpcb> services = portmap.dump();
+        assertEquals(before + 1, services.size());
+        assertTrue(services.stream().anyMatch(s -> s.getProg() == PROG));
+
+        portmap.unsetPort(PROG, 1, "me");
+        assertEquals(before, portmap.dump().size());
+    }
+
+    @Test
+    public void testV2DumpUpdatedOnSet() throws Exception {
+        OncPortmapClient portmap = new PortmapV2Client(new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM,
+                OncRpcPortmap.PORTMAP_V2, new RpcAuthTypeNone(), v4Call.getTransport()));
+        int before = portmap.dump().size();
+
+        portmap.setPort(PROG, 1, "udp", "127.0.0.1.8.1", "me");
+        assertEquals(before + 1, portmap.dump().size());
+    }
+
+    @Test
+    public void testGetTime() throws Exception {
+        XdrInt time = new XdrInt();
+        v4Call.call(OncRpcPortmap.RPCBPROC_GETTIME, XdrVoid.XDR_VOID, time);
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        assertTrue(Math.abs(now - (time.intValue() & 0xffffffffL)) < 60);
+    }
+
+    @Test
+    public void testGetAddrList() throws Exception {
+        OncPortmapClient portmap = new RpcbindV4Client(v4Call);
+        portmap.setPort(PROG, 1, "tcp", "127.0.0.1.8.1", "me");
+        portmap.setPort(PROG, 1, "udp", "127.0.0.1.8.1", "me");
+
+        rpcb_entry_list list = new rpcb_entry_list();
+        v4Call.call(OncRpcPortmap.RPCBPROC_GETADDRLIST, new rpcb(PROG, 1, "", "", ""), list);
+
+        assertEquals(2, list.getEntries().size());
+        for (rpcb_entry entry : list.getEntries()) {
+            assertEquals("127.0.0.1.8.1", entry.getMaddr());
+            assertEquals("inet", entry.getProtofmly());
+            assertEquals(entry.getNetid(), entry.getProto());
+            assertEquals(entry.getNetid().equals("udp") ? rpcb_entry.NC_TPI_CLTS : rpcb_entry.NC_TPI_COTS_ORD,
+                    entry.getSemantics());
+        }
+    }
+
+    @Test
+    public void testIndirect() throws Exception {
+        InetSocketAddress echoAddress = startEchoService();
+        rpcbind.setRemoteCalls(true);
+
+        rpcb_rmtcallres res = new rpcb_rmtcallres();
+        v4Call.call(OncRpcPortmap.RPCBPROC_INDIRECT, new rpcb_rmtcallargs(PROG, 1, 1, encode(new XdrInt(17))), res);
+
+        Xdr xdr = new Xdr(res.getResults());
+        xdr.beginDecoding();
+        assertEquals(18, xdr.xdrDecodeInt());
+        assertEquals(echoAddress.getPort(), netid.getPort(res.getAddr()));
+    }
+
+    @Test
+    public void testIndirectDisabledByDefault() throws Exception {
+        startEchoService();
+
+        try {
+            v4Call.call(OncRpcPortmap.RPCBPROC_INDIRECT, new rpcb_rmtcallargs(PROG, 1, 1, encode(new XdrInt(17))),
+                    new rpcb_rmtcallres());
+            fail("indirect call forwarded while disabled");
+        } catch (OncRpcAcceptedException e) {
+            assertEquals(RpcAccepsStatus.toString(RpcAccepsStatus.PROC_UNAVAIL), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIndirectToRpcbindRefused() throws Exception {
+        rpcbind.setRemoteCalls(true);
+
+        try {
+            v4Call.call(OncRpcPortmap.RPCBPROC_INDIRECT,
+                    new rpcb_rmtcallargs(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V4,
+                            OncRpcPortmap.RPCBPROC_NULL, encode(new XdrInt(17))),
+                    new rpcb_rmtcallres());
+            fail("indirect call to rpcbind forwarded");
+        } catch (OncRpcAcceptedException e) {
+            assertEquals(RpcAccepsStatus.toString(RpcAccepsStatus.PROG_UNAVAIL), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCallitV2() throws Exception {
+        InetSocketAddress echoAddress = startEchoService();
+        rpcbind.setRemoteCalls(true);
+
+        RpcCall v2Call = new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2,
+                new RpcAuthTypeNone(), v4Call.getTransport());
+        call_result res = new call_result();
+        v2Call.call(OncRpcPortmap.PMAPPROC_CALLIT, new rpcb_rmtcallargs(PROG, 1, 1, encode(new XdrInt(17))), res);
+
+        Xdr xdr = new Xdr(res.getRes());
+        xdr.beginDecoding();
+        assertEquals(18, xdr.xdrDecodeInt());
+        assertEquals(echoAddress.getPort(), res.getPort());
+    }
+
+    @Test
+    public void testBroadcastCallit() throws Exception {
+        startEchoService();
+        rpcbind.setRemoteCalls(true);
+
+        OncRpcSvc clientSvc = new OncRpcSvcBuilder()
+                .withClientMode()
+                .withUDP()
+                .withoutAutoPublish()
+                .build();
+        clientSvc.start();
+        try {
+            RpcCall call = new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V3, new RpcAuthTypeNone(),
+                    clientSvc.bindBroadcast(svc.getInetSocketAddress(IpProtocolType.UDP)));
+
+            List<rpcb_rmtcallres> replies = new CopyOnWriteArrayList<>();
+            call.broadcast(OncRpcPortmap.RPCBPROC_CALLIT, new rpcb_rmtcallargs(PROG, 1, 1, encode(new XdrInt(17))),
+                    collector(replies), 500, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+
+            assertEquals(1, replies.size());
+            Xdr xdr = new Xdr(replies.get(0).getResults());
+            xdr.beginDecoding();
+            assertEquals(18, xdr.xdrDecodeInt());
+
+            // services which are not registered are silently ignored
+            replies.clear();
+            call.broadcast(OncRpcPortmap.RPCBPROC_CALLIT, new rpcb_rmtcallargs(PROG + 1, 1, 1, encode(new XdrInt(17))),
+                    collector(replies), 500, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+            assertTrue(replies.isEmpty());
+        } finally {
+            clientSvc.stop();
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testCallitV2ToRpcbindRefused() throws Exception {
+        rpcbind.setRemoteCalls(true);
+
+        RpcCall v2Call = new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2,
+                new RpcAuthTypeNone(), v4Call.getTransport());
+        // CALLIT is silently dropped
+        v2Call.call(OncRpcPortmap.PMAPPROC_CALLIT,
+                new rpcb_rmtcallargs(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2,
+                        OncRpcPortmap.PMAPPROC_NULL, encode(new XdrInt(17))),
+                new call_result(), 500, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testCallitV2DisabledByDefault() throws Exception {
+        startEchoService();
+
+        RpcCall v2Call = new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2,
+                new RpcAuthTypeNone(), v4Call.getTransport());
+        v2Call.call(OncRpcPortmap.PMAPPROC_CALLIT, new rpcb_rmtcallargs(PROG, 1, 1, encode(new XdrInt(17))),
+                new call_result(), 500, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testBroadcastCallitToRpcbindRefused() throws Exception {
+        rpcbind.setRemoteCalls(true);
+
+        OncRpcSvc clientSvc = new OncRpcSvcBuilder()
+                .withClientMode()
+                .withUDP()
+                .withoutAutoPublish()
+                .build();
+        clientSvc.start();
+        try {
+            RpcCall call = new RpcCall(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V3, new RpcAuthTypeNone(),
+                    clientSvc.bindBroadcast(svc.getInetSocketAddress(IpProtocolType.UDP)));
+
+            List<rpcb_rmtcallres> replies = new CopyOnWriteArrayList<>();
+            call.broadcast(OncRpcPortmap.RPCBPROC_CALLIT,
+                    new rpcb_rmtcallargs(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V3,
+                            OncRpcPortmap.RPCBPROC_NULL, encode(new XdrInt(17))),
+                    collector(replies), 500, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+            assertTrue(replies.isEmpty());
+        } finally {
+            clientSvc.stop();
+        }
+    }
+
+    @Test
+    public void testRemoveUnreachable() throws Exception {
+        echoSvc = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(PROG, 1), call -> call.reply(XdrVoid.XDR_VOID))
+                .build();
+        echoSvc.start();
+
+        int port = echoSvc.getInetSocketAddress(IpProtocolType.TCP).getPort();
+        OncPortmapClient portmap = new RpcbindV4Client(v4Call);
+        portmap.setPort(PROG, 1, "tcp", "127.0.0.1." + (port >> 8) + "." + (port & 0xff), "me");
+        // nobody listens on port 1
+        portmap.setPort(PROG, 2, "tcp", "127.0.0.1.0.1", "me");
+
+        assertEquals(1, rpcbind.removeUnreachable(1, TimeUnit.SECONDS));
+        assertEquals(port, netid.getPort(portmap.getPort(PROG, 1, "tcp")));
+        XdrString versAddr = new XdrString();
+        v4Call.call(OncRpcPortmap.RPCBPROC_GETVERSADDR, new rpcb(PROG, 2, "tcp", "", ""), versAddr);
+        assertEquals("", versAddr.stringValue());
+    }
+
+    private InetSocketAddress startEchoService() throws Exception {
+        echoSvc = new OncRpcSvcBuilder()
+                .withUDP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(PROG, 1), call -> {
+                    XdrInt value = new XdrInt();
+                    call.retrieveCall(value);
+                    call.reply(new XdrInt(value.intValue() + 1));
+                })
+                .build();
+        echoSvc.start();
+
+        InetSocketAddress echoAddress = echoSvc.getInetSocketAddress(IpProtocolType.UDP);
+        OncPortmapClient portmap = new RpcbindV4Client(v4Call);
+        portmap.setPort(PROG, 1, "udp", "127.0.0.1." + (echoAddress.getPort() >> 8) + "." + (echoAddress.getPort() & 0xff), "me");
+        return echoAddress;
+    }
+
+    private static CompletionHandler<RpcReply, RpcTransport> collector(List<rpcb_rmtcallres> replies) {
+        return new CompletionHandler<RpcReply, RpcTransport>() {
+            @Override
+            public void completed(RpcReply reply, RpcTransport transport) {
+                try {
+                    rpcb_rmtcallres res = new rpcb_rmtcallres();
+                    reply.getReplyResult(res);
+                    replies.add(res);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void failed(Throwable t, RpcTransport transport) {
+            }
+        };
+    }
+
+    private static Opaque encode(XdrInt value) throws IOException {
+        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        xdr.beginEncoding();
+        value.xdrEncode(xdr);
+        xdr.endEncoding();
+        return xdr.toOpaque();
+    }
+}
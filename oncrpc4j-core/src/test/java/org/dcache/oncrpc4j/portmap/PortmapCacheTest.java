@@ -0,0 +1,134 @@
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PortmapCacheTest {
+
+    private static final InetSocketAddress PORTMAP = new InetSocketAddress("127.0.0.1", 111);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private PortmapCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new PortmapCache(60, 5, 600, TimeUnit.SECONDS, clock::get);
+    }
+
+    private String lookup(String addr) {
+        lookups.incrementAndGet();
+        return addr;
+    }
+
+    @Test
+    public void testPositiveEntryCached() throws Exception {
+        assertEquals("127.0.0.1.8.1", cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.1")));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertEquals("127.0.0.1.8.1", cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.2")));
+        assertEquals(1, lookups.get());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals("127.0.0.1.8.2", cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.2")));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testNegativeEntryCached() throws Exception {
+        assertEquals("", cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("")));
+        assertEquals("", cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.1")));
+        assertEquals(1, lookups.get());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertEquals("127.0.0.1.8.1", cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.1")));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testZeroPortIsNegative() throws Exception {
+        cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.0.0"));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.0.0"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testFailureNotCached() throws Exception {
+        try {
+            cache.getPort(PORTMAP, 100003, 4, "tcp", () -> {
+                throw new IOException("no route to host");
+            });
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals("127.0.0.1.8.1", cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.1")));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.1"));
+        cache.getPort(PORTMAP, 100003, 3, "tcp", () -> lookup("127.0.0.1.8.1"));
+        cache.invalidate(PORTMAP, 100003, 4);
+        cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.1"));
+        cache.getPort(PORTMAP, 100003, 3, "tcp", () -> lookup("127.0.0.1.8.1"));
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testConcurrentLookupsCoalesced() throws Exception {
+        CountDownLatch inLookup = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.getPort(PORTMAP, 100003, 4, "tcp", () -> {
+                    inLookup.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return lookup("127.0.0.1.8.1");
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        inLookup.await();
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.getPort(PORTMAP, 100003, 4, "tcp", () -> lookup("127.0.0.1.8.2"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        release.countDown();
+        assertEquals("127.0.0.1.8.1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("127.0.0.1.8.1", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void testVersionCached() {
+        assertEquals(0, cache.getVersion(PORTMAP));
+        cache.setVersion(PORTMAP, OncRpcPortmap.PORTMAP_V4);
+        assertEquals(OncRpcPortmap.PORTMAP_V4, cache.getVersion(PORTMAP));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(601));
+        assertEquals(0, cache.getVersion(PORTMAP));
+    }
+}
@@ -0,0 +1,175 @@
+package org.dcache.oncrpc4j.portmap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RpcbJournalTest {
+
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("rpcb", ".journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".tmp"));
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+            registry.add(new rpcb(100003, 4, "udp", "0.0.0.0.8.1", "superuser"));
+            registry.add(new rpcb(100005, 3, "tcp", "0.0.0.0.8.2", "someone"));
+            registry.remove(100003, 4, "udp", "superuser");
+        }
+
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            assertEquals(2, registry.size());
+            assertEquals("0.0.0.0.8.1", registry.get(100003, 4, "tcp").getAddr());
+            assertNull(registry.get(100003, 4, "udp"));
+            assertEquals("someone", registry.get(100005, 3, "tcp").getOwner());
+        }
+    }
+
+    @Test
+    public void testCompactedOnReplay() throws IOException {
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            for (int i = 0; i < 100; i++) {
+                registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+                registry.remove(100003, 4, "tcp", "superuser");
+            }
+            registry.add(new rpcb(100005, 3, "tcp", "0.0.0.0.8.2", "someone"));
+            assertEquals(201, journal.records());
+        }
+
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            assertEquals(1, journal.records());
+            assertNotNull(registry.get(100005, 3, "tcp"));
+
+            registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+            assertEquals(2, journal.records());
+        }
+
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            assertEquals(2, new RpcbRegistry(journal).size());
+        }
+    }
+
+    @Test
+    public void testCompactedOnUpdate() throws IOException {
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            registry.add(new rpcb(100005, 3, "tcp", "0.0.0.0.8.2", "someone"));
+            for (int i = 0; i < 2000; i++) {
+                registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+                registry.remove(100003, 4, "tcp", "superuser");
+            }
+            assertEquals(1, registry.size());
+            assertTrue(journal.records() < 2048);
+        }
+
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            assertEquals(1, registry.size());
+            assertNotNull(registry.get(100005, 3, "tcp"));
+        }
+    }
+
+    @Test
+    public void testCorruptedRecordIgnored() throws IOException {
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            journal.append(RpcbJournal.ADD, new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+            journal.append(RpcbJournal.ADD, new rpcb(100005, 3, "tcp", "0.0.0.0.8.2", "someone"));
+        }
+
+        // corrupt the length of netid in the last record
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer len = ByteBuffer.allocate(4);
+            channel.read(len, 8);
+            len.flip();
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f, 0x7f, 0x7f, 0x7f}), 8 + 4 + len.getInt() + 16);
+        }
+
+        List<rpcb> replayed = new ArrayList<>();
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            journal.replay((op, service) -> replayed.add(service));
+            assertEquals(1, journal.records());
+
+            journal.append(RpcbJournal.ADD, new rpcb(100005, 3, "udp", "0.0.0.0.8.2", "someone"));
+        }
+        assertEquals(1, replayed.size());
+        assertEquals(100003, replayed.get(0).getProg());
+
+        replayed.clear();
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            journal.replay((op, service) -> replayed.add(service));
+        }
+        assertEquals(2, replayed.size());
+        assertEquals("udp", replayed.get(1).getNetid());
+    }
+
+    @Test
+    public void testOversizedRegistrationRefused() throws IOException {
+        String owner = String.join("", Collections.nCopies(5000, "x"));
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+            assertFalse(registry.add(new rpcb(100005, 3, "tcp", "0.0.0.0.8.2", owner)));
+            registry.add(new rpcb(100021, 4, "tcp", "0.0.0.0.8.3", "superuser"));
+            assertEquals(2, journal.records());
+        }
+
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            assertEquals(2, registry.size());
+            assertNotNull(registry.get(100021, 4, "tcp"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOversizedRecordNotAppended() throws IOException {
+        String owner = String.join("", Collections.nCopies(5000, "x"));
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            journal.append(RpcbJournal.ADD, new rpcb(100005, 3, "tcp", "0.0.0.0.8.2", owner));
+        }
+    }
+
+    @Test
+    public void testGrow() throws IOException {
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            RpcbRegistry registry = new RpcbRegistry(journal);
+            for (int i = 0; i < 2000; i++) {
+                registry.add(new rpcb(200000 + i, 1, "tcp", "0.0.0.0.8.1", "superuser"));
+            }
+        }
+
+        try (RpcbJournal journal = new RpcbJournal(path)) {
+            assertEquals(2000, new RpcbRegistry(journal).size());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.dcache.oncrpc4j.portmap;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RpcbRegistryTest {
+
+    private RpcbRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new RpcbRegistry();
+    }
+
+    @Test
+    public void testAddAndGet() {
+        rpcb service = new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser");
+        assertTrue(registry.add(service));
+        assertSame(service, registry.get(100003, 4, "tcp"));
+        assertNull(registry.get(100003, 4, "udp"));
+        assertNull(registry.get(100003, 3, "tcp"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testAddDuplicate() {
+        rpcb service = new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser");
+        assertTrue(registry.add(service));
+        assertFalse(registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.2", "someone")));
+        assertSame(service, registry.get(100003, 4, "tcp"));
+        assertTrue(registry.getByOwner("someone").isEmpty());
+    }
+
+    @Test
+    public void testRemoveAllNetids() {
+        registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+        registry.add(new rpcb(100003, 4, "udp", "0.0.0.0.8.1", "superuser"));
+        registry.add(new rpcb(100003, 3, "tcp", "0.0.0.0.8.1", "superuser"));
+
+        List<rpcb> removed = registry.remove(100003, 4, null, "superuser");
+        assertEquals(2, removed.size());
+        assertNull(registry.get(100003, 4, "tcp"));
+        assertNull(registry.get(100003, 4, "udp"));
+        assertNotNull(registry.get(100003, 3, "tcp"));
+        assertEquals(1, registry.getByOwner("superuser").size());
+    }
+
+    @Test
+    public void testRemoveSingleNetid() {
+        registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+        registry.add(new rpcb(100003, 4, "udp", "0.0.0.0.8.1", "superuser"));
+
+        assertEquals(1, registry.remove(100003, 4, "udp", "superuser").size());
+        assertNotNull(registry.get(100003, 4, "tcp"));
+        assertNull(registry.get(100003, 4, "udp"));
+    }
+
+    @Test
+    public void testRemoveByOtherOwner() {
+        registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+
+        assertTrue(registry.remove(100003, 4, null, "someone").isEmpty());
+        assertNotNull(registry.get(100003, 4, "tcp"));
+    }
+
+    @Test
+    public void testRemoveIfRegistered() {
+        rpcb service = new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser");
+        registry.add(service);
+
+        assertTrue(registry.removeIfRegistered(service));
+        assertNull(registry.get(100003, 4, "tcp"));
+        assertTrue(registry.getByOwner("superuser").isEmpty());
+        assertFalse(registry.removeIfRegistered(service));
+    }
+
+    @Test
+    public void testRemoveIfRegisteredKeepsReRegistered() {
+        rpcb probed = new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser");
+        registry.add(probed);
+
+        // the service re-registers at a new address
+        registry.remove(100003, 4, "tcp", "superuser");
+        registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.2", "superuser"));
+
+        assertFalse(registry.removeIfRegistered(probed));
+        assertEquals("0.0.0.0.8.2", registry.get(100003, 4, "tcp").getAddr());
+        assertEquals(1, registry.getByOwner("superuser").size());
+    }
+
+    @Test
+    public void testListIsSnapshot() {
+        registry.add(new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser"));
+        List<rpcb> services = registry.list();
+        registry.add(new rpcb(100003, 4, "udp", "0.0.0.0.8.1", "superuser"));
+
+        assertEquals(1, services.size());
+        assertEquals(2, registry.list().size());
+    }
+
+    @Test
+    public void testLookupWhileModified() throws InterruptedException {
+        rpcb stable = new rpcb(100003, 4, "tcp", "0.0.0.0.8.1", "superuser");
+        registry.add(stable);
+
+        AtomicBoolean failed = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            while (done.getCount() > 0) {
+                if (registry.get(100003, 4, "tcp") != stable) {
+                    failed.set(true);
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 10000; i++) {
+            registry.add(new rpcb(100005, i, "tcp", "0.0.0.0.8.2", "someone"));
+            registry.remove(100005, i, null, "someone");
+        }
+        done.countDown();
+        reader.join();
+
+        assertFalse(failed.get());
+        assertEquals(1, registry.size());
+        assertTrue(registry.getByOwner("someone").isEmpty());
+    }
+}
@@ -0,0 +1,282 @@
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.IOException;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CallWindowTest {
+
+    private static final int PROGNUM = 100017;
+    private static final int PROGVER = 1;
+
+    private static final int LOST = 1;
+
+    private final AtomicInteger received = new AtomicInteger();
+
+    private OncRpcSvc svc;
+    private OncRpcClient client;
+
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (svc != null) {
+            svc.stop();
+        }
+    }
+
+    @Test
+    public void testTryAcquire() {
+        CallWindow window = new CallWindow(2);
+        assertTrue(window.tryAcquire());
+        assertTrue(window.tryAcquire());
+        assertFalse(window.tryAcquire());
+        assertEquals(2, window.getInUse());
+        assertEquals(1.0, window.getUtilisation(), 0.0);
+
+        window.release();
+        assertEquals(1, window.getInUse());
+        assertTrue(window.tryAcquire());
+        assertEquals(3, window.getAcquired());
+    }
+
+    @Test
+    public void testQueuedUntilRelease() {
+        CallWindow window = new CallWindow(1);
+        AtomicInteger started = new AtomicInteger();
+
+        window.acquire(started::incrementAndGet);
+        window.acquire(started::incrementAndGet);
+        assertEquals(1, started.get());
+        assertEquals(1, window.getWaiting());
+        assertEquals(1, window.getDelayed());
+
+        // permit passed to the waiter
+        window.release();
+        assertEquals(2, started.get());
+        assertEquals(1, window.getInUse());
+        assertEquals(0, window.getWaiting());
+
+        window.release();
+        assertEquals(0, window.getInUse());
+    }
+
+    @Test
+    public void testManyWaitersReleasedWithoutRecursion() {
+        CallWindow window = new CallWindow(1);
+        AtomicInteger started = new AtomicInteger();
+
+        assertTrue(window.tryAcquire());
+        for (int i = 0; i < 100_000; i++) {
+            // each waiter returns its permit right away, like a call on a closed transport
+            window.acquire(() -> {
+                started.incrementAndGet();
+                window.release();
+            });
+        }
+
+        window.release();
+        assertEquals(100_000, started.get());
+        assertEquals(0, window.getWaiting());
+        assertEquals(0, window.getInUse());
+    }
+
+    @Test
+    public void testTimedAcquire() throws InterruptedException {
+        CallWindow window = new CallWindow(1);
+        assertTrue(window.tryAcquire(1, TimeUnit.SECONDS));
+        assertFalse(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+        assertEquals(0, window.getWaiting());
+
+        new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            window.release();
+        }).start();
+        assertTrue(window.tryAcquire(5, TimeUnit.SECONDS));
+        assertEquals(1, window.getInUse());
+    }
+
+    @Test
+    public void testAsyncCallsQueued() throws Exception {
+        RpcCall call = startAndConnect(2);
+        CallWindow window = call.getTransport().getCallWindow();
+
+        for (int i = 0; i < 3; i++) {
+            call.call(LOST, XdrVoid.XDR_VOID, new Ignore(), 200, TimeUnit.MILLISECONDS);
+        }
+        waitFor(() -> received.get() == 2);
+        assertEquals(2, received.get());
+        assertEquals(1, window.getWaiting());
+
+        // the third call is sent when one of the first two times out
+        waitFor(() -> received.get() == 3);
+        assertEquals(3, received.get());
+        waitFor(() -> window.getInUse() == 0);
+        assertEquals(0, window.getInUse());
+    }
+
+    @Test
+    public void testExpiredWhileQueuedNotSent() throws Exception {
+        RpcCall call = startAndConnect(1);
+        CallWindow window = call.getTransport().getCallWindow();
+        Failures failures = new Failures();
+
+        call.call(LOST, XdrVoid.XDR_VOID, new Ignore(), 500, TimeUnit.MILLISECONDS);
+        call.call(LOST, XdrVoid.XDR_VOID, failures, 100, TimeUnit.MILLISECONDS);
+
+        waitFor(() -> failures.count.get() == 1);
+        assertEquals(1, failures.count.get());
+        assertTrue(failures.last instanceof TimeoutException);
+
+        // the slot of the first call is returned to the window, not passed to the expired one
+        waitFor(() -> window.getInUse() == 0);
+        assertEquals(0, window.getInUse());
+        assertEquals(0, window.getWaiting());
+
+        // give the server a chance to receive a call, which must not be sent
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    public void testQueuedCallTimesOutWhileWindowFull() throws Exception {
+        RpcCall call = startAndConnect(1);
+        CallWindow window = call.getTransport().getCallWindow();
+        Failures failures = new Failures();
+
+        // never replied, never times out
+        call.call(LOST, XdrVoid.XDR_VOID, new Ignore());
+        waitFor(() -> received.get() == 1);
+        call.call(LOST, XdrVoid.XDR_VOID, failures, 100, TimeUnit.MILLISECONDS);
+
+        waitFor(() -> failures.count.get() == 1);
+        assertEquals(1, failures.count.get());
+        assertTrue(failures.last instanceof TimeoutException);
+        assertEquals(0, window.getWaiting());
+        assertEquals(1, window.getInUse());
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    public void testCancelWaiter() {
+        CallWindow window = new CallWindow(1);
+        AtomicInteger runs = new AtomicInteger();
+        Runnable waiter = runs::incrementAndGet;
+
+        assertTrue(window.tryAcquire());
+        window.acquire(waiter);
+        assertTrue(window.cancel(waiter));
+        assertFalse(window.cancel(waiter));
+
+        window.release();
+        assertEquals(0, runs.get());
+        assertEquals(0, window.getInUse());
+    }
+
+    @Test
+    public void testManyCallsQueuedOnClosedTransport() throws Exception {
+        RpcCall call = startAndConnect(1);
+        CallWindow window = call.getTransport().getCallWindow();
+        Failures failures = new Failures();
+
+        call.call(LOST, XdrVoid.XDR_VOID, failures);
+        waitFor(() -> received.get() == 1);
+        for (int i = 0; i < 10_000; i++) {
+            call.call(LOST, XdrVoid.XDR_VOID, failures);
+        }
+        assertEquals(10_000, window.getWaiting());
+
+        // disconnect fails the outstanding call and the queued calls are sent to a closed connection
+        svc.stop();
+        svc = null;
+        waitFor(() -> failures.count.get() == 10_001);
+        assertEquals(10_001, failures.count.get());
+        assertEquals(0, window.getWaiting());
+        assertEquals(0, window.getInUse());
+    }
+
+    @Test
+    public void testSyncCallBlocked() throws Exception {
+        RpcCall call = startAndConnect(1);
+        call.call(LOST, XdrVoid.XDR_VOID, XdrVoid.class);
+
+        try {
+            call.call(LOST, XdrVoid.XDR_VOID, XdrVoid.XDR_VOID, 100, TimeUnit.MILLISECONDS);
+            fail("TimeoutException expected");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        assertEquals(1, received.get());
+    }
+
+    private RpcCall startAndConnect(int window) throws IOException {
+        RpcDispatchable lost = (RpcCall call) -> received.incrementAndGet();
+
+        svc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withPort(0)
+                .withBindAddress("127.0.0.1")
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), lost)
+                .build();
+        svc.start();
+
+        client = OncRpcClient.newBuilder()
+                .withTCP()
+                .withCallWindow(window)
+                .build(svc.getInetSocketAddress(IpProtocolType.TCP));
+        return new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), client.connect());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private static class Failures implements CompletionHandler<RpcReply, RpcTransport> {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile Throwable last;
+
+        @Override
+        public void completed(RpcReply result, RpcTransport attachment) {
+        }
+
+        @Override
+        public void failed(Throwable exc, RpcTransport attachment) {
+            last = exc;
+            count.incrementAndGet();
+        }
+    }
+
+    private static class Ignore implements CompletionHandler<RpcReply, RpcTransport> {
+
+        @Override
+        public void completed(RpcReply result, RpcTransport attachment) {
+        }
+
+        @Override
+        public void failed(Throwable exc, RpcTransport attachment) {
+        }
+    }
+}
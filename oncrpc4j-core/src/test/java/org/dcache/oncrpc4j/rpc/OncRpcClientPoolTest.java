@@ -0,0 +1,139 @@
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrString;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OncRpcClientPoolTest {
+
+    private static final int PROGNUM = 100017;
+    private static final int PROGVER = 1;
+
+    private static final int ECHO = 1;
+    private static final int LOST = 2;
+
+    private final Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+
+    private OncRpcSvc svc1;
+    private OncRpcSvc svc2;
+    private OncRpcClientPool pool;
+    private RpcCall call;
+
+    @Before
+    public void setUp() throws IOException {
+        svc1 = startServer();
+        svc2 = startServer();
+
+        pool = OncRpcClientPool.newBuilder()
+                .withTCP()
+                .withEndpoint(svc1.getInetSocketAddress(IpProtocolType.TCP))
+                .withEndpoint(svc2.getInetSocketAddress(IpProtocolType.TCP))
+                .withConnectionsPerEndpoint(2)
+                .withConnectTimeout(5, TimeUnit.SECONDS)
+                .build();
+        call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), pool.connect());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pool.close();
+        svc1.stop();
+        svc2.stop();
+    }
+
+    private OncRpcSvc startServer() throws IOException {
+        RpcDispatchable echo = (RpcCall call) -> {
+            clients.add(call.getTransport().getRemoteSocketAddress());
+            switch (call.getProcedure()) {
+                case ECHO: {
+                    XdrString s = new XdrString();
+                    call.retrieveCall(s);
+                    call.reply(s);
+                    break;
+                }
+                case LOST: {
+                    // no reply
+                    break;
+                }
+            }
+        };
+
+        OncRpcSvc svc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withPort(0)
+                .withBindAddress("127.0.0.1")
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), echo)
+                .build();
+        svc.start();
+        return svc;
+    }
+
+    @Test
+    public void testLeastOutstandingConnectionUsed() throws Exception {
+        assertEquals(4, pool.getOpenConnections());
+
+        for (int i = 0; i < 4; i++) {
+            call.call(LOST, XdrVoid.XDR_VOID, XdrVoid.class);
+        }
+
+        // each pending call occupies one connection
+        waitFor(() -> clients.size() == 4);
+        assertEquals(4, clients.size());
+    }
+
+    @Test
+    public void testClosedEndpointSkipped() throws Exception {
+        // a connection, which is not accepted by the server yet, survives its shutdown
+        for (int i = 0; i < 4; i++) {
+            call.call(ECHO, new XdrString("hello"), XdrString.class);
+        }
+        waitFor(() -> clients.size() == 4);
+
+        svc2.stop();
+        waitFor(() -> pool.getOpenConnections() == 2);
+
+        for (int i = 0; i < 10; i++) {
+            XdrString reply = new XdrString();
+            call.call(ECHO, new XdrString("hello"), reply, 5, TimeUnit.SECONDS);
+            assertEquals("hello", reply.stringValue());
+        }
+    }
+
+    @Test
+    public void testGettersDoNotSelect() throws Exception {
+        RpcTransport transport = call.getTransport();
+
+        InetSocketAddress local = transport.getLocalSocketAddress();
+        for (int i = 0; i < 8; i++) {
+            assertEquals(local, transport.getLocalSocketAddress());
+            assertTrue(transport.isStreaming());
+            assertFalse(transport.isTLS());
+        }
+
+        // no connection is closed, thus no repair scheduled
+        assertEquals(4, pool.getOpenConnections());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        assertTrue("condition not met in time", condition.getAsBoolean());
+    }
+}
@@ -5,10 +5,14 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.channels.CompletionHandler;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.junit.Before;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -23,7 +27,7 @@ public class ReplyQueueTest {
     @Before
     public void setUp() {
         replyQueue = new ReplyQueue();
-        addr = mock(InetSocketAddress.class);
+        addr = InetSocketAddress.createUnresolved("localhost", 1111);
         handler = mock(CompletionHandler.class);
     }
 
@@ -58,4 +62,39 @@ public class ReplyQueueTest {
         assertTrue(replyQueue.getTimeoutQueue().isEmpty());
     }
 
+    @Test
+    public void testBroadcastKeyKeptUntilDeadline() throws InterruptedException {
+
+        AtomicInteger deadlines = new AtomicInteger();
+        replyQueue.registerBroadcastKey(1, addr, handler, deadlines::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+
+        assertSame(handler, replyQueue.get(1));
+        assertSame(handler, replyQueue.get(1));
+        assertEquals(0, deadlines.get());
+
+        TimeUnit.SECONDS.sleep(1);
+        assertNull(replyQueue.get(1));
+        assertTrue(replyQueue.getPendingRequests().isEmpty());
+        assertEquals(1, deadlines.get());
+    }
+
+    @Test
+    public void testInFlight() throws EOFException {
+
+        SocketAddress other = InetSocketAddress.createUnresolved("localhost", 2222);
+        replyQueue.registerKey(1, addr, handler, 1, TimeUnit.MINUTES);
+        replyQueue.registerKey(2, addr, handler);
+        replyQueue.registerKey(3, other, handler);
+
+        assertEquals(2, replyQueue.inFlight(addr));
+        assertEquals(1, replyQueue.inFlight(other));
+
+        replyQueue.get(1);
+        replyQueue.unregister(3);
+        assertEquals(1, replyQueue.inFlight(addr));
+        assertEquals(0, replyQueue.inFlight(other));
+
+        replyQueue.handleDisconnect(addr);
+        assertEquals(0, replyQueue.inFlight(addr));
+    }
 }
@@ -0,0 +1,129 @@
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.BindException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrString;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResilientRpcTransportTest {
+
+    private static final int PROGNUM = 100017;
+    private static final int PROGVER = 1;
+
+    private static final int ECHO = 1;
+    private static final int UPDATE = 2;
+
+    private final List<Integer> xids = new CopyOnWriteArrayList<>();
+
+    private OncRpcSvc svc;
+    private OncRpcClient client;
+    private RpcCall call;
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        svc = startServer(0, false);
+        port = svc.getInetSocketAddress(IpProtocolType.TCP).getPort();
+
+        client = OncRpcClient.newBuilder()
+                .withTCP()
+                .withConnectTimeout(5, TimeUnit.SECONDS)
+                .build(svc.getInetSocketAddress(IpProtocolType.TCP));
+        call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), client.connectResilient(p -> p == ECHO));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        svc.stop();
+    }
+
+    private OncRpcSvc startServer(int port, boolean reply) throws IOException {
+        RpcDispatchable echo = (RpcCall call) -> {
+            xids.add(call.getXid());
+            XdrString s = new XdrString();
+            call.retrieveCall(s);
+            if (reply) {
+                call.reply(s);
+            }
+        };
+
+        OncRpcSvc svc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withPort(port)
+                .withBindAddress("127.0.0.1")
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), echo)
+                .build();
+        svc.start();
+        return svc;
+    }
+
+    @Test
+    public void testIdempotentCallReplayed() throws Exception {
+        XdrString reply = new XdrString();
+        Future<XdrString> pending = call.call(ECHO, new XdrString("hello"), XdrString.class);
+        waitFor(() -> xids.size() == 1);
+
+        svc.stop();
+        svc = restartServer();
+
+        assertEquals("hello", pending.get(10, TimeUnit.SECONDS).stringValue());
+        assertEquals(2, xids.size());
+        assertEquals(xids.get(0), xids.get(1));
+
+        call.call(ECHO, new XdrString("world"), reply, 10, TimeUnit.SECONDS);
+        assertEquals("world", reply.stringValue());
+    }
+
+    @Test
+    public void testNonIdempotentCallFails() throws Exception {
+        Future<XdrVoid> pending = call.call(UPDATE, new XdrString("hello"), XdrVoid.class);
+        waitFor(() -> xids.size() == 1);
+
+        svc.stop();
+        try {
+            pending.get(10, TimeUnit.SECONDS);
+            fail("EOFException expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+    }
+
+    private OncRpcSvc restartServer() throws IOException, InterruptedException {
+        // the listening socket of the stopped server is closed asynchronously
+        for (int i = 0; ; i++) {
+            try {
+                return startServer(port, true);
+            } catch (BindException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrString;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetransmissionPolicyTest {
+
+    private static final int PROGNUM = 100017;
+    private static final int PROGVER = 1;
+
+    private static final int ECHO = 1;
+    private static final int LOST = 2;
+
+    private static final InetSocketAddress REMOTE = InetSocketAddress.createUnresolved("localhost", 1111);
+
+    private final List<Integer> xids = new CopyOnWriteArrayList<>();
+
+    private OncRpcSvc svc;
+    private OncRpcClient client;
+
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (svc != null) {
+            svc.stop();
+        }
+    }
+
+    @Test
+    public void testInitialTimeout() {
+        RetransmissionPolicy policy = new RetransmissionPolicy();
+        assertEquals(RetransmissionPolicy.DEFAULT_INITIAL_TIMEOUT, policy.getTimeout(REMOTE, ECHO, 0));
+        assertEquals(2 * RetransmissionPolicy.DEFAULT_INITIAL_TIMEOUT, policy.getTimeout(REMOTE, ECHO, 1));
+        assertEquals(4 * RetransmissionPolicy.DEFAULT_INITIAL_TIMEOUT, policy.getTimeout(REMOTE, ECHO, 2));
+    }
+
+    @Test
+    public void testTimeoutBounded() {
+        RetransmissionPolicy policy = new RetransmissionPolicy();
+        assertEquals(RetransmissionPolicy.DEFAULT_MAX_TIMEOUT, policy.getTimeout(REMOTE, ECHO, 100));
+
+        policy.update(REMOTE, ECHO, 1);
+        assertEquals(RetransmissionPolicy.DEFAULT_MIN_TIMEOUT, policy.getTimeout(REMOTE, ECHO, 0));
+    }
+
+    @Test
+    public void testEstimatedTimeout() {
+        RetransmissionPolicy policy = new RetransmissionPolicy();
+        long rtt = TimeUnit.MILLISECONDS.toNanos(200);
+        for (int i = 0; i < 100; i++) {
+            policy.update(REMOTE, ECHO, rtt);
+        }
+
+        long timeout = policy.getTimeout(REMOTE, ECHO, 0);
+        assertTrue(timeout >= rtt);
+        assertTrue(timeout < 2 * rtt);
+        // other procedures are not affected
+        assertEquals(RetransmissionPolicy.DEFAULT_INITIAL_TIMEOUT, policy.getTimeout(REMOTE, LOST, 0));
+    }
+
+    @Test
+    public void testProcedureClass() {
+        RetransmissionPolicy policy = new RetransmissionPolicy(1, 1, 60, TimeUnit.SECONDS, 3, p -> 0);
+        policy.update(REMOTE, ECHO, TimeUnit.SECONDS.toNanos(2));
+        assertEquals(policy.getTimeout(REMOTE, ECHO, 0), policy.getTimeout(REMOTE, LOST, 0));
+    }
+
+    @Test
+    public void testLostRequestRetransmitted() throws Exception {
+        RpcCall call = startAndConnect();
+        call.setRetransmissionPolicy(new RetransmissionPolicy(100, 10, 1000, TimeUnit.MILLISECONDS, 3, p -> p));
+
+        XdrString reply = new XdrString();
+        call.call(ECHO, new XdrString("hello"), reply, 5, TimeUnit.SECONDS);
+
+        assertEquals("hello", reply.stringValue());
+        assertEquals(2, xids.size());
+        assertEquals(xids.get(0), xids.get(1));
+    }
+
+    @Test
+    public void testRetransmissionsExhausted() throws Exception {
+        RpcCall call = startAndConnect();
+        call.setRetransmissionPolicy(new RetransmissionPolicy(50, 10, 1000, TimeUnit.MILLISECONDS, 2, p -> p));
+
+        try {
+            call.call(LOST, new XdrString("hello"), new XdrString(), 5, TimeUnit.SECONDS);
+            fail("TimeoutException expected");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        assertEquals(3, xids.size());
+    }
+
+    private RpcCall startAndConnect() throws IOException {
+        RpcDispatchable echo = (RpcCall call) -> {
+            xids.add(call.getXid());
+            XdrString s = new XdrString();
+            call.retrieveCall(s);
+            // the first request is lost
+            if (call.getProcedure() == ECHO && xids.size() > 1) {
+                call.reply(s);
+            }
+        };
+
+        svc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withUDP()
+                .withPort(0)
+                .withBindAddress("127.0.0.1")
+                .withSameThreadIoStrategy()
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), echo)
+                .build();
+        svc.start();
+
+        client = OncRpcClient.newBuilder()
+                .withUDP()
+                .build(svc.getInetSocketAddress(IpProtocolType.UDP));
+        return new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), client.connect());
+    }
+}
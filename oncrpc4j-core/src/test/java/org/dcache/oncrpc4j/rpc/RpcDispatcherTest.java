@@ -5,6 +5,9 @@ import java.io.IOException;
 import java.security.AccessController;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import javax.security.auth.Subject;
@@ -132,4 +135,57 @@ public class RpcDispatcherTest {
         dispatcher.handleRead(context);
         verify(callInterceptor).accept(any());
     }
+
+    @Test
+    public void testExpiredCallDropped() throws IOException {
+
+        AtomicBoolean executed = new AtomicBoolean();
+        programs.put(PROG_ONE, (call) -> executed.set(true));
+
+        Map<OncRpcProgram, Long> maxQueueResidence = new HashMap<>();
+        maxQueueResidence.put(PROG_ONE, TimeUnit.SECONDS.toNanos(1));
+        dispatcher = new RpcDispatcher(MoreExecutors.newDirectExecutorService(), programs, true,
+              callInterceptor, maxQueueResidence);
+
+        when(call.getArrivalTime()).thenReturn(System.nanoTime() - TimeUnit.SECONDS.toNanos(2));
+        dispatcher.handleRead(context);
+        assertFalse("expired call executed", executed.get());
+        verify(callInterceptor, never()).accept(any());
+
+        when(call.getArrivalTime()).thenReturn(System.nanoTime());
+        dispatcher.handleRead(context);
+        assertTrue("call not executed", executed.get());
+    }
+
+    @Test
+    public void testProcedureListenerAndExecutor() throws IOException {
+
+        RpcProcedureDescriptor descriptor = new RpcProcedureDescriptor(1, 1, 0, "null",
+                XdrVoid.class, XdrVoid.class, true, () -> XdrVoid.XDR_VOID);
+        RpcDispatchable program = new RpcDispatchable() {
+            @Override
+            public void dispatchOncRpcCall(RpcCall call) throws IOException {
+                throw new RpcException(RpcRejectStatus.AUTH_ERROR, "", XdrVoid.XDR_VOID);
+            }
+
+            @Override
+            public RpcProcedureDescriptor getProcedureDescriptor(int version, int procedure) {
+                return descriptor;
+            }
+        };
+        programs.put(PROG_ONE, program);
+
+        RpcProcedureListener listener = mock(RpcProcedureListener.class);
+        ExecutorService executor = mock(ExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(executor).execute(any());
+        dispatcher = new RpcDispatcher(MoreExecutors.newDirectExecutorService(), programs, true,
+              callInterceptor, new HashMap<>(), listener, procedure -> executor);
+
+        dispatcher.handleRead(context);
+        verify(executor).execute(any());
+        verify(listener).procedureCompleted(same(descriptor), same(call), anyLong(), any(RpcException.class));
+    }
 }
@@ -0,0 +1,169 @@
+package org.dcache.oncrpc4j.rpc.gss;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.dcache.oncrpc4j.rpc.RpcAuthType;
+import org.dcache.oncrpc4j.rpc.RpcAuthVerifier;
+import org.dcache.oncrpc4j.rpc.RpcMessageType;
+import org.dcache.oncrpc4j.util.Bytes;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.MessageProp;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GssProtocolFilterTest {
+
+    private final GssProtocolFilter filter = new GssProtocolFilter(null);
+    private GSSContext context;
+
+    @Before
+    public void setUp() throws GSSException {
+        // the MIC of a message is its SHA-256 digest
+        context = mock(GSSContext.class);
+        when(context.getMIC(any(byte[].class), anyInt(), anyInt(), any(MessageProp.class)))
+                .thenAnswer(i -> digest(i.getArgument(0), i.getArgument(1), i.getArgument(2)));
+        doAnswer(i -> {
+            byte[] token = Arrays.copyOfRange((byte[]) i.getArgument(0), i.getArgument(1),
+                    (int) i.getArgument(1) + (int) i.getArgument(2));
+            if (!Arrays.equals(token, digest(i.getArgument(3), i.getArgument(4), i.getArgument(5)))) {
+                throw new GSSException(GSSException.BAD_MIC);
+            }
+            return null;
+        }).when(context).verifyMIC(any(byte[].class), anyInt(), anyInt(), any(byte[].class), anyInt(), anyInt(),
+                any(MessageProp.class));
+    }
+
+    @Test
+    public void testValidMicOnHeapBuffer() throws Exception {
+        filter.validateVerifier(decode(message(false), false), context);
+    }
+
+    @Test
+    public void testValidMicOnDirectBuffer() throws Exception {
+        filter.validateVerifier(decode(message(false), true), context);
+    }
+
+    @Test
+    public void testCorruptedMicOnHeapBuffer() throws Exception {
+        assertBadMic(decode(message(true), false));
+    }
+
+    @Test
+    public void testCorruptedMicOnDirectBuffer() throws Exception {
+        assertBadMic(decode(message(true), true));
+    }
+
+    @Test
+    public void testCorruptedHeaderOnDirectBuffer() throws Exception {
+        byte[] message = message(false);
+        // the procedure number of the RPC header
+        message[23] ^= 1;
+        assertBadMic(decode(message, true));
+    }
+
+    @Test
+    public void testSequenceVerifier() throws Exception {
+        RpcAuthGss auth = decode(message(false), false);
+
+        RpcAuthVerifier verifier = filter.sequenceVerifier(auth, context, 17);
+        byte[] sequence = new byte[Integer.BYTES];
+        Bytes.putInt(sequence, 0, 17);
+
+        assertEquals(RpcAuthType.RPCGSS_SEC, verifier.getType());
+        assertArrayEquals(digest(sequence, 0, sequence.length), verifier.getBody().toBytes());
+    }
+
+    private void assertBadMic(RpcAuthGss auth) {
+        try {
+            filter.validateVerifier(auth, context);
+            fail("GSSException expected");
+        } catch (GSSException e) {
+            assertEquals(GSSException.BAD_MIC, e.getMajor());
+        }
+    }
+
+    /*
+     * Build a RPCSEC_GSS call, whose verifier holds the MIC of the header and credential.
+     */
+    private static byte[] message(boolean corruptMic) throws Exception {
+        Xdr credential = new Xdr(64);
+        credential.beginEncoding();
+        credential.xdrEncodeInt(1); // version
+        credential.xdrEncodeInt(GssProc.RPCSEC_GSS_DATA);
+        credential.xdrEncodeInt(5); // sequence
+        credential.xdrEncodeInt(RpcGssService.RPC_GSS_SVC_NONE);
+        credential.xdrEncodeDynamicOpaque(Opaque.forBytes(new byte[]{1, 2, 3, 4}));
+        credential.endEncoding();
+        byte[] body = credential.getBytes();
+
+        Xdr header = new Xdr(128);
+        header.beginEncoding();
+        header.xdrEncodeInt(0x1234); // xid
+        header.xdrEncodeInt(RpcMessageType.CALL);
+        header.xdrEncodeInt(2); // rpc version
+        header.xdrEncodeInt(100003); // program
+        header.xdrEncodeInt(4); // version
+        header.xdrEncodeInt(1); // procedure
+        header.xdrEncodeInt(RpcAuthType.RPCGSS_SEC);
+        header.xdrEncodeDynamicOpaque(Opaque.forBytes(body));
+        header.endEncoding();
+        byte[] headerBytes = header.getBytes();
+
+        byte[] mic = digest(headerBytes, 0, headerBytes.length);
+        if (corruptMic) {
+            mic[0] ^= 1;
+        }
+
+        Xdr xdr = new Xdr(256);
+        xdr.beginEncoding();
+        for (int i = 0; i < headerBytes.length; i += Integer.BYTES) {
+            xdr.xdrEncodeInt(Bytes.getInt(headerBytes, i));
+        }
+        xdr.xdrEncodeInt(RpcAuthType.RPCGSS_SEC);
+        xdr.xdrEncodeDynamicOpaque(Opaque.forBytes(mic));
+        xdr.endEncoding();
+        return xdr.getBytes();
+    }
+
+    /*
+     * Decode the credential and verifier of the given call from an array-backed or a direct buffer.
+     */
+    private static RpcAuthGss decode(byte[] message, boolean direct) throws Exception {
+        ByteBuffer bb = direct ? ByteBuffer.allocateDirect(message.length) : ByteBuffer.allocate(message.length);
+        bb.put(message).flip();
+        Buffer buffer = new ByteBufferWrapper(bb);
+
+        Xdr xdr = new Xdr(buffer);
+        xdr.beginDecoding();
+        // skip RPC header up to credential flavour
+        for (int i = 0; i < 7; i++) {
+            xdr.xdrDecodeInt();
+        }
+        RpcAuthGss auth = new RpcAuthGss();
+        auth.xdrDecode(xdr);
+        return auth;
+    }
+
+    private static byte[] digest(byte[] bytes, int offset, int len) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(bytes, offset, len);
+        return digest.digest();
+    }
+}
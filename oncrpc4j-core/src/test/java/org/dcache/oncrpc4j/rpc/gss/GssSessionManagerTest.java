@@ -0,0 +1,91 @@
+package org.dcache.oncrpc4j.rpc.gss;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosPrincipal;
+
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GssSessionManagerTest {
+
+    private final Opaque handle = Opaque.forBytes(new byte[]{1, 2, 3, 4});
+    private final AtomicInteger logins = new AtomicInteger();
+
+    private RpcTransport transport;
+    private GssSessionManager sessionManager;
+
+    @Before
+    public void setUp() throws GSSException {
+        GSSContext context = mock(GSSContext.class);
+        when(context.isEstablished()).thenReturn(true);
+
+        GSSManager manager = mock(GSSManager.class);
+        when(manager.createContext(any(GSSCredential.class))).thenReturn(context);
+
+        transport = mock(RpcTransport.class);
+        sessionManager = new GssSessionManager((t, c) -> {
+            logins.incrementAndGet();
+            Subject subject = new Subject();
+            subject.getPrincipals().add(new KerberosPrincipal("user@EXAMPLE.ORG"));
+            return subject;
+        }, manager, mock(GSSCredential.class));
+        sessionManager.createContext(handle);
+    }
+
+    @Test
+    public void testSubjectCached() throws GSSException {
+        Subject subject = sessionManager.getSubject(transport, handle);
+
+        assertSame(subject, sessionManager.getSubject(transport, handle));
+        assertEquals(1, logins.get());
+        assertTrue(subject.isReadOnly());
+        assertEquals(1, subject.getPrincipals().size());
+    }
+
+    @Test
+    public void testSubjectExpired() throws Exception {
+        sessionManager.setSubjectCacheTime(50, TimeUnit.MILLISECONDS);
+        Subject subject = sessionManager.getSubject(transport, handle);
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertNotSame(subject, sessionManager.getSubject(transport, handle));
+        assertEquals(2, logins.get());
+    }
+
+    @Test
+    public void testSubjectCacheDisabled() throws GSSException {
+        sessionManager.setSubjectCacheTime(0, TimeUnit.SECONDS);
+
+        sessionManager.getSubject(transport, handle);
+        sessionManager.getSubject(transport, handle);
+        assertEquals(2, logins.get());
+    }
+
+    @Test(expected = GSSException.class)
+    public void testNoSubjectAfterContextDestroyed() throws GSSException {
+        sessionManager.destroyContext(handle);
+        sessionManager.getSubject(transport, handle);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCacheTime() {
+        sessionManager.setSubjectCacheTime(-1, TimeUnit.SECONDS);
+    }
+}
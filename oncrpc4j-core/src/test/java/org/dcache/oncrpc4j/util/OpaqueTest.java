@@ -4,8 +4,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import org.junit.Test;
 
@@ -72,4 +77,27 @@ public class OpaqueTest {
         assertEquals(immutable, immutableToImmutable);
         assertSame(immutable, immutableToImmutable);
     }
+
+    @Test
+    public void testMappedFile() throws Exception {
+        Path file = Files.createTempFile("opaque", ".data");
+        try {
+            Files.write(file, new byte[] {(byte) 0x00, (byte) 0x01, (byte) 0x02, (byte) 0x03, (byte) 0x04});
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                Opaque mapped = Opaque.forMappedFile(channel, 1, 4);
+                Opaque bytesOpaque = Opaque.forBytes(new byte[] {(byte) 0x01, (byte) 0x02, (byte) 0x03, (byte) 0x04});
+
+                assertEquals(4, mapped.numBytes());
+                assertEquals(0x01020304, mapped.intAt(0));
+                assertEquals(bytesOpaque.toBase64(), mapped.toBase64());
+                assertEquals(mapped, bytesOpaque);
+                assertEquals(bytesOpaque, mapped);
+                assertEquals(bytesOpaque.hashCode(), mapped.hashCode());
+                assertSame(mapped, mapped.toImmutableOpaque());
+                assertTrue(mapped.asByteBuffer().isReadOnly());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package org.dcache.oncrpc4j.xdr;
+
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class XdrIntVectorTest {
+
+    @Test
+    public void testDecodeLazy() throws IOException {
+        int[] values = {1, -2, 3, Integer.MAX_VALUE};
+
+        try (Xdr xdr = new Xdr(128)) {
+            xdr.beginEncoding();
+            xdr.xdrEncodeIntVector(values);
+            xdr.xdrEncodeInt(42);
+            xdr.endEncoding();
+
+            xdr.beginDecoding();
+            XdrIntVector vector = new XdrIntVector(xdr);
+            assertEquals(42, xdr.xdrDecodeInt());
+
+            assertEquals(4, vector.size());
+            assertEquals(-2, vector.get(1));
+            assertEquals(Integer.MAX_VALUE, vector.get(3));
+            assertArrayEquals(values, vector.toArray());
+            assertEquals(20, vector.xdrEncodedSize());
+        }
+    }
+
+    @Test
+    public void testReEncode() throws IOException {
+        int[] values = {7, 8, 9};
+
+        try (Xdr in = new Xdr(128); Xdr out = new Xdr(128)) {
+            in.beginEncoding();
+            new XdrIntVector(values).xdrEncode(in);
+            in.endEncoding();
+            in.beginDecoding();
+            XdrIntVector vector = new XdrIntVector(in);
+
+            out.beginEncoding();
+            vector.xdrEncode(out);
+            out.endEncoding();
+            out.beginDecoding();
+            assertArrayEquals(values, out.xdrDecodeIntVector());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() throws IOException {
+        try (Xdr xdr = new Xdr(128)) {
+            xdr.beginEncoding();
+            xdr.xdrEncodeIntVector(new int[]{1});
+            xdr.endEncoding();
+            xdr.beginDecoding();
+            new XdrIntVector(xdr).get(1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.dcache.oncrpc4j.xdr;
+
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class XdrLongVectorTest {
+
+    @Test
+    public void testDecodeLazy() throws IOException {
+        long[] values = {1L, -2L, 3L, Long.MAX_VALUE};
+
+        try (Xdr xdr = new Xdr(128)) {
+            xdr.beginEncoding();
+            xdr.xdrEncodeLongVector(values);
+            xdr.xdrEncodeInt(42);
+            xdr.endEncoding();
+
+            xdr.beginDecoding();
+            XdrLongVector vector = new XdrLongVector(xdr);
+            assertEquals(42, xdr.xdrDecodeInt());
+
+            assertEquals(4, vector.size());
+            assertEquals(-2L, vector.get(1));
+            assertEquals(Long.MAX_VALUE, vector.get(3));
+            assertArrayEquals(values, vector.toArray());
+            assertEquals(36, vector.xdrEncodedSize());
+        }
+    }
+
+    @Test
+    public void testReEncode() throws IOException {
+        long[] values = {7L, 8L, 9L};
+
+        try (Xdr in = new Xdr(128); Xdr out = new Xdr(128)) {
+            in.beginEncoding();
+            new XdrLongVector(values).xdrEncode(in);
+            in.endEncoding();
+            in.beginDecoding();
+            XdrLongVector vector = new XdrLongVector(in);
+
+            out.beginEncoding();
+            vector.xdrEncode(out);
+            out.endEncoding();
+            out.beginDecoding();
+            assertArrayEquals(values, out.xdrDecodeLongVector());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() throws IOException {
+        try (Xdr xdr = new Xdr(128)) {
+            xdr.beginEncoding();
+            xdr.xdrEncodeLongVector(new long[]{1L});
+            xdr.endEncoding();
+            xdr.beginDecoding();
+            new XdrLongVector(xdr).get(1);
+        }
+    }
+}
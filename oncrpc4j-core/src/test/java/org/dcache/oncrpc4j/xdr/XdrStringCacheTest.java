@@ -0,0 +1,75 @@
+package org.dcache.oncrpc4j.xdr;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class XdrStringCacheTest {
+
+    @Test
+    public void testCachedAscii() {
+        XdrStringCache cache = new XdrStringCache(16);
+        byte[] bytes = "xxfile.txtyy".getBytes(StandardCharsets.US_ASCII);
+
+        String first = cache.get(bytes, 2, 8);
+        assertEquals("file.txt", first);
+        assertSame(first, cache.get("file.txt".getBytes(StandardCharsets.US_ASCII), 0, 8));
+    }
+
+    @Test
+    public void testCachedUtf8() {
+        XdrStringCache cache = new XdrStringCache(16);
+        byte[] bytes = "Gr\u00fc\u00dfe".getBytes(StandardCharsets.UTF_8);
+
+        String first = cache.get(bytes, 0, bytes.length);
+        assertEquals("Gr\u00fc\u00dfe", first);
+        assertSame(first, cache.get(bytes.clone(), 0, bytes.length));
+    }
+
+    @Test
+    public void testCacheIsNotAliasedWithInput() {
+        XdrStringCache cache = new XdrStringCache(16);
+        byte[] bytes = "abc".getBytes(StandardCharsets.US_ASCII);
+
+        String first = cache.get(bytes, 0, bytes.length);
+        bytes[0] = 'x';
+        assertEquals("xbc", cache.get(bytes, 0, bytes.length));
+        assertSame(first, cache.get("abc".getBytes(StandardCharsets.US_ASCII), 0, 3));
+    }
+
+    @Test
+    public void testPrefixIsNotAHit() {
+        XdrStringCache cache = new XdrStringCache(1);
+        byte[] bytes = "abcd".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals("abcd", cache.get(bytes, 0, 4));
+        assertEquals("abc", cache.get(bytes, 0, 3));
+        assertEquals("abcd", cache.get(bytes, 0, 4));
+    }
+
+    @Test
+    public void testLongStringsNotCached() {
+        XdrStringCache cache = new XdrStringCache(16, 4);
+        byte[] bytes = "abcdef".getBytes(StandardCharsets.US_ASCII);
+
+        String first = cache.get(bytes, 0, bytes.length);
+        assertEquals("abcdef", first);
+        assertNotSame(first, cache.get(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void testClear() {
+        XdrStringCache cache = new XdrStringCache(16);
+        byte[] bytes = "abc".getBytes(StandardCharsets.US_ASCII);
+
+        String first = cache.get(bytes, 0, bytes.length);
+        cache.clear();
+        assertNotSame(first, cache.get(bytes, 0, bytes.length));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalSize() {
+        new XdrStringCache(0);
+    }
+}
@@ -24,20 +24,36 @@ import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
 import org.dcache.oncrpc4j.util.Bytes;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.asyncqueue.WritableMessage;
 import org.glassfish.grizzly.memory.BuffersBuffer;
 import org.glassfish.grizzly.memory.ByteBufferManager;
+import org.glassfish.grizzly.memory.ByteBufferWrapper;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
 import org.junit.Before;
@@ -202,6 +218,111 @@ public class XdrTest {
         assertEquals("encoded/decoded string do not match", "", decoded);
     }
 
+    private static final String[] STRINGS = {
+        "a", "ab", "abc", "abcd", "file.txt", "Gr\u00fc\u00dfe", "\u65e5\u672c\u8a9e",
+        "smile \ud83d\ude00", "unpaired \ud800 surrogate", "trailing \udc00"
+    };
+
+    @Test
+    public void testStringWireFormat() throws BadXdrOncRpcException {
+
+        Xdr xdr = new Xdr(16);
+        xdr.beginEncoding();
+        for (String s : STRINGS) {
+            xdr.xdrEncodeString(s);
+        }
+        xdr.endEncoding();
+
+        ByteBuffer bb = ByteBuffer.wrap(xdr.getBytes());
+        for (String s : STRINGS) {
+            byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+            assertEquals(expected.length, bb.getInt());
+            byte[] actual = new byte[expected.length];
+            bb.get(actual);
+            assertArrayEquals(expected, actual);
+            for (int i = expected.length; (i & 3) != 0; i++) {
+                assertEquals(0, bb.get());
+            }
+            assertEquals(Xdr.sizeOfString(s), Integer.BYTES + Xdr.sizeOfOpaque(expected.length));
+        }
+
+        xdr.beginDecoding();
+        for (String s : STRINGS) {
+            assertEquals(new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), xdr.xdrDecodeString());
+        }
+        assertFalse(xdr.hasMoreData());
+    }
+
+    @Test
+    public void testStringOnDirectBuffer() throws BadXdrOncRpcException {
+
+        MemoryManager mm = new ByteBufferManager(true, 512, 0);
+        Xdr xdr = new Xdr(mm.allocate(16), mm);
+        xdr.beginEncoding();
+        for (String s : STRINGS) {
+            xdr.xdrEncodeString(s);
+        }
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        for (String s : STRINGS) {
+            assertEquals(new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), xdr.xdrDecodeString());
+        }
+    }
+
+    @Test
+    public void testStringOnCompositeBuffer() throws BadXdrOncRpcException {
+
+        CompositeBuffer buffer = BuffersBuffer.create();
+        buffer.append(allocateBuffer(10));
+        buffer.append(allocateBuffer(10));
+        Xdr xdr = new Xdr(buffer);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.xdrEncodeString("spans both fragments");
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        assertEquals(1, xdr.xdrDecodeInt());
+        assertEquals("spans both fragments", xdr.xdrDecodeString());
+    }
+
+    @Test
+    public void testDecodeStringWithCache() throws BadXdrOncRpcException {
+
+        Xdr xdr = new Xdr(128);
+        xdr.beginEncoding();
+        xdr.xdrEncodeString("file.txt");
+        xdr.xdrEncodeString("Gr\u00fc\u00dfe");
+        xdr.endEncoding();
+
+        xdr.setStringCache(new XdrStringCache(16));
+
+        xdr.beginDecoding();
+        String first = xdr.xdrDecodeString();
+        String firstNonAscii = xdr.xdrDecodeString();
+        xdr.endDecoding();
+
+        xdr.beginDecoding();
+        assertSame(first, xdr.xdrDecodeString());
+        assertSame(firstNonAscii, xdr.xdrDecodeString());
+        assertEquals("file.txt", first);
+        assertEquals("Gr\u00fc\u00dfe", firstNonAscii);
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testDecodeStringWithOverflowingLength() throws BadXdrOncRpcException {
+
+        Xdr xdr = new Xdr(128);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(Integer.MAX_VALUE);
+        xdr.xdrEncodeString("file.txt");
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        xdr.xdrDecodeString();
+    }
+
     @Test
     public void testEncodeDecodeLong() throws BadXdrOncRpcException {
 
@@ -542,6 +663,150 @@ public class XdrTest {
         xdr.xdrEncodeLongFixedVector(new long[]{1, 2}, 3);
     }
 
+    @Test
+    public void testBulkIntVector() throws BadXdrOncRpcException {
+        int[] ints = new int[1000];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 0x01020304;
+        }
+
+        Xdr xdr = new Xdr(128);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(7);
+        xdr.xdrEncodeIntVector(ints);
+        xdr.xdrEncodeIntFixedVector(ints, ints.length);
+        xdr.xdrEncodeInt(8);
+        xdr.endEncoding();
+
+        ByteBuffer bb = ByteBuffer.wrap(xdr.getBytes());
+        assertEquals(7, bb.getInt());
+        assertEquals(ints.length, bb.getInt());
+        for (int i = 0; i < ints.length; i++) {
+            assertEquals(ints[i], bb.getInt());
+        }
+
+        xdr.beginDecoding();
+        assertEquals(7, xdr.xdrDecodeInt());
+        assertArrayEquals(ints, xdr.xdrDecodeIntVector());
+        assertArrayEquals(ints, xdr.xdrDecodeIntFixedVector(ints.length));
+        assertEquals(8, xdr.xdrDecodeInt());
+    }
+
+    @Test
+    public void testBulkLongVector() throws BadXdrOncRpcException {
+        long[] longs = new long[1000];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i * 0x0102030405060708L;
+        }
+
+        Xdr xdr = new Xdr(128);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(7);
+        xdr.xdrEncodeLongVector(longs);
+        xdr.xdrEncodeLongFixedVector(longs, longs.length);
+        xdr.endEncoding();
+
+        ByteBuffer bb = ByteBuffer.wrap(xdr.getBytes());
+        assertEquals(7, bb.getInt());
+        assertEquals(longs.length, bb.getInt());
+        for (int i = 0; i < longs.length; i++) {
+            assertEquals(longs[i], bb.getLong());
+        }
+
+        xdr.beginDecoding();
+        assertEquals(7, xdr.xdrDecodeInt());
+        assertArrayEquals(longs, xdr.xdrDecodeLongVector());
+        assertArrayEquals(longs, xdr.xdrDecodeLongFixedVector(longs.length));
+    }
+
+    @Test
+    public void testBulkFloatAndDoubleVector() throws BadXdrOncRpcException {
+        float[] floats = new float[100];
+        double[] doubles = new double[100];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = i / 3.0f;
+            doubles[i] = i / 3.0;
+        }
+
+        Xdr xdr = new Xdr(128);
+        xdr.beginEncoding();
+        xdr.xdrEncodeFloatVector(floats);
+        xdr.xdrEncodeDoubleFixedVector(doubles, doubles.length);
+        xdr.endEncoding();
+
+        ByteBuffer bb = ByteBuffer.wrap(xdr.getBytes());
+        assertEquals(floats.length, bb.getInt());
+        for (int i = 0; i < floats.length; i++) {
+            assertEquals(Float.floatToIntBits(floats[i]), bb.getInt());
+        }
+        for (int i = 0; i < doubles.length; i++) {
+            assertEquals(Double.doubleToLongBits(doubles[i]), bb.getLong());
+        }
+
+        xdr.beginDecoding();
+        assertArrayEquals(floats, xdr.xdrDecodeFloatVector(), 0.0f);
+        assertArrayEquals(doubles, xdr.xdrDecodeDoubleFixedVector(doubles.length), 0.0);
+    }
+
+    @Test
+    public void testBulkAndCompositeNaNPayloadMatch() {
+        float[] floats = new float[32];
+        double[] doubles = new double[32];
+        Arrays.fill(floats, Float.intBitsToFloat(0x7fc00001));
+        Arrays.fill(doubles, Double.longBitsToDouble(0x7ff8000000000001L));
+
+        Xdr bulk = new Xdr(1024);
+        bulk.beginEncoding();
+        bulk.xdrEncodeFloatVector(floats);
+        bulk.xdrEncodeDoubleVector(doubles);
+        bulk.endEncoding();
+
+        CompositeBuffer buffer = BuffersBuffer.create();
+        buffer.append(allocateBuffer(64));
+        buffer.append(allocateBuffer(1024));
+        Xdr composite = new Xdr(buffer);
+        composite.beginEncoding();
+        composite.xdrEncodeFloatVector(floats);
+        composite.xdrEncodeDoubleVector(doubles);
+        composite.endEncoding();
+
+        byte[] bytes = bulk.getBytes();
+        assertArrayEquals(bytes, composite.getBytes());
+        ByteBuffer bb = ByteBuffer.wrap(bytes);
+        assertEquals(floats.length, bb.getInt());
+        assertEquals(0x7fc00001, bb.getInt());
+    }
+
+    @Test
+    public void testBulkIntVectorOnCompositeBuffer() throws BadXdrOncRpcException {
+        int[] ints = new int[100];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i;
+        }
+
+        CompositeBuffer buffer = BuffersBuffer.create();
+        buffer.append(allocateBuffer(64));
+        buffer.append(allocateBuffer(1024));
+        Xdr xdr = new Xdr(buffer);
+        xdr.beginEncoding();
+        xdr.xdrEncodeIntVector(ints);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        assertArrayEquals(ints, xdr.xdrDecodeIntVector());
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testBadXdrOnTruncatedBulkVector() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(128);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(Integer.MAX_VALUE);  // len
+        xdr.xdrEncodeLong(1);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        xdr.xdrDecodeLongVector();
+    }
+
     @Test
     public void testShortVector() throws BadXdrOncRpcException {
         short[] shorts = new short[]{1, 2, 3};
@@ -685,6 +950,285 @@ public class XdrTest {
         verify(b, times(1)).tryDispose();
     }
 
+    @Test
+    public void testDecodeOpaqueSliceSurvivesEncoding() throws BadXdrOncRpcException {
+
+        byte[] data = "some random data".getBytes();
+        _buffer.putInt(data.length);
+        _buffer.put(data);
+        _buffer.flip();
+
+        Xdr xdr = new Xdr(_buffer);
+        xdr.beginDecoding();
+        OpaqueSlice slice = xdr.xdrDecodeDynamicOpaqueSlice();
+        xdr.endDecoding();
+
+        xdr.beginEncoding();
+        xdr.xdrEncodeLong(Long.MAX_VALUE);
+        xdr.xdrEncodeLong(Long.MAX_VALUE);
+        xdr.endEncoding();
+
+        assertArrayEquals(data, slice.toBytes());
+        assertTrue(slice.asByteBuffer().isReadOnly());
+        assertTrue(slice.release());
+    }
+
+    @Test
+    public void testReuseBufferAfterSliceReleased() throws BadXdrOncRpcException {
+
+        _buffer.putInt(4);
+        _buffer.putInt(17);
+        _buffer.flip();
+
+        Xdr xdr = new Xdr(_buffer);
+        xdr.beginDecoding();
+        try (OpaqueSlice slice = xdr.xdrDecodeDynamicOpaqueSlice()) {
+            assertEquals(17, slice.intAt(0));
+        }
+        xdr.endDecoding();
+
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+
+        assertTrue("buffer is not re-used", xdr.asBuffer() == _buffer);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSliceReleasedTwice() throws BadXdrOncRpcException {
+
+        _buffer.putInt(0);
+        _buffer.flip();
+
+        Xdr xdr = new Xdr(_buffer);
+        xdr.beginDecoding();
+        OpaqueSlice slice = xdr.xdrDecodeDynamicOpaqueSlice();
+        slice.retain();
+        assertFalse(slice.release());
+        assertTrue(slice.release());
+        slice.release();
+    }
+
+    @Test
+    public void testIntAt() {
+
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(17);
+        xdr.xdrEncodeInt(42);
+        xdr.endEncoding();
+
+        assertEquals(42, xdr.intAt(4));
+        assertEquals(17, xdr.intAt(0));
+        assertEquals(8, xdr.remaining());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIntAtBeyondData() {
+
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(17);
+        xdr.endEncoding();
+
+        xdr.intAt(2);
+    }
+
+    @Test
+    public void testRetainedSliceDisposesBufferAfterClose() throws BadXdrOncRpcException {
+
+        DisposeCountingBuffer b = new DisposeCountingBuffer(1024);
+        b.putInt(4);
+        b.putInt(17);
+        b.flip();
+
+        Xdr xdr = new Xdr(b);
+        xdr.beginDecoding();
+        OpaqueSlice slice = xdr.xdrDecodeDynamicOpaqueSlice();
+        xdr.endDecoding();
+        xdr.close();
+        xdr.close();
+
+        assertEquals(0, b.disposed);
+        assertEquals(17, slice.intAt(0));
+        slice.release();
+        assertEquals(1, b.disposed);
+    }
+
+    @Test
+    public void testRetainedSliceDisposesBufferAfterEncoding() throws BadXdrOncRpcException {
+
+        DisposeCountingBuffer b = new DisposeCountingBuffer(1024);
+        b.putInt(4);
+        b.putInt(17);
+        b.flip();
+
+        Xdr xdr = new Xdr(b);
+        xdr.beginDecoding();
+        OpaqueSlice slice = xdr.xdrDecodeDynamicOpaqueSlice();
+        xdr.endDecoding();
+
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+
+        assertEquals(0, b.disposed);
+        slice.release();
+        assertEquals(1, b.disposed);
+
+        // the new buffer belongs to xdr
+        xdr.close();
+        assertEquals(1, b.disposed);
+    }
+
+    @Test
+    public void testReleasedSliceDisposesBufferOnClose() throws BadXdrOncRpcException {
+
+        DisposeCountingBuffer b = new DisposeCountingBuffer(1024);
+        b.putInt(4);
+        b.putInt(17);
+        b.flip();
+
+        Xdr xdr = new Xdr(b);
+        xdr.beginDecoding();
+        xdr.xdrDecodeDynamicOpaqueSlice().release();
+        xdr.endDecoding();
+
+        assertEquals(0, b.disposed);
+        xdr.close();
+        assertEquals(1, b.disposed);
+    }
+
+    @Test
+    public void testEncodeFileRegionWithoutZeroCopy() throws IOException {
+
+        byte[] data = "0123456789".getBytes();
+        Path file = Files.createTempFile("xdr", ".data");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            channel.write(ByteBuffer.wrap(data));
+
+            Xdr xdr = new Xdr(16);
+            xdr.beginEncoding();
+            xdr.xdrEncodeInt(1);
+            xdr.xdrEncodeFileRegion(channel, 2, 6);
+            xdr.xdrEncodeInt(2);
+            xdr.endEncoding();
+
+            Buffer message = (Buffer) xdr.toWritableMessage(mock(Connection.class), false);
+            Xdr decoder = new Xdr(message);
+            decoder.beginDecoding();
+            assertEquals(1, decoder.xdrDecodeInt());
+            assertArrayEquals(Arrays.copyOfRange(data, 2, 8), decoder.xdrDecodeDynamicOpaque().toBytes());
+            assertEquals(2, decoder.xdrDecodeInt());
+            assertFalse(decoder.hasMoreData());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testChunkedMessagePartialWrites() throws IOException {
+
+        byte[] data = "0123456789".getBytes();
+        Path file = Files.createTempFile("xdr", ".data");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            channel.write(ByteBuffer.wrap(data));
+
+            Buffer head = allocateBuffer(8);
+            head.putInt(1).putInt(data.length).flip();
+            Buffer tail = allocateBuffer(8);
+            tail.put(new byte[]{0, 0}).putInt(2).flip();
+
+            List<WritableMessage> chunks = new ArrayList<>();
+            chunks.add(head);
+            chunks.add(new FileRegion(channel, 0, data.length));
+            chunks.add(tail);
+            Connection connection = mock(Connection.class);
+            when(connection.getMemoryManager()).thenReturn(GrizzlyMemoryManager.getDefaultMemoryManager());
+            ChunkedWritableMessage message = new ChunkedWritableMessage(connection, chunks, true);
+            assertEquals(4 + 8 + data.length + 6, message.remaining());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WritableByteChannel slowChannel = new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) {
+                    int n = Math.min(3, src.remaining());
+                    for (int i = 0; i < n; i++) {
+                        out.write(src.get());
+                    }
+                    return n;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+
+            while (message.hasRemaining()) {
+                message.writeTo(slowChannel);
+            }
+
+            Xdr decoder = new Xdr(out.toByteArray());
+            decoder.beginDecoding();
+            assertEquals(0x80000000 | (8 + data.length + 6), decoder.xdrDecodeInt());
+            assertEquals(1, decoder.xdrDecodeInt());
+            assertArrayEquals(data, decoder.xdrDecodeDynamicOpaque().toBytes());
+            assertEquals(2, decoder.xdrDecodeInt());
+            assertFalse(decoder.hasMoreData());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEncodeMappedOpaque() throws IOException {
+
+        byte[] data = new byte[8191];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Path file = Files.createTempFile("xdr", ".data");
+        try {
+            Files.write(file, data);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                Xdr xdr = new Xdr(16);
+                xdr.beginEncoding();
+                xdr.xdrEncodeDynamicOpaque(Opaque.forMappedFile(channel, 0, data.length));
+                xdr.xdrEncodeInt(17);
+                xdr.endEncoding();
+
+                assertTrue("mapped opaque is copied", xdr.asBuffer().isComposite());
+
+                Xdr decoder = new Xdr(xdr.getBytes());
+                decoder.beginDecoding();
+                assertArrayEquals(data, decoder.xdrDecodeDynamicOpaque().toBytes());
+                assertEquals(17, decoder.xdrDecodeInt());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static class DisposeCountingBuffer extends ByteBufferWrapper {
+
+        private int disposed;
+
+        DisposeCountingBuffer(int size) {
+            super(ByteBuffer.allocate(size));
+            allowBufferDispose(true);
+        }
+
+        @Override
+        public void dispose() {
+            disposed++;
+        }
+    }
+
     private static Buffer allocateBuffer(int size) {
         return GrizzlyMemoryManager.allocate(size);
     }
@@ -19,10 +19,12 @@
  */
 package org.dcache.jarpcbind;
 
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
 import org.dcache.oncrpc4j.rpc.OncRpcProgram;
 import org.dcache.oncrpc4j.rpc.OncRpcSvc;
 import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
-import org.dcache.oncrpc4j.rpc.RpcDispatchable;
 import org.dcache.oncrpc4j.portmap.OncRpcPortmap;
 import org.dcache.oncrpc4j.portmap.OncRpcbindServer;
 import org.slf4j.Logger;
@@ -30,6 +32,7 @@ import org.slf4j.LoggerFactory;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
+    private static final long PROBE_TIMEOUT = 2;
     private static final Object LOCK = new Object();
     private static volatile boolean on = true;
     private static volatile Thread mainThread;
@@ -54,7 +57,8 @@ public class Main {
                 logger.info("exiting");
             }
         });
-        RpcDispatchable rpcbind = new OncRpcbindServer();
+        // optional location of the registration journal
+        OncRpcbindServer rpcbind = args.length > 0 ? new OncRpcbindServer(Paths.get(args[0])) : new OncRpcbindServer();
         OncRpcSvc server  = new OncRpcSvcBuilder()
                 .withPort(OncRpcPortmap.PORTMAP_PORT)
                 .withTCP()
@@ -63,8 +67,14 @@ public class Main {
                 .withoutAutoPublish()
                 .build();
         server.register(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V2), rpcbind);
+        server.register(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V3), rpcbind);
+        server.register(new OncRpcProgram(OncRpcPortmap.PORTMAP_PROGRAMM, OncRpcPortmap.PORTMAP_V4), rpcbind);
         server.start();
         logger.info("up and running");
+        if (args.length > 0) {
+            int removed = rpcbind.removeUnreachable(PROBE_TIMEOUT, TimeUnit.SECONDS);
+            logger.info("removed {} unreachable services", removed);
+        }
         synchronized (LOCK) {
             while (on) {
                 try {
@@ -77,5 +87,7 @@ public class Main {
             }
         }
         logger.info("shutting down");
+        server.stop();
+        rpcbind.close();
     }
 }
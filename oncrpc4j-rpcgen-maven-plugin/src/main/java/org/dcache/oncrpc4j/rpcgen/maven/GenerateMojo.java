@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpcgen.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.acplt.oncrpc.apps.jrpcgen.jrpcgen;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Runs jrpcgen on all x-files of a directory within the build JVM.
+ *
+ * For every x-file a fingerprint of its content, the jrpcgen options and the
+ * jrpcgen version is kept together with the list of generated files. An x-file
+ * is skipped as long as the fingerprint does not change and all of its generated
+ * files still exist. Files, which are no longer generated from an x-file, and the
+ * files generated from removed x-files are deleted.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+    /**
+     * The Maven project.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * Directory scanned for x-files.
+     */
+    @Parameter(property = "rpcgen.sourceDirectory", defaultValue = "${basedir}/src/main/xdr", required = true)
+    private File sourceDirectory;
+
+    /**
+     * Directory receiving the generated sources.
+     */
+    @Parameter(property = "rpcgen.outputDirectory",
+            defaultValue = "${project.build.directory}/generated-sources/rpcgen", required = true)
+    private File outputDirectory;
+
+    /**
+     * Directory keeping the fingerprints of processed x-files.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/rpcgen-state", required = true)
+    private File stateDirectory;
+
+    /**
+     * Package of the generated sources.
+     */
+    @Parameter(property = "rpcgen.packageName")
+    private String packageName;
+
+    /**
+     * Additional jrpcgen command line options, like {@code -bean} or {@code -noclient}.
+     */
+    @Parameter
+    private List<String> options = Collections.emptyList();
+
+    /**
+     * Add the output directory as test source root.
+     */
+    @Parameter(property = "rpcgen.testSources", defaultValue = "false")
+    private boolean testSources;
+
+    /**
+     * Skip code generation.
+     */
+    @Parameter(property = "rpcgen.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+
+        if (skip) {
+            getLog().info("Skipping jrpcgen");
+            return;
+        }
+
+        List<File> specs = new ArrayList<>();
+        findSpecs(sourceDirectory, specs);
+        Collections.sort(specs);
+
+        removeStale(specs);
+
+        int generated = 0;
+        for (File spec : specs) {
+            if (generate(spec)) {
+                generated++;
+            }
+        }
+        getLog().info("jrpcgen: " + generated + " of " + specs.size() + " x-files processed, "
+                + (specs.size() - generated) + " up to date");
+
+        if (project != null) {
+            if (testSources) {
+                project.addTestCompileSourceRoot(outputDirectory.getPath());
+            } else {
+                project.addCompileSourceRoot(outputDirectory.getPath());
+            }
+        }
+    }
+
+    /**
+     * Runs jrpcgen on the given x-file, unless its outputs are up to date.
+     *
+     * @param spec x-file to process.
+     * @return true if jrpcgen was run.
+     * @throws MojoExecutionException if jrpcgen fails.
+     */
+    private boolean generate(File spec) throws MojoExecutionException {
+
+        List<String> args = new ArrayList<>(options);
+        args.add("-nobackup");
+        args.add("-d");
+        args.add(outputDirectory.getPath());
+        if (packageName != null && !packageName.isEmpty()) {
+            args.add("-p");
+            args.add(packageName);
+        }
+        args.add(spec.getPath());
+
+        File stateFile = new File(stateDirectory, stateName(spec));
+        try {
+            String fingerprint = fingerprint(spec, args);
+            List<String> state = readState(stateFile);
+            if (isUpToDate(state, fingerprint)) {
+                getLog().debug("jrpcgen: " + spec + " is up to date");
+                return false;
+            }
+
+            // outputs of the previous run, which may not be generated again
+            deleteOutputs(state);
+
+            getLog().info("jrpcgen: processing " + spec);
+            List<File> files = jrpcgen.run(args.toArray(new String[args.size()]));
+            if (files == null) {
+                throw new MojoExecutionException("jrpcgen did not process " + spec);
+            }
+
+            state = new ArrayList<>();
+            state.add(fingerprint);
+            state.add(spec.getAbsolutePath());
+            for (File file : files) {
+                state.add(file.getPath());
+            }
+            Files.createDirectories(stateDirectory.toPath());
+            Files.write(stateFile.toPath(), state, StandardCharsets.UTF_8);
+            return true;
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("jrpcgen failed on " + spec + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes the outputs and the state of x-files of the source directory,
+     * which no longer exist.
+     *
+     * @param specs existing x-files.
+     * @throws MojoExecutionException if the state can't be read or the outputs can't be deleted.
+     */
+    private void removeStale(List<File> specs) throws MojoExecutionException {
+
+        File[] stateFiles = stateDirectory.listFiles((dir, name) -> name.endsWith(".state"));
+        if (stateFiles == null) {
+            return;
+        }
+
+        Set<String> current = new HashSet<>();
+        for (File spec : specs) {
+            current.add(spec.getAbsolutePath());
+        }
+
+        String sourcePrefix = sourceDirectory.getAbsolutePath() + File.separator;
+        for (File stateFile : stateFiles) {
+            try {
+                List<String> state = readState(stateFile);
+                if (state.size() < 2) {
+                    continue;
+                }
+                // the state directory may be shared with executions on other source directories
+                String spec = state.get(1);
+                if (!spec.startsWith(sourcePrefix) || current.contains(spec)) {
+                    continue;
+                }
+                getLog().info("jrpcgen: removing outputs of " + spec);
+                deleteOutputs(state);
+                Files.delete(stateFile.toPath());
+            } catch (IOException e) {
+                throw new MojoExecutionException("failed to clean up " + stateFile + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the recorded fingerprint, x-file and outputs, or an empty list if
+     * there is no state.
+     */
+    private static List<String> readState(File stateFile) throws IOException {
+        if (!stateFile.isFile()) {
+            return Collections.emptyList();
+        }
+        return Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes the outputs recorded in the given state.
+     */
+    private static void deleteOutputs(List<String> state) throws IOException {
+        for (String file : outputs(state)) {
+            Files.deleteIfExists(new File(file).toPath());
+        }
+    }
+
+    private static List<String> outputs(List<String> state) {
+        return state.size() < 2 ? Collections.emptyList() : state.subList(2, state.size());
+    }
+
+    /**
+     * Checks whether the recorded fingerprint matches and all recorded
+     * outputs exist.
+     */
+    private static boolean isUpToDate(List<String> state, String fingerprint) {
+        if (state.isEmpty() || !state.get(0).equals(fingerprint)) {
+            return false;
+        }
+        for (String file : outputs(state)) {
+            if (!new File(file).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hex encoded SHA-256 digest of jrpcgen version, arguments
+     * and content of the x-file.
+     */
+    private static String fingerprint(File spec, List<String> args) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not supported", e);
+        }
+        digest.update(jrpcgen.VERSION.getBytes(StandardCharsets.UTF_8));
+        for (String arg : args) {
+            digest.update((byte) 0);
+            digest.update(arg.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+        digest.update(Files.readAllBytes(spec.toPath()));
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the name of the file keeping the state of the given x-file.
+     */
+    private String stateName(File spec) {
+        String relative = sourceDirectory.toPath().relativize(spec.toPath()).toString();
+        return relative.replace(File.separatorChar, '_') + ".state";
+    }
+
+    private static void findSpecs(File dir, List<File> specs) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findSpecs(file, specs);
+            } else if (file.getName().endsWith(".x")) {
+                specs.add(file);
+            }
+        }
+    }
+}
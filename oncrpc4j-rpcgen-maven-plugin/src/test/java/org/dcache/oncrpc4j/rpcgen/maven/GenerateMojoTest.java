@@ -0,0 +1,150 @@
+package org.dcache.oncrpc4j.rpcgen.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class GenerateMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sourceDirectory;
+    private File outputDirectory;
+    private MavenProject project;
+
+    @Before
+    public void setUp() throws IOException {
+        sourceDirectory = folder.newFolder("xdr");
+        outputDirectory = new File(folder.getRoot(), "generated");
+        project = new MavenProject();
+
+        write("strlen.x",
+                "program STRLEN {\n"
+                + "    version STRLENVERS {\n"
+                + "        int strlen(string) = 1;\n"
+                + "    } = 1;\n"
+                + "} = 117;\n");
+        write("echo.x",
+                "struct Message {\n"
+                + "    string text<>;\n"
+                + "};\n"
+                + "program ECHO {\n"
+                + "    version ECHOVERS {\n"
+                + "        Message echo(Message) = 1;\n"
+                + "    } = 1;\n"
+                + "} = 118;\n");
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(new File(sourceDirectory, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private GenerateMojo mojo(String... options) throws Exception {
+        GenerateMojo mojo = new GenerateMojo();
+        set(mojo, "project", project);
+        set(mojo, "sourceDirectory", sourceDirectory);
+        set(mojo, "outputDirectory", outputDirectory);
+        set(mojo, "stateDirectory", new File(folder.getRoot(), "state"));
+        set(mojo, "packageName", "org.example.rpc");
+        set(mojo, "options", Arrays.asList(options));
+        return mojo;
+    }
+
+    private static void set(Object o, String name, Object value) throws Exception {
+        Field field = o.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(o, value);
+    }
+
+    private File generated(String name) {
+        return new File(outputDirectory, "org/example/rpc/" + name);
+    }
+
+    @Test
+    public void testGenerateAll() throws Exception {
+        mojo().execute();
+
+        assertTrue(generated("strlenClient.java").isFile());
+        assertTrue(generated("strlenServerStub.java").isFile());
+        assertTrue(generated("Message.java").isFile());
+        assertTrue(generated("echoClient.java").isFile());
+        assertFalse("options leaked between files", generated("echoClient.java~").exists());
+        assertEquals(Arrays.asList(outputDirectory.getPath()), project.getCompileSourceRoots());
+    }
+
+    @Test
+    public void testSkipUnchanged() throws Exception {
+        mojo().execute();
+        assertTrue(generated("strlenClient.java").setLastModified(0));
+        assertTrue(generated("echoClient.java").setLastModified(0));
+
+        write("echo.x",
+                "program ECHO {\n"
+                + "    version ECHOVERS {\n"
+                + "        string echo(string) = 1;\n"
+                + "    } = 1;\n"
+                + "} = 118;\n");
+        mojo().execute();
+
+        assertEquals(0, generated("strlenClient.java").lastModified());
+        assertNotEquals(0, generated("echoClient.java").lastModified());
+        assertFalse("stale output kept", generated("Message.java").exists());
+    }
+
+    @Test
+    public void testRemovedSpecCleanedUp() throws Exception {
+        mojo().execute();
+        assertTrue(generated("strlenClient.java").setLastModified(0));
+        assertTrue(new File(sourceDirectory, "echo.x").delete());
+
+        mojo().execute();
+        assertFalse(generated("echoClient.java").exists());
+        assertFalse(generated("Message.java").exists());
+        assertFalse(new File(folder.getRoot(), "state/echo.x.state").exists());
+        assertEquals(0, generated("strlenClient.java").lastModified());
+    }
+
+    @Test
+    public void testOtherSourceDirectoryKept() throws Exception {
+        mojo().execute();
+
+        // another execution sharing the state directory
+        sourceDirectory = folder.newFolder("other");
+        mojo().execute();
+
+        assertTrue(generated("echoClient.java").isFile());
+        assertTrue(new File(folder.getRoot(), "state/echo.x.state").isFile());
+    }
+
+    @Test
+    public void testRegenerateOnOptionChange() throws Exception {
+        mojo().execute();
+        assertTrue(generated("strlenServerStub.java").setLastModified(0));
+
+        mojo("-noclient").execute();
+        assertNotEquals(0, generated("strlenServerStub.java").lastModified());
+    }
+
+    @Test
+    public void testRegenerateMissingOutput() throws Exception {
+        mojo().execute();
+        assertTrue(generated("strlenClient.java").delete());
+        assertTrue(generated("echoClient.java").setLastModified(0));
+
+        mojo().execute();
+        assertTrue(generated("strlenClient.java").isFile());
+        assertEquals(0, generated("echoClient.java").lastModified());
+    }
+}
@@ -37,6 +37,8 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -48,7 +50,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * The class <code>jrpcgen</code> implements a Java-based rpcgen RPC protocol
@@ -87,6 +91,11 @@ public class jrpcgen {
         System.out.println("  -nosync         do not generate sync client methods (which are generated by default)");
         System.out.println("  -timeouts       generate methods that accept a timeout argument (except one-way methods)");
         System.out.println("  -percallauth    generate methods that accept an auth argument (null for default)");
+        System.out.println("  -flatlists      decode linked lists into array-backed containers");
+        System.out.println("  -lazyvectors    decode int<>, hyper<> and opaque<> on access instead of into arrays");
+        System.out.println("  -asyncserver    generate server stub methods that return CompletableFutures");
+        System.out.println("  -pooledargs     generate reset() methods and reuse per-thread argument objects in server stubs");
+        System.out.println("  -jmh            generate JMH benchmark for encoding and decoding of all structs and unions");
         System.out.println("  -verbose        enable verbose output about what jrpcgen is doing");
         System.out.println("  -version        print jrpcgen version and exit");
         System.out.println("  -debug          enables printing of diagnostic messages");
@@ -176,6 +185,10 @@ public class jrpcgen {
      * Full name of the current source code file.
      */
     public static String currentFilename = null;
+    /**
+     * Source code files created by the current run.
+     */
+    public static List<File> generatedFiles = new ArrayList<>();
     /**
      * Specifies package name for generated source code, if not
      * <code>null</code>. If <code>null</code>, then no package statement
@@ -242,6 +255,48 @@ public class jrpcgen {
      * generate all methods with an auth argument (nullable for default) to support per-call auth
      */
     public static boolean generatePerCallAuthSupport = false;
+    /**
+     * Decode linked lists (structs with a tail reference to their own type)
+     * into array-backed containers instead of one object per list node.
+     */
+    public static boolean generateFlatLists = false;
+    /**
+     * Map variable-length int, hyper and opaque arrays to views, which are
+     * decoded on access, instead of Java arrays.
+     */
+    public static boolean generateLazyVectors = false;
+    /**
+     * Generate server stubs where each procedure returns a CompletableFuture
+     * and the reply is sent when the future completes.
+     */
+    public static boolean generateAsyncServer = false;
+    /**
+     * Generate <code>reset()</code> methods and let server stubs reuse
+     * per-thread argument and result wrapper objects.
+     */
+    public static boolean generatePooledArgs = false;
+    /**
+     * Generate a JMH benchmark for encoding and decoding of all structs
+     * and unions.
+     */
+    public static boolean generateJmh = false;
+    /**
+     * Procedures annotated as idempotent in the x-file, keyed by the
+     * identifier of the enclosing version and the procedure name, see
+     * {@link #idempotentKey(String, String)}.
+     */
+    public static Set<String> idempotentProcedures = new HashSet<>();
+    /**
+     * Annotation of idempotent procedures: a comment <code>/&#42; @idempotent &#42;/</code>
+     * in front of the procedure definition.
+     */
+    private static final Pattern IDEMPOTENT_ANNOTATION =
+            Pattern.compile("/\\*\\s*@idempotent\\s*\\*/([^(;{}]*)\\(");
+    /**
+     * Start of a version block: <code>version IDENTIFIER {</code>.
+     */
+    private static final Pattern VERSION_BLOCK =
+            Pattern.compile("\\bversion\\s+(\\w+)\\s*\\{");
 
     /**
      * Creates a new source code file for a Java class based on its class
@@ -279,6 +334,7 @@ public class jrpcgen {
                     + filename + "\" in \"" + destinationDir + "\"");
         }
         File file = new File(destinationDir, filename);
+        generatedFiles.add(file);
         //
         // If an old file of the same name already exists, then rename it
         // before creating the new file.
@@ -289,22 +345,19 @@ public class jrpcgen {
                 // If the file to be created already exists and is not a
                 // regular file, then bail out with an error.
                 //
-                System.err.println("error: source file \"" + filename
+                throw new IllegalStateException("error: source file \"" + filename
                         + "\"already exists and is not a regular file");
-                System.exit(1);
             }
             File oldBackup = new File(destinationDir, filename + "~");
             if (oldBackup.isFile()) {
                 oldBackup.delete();
             } else if (oldBackup.exists()) {
-                System.err.println("error: backup source file \""
+                throw new IllegalStateException("error: backup source file \""
                         + filename + "~\" is not a regular file");
-                System.exit(1);
             }
             if (!file.renameTo(new File(destinationDir, filename + "~"))) {
-                System.err.println("error: can not rename old source code file \""
+                throw new IllegalStateException("error: can not rename old source code file \""
                         + filename + "\"");
-                System.exit(1);
             }
             if (verbose) {
                 System.out.println("Saved old source code file as \""
@@ -317,9 +370,8 @@ public class jrpcgen {
         try {
             currentFileWriter = new FileWriter(file);
         } catch (IOException e) {
-            System.err.println("error: can not create \"" + filename
+            throw new IllegalStateException("error: can not create \"" + filename
                     + "\": " + e.getLocalizedMessage());
-            System.exit(1);
         }
         if (verbose) {
             System.out.print("Creating source code file \""
@@ -766,6 +818,7 @@ public class jrpcgen {
 
         StringBuilder code = new StringBuilder();
         JrpcgenEnDecodingInfo data = baseEnDecodingSyllable(decl);
+        String lazyVector = lazyVectorType(decl);
 
         //
         // In case no type was specified for the outer element, assume no
@@ -778,7 +831,31 @@ public class jrpcgen {
             oref = oref + ".";
         }
 
-        if (data != null) {
+        if (lazyVector != null) {
+            //
+            // Views decoded on access. Opaques are decoded as views into
+            // the buffer anyway, the int and hyper vectors are XdrAble.
+            //
+            code.append("        ");
+            if ("opaque".equals(decl.type)) {
+                if (encode) {
+                    code.append("xdr.xdrEncodeDynamicOpaque(");
+                    code.append(oref).append(decl.identifier);
+                    code.append(");\n");
+                } else {
+                    code.append(oref).append(decl.identifier);
+                    code.append(" = xdr.xdrDecodeDynamicOpaque();\n");
+                }
+            } else {
+                code.append(oref).append(decl.identifier);
+                if (encode) {
+                    code.append(".xdrEncode(xdr);\n");
+                } else {
+                    code.append(" = new ").append(lazyVector).append("(xdr);\n");
+                }
+            }
+            return code.toString();
+        } else if (data != null) {
             //
             // It's a base data type (including vectors). So we can use the
             // predefined en-/decoding methods:
@@ -832,6 +909,29 @@ public class jrpcgen {
                 // It's not a built-in base data type but instead an indirection
                 // (reference) to some instance (optional data).
                 //
+            } else if (decl.kind == JrpcgenDeclaration.INDIRECTION
+                    && flatListType(decl) != null) {
+                //
+                // Linked list decoded into an array-backed container, which
+                // takes care of the optional-data markers itself.
+                //
+                code.append("        ");
+                if (encode) {
+                    code.append("if ( ");
+                    code.append(oref).append(decl.identifier);
+                    code.append(" != null ) { ");
+                    code.append(oref).append(decl.identifier);
+                    code.append(".xdrEncode(xdr);");
+                    code.append(" } else { ");
+                    code.append("xdr.xdrEncodeBoolean(false);");
+                    code.append(" };\n");
+                } else {
+                    code.append(oref).append(decl.identifier);
+                    code.append(" = new ");
+                    code.append(flatListType(decl));
+                    code.append("(xdr);\n");
+                }
+                return code.toString();
             } else if (decl.kind == JrpcgenDeclaration.INDIRECTION) {
                 code.append("        ");
                 if (encode) {
@@ -912,6 +1012,180 @@ public class jrpcgen {
         }
     }
 
+    /**
+     * Return code, which adds the encoded size of a struct or union member
+     * to the <code>$size</code> variable.
+     *
+     * @param decl declaration for which the sizing Java source code be
+     *   returned.
+     * @param oref name of object reference or <code>null</code> if
+     *   "this" should be used instead.
+     */
+    public static String sizingMethod(JrpcgenDeclaration decl, String oref) {
+        //
+        // Skip entries for void arms etc...
+        //
+        if (decl.identifier == null) {
+            return "";
+        }
+
+        String ref = (oref == null ? "" : oref + ".") + decl.identifier;
+        boolean isVector = (decl.kind == JrpcgenDeclaration.FIXEDVECTOR)
+                || (decl.kind == JrpcgenDeclaration.DYNAMICVECTOR);
+        String lengthField = decl.kind == JrpcgenDeclaration.DYNAMICVECTOR ? "4 + " : "";
+        StringBuilder code = new StringBuilder();
+
+        if (lazyVectorType(decl) != null) {
+            code.append("        $size += ");
+            if ("opaque".equals(decl.type)) {
+                code.append("4 + Xdr.sizeOfOpaque(").append(ref).append(".numBytes());\n");
+            } else {
+                code.append(ref).append(".xdrEncodedSize();\n");
+            }
+        } else if (baseEnDecodingSyllable(decl) != null) {
+            //
+            // Base data types (including vectors) have a fixed size per
+            // element, except strings and opaques, which are padded.
+            //
+            code.append("        $size += ");
+            if ("String".equals(decl.type)) {
+                code.append("Xdr.sizeOfString(").append(ref).append(")");
+            } else if ("opaque".equals(decl.type)) {
+                code.append(lengthField).append("Xdr.sizeOfOpaque(").append(ref).append(".length)");
+            } else {
+                String elementSize = ("long".equals(decl.type) || "double".equals(decl.type)) ? "8" : "4";
+                if (!isVector) {
+                    code.append(elementSize);
+                } else if (decl.kind == JrpcgenDeclaration.FIXEDVECTOR) {
+                    code.append(elementSize).append(" * ").append(checkForEnumValue(decl.size));
+                } else {
+                    code.append(lengthField).append(elementSize).append(" * ").append(ref).append(".length");
+                }
+            }
+            code.append(";\n");
+        } else if (decl.kind == JrpcgenDeclaration.SCALAR) {
+            code.append("        $size += ").append(ref).append(".xdrEncodedSize();\n");
+        } else if (decl.kind == JrpcgenDeclaration.INDIRECTION
+                && flatListType(decl) != null) {
+            code.append("        $size += ").append(ref).append(" != null ? ")
+                    .append(ref).append(".xdrEncodedSize() : 4;\n");
+        } else if (decl.kind == JrpcgenDeclaration.INDIRECTION) {
+            code.append("        $size += 4 + (").append(ref).append(" != null ? ")
+                    .append(ref).append(".xdrEncodedSize() : 0);\n");
+        } else {
+            code.append("        { ");
+            if (decl.kind == JrpcgenDeclaration.DYNAMICVECTOR) {
+                code.append("$size += 4; ");
+            }
+            code.append("for ( int $idx = 0; $idx < ");
+            code.append(decl.kind == JrpcgenDeclaration.DYNAMICVECTOR
+                    ? ref + ".length" : checkForEnumValue(decl.size));
+            code.append("; ++$idx ) { $size += ").append(ref).append("[$idx].xdrEncodedSize(); } }\n");
+        }
+        return code.toString();
+    }
+
+    /**
+     * Checks whether a struct is a linked list, that is, its last element
+     * is the only reference to the type of the struct itself.
+     *
+     * @param s {@link JrpcgenStruct Description} of XDR struct.
+     *
+     * @return <code>true</code> if the struct describes a linked list.
+     */
+    public static boolean isLinkedList(JrpcgenStruct s) {
+        int size = s.elements.size();
+        if (size == 0) {
+            return false;
+        }
+        JrpcgenDeclaration tail = (JrpcgenDeclaration) s.elements.elementAt(size - 1);
+        if (tail.kind != JrpcgenDeclaration.INDIRECTION
+                || !tail.type.equals(s.identifier)) {
+            return false;
+        }
+        for (int i = 0; i < size - 1; ++i) {
+            JrpcgenDeclaration d = (JrpcgenDeclaration) s.elements.elementAt(i);
+            if (d.type.equals(s.identifier)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the name of the array-backed container class used for a
+     * reference to a linked list, if flat lists are generated.
+     *
+     * @param decl declaration to check.
+     *
+     * @return name of container class or <code>null</code> if the
+     *   declaration is not a reference to a linked list.
+     */
+    public static String flatListType(JrpcgenDeclaration decl) {
+        if (!generateFlatLists || decl.kind != JrpcgenDeclaration.INDIRECTION) {
+            return null;
+        }
+        Object o = globalIdentifiers.get(decl.type);
+        if ((o instanceof JrpcgenStruct) && isLinkedList((JrpcgenStruct) o)) {
+            return decl.type + "List";
+        }
+        return null;
+    }
+
+    /**
+     * Returns the Java data type of a struct or union member, without
+     * array brackets.
+     *
+     * @param decl declaration of member.
+     *
+     * @return data type identifier.
+     */
+    public static String memberType(JrpcgenDeclaration decl) {
+        String lazyVector = lazyVectorType(decl);
+        if (lazyVector != null) {
+            return lazyVector;
+        }
+        String flatList = flatListType(decl);
+        return flatList != null ? flatList : checkForSpecials(decl.type);
+    }
+
+    /**
+     * Returns the class of the lazily decoded view used for a variable-length
+     * array of ints, hypers or opaque data, if lazy vectors are generated.
+     *
+     * @param decl declaration to check.
+     *
+     * @return name of view class or <code>null</code> if the declaration
+     *   is mapped to a Java array.
+     */
+    public static String lazyVectorType(JrpcgenDeclaration decl) {
+        if (!generateLazyVectors || decl.kind != JrpcgenDeclaration.DYNAMICVECTOR) {
+            return null;
+        }
+        if ("int".equals(decl.type)) {
+            return "XdrIntVector";
+        } else if ("long".equals(decl.type)) {
+            return "XdrLongVector";
+        } else if ("opaque".equals(decl.type)) {
+            return "org.dcache.oncrpc4j.util.Opaque";
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a struct or union member is represented by a Java array.
+     *
+     * @param decl declaration of member.
+     *
+     * @return <code>true</code> if the member is a Java array.
+     */
+    public static boolean isArrayMember(JrpcgenDeclaration decl) {
+        return ((decl.kind == JrpcgenDeclaration.FIXEDVECTOR)
+                || (decl.kind == JrpcgenDeclaration.DYNAMICVECTOR))
+                && !decl.type.equals("String")
+                && lazyVectorType(decl) == null;
+    }
+
     /**
      * Checks whether a given data type identifier refers to an enumeration
      * type and then returns Java's int data type instead. In case of the
@@ -1020,10 +1294,9 @@ public class jrpcgen {
             hash.update(d.type);
             hash.update(d.kind);
             hash.update(d.identifier);
-            out.print(access + checkForSpecials(d.type) + " ");
-            if (((d.kind == JrpcgenDeclaration.FIXEDVECTOR)
-                    || (d.kind == JrpcgenDeclaration.DYNAMICVECTOR))
-                    && !d.type.equals("String")) {
+            String type = d.type.equals(s.identifier) ? d.type : memberType(d);
+            out.print(access + type + " ");
+            if (isArrayMember(d)) {
                 out.print("[] ");
             }
             if (initStrings
@@ -1062,27 +1335,26 @@ public class jrpcgen {
                 while (decls.hasMoreElements()) {
                     out.println();
                     JrpcgenDeclaration d = (JrpcgenDeclaration) decls.nextElement();
+                    String type = d.type.equals(s.identifier) ? d.type : memberType(d);
                     String jbName = d.identifier.substring(0, 1).toUpperCase() + d.identifier.substring(1);
-                    boolean isArray = (((d.kind == JrpcgenDeclaration.FIXEDVECTOR)
-                            || (d.kind == JrpcgenDeclaration.DYNAMICVECTOR))
-                            && !d.type.equals("String"));
+                    boolean isArray = isArrayMember(d);
                     //
                     // Generate the setter(s)
                     //
                     if (isArray) {
-                        out.println("    public void set" + jbName + "(" + checkForSpecials(d.type) + "[] x) { this." + d.identifier + " = x; }");
-                        out.println("    public void set" + jbName + "(int index, " + checkForSpecials(d.type) + " x) { this." + d.identifier + "[index] = x; }");
+                        out.println("    public void set" + jbName + "(" + type + "[] x) { this." + d.identifier + " = x; }");
+                        out.println("    public void set" + jbName + "(int index, " + type + " x) { this." + d.identifier + "[index] = x; }");
                     } else {
-                        out.println("    public void set" + jbName + "(" + checkForSpecials(d.type) + " x) { this." + d.identifier + " = x; }");
+                        out.println("    public void set" + jbName + "(" + type + " x) { this." + d.identifier + " = x; }");
                     }
                     //
                     // Generate the getter(s)
                     //
                     if (isArray) {
-                        out.println("    public " + checkForSpecials(d.type) + "[] get" + jbName + "() { return this." + d.identifier + "; }");
-                        out.println("    public " + checkForSpecials(d.type) + " get" + jbName + "(int index) { return this." + d.identifier + "[index]; }");
+                        out.println("    public " + type + "[] get" + jbName + "() { return this." + d.identifier + "; }");
+                        out.println("    public " + type + " get" + jbName + "(int index) { return this." + d.identifier + "[index]; }");
                     } else {
-                        out.println("    public " + checkForSpecials(d.type) + " get" + jbName + "() { return this." + d.identifier + "; }");
+                        out.println("    public " + type + " get" + jbName + "() { return this." + d.identifier + "; }");
                     }
                 }
             }
@@ -1126,6 +1398,30 @@ public class jrpcgen {
         }
         out.println("    }");
 
+        out.println();
+        out.println("    public int xdrEncodedSize() {");
+        out.println("        int $size = 0;");
+        decls = s.elements.elements();
+        if (useIteration) {
+            out.println("        " + s.identifier + " $this = this;");
+            out.println("        do {");
+            JrpcgenDeclaration decl = null;
+            for (int size = s.elements.size(); size > 1; --size) {
+                decl = (JrpcgenDeclaration) decls.nextElement();
+                out.print("    " + sizingMethod(decl, "$this"));
+            }
+            decl = (JrpcgenDeclaration) decls.nextElement();
+            out.println("            $this = $this." + decl.identifier + ";");
+            out.println("            $size += 4;");
+            out.println("        } while ( $this != null );");
+        } else {
+            while (decls.hasMoreElements()) {
+                out.print(sizingMethod((JrpcgenDeclaration) decls.nextElement(), null));
+            }
+        }
+        out.println("        return $size;");
+        out.println("    }");
+
         out.println();
         out.println("    public void xdrDecode(XdrDecodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
@@ -1154,6 +1450,9 @@ public class jrpcgen {
             }
         }
         out.println("    }");
+        if (generatePooledArgs) {
+            dumpReset(out, new ArrayList<JrpcgenDeclaration>(s.elements));
+        }
         //
         // Close class...
         //
@@ -1162,6 +1461,228 @@ public class jrpcgen {
         closeJavaSourceFile();
     }
 
+    /**
+     * Generate a source code file containing an array-backed container for
+     * a linked list struct. The container keeps one array per struct member
+     * (except the tail reference), so decoding a list does not create one
+     * object per list node. It has the same XDR representation as an
+     * optional reference to the head of the list.
+     *
+     * @param s {@link JrpcgenStruct Description} of XDR struct, which must
+     *   be a {@link #isLinkedList(JrpcgenStruct) linked list}.
+     */
+    public static void dumpFlatList(JrpcgenStruct s) {
+        String listClass = s.identifier + "List";
+        if (globalIdentifiers.containsKey(listClass)) {
+            throw new IllegalStateException("error: can not generate flat list \"" + listClass
+                    + "\" for \"" + s.identifier + "\": identifier already in use");
+        }
+        String access = "    public ";
+        PrintWriter out = createJavaSourceFile(listClass);
+
+        out.print("public class " + listClass + " implements XdrAble");
+        if (makeSerializable) {
+            out.print(", java.io.Serializable");
+        }
+        out.println(" {");
+
+        //
+        // One column (array) per member, the tail reference is represented
+        // by the position in the arrays.
+        //
+        int columnCount = s.elements.size() - 1;
+        JrpcgenDeclaration[] members = new JrpcgenDeclaration[columnCount];
+        JrpcgenDeclaration[] columns = new JrpcgenDeclaration[columnCount];
+        String[] types = new String[columnCount];
+        String[] dims = new String[columnCount];
+        JrpcgenSHA hash = createSHA(listClass);
+        for (int i = 0; i < columnCount; ++i) {
+            JrpcgenDeclaration d = (JrpcgenDeclaration) s.elements.elementAt(i);
+            hash.update(d.type);
+            hash.update(d.kind);
+            hash.update(d.identifier);
+            members[i] = d;
+            try {
+                columns[i] = (JrpcgenDeclaration) d.clone();
+            } catch (CloneNotSupportedException e) {
+                throw (new RuntimeException("fatal: can not clone JrpcgenDeclaration"));
+            }
+            columns[i].identifier = d.identifier + "[$i]";
+            types[i] = memberType(d);
+            dims[i] = isArrayMember(d) ? "[]" : "";
+            out.println(access + types[i] + dims[i] + " [] " + d.identifier + ";");
+        }
+        out.println("    private int $count;");
+        out.println("    private int $capacity;");
+
+        if (makeSerializable) {
+            out.println();
+            out.println("    private static final long serialVersionUID = "
+                    + hash.getHash() + "L;");
+        }
+
+        out.println();
+        out.println("    public " + listClass + "() {");
+        out.println("        this(16);");
+        out.println("    }");
+        out.println();
+        out.println("    public " + listClass + "(int capacity) {");
+        out.println("        $capacity = capacity;");
+        for (int i = 0; i < columnCount; ++i) {
+            out.println("        " + members[i].identifier + " = new " + types[i]
+                    + "[capacity]" + dims[i] + ";");
+        }
+        out.println("    }");
+        out.println();
+        out.println("    public " + listClass + "(XdrDecodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.println("        this();");
+        out.println("        xdrDecode(xdr);");
+        out.println("    }");
+
+        //
+        // List like access to the entries.
+        //
+        StringBuilder params = new StringBuilder();
+        for (int i = 0; i < columnCount; ++i) {
+            if (i > 0) {
+                params.append(", ");
+            }
+            params.append(types[i]).append(dims[i]).append(" ").append(members[i].identifier);
+        }
+        out.println();
+        out.println("    public int size() {");
+        out.println("        return $count;");
+        out.println("    }");
+        out.println();
+        out.println("    public boolean isEmpty() {");
+        out.println("        return $count == 0;");
+        out.println("    }");
+        out.println();
+        out.println("    public void clear() {");
+        for (int i = 0; i < columnCount; ++i) {
+            if (!baseTypeColumn(members[i])) {
+                out.println("        java.util.Arrays.fill(" + members[i].identifier
+                        + ", 0, $count, null);");
+            }
+        }
+        out.println("        $count = 0;");
+        out.println("    }");
+        out.println();
+        out.println("    public void add(" + params + ") {");
+        out.println("        ensureCapacity($count + 1);");
+        for (int i = 0; i < columnCount; ++i) {
+            out.println("        this." + members[i].identifier + "[$count] = "
+                    + members[i].identifier + ";");
+        }
+        out.println("        ++$count;");
+        out.println("    }");
+        out.println();
+        out.println("    public " + s.identifier + " get(int index) {");
+        out.println("        if ( index < 0 || index >= $count ) {");
+        out.println("            throw new IndexOutOfBoundsException(\"index: \" + index + \", size: \" + $count);");
+        out.println("        }");
+        out.println("        " + s.identifier + " $e = new " + s.identifier + "();");
+        for (int i = 0; i < columnCount; ++i) {
+            out.println("        $e." + members[i].identifier + " = "
+                    + members[i].identifier + "[index];");
+        }
+        out.println("        return $e;");
+        out.println("    }");
+        out.println();
+        out.println("    public " + s.identifier + " toLinkedList() {");
+        String next = ((JrpcgenDeclaration) s.elements.lastElement()).identifier;
+        out.println("        " + s.identifier + " $head = null;");
+        out.println("        for ( int $i = $count - 1; $i >= 0; --$i ) {");
+        out.println("            " + s.identifier + " $e = get($i);");
+        out.println("            $e." + next + " = $head;");
+        out.println("            $head = $e;");
+        out.println("        }");
+        out.println("        return $head;");
+        out.println("    }");
+        out.println();
+        out.println("    public static " + listClass + " fromLinkedList(" + s.identifier + " head) {");
+        out.println("        " + listClass + " $list = new " + listClass + "();");
+        out.println("        for ( " + s.identifier + " $e = head; $e != null; $e = $e." + next + " ) {");
+        out.print("            $list.add(");
+        for (int i = 0; i < columnCount; ++i) {
+            if (i > 0) {
+                out.print(", ");
+            }
+            out.print("$e." + members[i].identifier);
+        }
+        out.println(");");
+        out.println("        }");
+        out.println("        return $list;");
+        out.println("    }");
+        out.println();
+        out.println("    private void ensureCapacity(int capacity) {");
+        out.println("        if ( capacity > $capacity ) {");
+        out.println("            $capacity = Math.max(capacity, $capacity * 2);");
+        for (int i = 0; i < columnCount; ++i) {
+            out.println("            " + members[i].identifier + " = java.util.Arrays.copyOf("
+                    + members[i].identifier + ", $capacity);");
+        }
+        out.println("        }");
+        out.println("    }");
+
+        //
+        // En-/decoding, each entry is preceeded by the optional-data marker
+        // of the reference pointing to it.
+        //
+        out.println();
+        out.println("    public void xdrEncode(XdrEncodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.println("        for ( int $i = 0; $i < $count; ++$i ) {");
+        out.println("            xdr.xdrEncodeBoolean(true);");
+        for (int i = 0; i < columnCount; ++i) {
+            out.print("    " + codingMethod(columns[i], true));
+        }
+        out.println("        }");
+        out.println("        xdr.xdrEncodeBoolean(false);");
+        out.println("    }");
+
+        out.println();
+        out.println("    public int xdrEncodedSize() {");
+        out.println("        int $size = 4;");
+        out.println("        for ( int $i = 0; $i < $count; ++$i ) {");
+        out.println("            $size += 4;");
+        for (int i = 0; i < columnCount; ++i) {
+            out.print("    " + sizingMethod(columns[i], null));
+        }
+        out.println("        }");
+        out.println("        return $size;");
+        out.println("    }");
+
+        out.println();
+        out.println("    public void xdrDecode(XdrDecodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.println("        clear();");
+        out.println("        while ( xdr.xdrDecodeBoolean() ) {");
+        out.println("            ensureCapacity($count + 1);");
+        out.println("            int $i = $count;");
+        for (int i = 0; i < columnCount; ++i) {
+            out.print("    " + codingMethod(columns[i], false));
+        }
+        out.println("            ++$count;");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        out.println("}");
+        closeJavaSourceFile();
+    }
+
+    /**
+     * Checks whether the column of a flat list holds Java primitives, which
+     * do not need to be cleared to release references.
+     */
+    private static boolean baseTypeColumn(JrpcgenDeclaration d) {
+        String type = memberType(d);
+        return d.kind == JrpcgenDeclaration.SCALAR
+                && !type.equals("String")
+                && baseEnDecodingSyllable(d) != null;
+    }
+
     /**
      * Generate a source code file containing all elements of a union
      * defined in a x-file.
@@ -1214,10 +1735,8 @@ public class jrpcgen {
             hash.update(a.element.type);
             hash.update(a.element.kind);
             hash.update(a.element.identifier);
-            out.print("    public " + checkForSpecials(a.element.type) + " ");
-            if (((a.element.kind == JrpcgenDeclaration.FIXEDVECTOR)
-                    || (a.element.kind == JrpcgenDeclaration.DYNAMICVECTOR))
-                    && !a.element.type.equals("String")) {
+            out.print("    public " + memberType(a.element) + " ");
+            if (isArrayMember(a.element)) {
                 out.print("[] ");
             }
             out.println(a.element.identifier + ";");
@@ -1329,6 +1848,8 @@ public class jrpcgen {
         }
         out.println("    }");
 
+        dumpUnionSizing(out, u);
+
         out.println();
         out.println("    public void xdrDecode(XdrDecodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
@@ -1415,6 +1936,18 @@ public class jrpcgen {
             }
         }
         out.println("    }");
+        if (generatePooledArgs) {
+            List<JrpcgenDeclaration> members = new ArrayList<>();
+            members.add(u.descriminant);
+            arms = u.elements.elements();
+            while (arms.hasMoreElements()) {
+                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
+                if (a.element != null) {
+                    members.add(a.element);
+                }
+            }
+            dumpReset(out, members);
+        }
         //
         // Close class...
         //
@@ -1424,17 +1957,86 @@ public class jrpcgen {
     }
 
     /**
-     * Generate a source code file containing a wrapper class for a typedef
-     * defined in a x-file.
+     * Generate the <code>xdrEncodedSize</code> method of a union, which
+     * follows the same arms as the encoding method.
      *
-     * @param d {@link JrpcgenDeclaration Description} of XDR typedef.
+     * @param out Printer writer to send source code to.
+     * @param u {@link JrpcgenUnion Description} of XDR union.
      */
-    public static void dumpTypedef(JrpcgenDeclaration d) {
-        //
-        // Create new source code file containing a Java class representing
-        // the XDR struct.
-        //
-        PrintWriter out = createJavaSourceFile(d.identifier);
+    private static void dumpUnionSizing(PrintWriter out, JrpcgenUnion u) {
+        out.println();
+        out.println("    public int xdrEncodedSize() {");
+        out.println("        int $size = 0;");
+        out.print(sizingMethod(u.descriminant, null));
+        if (!u.descriminant.type.equals("boolean")) {
+            out.println("        switch ( " + u.descriminant.identifier + " ) {");
+            Enumeration arms = u.elements.elements();
+            while (arms.hasMoreElements()) {
+                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
+                if (a.value != null) {
+                    out.println("        case " + checkForEnumValue(a.value) + ":");
+                } else {
+                    out.println("        default:");
+                }
+                if (a.element != null) {
+                    if (a.element.identifier != null) {
+                        out.print("    ");
+                        out.print(sizingMethod(a.element, null));
+                    }
+                    out.println("            break;");
+                }
+            }
+            out.println("        }");
+        } else {
+            boolean firstArm = true;
+            Enumeration arms = u.elements.elements();
+            while (arms.hasMoreElements()) {
+                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
+                if ((a.value != null) && (a.element.identifier != null)) {
+                    out.print("        ");
+                    if (!firstArm) {
+                        out.print("else ");
+                    } else {
+                        firstArm = false;
+                    }
+                    out.println("if ( " + u.descriminant.identifier
+                            + " == " + checkForEnumValue(a.value) + " ) {");
+                    out.print("    ");
+                    out.print(sizingMethod(a.element, null));
+                    out.println("        }");
+                }
+            }
+            arms = u.elements.elements();
+            while (arms.hasMoreElements()) {
+                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
+                if ((a.value == null) && (a.element.identifier != null)) {
+                    out.print("        ");
+                    if (!firstArm) {
+                        out.print("else ");
+                    }
+                    out.println("{");
+                    out.print("    ");
+                    out.print(sizingMethod(a.element, null));
+                    out.println("        }");
+                }
+            }
+        }
+        out.println("        return $size;");
+        out.println("    }");
+    }
+
+    /**
+     * Generate a source code file containing a wrapper class for a typedef
+     * defined in a x-file.
+     *
+     * @param d {@link JrpcgenDeclaration Description} of XDR typedef.
+     */
+    public static void dumpTypedef(JrpcgenDeclaration d) {
+        //
+        // Create new source code file containing a Java class representing
+        // the XDR struct.
+        //
+        PrintWriter out = createJavaSourceFile(d.identifier);
 
         out.print("public class " + d.identifier + " implements XdrAble");
         if (makeSerializable) {
@@ -1443,10 +2045,8 @@ public class jrpcgen {
         out.println(" {");
         out.println();
 
-        String paramType = checkForSpecials(d.type);
-        if (((d.kind == JrpcgenDeclaration.FIXEDVECTOR)
-                || (d.kind == JrpcgenDeclaration.DYNAMICVECTOR))
-                && !d.type.equals("String")) {
+        String paramType = memberType(d);
+        if (isArrayMember(d)) {
             paramType += " []";
         }
 
@@ -1494,11 +2094,21 @@ public class jrpcgen {
         out.print(codingMethod(dstar, true));
         out.println("    }");
 
+        out.println();
+        out.println("    public int xdrEncodedSize() {");
+        out.println("        int $size = 0;");
+        out.print(sizingMethod(dstar, null));
+        out.println("        return $size;");
+        out.println("    }");
+
         out.println();
         out.println("    public void xdrDecode(XdrDecodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
         out.print(codingMethod(dstar, false));
         out.println("    }");
+        if (generatePooledArgs) {
+            dumpReset(out, Collections.singletonList(dstar));
+        }
         //
         // Close class...
         //
@@ -1518,6 +2128,9 @@ public class jrpcgen {
                 dumpEnum((JrpcgenEnum) o);
             } else if (o instanceof JrpcgenStruct) {
                 dumpStruct((JrpcgenStruct) o);
+                if (generateFlatLists && isLinkedList((JrpcgenStruct) o)) {
+                    dumpFlatList((JrpcgenStruct) o);
+                }
             } else if (o instanceof JrpcgenUnion) {
                 dumpUnion((JrpcgenUnion) o);
             } else if (o instanceof JrpcgenDeclaration) {
@@ -2124,47 +2737,7 @@ public class jrpcgen {
         // parameters are named at this point (they will either have a
         // user supplied name, or an automatically generated one).
         //
-        int paramsKind;
-
-        if (proc.parameters != null) {
-            int psize = proc.parameters.size();
-            //
-            // Now find out what kind of parameter(s) we have. In case
-            // the remote procedure only expects a single parameter, check
-            // whether it is a base type. In this case we later need to
-            // wrap the single parameter. If the remote procedure expects
-            // more than a single parameter, then we always need a
-            // XDR wrapper.
-            //
-            if (psize > 1) {
-                paramsKind = PARAMS_MORE;
-            } else {
-                //
-                // psize must be equal to one, otherwise proc.parameters
-                // must have been null.
-                //
-                String firstParamType =
-                        ((JrpcgenParamInfo) proc.parameters.elementAt(0)).parameterType;
-                if (xdrBaseType(checkForSpecials(firstParamType)) == null) {
-                    //
-                    // No, it is not a base type, so we don't need one
-                    // of the special XDR wrapper classes.
-                    //
-                    paramsKind = PARAMS_SINGLE;
-                } else {
-                    //
-                    // The single parameter to the remote procedure is
-                    // a base type, so we will later need a wrapper.
-                    //
-                    paramsKind = PARAMS_SINGLE_BASETYPE;
-                }
-            }
-        } else {
-            //
-            // Remote procedure does not expect parameters at all.
-            //
-            paramsKind = PARAMS_VOID;
-        }
+        int paramsKind = paramsKind(proc);
 
         //
         // Do generate code for unwrapping here, if necessary.
@@ -2187,9 +2760,7 @@ public class jrpcgen {
                 // ready for serialization.
                 //
                 JrpcgenParamInfo paramInfo = (JrpcgenParamInfo) proc.parameters.elementAt(0);
-                out.println("                " + paramInfo.parameterType
-                        + " args$ = new "
-                        + paramInfo.parameterType + "();");
+                dumpServerArgsAllocation(out, proc, paramInfo.parameterType, true);
                 out.println("                call.retrieveCall(args$);");
                 params = "call, args$";
                 break;
@@ -2202,8 +2773,7 @@ public class jrpcgen {
                 JrpcgenParamInfo paramInfo = (JrpcgenParamInfo) proc.parameters.elementAt(0);
                 String paramsType = checkForSpecials(paramInfo.parameterType);
                 String xdrParamsType = xdrBaseType(paramsType);
-                out.println("                " + xdrParamsType + " args$ = new "
-                        + xdrParamsType + "();");
+                dumpServerArgsAllocation(out, proc, xdrParamsType, false);
                 out.println("                call.retrieveCall(args$);");
                 params = "call, args$." + paramsType.toLowerCase() + "Value()";
                 break;
@@ -2211,49 +2781,16 @@ public class jrpcgen {
 
             case PARAMS_MORE: {
                 //
-                //
+                // Arguments are decoded into the nested class generated
+                // by dumpServerArgsClass.
                 //
                 StringBuilder paramsBuff = new StringBuilder();
-
-                out.println("                class XdrAble$ implements XdrAble {");
-
+                String argsClass = "XdrAble$" + proc.procedureId;
                 int psize = proc.parameters.size();
-                for (int pidx = 0; pidx < psize; ++pidx) {
-                    JrpcgenParamInfo pinfo = (JrpcgenParamInfo) proc.parameters.elementAt(pidx);
-                    out.println("                    public "
-                            + checkForSpecials(pinfo.parameterType)
-                            + " " + pinfo.parameterName + ";");
-                }
-
-                out.println("                    public void xdrEncode(XdrEncodingStream xdr)");
-                out.println("                        throws OncRpcException, IOException {");
-                out.println("                    }");
-                out.println("                    public void xdrDecode(XdrDecodingStream xdr)");
-                out.println("                        throws OncRpcException, IOException {");
-
-                //
-                // Emit serialization code for all parameters.
-                // Note that not we do not need to deal with all kinds of
-                // parameters here, as things like "int<5>" are invalid,
-                // a typedef declaration is then necessary.
-                //
-                JrpcgenDeclaration decl = new JrpcgenDeclaration(null, null);
-                for (int pidx = 0; pidx < psize; ++pidx) {
-                    JrpcgenParamInfo pinfo = (JrpcgenParamInfo) proc.parameters.elementAt(pidx);
-                    decl.kind = JrpcgenDeclaration.SCALAR;
-                    decl.identifier = pinfo.parameterName;
-                    decl.type = pinfo.parameterType;
-                    out.print("                ");
-                    out.print(codingMethod(decl, false));
-                }
 
-                out.println("                    }");
-
-                out.println("                };");
-                out.println("                XdrAble$ args$ = new XdrAble$();");
+                dumpServerArgsAllocation(out, proc, argsClass, true);
                 out.println("                call.retrieveCall(args$);");
 
-
                 if (psize > 0) {
                     paramsBuff.append("call, ");
                 } else {
@@ -2282,7 +2819,14 @@ public class jrpcgen {
         //
         String xdrResultType = xdrBaseType(resultType);
 
-        if (resultType.equals("void")) {
+        if (generateAsyncServer) {
+            //
+            // The procedure returns a future of the XDR type, the reply is
+            // sent when it completes.
+            //
+            out.println("                call.replyWhenComplete(" + proc.procedureId + "("
+                    + params + "));");
+        } else if (resultType.equals("void")) {
             //
             // It's a remote procedure, so it does return simply nothing.
             // We use the singleton XDR_VOID to return a "nothing".
@@ -2290,6 +2834,21 @@ public class jrpcgen {
             out.println("                " + proc.procedureId + "("
                     + params + ");");
             out.println("                call.reply(XdrVoid.XDR_VOID);");
+        } else if (reuseArguments() && "XdrBoolean".equals(xdrResultType)) {
+            //
+            // Use the shared constants instead of wrapping the result.
+            //
+            out.println("                call.reply(" + proc.procedureId + "(" + params + ")"
+                    + " ? XdrBoolean.True : XdrBoolean.False);");
+        } else if (reusableResult(proc)) {
+            //
+            // Wrap the result into the per-thread wrapper. It is encoded
+            // before reply returns, thus can be reused by the next call.
+            //
+            out.println("                " + xdrResultType + " result$ = "
+                    + proc.procedureId + "$result.get();");
+            out.println("                result$.setValue(" + proc.procedureId + "(" + params + "));");
+            out.println("                call.reply(result$);");
         } else if (xdrResultType != null) {
             //
             // The return type is some Java base data type, so we need to
@@ -2309,6 +2868,60 @@ public class jrpcgen {
         }
     }
 
+    /**
+     * Returns the kind of parameters of a remote procedure.
+     *
+     * @param proc information about the remote procedure.
+     *
+     * @return one of {@link #PARAMS_VOID}, {@link #PARAMS_SINGLE},
+     *   {@link #PARAMS_SINGLE_BASETYPE} or {@link #PARAMS_MORE}.
+     */
+    public static int paramsKind(JrpcgenProcedureInfo proc) {
+        int paramsKind;
+
+        if (proc.parameters != null) {
+            int psize = proc.parameters.size();
+            //
+            // Now find out what kind of parameter(s) we have. In case
+            // the remote procedure only expects a single parameter, check
+            // whether it is a base type. In this case we later need to
+            // wrap the single parameter. If the remote procedure expects
+            // more than a single parameter, then we always need a
+            // XDR wrapper.
+            //
+            if (psize > 1) {
+                paramsKind = PARAMS_MORE;
+            } else {
+                //
+                // psize must be equal to one, otherwise proc.parameters
+                // must have been null.
+                //
+                String firstParamType =
+                        ((JrpcgenParamInfo) proc.parameters.elementAt(0)).parameterType;
+                if (xdrBaseType(checkForSpecials(firstParamType)) == null) {
+                    //
+                    // No, it is not a base type, so we don't need one
+                    // of the special XDR wrapper classes.
+                    //
+                    paramsKind = PARAMS_SINGLE;
+                } else {
+                    //
+                    // The single parameter to the remote procedure is
+                    // a base type, so we will later need a wrapper.
+                    //
+                    paramsKind = PARAMS_SINGLE_BASETYPE;
+                }
+            }
+        } else {
+            //
+            // Remote procedure does not expect parameters at all.
+            //
+            paramsKind = PARAMS_VOID;
+        }
+
+        return paramsKind;
+    }
+
     /**
      * Generate public abstract method signatures for all remote procedure
      * calls. This ensures that they have to be implemented before any
@@ -2329,6 +2942,9 @@ public class jrpcgen {
             // at all... Fortunately, this is relatively easy as we do not
             // need to care about parameter wrapping/unwrapping here.
             //
+            if (generateAsyncServer) {
+                resultType = "CompletableFuture<" + boxForTransport(resultType) + ">";
+            }
             out.print("    public abstract " + resultType + " "
                     + proc.procedureId + "(");
             if (proc.parameters != null) {
@@ -2353,6 +2969,307 @@ public class jrpcgen {
         }
     }
 
+    /**
+     * Generate a nested class holding the arguments of a remote procedure
+     * expecting more than a single parameter.
+     *
+     * @param out printer to write generated code to.
+     * @param proc information about the remote procedure.
+     */
+    public static void dumpServerArgsClass(PrintWriter out,
+            JrpcgenProcedureInfo proc) {
+        int psize = proc.parameters.size();
+
+        out.println("    public static class XdrAble$" + proc.procedureId + " implements XdrAble {");
+        for (int pidx = 0; pidx < psize; ++pidx) {
+            JrpcgenParamInfo pinfo = (JrpcgenParamInfo) proc.parameters.elementAt(pidx);
+            out.println("        public "
+                    + checkForSpecials(pinfo.parameterType)
+                    + " " + pinfo.parameterName + ";");
+        }
+        out.println();
+
+        //
+        // Emit serialization code for all parameters.
+        // Note that not we do not need to deal with all kinds of
+        // parameters here, as things like "int<5>" are invalid,
+        // a typedef declaration is then necessary.
+        //
+        JrpcgenDeclaration decl = new JrpcgenDeclaration(null, null);
+        for (int encode = 1; encode >= 0; --encode) {
+            out.println(encode == 1
+                    ? "        public void xdrEncode(XdrEncodingStream xdr)"
+                    : "        public void xdrDecode(XdrDecodingStream xdr)");
+            out.println("            throws OncRpcException, IOException {");
+            for (int pidx = 0; pidx < psize; ++pidx) {
+                JrpcgenParamInfo pinfo = (JrpcgenParamInfo) proc.parameters.elementAt(pidx);
+                decl.kind = JrpcgenDeclaration.SCALAR;
+                decl.identifier = pinfo.parameterName;
+                decl.type = pinfo.parameterType;
+                out.print("    ");
+                out.print(codingMethod(decl, encode == 1));
+            }
+            out.println("        }");
+        }
+        if (generatePooledArgs) {
+            List<JrpcgenDeclaration> members = new ArrayList<>();
+            for (int pidx = 0; pidx < psize; ++pidx) {
+                JrpcgenParamInfo pinfo = (JrpcgenParamInfo) proc.parameters.elementAt(pidx);
+                members.add(new JrpcgenDeclaration(pinfo.parameterName, pinfo.parameterType));
+            }
+            dumpReset(out, members, "    ");
+        }
+        out.println("    }");
+        out.println();
+    }
+
+    /**
+     * Checks whether server stubs reuse per-thread argument objects.
+     *
+     * @return <code>true</code> if argument objects are reused.
+     */
+    public static boolean reuseArguments() {
+        //
+        // Asynchronous procedures may access their arguments after
+        // returning, so those can not be reused.
+        //
+        return generatePooledArgs && !generateAsyncServer;
+    }
+
+    /**
+     * Checks whether the server stub wraps the base type result of a
+     * procedure into a per-thread wrapper object.
+     *
+     * @param proc information about the remote procedure.
+     *
+     * @return <code>true</code> if the result wrapper is reused.
+     */
+    public static boolean reusableResult(JrpcgenProcedureInfo proc) {
+        String xdrResultType = xdrBaseType(checkForSpecials(proc.resultType));
+        return reuseArguments()
+                && ("XdrInt".equals(xdrResultType) || "XdrLong".equals(xdrResultType));
+    }
+
+    /**
+     * Generate code declaring and obtaining the argument object of a remote
+     * procedure inside of the server stub dispatcher.
+     *
+     * @param out printer to write generated code to.
+     * @param proc information about the remote procedure.
+     * @param argsType type of the argument object.
+     * @param resettable whether the argument object has a <code>reset()</code> method.
+     */
+    public static void dumpServerArgsAllocation(PrintWriter out,
+            JrpcgenProcedureInfo proc, String argsType, boolean resettable) {
+        if (!reuseArguments()) {
+            out.println("                " + argsType + " args$ = new " + argsType + "();");
+            return;
+        }
+        out.println("                " + argsType + " args$;");
+        out.println("                if ( isArgumentReusable(version, procedure) ) {");
+        out.println("                    args$ = " + proc.procedureId + "$args.get();");
+        if (resettable) {
+            out.println("                    args$.reset();");
+        }
+        out.println("                } else {");
+        out.println("                    args$ = new " + argsType + "();");
+        out.println("                }");
+    }
+
+    /**
+     * Generate the per-thread argument and result objects of a program
+     * together with the <code>isArgumentReusable</code> method.
+     *
+     * @param out printer to write generated code to.
+     * @param programInfo information about the remote program.
+     */
+    public static void dumpServerPools(PrintWriter out,
+            JrpcgenProgramInfo programInfo) {
+        int versionSize = programInfo.versions.size();
+        for (int versionIdx = 0; versionIdx < versionSize; ++versionIdx) {
+            JrpcgenVersionInfo versionInfo = (JrpcgenVersionInfo) programInfo.versions.elementAt(versionIdx);
+            int procSize = versionInfo.procedures.size();
+            for (int procIdx = 0; procIdx < procSize; ++procIdx) {
+                JrpcgenProcedureInfo proc = (JrpcgenProcedureInfo) versionInfo.procedures.elementAt(procIdx);
+                String argsType;
+                switch (paramsKind(proc)) {
+                    case PARAMS_VOID:
+                        argsType = null;
+                        break;
+                    case PARAMS_SINGLE:
+                        argsType = ((JrpcgenParamInfo) proc.parameters.elementAt(0)).parameterType;
+                        break;
+                    case PARAMS_SINGLE_BASETYPE:
+                        argsType = xdrBaseType(checkForSpecials(
+                                ((JrpcgenParamInfo) proc.parameters.elementAt(0)).parameterType));
+                        break;
+                    default:
+                        argsType = "XdrAble$" + proc.procedureId;
+                        break;
+                }
+                if (argsType != null) {
+                    out.println("    private static final ThreadLocal<" + argsType + "> "
+                            + proc.procedureId + "$args = ThreadLocal.withInitial(" + argsType + "::new);");
+                }
+                if (reusableResult(proc)) {
+                    String xdrResultType = xdrBaseType(checkForSpecials(proc.resultType));
+                    out.println("    private static final ThreadLocal<" + xdrResultType + "> "
+                            + proc.procedureId + "$result = ThreadLocal.withInitial(" + xdrResultType + "::new);");
+                }
+            }
+        }
+        out.println();
+        out.println("    /**");
+        out.println("     * Returns whether the argument object of a procedure may be reused by");
+        out.println("     * the next call on the same thread. Implementations which keep references");
+        out.println("     * to the arguments after the procedure returns must return false.");
+        out.println("     */");
+        out.println("    protected boolean isArgumentReusable(int version, int procedure) {");
+        out.println("        return true;");
+        out.println("    }");
+        out.println();
+    }
+
+    /**
+     * Generate the <code>reset()</code> method, which sets all members back
+     * to their initial values, so an instance can be reused for decoding.
+     *
+     * @param out printer to write generated code to.
+     * @param members declarations of members to reset.
+     */
+    public static void dumpReset(PrintWriter out, List<JrpcgenDeclaration> members) {
+        dumpReset(out, members, "");
+    }
+
+    /**
+     * Generate the <code>reset()</code> method of a nested class.
+     *
+     * @param out printer to write generated code to.
+     * @param members declarations of members to reset.
+     * @param indent additional indentation of the generated code.
+     */
+    public static void dumpReset(PrintWriter out, List<JrpcgenDeclaration> members, String indent) {
+        out.println();
+        out.println(indent + "    public void reset() {");
+        Set<String> done = new HashSet<>();
+        for (JrpcgenDeclaration decl : members) {
+            if (decl.identifier == null || !done.add(decl.identifier)) {
+                continue;
+            }
+            out.println(indent + "        " + decl.identifier + " = " + resetValue(decl) + ";");
+        }
+        out.println(indent + "    }");
+    }
+
+    /**
+     * Returns the initial value of a struct or union member.
+     *
+     * @param decl declaration of member.
+     *
+     * @return Java literal of the initial value.
+     */
+    public static String resetValue(JrpcgenDeclaration decl) {
+        if (isArrayMember(decl)) {
+            return "null";
+        }
+        String type = memberType(decl);
+        switch (type) {
+            case "boolean":
+                return "false";
+            case "byte":
+            case "short":
+            case "int":
+            case "long":
+            case "float":
+            case "double":
+                return "0";
+            case "String":
+                return initStrings ? "\"\"" : "null";
+            default:
+                return "null";
+        }
+    }
+
+    /**
+     * Generate the table of procedure descriptors of a program together
+     * with the <code>getProcedureDescriptor</code> lookup method.
+     *
+     * @param out printer to write generated code to.
+     * @param programInfo information about the remote program.
+     */
+    public static void dumpProcedureDescriptors(PrintWriter out,
+            JrpcgenProgramInfo programInfo) {
+        int versionSize = programInfo.versions.size();
+
+        out.println("    public static final RpcProcedureDescriptor[] PROCEDURES = {");
+        for (int versionIdx = 0; versionIdx < versionSize; ++versionIdx) {
+            JrpcgenVersionInfo versionInfo = (JrpcgenVersionInfo) programInfo.versions.elementAt(versionIdx);
+            int procSize = versionInfo.procedures.size();
+            for (int procIdx = 0; procIdx < procSize; ++procIdx) {
+                JrpcgenProcedureInfo proc = (JrpcgenProcedureInfo) versionInfo.procedures.elementAt(procIdx);
+                //
+                // Strip the version suffix appended by the parser.
+                //
+                String name = proc.procedureId.substring(0, proc.procedureId.lastIndexOf('_'));
+
+                String argumentType;
+                String argumentFactory;
+                switch (paramsKind(proc)) {
+                    case PARAMS_VOID:
+                        argumentType = "XdrVoid";
+                        argumentFactory = "() -> XdrVoid.XDR_VOID";
+                        break;
+                    case PARAMS_SINGLE:
+                        argumentType = checkForSpecials(
+                                ((JrpcgenParamInfo) proc.parameters.elementAt(0)).parameterType);
+                        argumentFactory = argumentType + "::new";
+                        break;
+                    case PARAMS_SINGLE_BASETYPE:
+                        argumentType = xdrBaseType(checkForSpecials(
+                                ((JrpcgenParamInfo) proc.parameters.elementAt(0)).parameterType));
+                        argumentFactory = argumentType + "::new";
+                        break;
+                    default:
+                        argumentType = "XdrAble$" + proc.procedureId;
+                        argumentFactory = argumentType + "::new";
+                        break;
+                }
+
+                out.println("        new RpcProcedureDescriptor("
+                        + checkForEnumValue(programInfo.programNumber) + ", "
+                        + checkForEnumValue(versionInfo.versionNumber) + ", "
+                        + checkForEnumValue(proc.procedureNumber) + ", \""
+                        + name + "\", "
+                        + argumentType + ".class, "
+                        + boxForTransport(checkForSpecials(proc.resultType)) + ".class, "
+                        + idempotentProcedures.contains(idempotentKey(versionInfo.versionId, name)) + ", "
+                        + argumentFactory + "),");
+            }
+        }
+        out.println("    };");
+        out.println();
+
+        out.println("    public RpcProcedureDescriptor getProcedureDescriptor(int version, int procedure) {");
+        int descriptorIdx = 0;
+        for (int versionIdx = 0; versionIdx < versionSize; ++versionIdx) {
+            JrpcgenVersionInfo versionInfo = (JrpcgenVersionInfo) programInfo.versions.elementAt(versionIdx);
+            out.print(versionIdx == 0 ? "        " : "        } else ");
+            out.println("if ( version == " + versionInfo.versionNumber + " ) {");
+            out.println("            switch ( procedure ) {");
+            int procSize = versionInfo.procedures.size();
+            for (int procIdx = 0; procIdx < procSize; ++procIdx) {
+                JrpcgenProcedureInfo proc = (JrpcgenProcedureInfo) versionInfo.procedures.elementAt(procIdx);
+                out.println("            case " + checkForEnumValue(proc.procedureNumber) + ":");
+                out.println("                return PROCEDURES[" + descriptorIdx++ + "];");
+            }
+            out.println("            }");
+        }
+        out.println("        }");
+        out.println("        return null;");
+        out.println("    }");
+        out.println();
+    }
+
     /**
      *
      */
@@ -2371,6 +3288,9 @@ public class jrpcgen {
         PrintWriter out = createJavaSourceFile(serverClass);
 
         out.println("import org.dcache.oncrpc4j.xdr.*;");
+        if (generateAsyncServer) {
+            out.println("import java.util.concurrent.CompletableFuture;");
+        }
         out.println();
 
         out.println("/**");
@@ -2380,6 +3300,25 @@ public class jrpcgen {
 
         int versionSize = programInfo.versions.size();
 
+        //
+        // Generate argument holders for procedures with more than one
+        // parameter and the procedure descriptor table...
+        //
+        for (int versionIdx = 0; versionIdx < versionSize; ++versionIdx) {
+            JrpcgenVersionInfo versionInfo = (JrpcgenVersionInfo) programInfo.versions.elementAt(versionIdx);
+            int procSize = versionInfo.procedures.size();
+            for (int procIdx = 0; procIdx < procSize; ++procIdx) {
+                JrpcgenProcedureInfo procInfo = (JrpcgenProcedureInfo) versionInfo.procedures.elementAt(procIdx);
+                if (paramsKind(procInfo) == PARAMS_MORE) {
+                    dumpServerArgsClass(out, procInfo);
+                }
+            }
+        }
+        dumpProcedureDescriptors(out, programInfo);
+        if (reuseArguments()) {
+            dumpServerPools(out, programInfo);
+        }
+
         //
         // Generate dispatcher code...
         //
@@ -2450,12 +3389,399 @@ public class jrpcgen {
                 dumpServer(progInfo);
             }
         }
+        if (generateJmh) {
+            dumpBenchmark();
+        }
+    }
+
+    /**
+     * Generate a JMH benchmark class measuring encoding and decoding of all
+     * structs and unions defined in the x-file. The benchmarked instances
+     * are filled with random but valid content, the length of variable-size
+     * arrays, strings and linked lists is controlled by the
+     * <code>size</code> parameter.
+     */
+    public static void dumpBenchmark() {
+        String benchmarkClass = baseClassname + "CodecBenchmark";
+        PrintWriter out = createJavaSourceFile(benchmarkClass);
+
+        List<String> types = new ArrayList<>();
+        List<Object> randomized = new ArrayList<>();
+        List<String> identifiers = new ArrayList<>(globalIdentifiers.keySet());
+        Collections.sort(identifiers);
+        for (String identifier : identifiers) {
+            Object o = globalIdentifiers.get(identifier);
+            if (o instanceof JrpcgenStruct) {
+                types.add(((JrpcgenStruct) o).identifier);
+                randomized.add(o);
+            } else if (o instanceof JrpcgenUnion) {
+                types.add(((JrpcgenUnion) o).identifier);
+                randomized.add(o);
+            } else if (o instanceof JrpcgenDeclaration) {
+                randomized.add(o);
+            }
+        }
+
+        out.println("import java.util.Random;");
+        out.println("import org.openjdk.jmh.annotations.Benchmark;");
+        out.println("import org.openjdk.jmh.annotations.BenchmarkMode;");
+        out.println("import org.openjdk.jmh.annotations.Mode;");
+        out.println("import org.openjdk.jmh.annotations.Param;");
+        out.println("import org.openjdk.jmh.annotations.Scope;");
+        out.println("import org.openjdk.jmh.annotations.Setup;");
+        out.println("import org.openjdk.jmh.annotations.State;");
+        out.println("import org.openjdk.jmh.infra.Blackhole;");
+        out.println();
+        out.println("@State(Scope.Benchmark)");
+        out.println("@BenchmarkMode(Mode.Throughput)");
+        out.println("public class " + benchmarkClass + " {");
+        out.println();
+        out.println("    /**");
+        out.println("     * Maximal nesting of optional data.");
+        out.println("     */");
+        out.println("    private static final int MAX_DEPTH = 4;");
+        out.println();
+        out.println("    /**");
+        out.println("     * Number of elements of variable-length arrays, strings and linked lists.");
+        out.println("     */");
+        out.println("    @Param({\"16\", \"1024\"})");
+        out.println("    private String size;");
+        out.println();
+        out.println("    private Xdr xdr;");
+        for (String type : types) {
+            out.println();
+            out.println("    private " + type + " value$" + type + ";");
+            out.println("    private Xdr encoded$" + type + ";");
+        }
+        out.println();
+        out.println("    @Setup");
+        out.println("    public void setUp() throws OncRpcException, IOException {");
+        out.println("        int $size = Integer.parseInt(size);");
+        out.println("        Random $r = new Random(" + baseClassname.hashCode() + "L);");
+        out.println("        xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);");
+        for (String type : types) {
+            out.println("        value$" + type + " = random$" + type + "($r, $size, 0);");
+            out.println("        encoded$" + type + " = encode(value$" + type + ");");
+        }
+        out.println("    }");
+        for (String type : types) {
+            out.println();
+            out.println("    @Benchmark");
+            out.println("    public void encode" + type + "(Blackhole blackhole) throws OncRpcException, IOException {");
+            out.println("        xdr.beginEncoding();");
+            out.println("        value$" + type + ".xdrEncode(xdr);");
+            out.println("        xdr.endEncoding();");
+            out.println("        blackhole.consume(xdr);");
+            out.println("    }");
+            out.println();
+            out.println("    @Benchmark");
+            out.println("    public void decode" + type + "(Blackhole blackhole) throws OncRpcException, IOException {");
+            out.println("        encoded$" + type + ".beginDecoding();");
+            out.println("        blackhole.consume(new " + type + "(encoded$" + type + "));");
+            out.println("        encoded$" + type + ".endDecoding();");
+            out.println("    }");
+        }
+
+        out.println();
+        out.println("    private static Xdr encode(XdrAble value) throws OncRpcException, IOException {");
+        out.println("        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);");
+        out.println("        xdr.beginEncoding();");
+        out.println("        value.xdrEncode(xdr);");
+        out.println("        xdr.endEncoding();");
+        out.println("        return xdr;");
+        out.println("    }");
+        out.println();
+        out.println("    private static String randomString(Random $r, int $n) {");
+        out.println("        char[] chars = new char[$n];");
+        out.println("        for (int $i = 0; $i < $n; $i++) {");
+        out.println("            chars[$i] = (char) ('a' + $r.nextInt(26));");
+        out.println("        }");
+        out.println("        return new String(chars);");
+        out.println("    }");
+        out.println();
+        out.println("    private static byte[] randomBytes(Random $r, int $n) {");
+        out.println("        byte[] bytes = new byte[$n];");
+        out.println("        $r.nextBytes(bytes);");
+        out.println("        return bytes;");
+        out.println("    }");
+
+        for (Object o : randomized) {
+            out.println();
+            if (o instanceof JrpcgenStruct) {
+                dumpRandomStruct(out, (JrpcgenStruct) o);
+            } else if (o instanceof JrpcgenUnion) {
+                dumpRandomUnion(out, (JrpcgenUnion) o);
+            } else {
+                JrpcgenDeclaration d = (JrpcgenDeclaration) o;
+                JrpcgenDeclaration dstar = null;
+                try {
+                    dstar = (JrpcgenDeclaration) d.clone();
+                } catch (CloneNotSupportedException e) {
+                    throw (new RuntimeException("fatal: can not clone JrpcgenDeclaration"));
+                }
+                dstar.identifier = "value";
+                out.println("    static " + d.identifier + " random$" + d.identifier
+                        + "(Random $r, int $size, int $depth) {");
+                out.println("        " + d.identifier + " $v = new " + d.identifier + "();");
+                dumpRandomMember(out, dstar, "$v.", "        ");
+                out.println("        return $v;");
+                out.println("    }");
+            }
+        }
+
+        out.println("}");
+        closeJavaSourceFile();
+    }
+
+    /**
+     * Generate the method creating a struct with random content. Linked
+     * lists get exactly <code>$size</code> elements.
+     */
+    private static void dumpRandomStruct(PrintWriter out, JrpcgenStruct s) {
+        out.println("    static " + s.identifier + " random$" + s.identifier
+                + "(Random $r, int $size, int $depth) {");
+        int size = s.elements.size();
+        if (isLinkedList(s)) {
+            JrpcgenDeclaration tail = (JrpcgenDeclaration) s.elements.elementAt(size - 1);
+            out.println("        " + s.identifier + " $head = null;");
+            out.println("        " + s.identifier + " $last = null;");
+            out.println("        for (int $i = 0; $i < Math.max(1, $size); $i++) {");
+            out.println("            " + s.identifier + " $v = new " + s.identifier + "();");
+            for (int i = 0; i < size - 1; ++i) {
+                dumpRandomMember(out, (JrpcgenDeclaration) s.elements.elementAt(i), "$v.",
+                        "            ");
+            }
+            out.println("            if ($head == null) {");
+            out.println("                $head = $v;");
+            out.println("            } else {");
+            out.println("                $last." + tail.identifier + " = $v;");
+            out.println("            }");
+            out.println("            $last = $v;");
+            out.println("        }");
+            out.println("        return $head;");
+        } else {
+            out.println("        " + s.identifier + " $v = new " + s.identifier + "();");
+            for (int i = 0; i < size; ++i) {
+                dumpRandomMember(out, (JrpcgenDeclaration) s.elements.elementAt(i), "$v.",
+                        "        ");
+            }
+            out.println("        return $v;");
+        }
+        out.println("    }");
+    }
+
+    /**
+     * Generate the method creating a union with random content. One of the
+     * arms with an explicit case value is chosen at random.
+     */
+    private static void dumpRandomUnion(PrintWriter out, JrpcgenUnion u) {
+        out.println("    static " + u.identifier + " random$" + u.identifier
+                + "(Random $r, int $size, int $depth) {");
+        out.println("        " + u.identifier + " $v = new " + u.identifier + "();");
+
+        List<JrpcgenUnionArm> cases = new ArrayList<>();
+        List<JrpcgenDeclaration> elements = new ArrayList<>();
+        int armSize = u.elements.size();
+        for (int i = 0; i < armSize; ++i) {
+            JrpcgenUnionArm a = (JrpcgenUnionArm) u.elements.elementAt(i);
+            if (a.value == null) {
+                continue;
+            }
+            //
+            // Arms without an element fall through to the next arm which
+            // has one.
+            //
+            JrpcgenDeclaration element = null;
+            for (int j = i; j < armSize && element == null; ++j) {
+                element = ((JrpcgenUnionArm) u.elements.elementAt(j)).element;
+            }
+            cases.add(a);
+            elements.add(element);
+        }
+
+        if (!cases.isEmpty()) {
+            out.println("        switch ($r.nextInt(" + cases.size() + ")) {");
+            for (int i = 0; i < cases.size(); ++i) {
+                out.println("        case " + i + ":");
+                out.println("            $v." + u.descriminant.identifier + " = "
+                        + checkForEnumValue(cases.get(i).value) + ";");
+                JrpcgenDeclaration element = elements.get(i);
+                if (element != null && element.identifier != null) {
+                    dumpRandomMember(out, element, "$v.", "            ");
+                }
+                out.println("            break;");
+            }
+            out.println("        }");
+        }
+        out.println("        return $v;");
+        out.println("    }");
+    }
+
+    /**
+     * Generate code assigning random but valid content to a struct or
+     * union member.
+     *
+     * @param out printer to write generated code to.
+     * @param decl declaration of the member.
+     * @param oref object reference prefix of the member.
+     * @param indent indentation of the generated statement.
+     */
+    private static void dumpRandomMember(PrintWriter out, JrpcgenDeclaration decl, String oref,
+            String indent) {
+        String target = oref + decl.identifier;
+        String length;
+        if (decl.kind == JrpcgenDeclaration.FIXEDVECTOR) {
+            length = checkForEnumValue(decl.size);
+        } else if (decl.size == null) {
+            length = "$size";
+        } else {
+            length = "Math.min($size, " + checkForEnumValue(decl.size) + ")";
+        }
+
+        String lazyVector = lazyVectorType(decl);
+        String flatList = flatListType(decl);
+        if (decl.type.equals("String")) {
+            out.println(indent + target + " = randomString($r, " + length + ");");
+        } else if (lazyVector != null && decl.type.equals("opaque")) {
+            out.println(indent + target + " = " + lazyVector + ".forBytes(randomBytes($r, " + length + "));");
+        } else if (lazyVector != null) {
+            out.println(indent + "{ int $n = " + length + "; " + decl.type + "[] $a = new "
+                    + decl.type + "[$n]; "
+                    + "for (int $i = 0; $i < $n; $i++) { $a[$i] = "
+                    + randomElement(decl.type) + "; } "
+                    + target + " = new " + lazyVector + "($a); }");
+        } else if (isArrayMember(decl) && decl.type.equals("opaque")) {
+            out.println(indent + target + " = randomBytes($r, " + length + ");");
+        } else if (isArrayMember(decl)) {
+            out.println(indent + "{ int $n = " + length + "; " + target + " = new "
+                    + memberType(decl) + "[$n]; "
+                    + "for (int $i = 0; $i < $n; $i++) { " + target + "[$i] = "
+                    + randomElement(decl.type) + "; } }");
+        } else if (flatList != null) {
+            out.println(indent + target + " = " + flatList + ".fromLinkedList("
+                    + randomElement(decl.type) + ");");
+        } else if (decl.kind == JrpcgenDeclaration.INDIRECTION
+                && xdrBaseType(checkForSpecials(decl.type)) == null) {
+            out.println(indent + target + " = $depth < MAX_DEPTH && $r.nextBoolean() ? "
+                    + randomElement(decl.type) + " : null;");
+        } else {
+            out.println(indent + target + " = " + randomElement(decl.type) + ";");
+        }
+    }
+
+    /**
+     * Returns an expression yielding a random but valid value of the given
+     * data type.
+     */
+    private static String randomElement(String type) {
+        Object o = globalIdentifiers.get(type);
+        if (o instanceof JrpcgenEnum) {
+            JrpcgenEnum e = (JrpcgenEnum) o;
+            StringBuilder values = new StringBuilder();
+            for (int i = 0; i < e.enums.size(); ++i) {
+                if (i > 0) {
+                    values.append(", ");
+                }
+                values.append(checkForEnumValue(((JrpcgenConst) e.enums.elementAt(i)).identifier));
+            }
+            return "new int[] { " + values + " }[$r.nextInt(" + e.enums.size() + ")]";
+        }
+        switch (type) {
+            case "boolean":
+                return "$r.nextBoolean()";
+            case "opaque":
+            case "byte":
+                return "(byte) $r.nextInt()";
+            case "short":
+                return "(short) $r.nextInt()";
+            case "int":
+                return "$r.nextInt()";
+            case "long":
+                return "$r.nextLong()";
+            case "float":
+                return "$r.nextFloat()";
+            case "double":
+                return "$r.nextDouble()";
+            default:
+                return "random$" + type + "($r, $size, $depth + 1)";
+        }
     }
 
     /**
      * The main part of jrpcgen where all things start.
      */
     public static void main(String[] args) {
+        try {
+            if (run(args) == null) {
+                System.exit(1);
+            }
+        } catch (Throwable t) {
+            System.out.println(t.getMessage());
+            //
+            // Exit application with non-zero outcome, so in case jrpcgen is
+            // used as part of, for instance, a make process, such tools can
+            // detect that there was a problem.
+            //
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Restores all options and the parser state to their initial values,
+     * so that several x-files can be processed within the same JVM.
+     */
+    public static void reset() {
+        globalIdentifiers = new HashMap();
+        programInfos = null;
+        idempotentProcedures = new HashSet<>();
+        generatedFiles = new ArrayList<>();
+        xFile = null;
+        destinationDir = new File(".");
+        currentFileWriter = null;
+        currentPrintWriter = null;
+        currentFilename = null;
+        packageName = null;
+        baseClassname = null;
+        serverClass = null;
+        clientClass = null;
+        noBackups = false;
+        debug = false;
+        verbose = false;
+        parseOnly = false;
+        noClient = false;
+        noServer = false;
+        makeSerializable = false;
+        makeBean = false;
+        initStrings = false;
+        generateSyncClient = true;
+        generateAsyncFutureClient = false;
+        generateAsyncCallbackClient = false;
+        generateOneWayClient = false;
+        generateTimeoutSupport = false;
+        generatePerCallAuthSupport = false;
+        generateFlatLists = false;
+        generateLazyVectors = false;
+        generateAsyncServer = false;
+        generatePooledArgs = false;
+        generateJmh = false;
+    }
+
+    /**
+     * Processes a single x-file with the given command line options. All
+     * state left over from a previous invocation is {@link #reset() reset}
+     * first. Invocations are serialized, as the parser works on the static
+     * state of this class.
+     *
+     * @param args command line options followed by the x-file.
+     *
+     * @return the generated source code files, or <code>null</code> if only
+     *   the version or usage information was printed.
+     *
+     * @throws IllegalArgumentException if the command line is invalid.
+     * @throws Exception if the x-file can not be processed.
+     */
+    public static synchronized List<File> run(String[] args) throws Exception {
+        reset();
         //
         // First parse the command line (options)...
         //
@@ -2476,30 +3802,26 @@ public class jrpcgen {
             if (arg.equals("-d")) {
                 // -d <dir>
                 if (++argIdx >= argc) {
-                    System.out.println("jrpcgen: missing directory");
-                    System.exit(1);
+                    throw new IllegalArgumentException("jrpcgen: missing directory");
                 }
                 destinationDir = new File(args[argIdx]);
             } else if (arg.equals("-package")
                     || arg.equals("-p")) {
                 // -p <package name>
                 if (++argIdx >= argc) {
-                    System.out.println("jrpcgen: missing package name");
-                    System.exit(1);
+                    throw new IllegalArgumentException("jrpcgen: missing package name");
                 }
                 packageName = args[argIdx];
             } else if (arg.equals("-c")) {
                 // -c <class name>
                 if (++argIdx >= argc) {
-                    System.out.println("jrpcgen: missing client class name");
-                    System.exit(1);
+                    throw new IllegalArgumentException("jrpcgen: missing client class name");
                 }
                 clientClass = args[argIdx];
             } else if (arg.equals("-s")) {
                 // -s <class name>
                 if (++argIdx >= argc) {
-                    System.out.println("jrpcgen: missing server class name");
-                    System.exit(1);
+                    throw new IllegalArgumentException("jrpcgen: missing server class name");
                 }
                 serverClass = args[argIdx];
             } else if (arg.equals("-ser")) {
@@ -2533,12 +3855,22 @@ public class jrpcgen {
                 generateTimeoutSupport = true;
             } else if (arg.equals("-percallauth")) {
                 generatePerCallAuthSupport = true;
+            } else if (arg.equals("-flatlists")) {
+                generateFlatLists = true;
+            } else if (arg.equals("-lazyvectors")) {
+                generateLazyVectors = true;
+            } else if (arg.equals("-asyncserver")) {
+                generateAsyncServer = true;
+            } else if (arg.equals("-pooledargs")) {
+                generatePooledArgs = true;
+            } else if (arg.equals("-jmh")) {
+                generateJmh = true;
             } else if (arg.equals("-version")) {
                 System.out.println("jrpcgen version \"" + VERSION + "\"");
-                System.exit(1);
+                return null;
             } else if (arg.equals("-help") || arg.equals("-?")) {
                 printHelp();
-                System.exit(1);
+                return null;
             } else if (arg.equals("--")) {
                 //
                 // End of options...
@@ -2549,8 +3881,7 @@ public class jrpcgen {
                 //
                 // It's an unknown option!
                 //
-                System.out.println("Unrecognized option: " + arg);
-                System.exit(1);
+                throw new IllegalArgumentException("Unrecognized option: " + arg);
             }
         }
         if (packageName != null && !packageName.isEmpty()) {
@@ -2566,7 +3897,7 @@ public class jrpcgen {
         //
         if ((argIdx >= argc) || (argIdx < argc - 1)) {
             printHelp();
-            System.exit(1);
+            return null;
         }
         String xfilename = args[argIdx];
         xFile = new File(xfilename);
@@ -2574,19 +3905,52 @@ public class jrpcgen {
         // Try to parse the file and generate the different class source
         // code files...
         //
-        try {
-            doParse();
-        } catch (Throwable t) {
-            System.out.println(t.getMessage());
-            //
-            // Exit application with non-zero outcome, so in case jrpcgen is
-            // used as part of, for instance, a make process, such tools can
-            // detect that there was a problem.
-            //
-            System.exit(1);
+        doParse();
+        return generatedFiles;
+    }
+
+    /**
+     * Collect the names of procedures annotated in the x-file. As the
+     * scanner drops comments, annotations are picked up from the raw
+     * source text.
+     *
+     * @param xFile x-file to scan.
+     *
+     * @throws IOException if the x-file can not be read.
+     */
+    public static void scanAnnotations(File xFile) throws IOException {
+        idempotentProcedures.clear();
+        String source = new String(Files.readAllBytes(xFile.toPath()), StandardCharsets.UTF_8);
+
+        // the enclosing version block of an annotation is the last one started before it
+        TreeMap<Integer, String> versions = new TreeMap<>();
+        Matcher v = VERSION_BLOCK.matcher(source);
+        while (v.find()) {
+            versions.put(v.start(), v.group(1));
+        }
+
+        Matcher m = IDEMPOTENT_ANNOTATION.matcher(source);
+        while (m.find()) {
+            Map.Entry<Integer, String> version = versions.floorEntry(m.start());
+            if (version == null) {
+                continue;
+            }
+            String[] words = m.group(1).trim().split("\\W+");
+            idempotentProcedures.add(idempotentKey(version.getValue(), words[words.length - 1]));
         }
     }
 
+    /**
+     * Get the key of a procedure in {@link #idempotentProcedures}.
+     *
+     * @param versionId identifier of the version defining the procedure.
+     * @param procedure name of the procedure.
+     * @return the key of the procedure.
+     */
+    public static String idempotentKey(String versionId, String procedure) {
+        return versionId + "." + procedure;
+    }
+
     /**
      * The real parsing and code generation part. This has been factored out
      * of main() in order to make it available as an Ant task.
@@ -2616,6 +3980,7 @@ public class jrpcgen {
             throw (new FileNotFoundException("jrpcgen: can not open source x-file \""
                     + xFile.getCanonicalPath() + "\""));
         }
+        scanAnnotations(xFile);
         JrpcgenScanner scanner = new JrpcgenScanner(in);
         JrpcgenParser parser = new JrpcgenParser(scanner);
 
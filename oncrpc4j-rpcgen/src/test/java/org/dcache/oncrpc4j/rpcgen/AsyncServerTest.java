@@ -0,0 +1,122 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AsyncServerTest {
+
+    private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+    private final List<CompletableFuture<Value>> pending = new CopyOnWriteArrayList<>();
+
+    private OncRpcSvc server;
+    private BlobStoreClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        AsyncBlobStoreServer serverImpl = new AsyncBlobStoreServer() {
+            @Override
+            public CompletableFuture<XdrVoid> put_1(RpcCall call$, Key key, Value value) {
+                if (value.data.length == 0) {
+                    CompletableFuture<XdrVoid> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new IllegalStateException("empty value"));
+                    return failed;
+                }
+                store.put(BlobStoreServerImpl.bytesToHex(key.data), value.data);
+                return CompletableFuture.completedFuture(XdrVoid.XDR_VOID);
+            }
+
+            @Override
+            public CompletableFuture<Value> get_1(RpcCall call$, Key key) {
+                // completed later, without blocking the worker thread
+                CompletableFuture<Value> result = new CompletableFuture<>();
+                pending.add(result);
+                return result.thenApply(v -> {
+                    v.notNull = true;
+                    v.data = store.get(BlobStoreServerImpl.bytesToHex(key.data));
+                    return v;
+                });
+            }
+        };
+
+        server = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withSameThreadIoStrategy()
+                .withBindAddress("127.0.0.1")
+                .build();
+        server.register(new OncRpcProgram(BlobStore.BLOB_STORAGE, BlobStore.BLOB_STORAGE_VERS), serverImpl);
+        server.start();
+        InetSocketAddress address = server.getInetSocketAddress(IpProtocolType.TCP);
+        client = new BlobStoreClient(address.getAddress(), address.getPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void testRepliesSentOnCompletion() throws Exception {
+        Key key = new Key();
+        key.setData(new byte[]{1, 2, 3});
+        Value value = new Value();
+        value.notNull = true;
+        value.data = new byte[]{4, 5, 6};
+        client.put_1(key, value, 0, null, null);
+
+        List<Future<Value>> replies = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            replies.add(client.get_1_future(key, null));
+        }
+
+        // all calls are accepted while none of them is completed
+        for (int i = 0; i < 100 && pending.size() < 10; i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        assertEquals(10, pending.size());
+
+        pending.forEach(f -> f.complete(new Value()));
+        for (Future<Value> reply : replies) {
+            assertArrayEquals(new byte[]{4, 5, 6}, reply.get(5, TimeUnit.SECONDS).data);
+        }
+    }
+
+    @Test
+    public void testFailedFuture() throws Exception {
+        Key key = new Key();
+        key.setData(new byte[]{1});
+        Value value = new Value();
+        value.notNull = true;
+        value.data = new byte[0];
+        try {
+            client.put_1(key, value, 5, TimeUnit.SECONDS, null);
+            fail("system error expected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EncodedSizeTest {
+
+    @Test
+    public void testStructSize() throws IOException {
+        CalculationResult result = new CalculationResult();
+        result.setResult(1L);
+        assertSize(result);
+    }
+
+    @Test
+    public void testOpaqueSizePadded() throws IOException {
+        Key key = new Key();
+        key.setData("abcde".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(12, key.xdrEncodedSize());
+        assertSize(key);
+    }
+
+    @Test
+    public void testUnionSize() throws IOException {
+        Value value = new Value();
+        value.notNull = false;
+        assertEquals(4, value.xdrEncodedSize());
+        assertSize(value);
+
+        value.notNull = true;
+        value.data = new byte[1023];
+        assertSize(value);
+    }
+
+    private static void assertSize(XdrAble xdrAble) throws IOException {
+        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        xdr.beginEncoding();
+        xdrAble.xdrEncode(xdr);
+        xdr.endEncoding();
+        assertEquals(xdr.getBytes().length, xdrAble.xdrEncodedSize());
+    }
+}
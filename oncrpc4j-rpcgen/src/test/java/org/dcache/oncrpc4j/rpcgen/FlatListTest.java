@@ -0,0 +1,89 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import java.io.IOException;
+
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FlatListTest {
+
+    @Test
+    public void testDecodeLinkedList() throws IOException {
+        dirent head = null;
+        for (int i = 999; i >= 0; i--) {
+            dirent e = new dirent();
+            e.cookie = i;
+            e.name = "file-" + i;
+            e.nextentry = head;
+            head = e;
+        }
+
+        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        xdr.beginEncoding();
+        xdr.xdrEncodeBoolean(true);
+        head.xdrEncode(xdr);
+        xdr.endEncoding();
+        byte[] linked = xdr.getBytes();
+
+        xdr = new Xdr(linked);
+        xdr.beginDecoding();
+        direntList list = new direntList(xdr);
+        xdr.endDecoding();
+
+        assertEquals(1000, list.size());
+        assertEquals(42L, list.cookie[42]);
+        assertEquals("file-42", list.name[42]);
+        assertEquals(linked.length, list.xdrEncodedSize());
+        assertArrayEquals(linked, encode(list));
+        assertArrayEquals(linked, encode(direntList.fromLinkedList(head)));
+        assertEquals("file-999", list.get(999).name);
+    }
+
+    @Test
+    public void testEmptyAndNullList() throws IOException {
+        dirlist dirs = new dirlist();
+        dirs.eof = true;
+        byte[] bytes = encode(dirs);
+        assertEquals(8, bytes.length);
+
+        Xdr xdr = new Xdr(bytes);
+        xdr.beginDecoding();
+        dirlist decoded = new dirlist(xdr);
+        assertTrue(decoded.entries.isEmpty());
+        assertTrue(decoded.eof);
+        assertNull(decoded.entries.toLinkedList());
+        assertArrayEquals(bytes, encode(decoded));
+    }
+
+    @Test
+    public void testListReused() throws IOException {
+        direntList list = new direntList(1);
+        list.add(1L, "a");
+        list.add(2L, "b");
+        list.add(3L, "c");
+        byte[] bytes = encode(list);
+
+        direntList decoded = new direntList();
+        decoded.add(7L, "x");
+        Xdr xdr = new Xdr(bytes);
+        xdr.beginDecoding();
+        decoded.xdrDecode(xdr);
+        assertEquals(3, decoded.size());
+        assertEquals("c", decoded.name[2]);
+        assertEquals(2L, decoded.toLinkedList().nextentry.cookie);
+    }
+
+    private static byte[] encode(XdrAble xdrAble) throws IOException {
+        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        xdr.beginEncoding();
+        xdrAble.xdrEncode(xdr);
+        xdr.endEncoding();
+        return xdr.getBytes();
+    }
+}
@@ -0,0 +1,43 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.acplt.oncrpc.apps.jrpcgen.jrpcgen;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.acplt.oncrpc.apps.jrpcgen.jrpcgen.idempotentKey;
+import static org.junit.Assert.*;
+
+public class IdempotentAnnotationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAnnotationScopedByVersion() throws IOException {
+        File xFile = folder.newFile("store.x");
+        Files.write(xFile.toPath(), ("program STORE {\n"
+                + "    version STORE_V1 {\n"
+                + "        /* @idempotent */\n"
+                + "        int get(int) = 1;\n"
+                + "        void put(int) = 2;\n"
+                + "    } = 1;\n"
+                + "    version STORE_V2 {\n"
+                + "        int get(int) = 1;\n"
+                + "        /* @idempotent */ void put(int) = 2;\n"
+                + "    } = 2;\n"
+                + "} = 119;\n").getBytes(StandardCharsets.UTF_8));
+
+        jrpcgen.scanAnnotations(xFile);
+
+        assertTrue(jrpcgen.idempotentProcedures.contains(idempotentKey("STORE_V1", "get")));
+        assertFalse(jrpcgen.idempotentProcedures.contains(idempotentKey("STORE_V1", "put")));
+        assertFalse(jrpcgen.idempotentProcedures.contains(idempotentKey("STORE_V2", "get")));
+        assertTrue(jrpcgen.idempotentProcedures.contains(idempotentKey("STORE_V2", "put")));
+    }
+}
@@ -0,0 +1,73 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrIntVector;
+import org.dcache.oncrpc4j.xdr.XdrLongVector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class LazyVectorTest {
+
+    @Test
+    public void testDecodeOnAccess() throws IOException {
+        int[] ids = new int[1000];
+        long[] offsets = new long[1000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            offsets[i] = i * 4096L;
+        }
+        byte[] payload = "some payload".getBytes(StandardCharsets.UTF_8);
+
+        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        xdr.beginEncoding();
+        xdr.xdrEncodeIntVector(ids);
+        xdr.xdrEncodeLongVector(offsets);
+        xdr.xdrEncodeDynamicOpaque(Opaque.forBytes(payload));
+        xdr.xdrEncodeIntFixedVector(new int[] {1, 2}, 2);
+        xdr.endEncoding();
+        byte[] bytes = xdr.getBytes();
+
+        xdr = new Xdr(bytes);
+        xdr.beginDecoding();
+        Samples samples = new Samples(xdr);
+
+        assertEquals(1000, samples.getIds().size());
+        assertEquals(512, samples.getIds().get(512));
+        assertEquals(999 * 4096L, samples.getOffsets().get(999));
+        assertArrayEquals(payload, samples.getPayload().toBytes());
+        assertArrayEquals(new int[] {1, 2}, samples.getWindow());
+        assertEquals(bytes.length, samples.xdrEncodedSize());
+
+        Xdr out = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        out.beginEncoding();
+        samples.xdrEncode(out);
+        out.endEncoding();
+        assertArrayEquals(bytes, out.getBytes());
+    }
+
+    @Test
+    public void testEncodeFromArrays() throws IOException {
+        Samples samples = new Samples();
+        samples.setIds(new XdrIntVector(new int[] {3, 4}));
+        samples.setOffsets(new XdrLongVector(new long[] {5L}));
+        samples.setPayload(Opaque.forBytes(new byte[] {1, 2, 3}));
+        samples.setWindow(new int[] {6, 7});
+
+        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
+        xdr.beginEncoding();
+        samples.xdrEncode(xdr);
+        xdr.endEncoding();
+        assertEquals(samples.xdrEncodedSize(), xdr.getBytes().length);
+
+        xdr.beginDecoding();
+        assertArrayEquals(new int[] {3, 4}, xdr.xdrDecodeIntVector());
+        assertArrayEquals(new long[] {5L}, xdr.xdrDecodeLongVector());
+        assertArrayEquals(new byte[] {1, 2, 3}, xdr.xdrDecodeDynamicOpaque().toBytes());
+    }
+}
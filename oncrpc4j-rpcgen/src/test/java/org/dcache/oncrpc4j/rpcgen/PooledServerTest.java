@@ -0,0 +1,121 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PooledServerTest {
+
+    private final List<Key> keys = new CopyOnWriteArrayList<>();
+    private final List<byte[]> data = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private OncRpcSvc server;
+    private BlobStoreClient client;
+
+    private class RecordingServer extends PooledBlobStoreServer {
+
+        @Override
+        public void put_1(RpcCall call$, Key key, Value value) {
+        }
+
+        @Override
+        public Value get_1(RpcCall call$, Key key) {
+            keys.add(key);
+            data.add(key.data);
+            Value value = new Value();
+            value.notNull = true;
+            value.data = key.data;
+            return value;
+        }
+    }
+
+    private void start(PooledBlobStoreServer serverImpl) throws IOException {
+        server = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withWorkerThreadIoStrategy()
+                .withWorkerThreadExecutionService(executor)
+                .withBindAddress("127.0.0.1")
+                .build();
+        server.register(new OncRpcProgram(BlobStore.BLOB_STORAGE, BlobStore.BLOB_STORAGE_VERS), serverImpl);
+        server.start();
+        InetSocketAddress address = server.getInetSocketAddress(IpProtocolType.TCP);
+        client = new BlobStoreClient(address.getAddress(), address.getPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            client.close();
+            server.stop();
+        }
+        executor.shutdown();
+    }
+
+    private Value get(byte[] bytes) throws Exception {
+        Key key = new Key();
+        key.setData(bytes);
+        return client.get_1(key, 5, TimeUnit.SECONDS, null);
+    }
+
+    @Test
+    public void testArgumentsReused() throws Exception {
+        start(new RecordingServer());
+
+        assertArrayEquals(new byte[]{1, 2}, get(new byte[]{1, 2}).data);
+        assertArrayEquals(new byte[]{3}, get(new byte[]{3}).data);
+
+        assertEquals(2, keys.size());
+        assertSame(keys.get(0), keys.get(1));
+        assertArrayEquals(new byte[]{1, 2}, data.get(0));
+        assertArrayEquals(new byte[]{3}, data.get(1));
+    }
+
+    @Test
+    public void testArgumentsNotReusable() throws Exception {
+        start(new RecordingServer() {
+            @Override
+            protected boolean isArgumentReusable(int version, int procedure) {
+                return false;
+            }
+        });
+
+        get(new byte[]{1});
+        get(new byte[]{2});
+
+        assertEquals(2, keys.size());
+        assertNotSame(keys.get(0), keys.get(1));
+        assertArrayEquals(new byte[]{1}, keys.get(0).data);
+    }
+
+    @Test
+    public void testReset() {
+        Value value = new Value();
+        value.notNull = true;
+        value.data = new byte[]{1};
+        value.reset();
+        assertFalse(value.notNull);
+        assertNull(value.data);
+    }
+}
@@ -0,0 +1,48 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import org.dcache.oncrpc4j.rpc.RpcProcedureDescriptor;
+import org.dcache.oncrpc4j.xdr.XdrLong;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProcedureDescriptorTest {
+
+    @Test
+    public void testDescriptorTable() {
+        RpcProcedureDescriptor put = BlobStoreServer.PROCEDURES[0];
+        assertEquals(118, put.getProgram());
+        assertEquals(1, put.getVersion());
+        assertEquals(1, put.getProcedure());
+        assertEquals("put", put.getName());
+        assertEquals(XdrVoid.class, put.getResultType());
+        assertFalse(put.isIdempotent());
+
+        RpcProcedureDescriptor get = BlobStoreServer.PROCEDURES[1];
+        assertEquals("get", get.getName());
+        assertEquals(Key.class, get.getArgumentType());
+        assertEquals(Value.class, get.getResultType());
+        assertTrue(get.isIdempotent());
+    }
+
+    @Test
+    public void testArgumentFactory() {
+        RpcProcedureDescriptor put = BlobStoreServer.PROCEDURES[0];
+        assertEquals(BlobStoreServer.XdrAble$put_1.class, put.newArguments().getClass());
+        assertEquals(Key.class, BlobStoreServer.PROCEDURES[1].newArguments().getClass());
+    }
+
+    @Test
+    public void testResultWrapping() {
+        assertEquals(XdrLong.class, CalculatorServer.PROCEDURES[1].getResultType());
+    }
+
+    @Test
+    public void testLookup() {
+        BlobStoreServer server = new BlobStoreServerImpl();
+        assertSame(BlobStoreServer.PROCEDURES[1], server.getProcedureDescriptor(1, 2));
+        assertNull(server.getProcedureDescriptor(1, 3));
+        assertNull(server.getProcedureDescriptor(2, 1));
+    }
+}
@@ -12,6 +12,7 @@ union Value switch (bool notNull) {
 program BLOB_STORAGE {
     version BLOB_STORAGE_VERS {
         void put(Key key, Value value) = 1;
+        /* @idempotent */
         Value get(Key key) = 2;
     } = 1;
 } = 118;
\ No newline at end of file
@@ -0,0 +1,10 @@
+struct dirent {
+    unsigned hyper cookie;
+    string name<255>;
+    dirent *nextentry;
+};
+
+struct dirlist {
+    dirent *entries;
+    bool eof;
+};
@@ -0,0 +1,6 @@
+struct Samples {
+    int ids<>;
+    hyper offsets<>;
+    opaque payload<>;
+    int window[2];
+};